@@ -0,0 +1,81 @@
+package com.adcaisse.delivery_route_optimizer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, e.g. from {@link BenchmarkRunner} on two commits, benchmark by
+ * benchmark and parameter set by parameter set. A change counts as a regression when it is worse by
+ * more than the threshold and by more than both runs' error margins; throughput is worse when lower,
+ * every other mode when higher. Exits with 1 if any benchmark regressed, for use in CI.
+ *
+ * Arguments: baseline.json candidate.json [threshold percent], default 5.
+ */
+public class BenchmarkComparison {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison baseline.json candidate.json [threshold percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> candidate = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "baseline", "candidate", "change");
+        for (Map.Entry<String, JsonNode> entry : candidate.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+            JsonNode metric = after.get("primaryMetric");
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", metric.get("score").asDouble(), "new");
+                continue;
+            }
+            double old = before.get("primaryMetric").get("score").asDouble();
+            double now = metric.get("score").asDouble();
+            double error = before.get("primaryMetric").path("scoreError").asDouble(0)
+                    + metric.path("scoreError").asDouble(0);
+            double change = old == 0 ? 0 : (now - old) * 100 / old;
+            double worse = "thrpt".equals(after.get("mode").asText()) ? -change : change;
+            boolean regressed = worse > threshold && Math.abs(now - old) > error;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), old, now, change,
+                    metric.get("scoreUnit").asText(), regressed ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d of %d benchmarks regressed by more than %.1f%%%n", regressions, candidate.size(), threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return results by benchmark name, mode and parameters
+     */
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText()
+                    .replace("com.adcaisse.delivery_route_optimizer.", ""))
+                    .append(' ').append(result.get("mode").asText());
+            Map<String, String> params = new TreeMap<>();
+            JsonNode paramsNode = result.get("params");
+            if (paramsNode != null) {
+                for (Iterator<Map.Entry<String, JsonNode>> it = paramsNode.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    params.put(param.getKey(), param.getValue().asText());
+                }
+            }
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,57 @@
+package com.adcaisse.delivery_route_optimizer;
+
+import org.openjdk.jmh.Main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs JMH with the given arguments and writes its results as JSON to target/jmh/{commit}.json,
+ * named after the checked-out commit (with -dirty for uncommitted changes), so that runs on two
+ * commits can be compared with {@link BenchmarkComparison}. Passing -rf or -rff overrides this.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(List.of(args));
+        int resultFile = jmhArgs.indexOf("-rff");
+        if (resultFile >= 0 && resultFile + 1 < jmhArgs.size()) {
+            // JMH does not create the directory itself
+            Path parent = Path.of(jmhArgs.get(resultFile + 1)).toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+        } else if (!jmhArgs.contains("-rf")) {
+            Path result = Path.of("target", "jmh", revision() + ".json");
+            Files.createDirectories(result.getParent());
+            jmhArgs.addAll(List.of("-rf", "json", "-rff", result.toString()));
+            System.out.println("JMH results go to " + result);
+        }
+        Main.main(jmhArgs.toArray(String[]::new));
+    }
+
+    private static String revision() {
+        try {
+            Process git = new ProcessBuilder("git", "describe", "--always", "--dirty")
+                    .redirectErrorStream(true)
+                    .start();
+            try (InputStream out = git.getInputStream()) {
+                String revision = new String(out.readAllBytes(), StandardCharsets.UTF_8).trim();
+                if (git.waitFor(10, TimeUnit.SECONDS) && git.exitValue() == 0 && !revision.isEmpty()) {
+                    return revision;
+                }
+            }
+        } catch (IOException e) {
+            // Not a git checkout, or no git: fall back to the time
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.adcaisse.delivery_route_optimizer.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of GraphHopper responses, from the bytes the request engine hands over to RoadCost values:
+ *
+ * - matrix: one /matrix tile with times and distances, streamed into the target array. 100 is the
+ *   default tile size (a 10,000-stop matrix is 10,000 such tiles); 1,000 a server allowing larger ones
+ * - route: one round trip /route response split into its legs by the leg_distance and leg_time
+ *   details, and by the instructions for servers without them
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphHopperParsingBenchmark {
+
+    private final GraphHopperClient client = new GraphHopperClient("http://localhost:8989", "car", null, true, 100, true);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String routeWithDetails;
+    private String routeWithInstructions;
+
+    @State(Scope.Benchmark)
+    public static class MatrixTile {
+
+        @Param({"100", "1000"})
+        public int tileSize;
+
+        private byte[] body;
+        private long[][] target;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(42);
+            StringBuilder distances = new StringBuilder();
+            StringBuilder times = new StringBuilder();
+            for (int row = 0; row < tileSize; row++) {
+                distances.append(row == 0 ? "[" : ",[");
+                times.append(row == 0 ? "[" : ",[");
+                for (int col = 0; col < tileSize; col++) {
+                    double distance = row == col ? 0 : 500 + random.nextDouble() * 40_000;
+                    distances.append(col == 0 ? "" : ",").append(String.format(Locale.ROOT, "%.1f", distance));
+                    times.append(col == 0 ? "" : ",").append(Math.round(distance / 12));
+                }
+                distances.append(']');
+                times.append(']');
+            }
+            body = ("{\"distances\":[" + distances + "],\"times\":[" + times + "],"
+                    + "\"info\":{\"copyrights\":[\"GraphHopper\",\"OpenStreetMap contributors\"],\"took\":12}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            target = new long[tileSize][tileSize];
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        routeWithDetails = route(true);
+        routeWithInstructions = route(false);
+    }
+
+    /**
+     * A round trip with 24 instructions, the via point reached after 12 of them.
+     */
+    private static String route(boolean details) {
+        Random random = new Random(7);
+        StringBuilder instructions = new StringBuilder();
+        double[] legDistance = new double[2];
+        long[] legTime = new long[2];
+        for (int i = 0; i < 24; i++) {
+            boolean viaReached = i == 12;
+            double distance = viaReached ? 0 : 50 + random.nextDouble() * 900;
+            long time = Math.round(distance * 80);
+            legDistance[i < 12 ? 0 : 1] += distance;
+            legTime[i < 12 ? 0 : 1] += time;
+            instructions.append(i == 0 ? "" : ",")
+                    .append(String.format(Locale.ROOT, "{\"distance\":%.3f,\"heading\":%.2f,\"sign\":%d,\"interval\":[%d,%d],"
+                                    + "\"text\":\"Turn onto Avenue Habib Bourguiba\",\"time\":%d,\"street_name\":\"Avenue Habib Bourguiba\"}",
+                            distance, random.nextDouble() * 360, viaReached ? 5 : random.nextInt(7) - 3, i * 4, i * 4 + 4,
+                            time));
+        }
+        String detailsJson = details
+                ? String.format(Locale.ROOT, ",\"details\":{\"leg_distance\":[[0,48,%.3f],[48,96,%.3f]],\"leg_time\":[[0,48,%d],[48,96,%d]]}",
+                legDistance[0], legDistance[1], legTime[0], legTime[1])
+                : "";
+        return String.format(Locale.ROOT, "{\"hints\":{\"visited_nodes.sum\":412,\"visited_nodes.average\":206.0},"
+                        + "\"info\":{\"copyrights\":[\"GraphHopper\",\"OpenStreetMap contributors\"],\"took\":3},"
+                        + "\"paths\":[{\"distance\":%.3f,\"weight\":%.6f,\"time\":%d,\"transfers\":0,\"points_encoded\":true,"
+                        + "\"bbox\":[10.15,36.78,10.25,36.84],\"points\":\"%s\",\"instructions\":[%s],"
+                        + "\"legs\":[],\"ascend\":12.0,\"descend\":12.0,\"snapped_waypoints\":\"ss`_F_gc}@??\"%s}]}",
+                legDistance[0] + legDistance[1], (legDistance[0] + legDistance[1]) / 10, legTime[0] + legTime[1],
+                "_p~iF~ps|U_ulLnnqC_mqNvxq`@".repeat(8), instructions, detailsJson);
+    }
+
+    @Benchmark
+    public long[][] matrix(MatrixTile tile) throws IOException {
+        List<int[]> unresolved = client.parseMatrixCosts(new ByteArrayInputStream(tile.body), tile.target,
+                tile.tileSize, tile.tileSize);
+        if (!unresolved.isEmpty()) {
+            throw new IllegalStateException("Synthetic tile has unresolved cells");
+        }
+        return tile.target;
+    }
+
+    @Benchmark
+    public long[] routeLegDetails() throws IOException {
+        return parseRoute(routeWithDetails);
+    }
+
+    @Benchmark
+    public long[] routeInstructions() throws IOException {
+        return parseRoute(routeWithInstructions);
+    }
+
+    private long[] parseRoute(String body) throws IOException {
+        JsonNode path = objectMapper.readTree(body).get("paths").get(0);
+        return client.parseLegCosts(path);
+    }
+}
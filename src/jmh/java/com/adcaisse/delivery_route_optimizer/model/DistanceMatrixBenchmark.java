@@ -0,0 +1,103 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring one full route (depot -> every customer -> depot), as the distance constraint
+ * does on every move: ID lookups through the old long[][] + HashMap layout versus index lookups
+ * into the flat DistanceMatrix, directed and symmetric.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistanceMatrixBenchmark {
+
+    @Param({"50", "200", "1000"})
+    public int locations;
+
+    private LegacyDistanceMatrix legacy;
+    private DistanceMatrix directed;
+    private DistanceMatrix symmetric;
+    private Location depot;
+    private List<Location> route;
+    private int[] routeIndices;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Location> all = new ArrayList<>();
+        for (int i = 0; i < locations; i++) {
+            all.add(new Location(i, 36.7 + random.nextDouble() * 0.3, 10.1 + random.nextDouble() * 0.3));
+        }
+        // City-scale distances in meters, below 65 km so the flat matrix uses 16-bit cells
+        long[][] matrix = new long[locations][locations];
+        for (int i = 0; i < locations; i++) {
+            for (int j = i + 1; j < locations; j++) {
+                matrix[i][j] = 500 + random.nextInt(40_000);
+                matrix[j][i] = matrix[i][j];
+            }
+        }
+
+        legacy = new LegacyDistanceMatrix(all, matrix);
+        directed = new DistanceMatrix(all, matrix, true);
+        symmetric = new DistanceMatrix(all, matrix, false);
+
+        depot = all.get(0);
+        route = new ArrayList<>(all.subList(1, locations));
+        Collections.shuffle(route, random);
+        routeIndices = new int[route.size()];
+        for (int i = 0; i < route.size(); i++) {
+            routeIndices[i] = (int) route.get(i).getId();
+        }
+    }
+
+    @Benchmark
+    public long legacyIdLookup() {
+        long total = 0;
+        Location previous = depot;
+        for (Location next : route) {
+            total += legacy.getDistance(previous, next);
+            previous = next;
+        }
+        return total + legacy.getDistance(previous, depot);
+    }
+
+    @Benchmark
+    public long directedIndexLookup() {
+        return walk(directed);
+    }
+
+    @Benchmark
+    public long symmetricIndexLookup() {
+        return walk(symmetric);
+    }
+
+    private long walk(DistanceMatrix matrix) {
+        long total = 0;
+        int previous = 0;
+        for (int next : routeIndices) {
+            total += matrix.getDistanceByIndex(previous, next);
+            previous = next;
+        }
+        return total + matrix.getDistanceByIndex(previous, 0);
+    }
+}
@@ -0,0 +1,81 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One DistanceMatrix lookup, by location ID as service code does and by index as the score
+ * calculator does, on {@link SyntheticProblems} of 100, 1,000 and 10,000 stops. Pairs are random,
+ * so at 10,000 stops most lookups miss the CPU caches, as moves between distant routes do.
+ *
+ * The 10,000-stop matrix takes 200 MB directed, plus the long[][] it is built from.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class DistanceMatrixLookupBenchmark {
+
+    private static final int PAIRS = 4096;
+
+    @Param({"100", "1000", "10000"})
+    public int stops;
+
+    @Param({"true", "false"})
+    public boolean directed;
+
+    private DistanceMatrix matrix;
+    private final long[] fromIds = new long[PAIRS];
+    private final long[] toIds = new long[PAIRS];
+    private final int[] fromIndices = new int[PAIRS];
+    private final int[] toIndices = new int[PAIRS];
+
+    @Setup
+    public void setUp() {
+        matrix = SyntheticProblems.create(stops, 1, directed).getDistanceMatrix();
+        List<Location> locations = matrix.getLocations();
+        Random random = new Random(42);
+        for (int i = 0; i < PAIRS; i++) {
+            fromIndices[i] = random.nextInt(locations.size());
+            toIndices[i] = random.nextInt(locations.size());
+            fromIds[i] = locations.get(fromIndices[i]).getId();
+            toIds[i] = locations.get(toIndices[i]).getId();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public long idLookup() {
+        long total = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            total += matrix.getDistance(fromIds[i], toIds[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public long indexLookup() {
+        long total = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            total += matrix.getDistanceByIndex(fromIndices[i], toIndices[i]);
+        }
+        return total;
+    }
+}
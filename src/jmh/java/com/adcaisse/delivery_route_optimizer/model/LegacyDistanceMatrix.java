@@ -0,0 +1,39 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DistanceMatrix layout before dense indices: long[][] rows resolved through a
+ * HashMap of boxed location IDs. Kept only as the baseline for {@link DistanceMatrixBenchmark}.
+ */
+public class LegacyDistanceMatrix {
+
+    private final long[][] matrix;
+    private final Map<Long, Integer> locationIdToIndex;
+
+    public LegacyDistanceMatrix(List<Location> locations, long[][] matrix) {
+        this.matrix = matrix;
+        this.locationIdToIndex = new HashMap<>();
+
+        for (int i = 0; i < locations.size(); i++) {
+            locationIdToIndex.put(locations.get(i).getId(), i);
+        }
+    }
+
+    public long getDistance(long fromId, long toId) {
+        Integer fromIndex = locationIdToIndex.get(fromId);
+        Integer toIndex = locationIdToIndex.get(toId);
+
+        if (fromIndex == null || toIndex == null) {
+            return -1;
+        }
+
+        return matrix[fromIndex][toIndex];
+    }
+
+    public long getDistance(Location from, Location to) {
+        return getDistance(from.getId(), to.getId());
+    }
+}
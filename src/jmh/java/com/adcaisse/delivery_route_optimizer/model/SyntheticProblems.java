@@ -0,0 +1,73 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded synthetic problems for the benchmarks, no GraphHopper needed: customers spread uniformly
+ * over a 0.3° square (about 30 km) around a depot in Tunis, with Manhattan distances in meters as
+ * a stand-in for road distances. Every distance stays below 65 km, so matrices use 16-bit cells.
+ *
+ * Customers are dealt round-robin to the vehicles, so every route is already complete and
+ * benchmarks can skip construction. Vehicle capacity is 1.2 times a fair share of the demand.
+ */
+public final class SyntheticProblems {
+
+    public static final Location DEPOT = new Location(0, 36.80, 10.20);
+    private static final long SEED = 37;
+
+    private SyntheticProblems() {
+    }
+
+    public static VehicleRoutingSolution create(int customerCount, int vehicleCount) {
+        return create(customerCount, vehicleCount, true);
+    }
+
+    /**
+     * @param directed false for a matrix that keeps only the upper triangle, half the memory
+     */
+    public static VehicleRoutingSolution create(int customerCount, int vehicleCount, boolean directed) {
+        Random random = new Random(SEED);
+        List<Location> locations = new ArrayList<>();
+        locations.add(DEPOT);
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 1; i <= customerCount; i++) {
+            Location location = new Location(i, 36.65 + random.nextDouble() * 0.3, 10.05 + random.nextDouble() * 0.3);
+            locations.add(location);
+            Customer customer = new Customer((long) i, "Customer " + i, location, 1 + random.nextInt(20));
+            customer.setMatrixIndex(i);
+            customers.add(customer);
+        }
+
+        int capacity = (int) (customers.stream().mapToInt(Customer::getDemand).sum() * 1.2 / vehicleCount);
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int v = 0; v < vehicleCount; v++) {
+            vehicles.add(new Vehicle((long) v + 1, "Vehicle " + (v + 1), capacity, DEPOT));
+        }
+        for (int i = 0; i < customers.size(); i++) {
+            vehicles.get(i % vehicleCount).getCustomerList().add(customers.get(i));
+        }
+
+        VehicleRoutingSolution problem = new VehicleRoutingSolution("Synthetic " + customerCount, customers, vehicles);
+        problem.setDistanceMatrix(matrix(locations, directed));
+        return problem;
+    }
+
+    public static DistanceMatrix matrix(List<Location> locations, boolean directed) {
+        int n = locations.size();
+        long[][] matrix = new long[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                matrix[i][j] = distance(locations.get(i), locations.get(j));
+            }
+        }
+        return new DistanceMatrix(locations, matrix, directed);
+    }
+
+    public static long distance(Location from, Location to) {
+        return Math.round((Math.abs(from.getLatitude() - to.getLatitude())
+                + Math.abs(from.getLongitude() - to.getLongitude())) * 100_000);
+    }
+}
@@ -0,0 +1,118 @@
+package com.adcaisse.delivery_route_optimizer.service.impl;
+
+import com.adcaisse.delivery_route_optimizer.client.GraphHopperClient;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.model.SyntheticProblems;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache hits of DistanceCalculatorServiceImpl.getDistance, alone and from 4 threads at once, as
+ * when partitioned solves and batch problems look distances up side by side.
+ *
+ * 65,536 random pairs among 100, 1,000 or 10,000 stops are looked up once before measuring, so
+ * every measured lookup is a hit; the same number of pairs keeps the working set alike across
+ * sizes, while more stops means fewer repeated pairs. Lookups never reach GraphHopper: misses
+ * are answered with Manhattan distances.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistanceCacheBenchmark {
+
+    private static final int PAIRS = 1 << 16;
+    private static final int BATCH = 256;
+
+    @Param({"100", "1000", "10000"})
+    public int stops;
+
+    private DistanceCalculatorServiceImpl distanceCalculator;
+    private final Location[] from = new Location[PAIRS];
+    private final Location[] to = new Location[PAIRS];
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = ThreadLocalRandom.current().nextInt(PAIRS);
+    }
+
+    @Setup
+    public void setUp() {
+        distanceCalculator = new DistanceCalculatorServiceImpl(new ManhattanClient(), 64, false, null, 0, 0);
+        List<Location> locations = SyntheticProblems.create(stops, 1, false).getDistanceMatrix().getLocations();
+        Random random = new Random(42);
+        for (int i = 0; i < PAIRS; i++) {
+            from[i] = locations.get(random.nextInt(locations.size()));
+            to[i] = locations.get(random.nextInt(locations.size()));
+            distanceCalculator.getDistance(from[i], to[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        distanceCalculator.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH)
+    public long uncontended(Cursor cursor) {
+        return lookUp(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH)
+    public long contended(Cursor cursor) {
+        return lookUp(cursor);
+    }
+
+    private long lookUp(Cursor cursor) {
+        long total = 0;
+        int next = cursor.next;
+        for (int i = 0; i < BATCH; i++) {
+            total += distanceCalculator.getDistance(from[next], to[next]);
+            next = (next + 1) & (PAIRS - 1);
+        }
+        cursor.next = next;
+        return total;
+    }
+
+    /**
+     * Answers pair requests locally; matrices are never requested by this benchmark.
+     */
+    private static class ManhattanClient extends GraphHopperClient {
+
+        ManhattanClient() {
+            super("http://localhost:8989", "car", null, false, 100, true);
+        }
+
+        @Override
+        public long[] getCostPair(Location from, Location to) {
+            long there = SyntheticProblems.distance(from, to);
+            long back = SyntheticProblems.distance(to, from);
+            return new long[]{RoadCost.of(there, there / 10), RoadCost.of(back, back / 10)};
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.client.GraphHopperClient;
+import com.adcaisse.delivery_route_optimizer.client.GraphHopperRequestEngine;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.solver.VehicleRoutingDatasetFileIO.Dataset;
+import com.adcaisse.delivery_route_optimizer.solver.VehicleRoutingDatasetFileIO.Stop;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the seeded benchmark datasets of {@link SolverBenchmarkSuite}, each written with its
+ * full matrix by {@link VehicleRoutingDatasetFileIO}:
+ *
+ * - urban-clustered-400: stops in 8 dense neighbourhoods within 12 km of a depot in Tunis, one
+ *   vehicle type, short service times
+ * - rural-sparse-150: stops scattered up to 60 km around Kairouan, heavy loads, long legs
+ * - mixed-fleet-300: a city centre and its suburbs around Sfax served by cargo bikes, vans and
+ *   trucks of very different capacities, with a time window on a third of the stops
+ *
+ * Without a GraphHopper URL, road distances are the great-circle distance times a detour factor,
+ * with up to 6% difference between the two directions as one-way streets cause, and travel times
+ * follow from an average speed per area. With one, the matrices are fetched from it once, so later
+ * benchmark runs need no GraphHopper.
+ *
+ * Arguments: [output directory] [GraphHopper URL], default target/benchmark-datasets.
+ */
+public class BenchmarkDatasets {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    public static void main(String[] args) throws Exception {
+        File directory = new File(args.length > 0 ? args[0] : "target/benchmark-datasets");
+        String graphHopperUrl = args.length > 1 ? args[1] : null;
+        for (File file : generate(directory, graphHopperUrl)) {
+            System.out.println("Wrote " + file);
+        }
+    }
+
+    /**
+     * Writes every dataset that is not in the directory yet.
+     *
+     * @return the dataset files, existing or new
+     */
+    public static List<File> generate(File directory, String graphHopperUrl) throws Exception {
+        Files.createDirectories(directory.toPath());
+        GraphHopperClient graphHopper = graphHopperUrl == null ? null : new GraphHopperClient(graphHopperUrl, "car",
+                new GraphHopperRequestEngine(10, 30), true, 100, true);
+        VehicleRoutingDatasetFileIO fileIO = new VehicleRoutingDatasetFileIO();
+        List<File> files = new ArrayList<>();
+        for (String name : List.of("urban-clustered-400", "rural-sparse-150", "mixed-fleet-300")) {
+            File file = new File(directory, name + "." + VehicleRoutingDatasetFileIO.EXTENSION);
+            if (!file.exists()) {
+                fileIO.write(create(name, graphHopper), file);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static Dataset create(String name, GraphHopperClient graphHopper) throws Exception {
+        Random random = new Random(name.hashCode());
+        List<Stop> stops = new ArrayList<>();
+        return switch (name) {
+            case "urban-clustered-400" -> {
+                Location depot = new Location(0, 36.8065, 10.1815);
+                addClusters(stops, random, depot, 400, 8, 12_000, 600, 1, 10, 5);
+                yield dataset(name, depot, stops, fleet(stops, 1.15, new int[]{10}, new int[]{1}),
+                        graphHopper, random, 1.4, 25);
+            }
+            case "rural-sparse-150" -> {
+                Location depot = new Location(0, 35.6781, 10.0963);
+                for (int i = 1; i <= 150; i++) {
+                    Location location = around(random, depot, i, 60_000 * Math.sqrt(random.nextDouble()));
+                    stops.add(new Stop(location, 5 + random.nextInt(26), 10, null, null));
+                }
+                yield dataset(name, depot, stops, fleet(stops, 1.15, new int[]{5}, new int[]{1}),
+                        graphHopper, random, 1.25, 65);
+            }
+            case "mixed-fleet-300" -> {
+                Location depot = new Location(0, 34.7406, 10.7603);
+                addClusters(stops, random, depot, 200, 5, 8_000, 500, 1, 25, 6);
+                for (int i = 201; i <= 300; i++) {
+                    Location location = around(random, depot, i, 8_000 + 22_000 * Math.sqrt(random.nextDouble()));
+                    stops.add(new Stop(location, 1 + random.nextInt(25), 6, null, null));
+                }
+                // Morning or afternoon slots of two hours on a third of the stops
+                for (int i = 0; i < stops.size(); i++) {
+                    if (random.nextInt(3) == 0) {
+                        Stop stop = stops.get(i);
+                        int ready = 30 * random.nextInt(9);
+                        stops.set(i, new Stop(stop.location(), stop.demand(), stop.serviceTime(), ready, ready + 120));
+                    }
+                }
+                // 4 cargo bikes, 8 vans with 4 times and 3 trucks with 12 times their capacity
+                yield dataset(name, depot, stops, fleet(stops, 1.15, new int[]{4, 8, 3}, new int[]{1, 4, 12}),
+                        graphHopper, random, 1.35, 35);
+            }
+            default -> throw new IllegalArgumentException("Unknown dataset " + name);
+        };
+    }
+
+    private static void addClusters(List<Stop> stops, Random random, Location depot, int count, int clusters,
+                                    double radiusMeters, double spreadMeters, int minDemand, int maxDemand,
+                                    int serviceTime) {
+        List<Location> centres = new ArrayList<>();
+        for (int c = 0; c < clusters; c++) {
+            centres.add(around(random, depot, -1, radiusMeters * Math.sqrt(random.nextDouble())));
+        }
+        for (int i = 1; i <= count; i++) {
+            Location centre = centres.get(random.nextInt(clusters));
+            Location location = around(random, centre, stops.size() + 1, Math.abs(random.nextGaussian()) * spreadMeters);
+            stops.add(new Stop(location, minDemand + random.nextInt(maxDemand - minDemand + 1), serviceTime, null, null));
+        }
+    }
+
+    /**
+     * A location at the given distance from the centre, in a random direction.
+     */
+    private static Location around(Random random, Location centre, long id, double meters) {
+        double bearing = random.nextDouble() * 2 * Math.PI;
+        double dLat = meters * Math.cos(bearing) / EARTH_RADIUS_METERS;
+        double dLon = meters * Math.sin(bearing) / (EARTH_RADIUS_METERS * Math.cos(Math.toRadians(centre.getLatitude())));
+        return new Location(id, centre.getLatitude() + Math.toDegrees(dLat), centre.getLongitude() + Math.toDegrees(dLon));
+    }
+
+    /**
+     * Capacities in the given ratios, adding up to slack times the total demand.
+     */
+    private static List<Integer> fleet(List<Stop> stops, double slack, int[] counts, int[] ratios) {
+        int totalDemand = stops.stream().mapToInt(Stop::demand).sum();
+        int units = 0;
+        for (int t = 0; t < counts.length; t++) {
+            units += counts[t] * ratios[t];
+        }
+        int unit = (int) Math.ceil(totalDemand * slack / units);
+        List<Integer> capacities = new ArrayList<>();
+        for (int t = 0; t < counts.length; t++) {
+            for (int v = 0; v < counts[t]; v++) {
+                capacities.add(unit * ratios[t]);
+            }
+        }
+        return capacities;
+    }
+
+    private static Dataset dataset(String name, Location depot, List<Stop> stops, List<Integer> capacities,
+                                   GraphHopperClient graphHopper, Random random, double detourFactor,
+                                   double kilometersPerHour) throws Exception {
+        List<Location> locations = new ArrayList<>();
+        locations.add(depot);
+        stops.forEach(stop -> locations.add(stop.location()));
+        int n = locations.size();
+        long[][] distances = new long[n][n];
+        long[][] durations = new long[n][n];
+        if (graphHopper != null) {
+            long[][] costs = graphHopper.getCostMatrix(locations);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    distances[i][j] = RoadCost.distance(costs[i][j]);
+                    durations[i][j] = RoadCost.duration(costs[i][j]);
+                }
+            }
+        } else {
+            double metersPerSecond = kilometersPerHour / 3.6;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i != j) {
+                        double oneWay = 1 + (random.nextDouble() - 0.5) * 0.12;
+                        distances[i][j] = Math.round(greatCircle(locations.get(i), locations.get(j)) * detourFactor * oneWay);
+                        durations[i][j] = Math.round(distances[i][j] / metersPerSecond);
+                    }
+                }
+            }
+        }
+        return new Dataset(name, depot, stops, capacities, distances, durations, null);
+    }
+
+    private static double greatCircle(Location from, Location to) {
+        double lat1 = Math.toRadians(from.getLatitude());
+        double lat2 = Math.toRadians(to.getLatitude());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(to.getLongitude() - from.getLongitude());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,105 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.SyntheticProblems;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.ListChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.ListSwapMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.SubListChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.SubListSwapMoveSelectorConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Best score over time of the local search in solverConfig.xml, nearby selection with several size
+ * maxima, against the previous uniform selectors that pair a customer with any other in the plan.
+ *
+ * Uses the synthetic problem of {@link ScoreCalculationThroughput} with empty routes, so the time
+ * includes construction.
+ *
+ * Arguments: [customers] [vehicles] [seconds] [size maxima...], default 1000 20 30 20 40 80.
+ */
+public class NearbySelectionComparison {
+
+    private static final long[] CHECKPOINT_SECONDS = {1, 2, 5, 10, 20, 30, 60, 120};
+
+    public static void main(String[] args) {
+        int customerCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int vehicleCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 30;
+        List<Integer> sizeMaxima = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            sizeMaxima.add(Integer.parseInt(args[i]));
+        }
+        if (sizeMaxima.isEmpty()) {
+            sizeMaxima = List.of(20, 40, 80);
+        }
+
+        List<Long> checkpoints = new ArrayList<>();
+        for (long checkpoint : CHECKPOINT_SECONDS) {
+            if (checkpoint <= seconds) {
+                checkpoints.add(checkpoint);
+            }
+        }
+        System.out.printf("%d customers, %d vehicles, best score at each checkpoint%n", customerCount, vehicleCount);
+        System.out.printf("%12s", "selection");
+        checkpoints.forEach(checkpoint -> System.out.printf("  %22s", checkpoint + "s"));
+        System.out.println();
+
+        print("uniform", run(uniformConfig(), customerCount, vehicleCount, seconds), checkpoints);
+        for (int sizeMaximum : sizeMaxima) {
+            SolverConfig config = SolverConfig.createFromXmlResource("solverConfig.xml");
+            NearbySelections.of(config).forEach(nearbySelection ->
+                    nearbySelection.setParabolicDistributionSizeMaximum(sizeMaximum));
+            print("nearby " + sizeMaximum, run(config, customerCount, vehicleCount, seconds), checkpoints);
+        }
+    }
+
+    /**
+     * solverConfig.xml with the local search selectors it had before nearby selection.
+     */
+    private static SolverConfig uniformConfig() {
+        SolverConfig config = SolverConfig.createFromXmlResource("solverConfig.xml");
+        config.getPhaseConfigList().stream()
+                .filter(LocalSearchPhaseConfig.class::isInstance)
+                .map(LocalSearchPhaseConfig.class::cast)
+                .forEach(localSearch -> localSearch.setMoveSelectorConfig(new UnionMoveSelectorConfig()
+                        .withMoveSelectors(
+                                new ListChangeMoveSelectorConfig(),
+                                new ListSwapMoveSelectorConfig(),
+                                new SubListChangeMoveSelectorConfig().withSelectReversingMoveToo(true),
+                                new SubListSwapMoveSelectorConfig().withSelectReversingMoveToo(true))));
+        return config;
+    }
+
+    private static NavigableMap<Long, Score<?>> run(SolverConfig config, int customerCount, int vehicleCount,
+                                                    long seconds) {
+        config.setTerminationConfig(new TerminationConfig().withSecondsSpentLimit(seconds));
+        VehicleRoutingSolution problem = SyntheticProblems.create(customerCount, vehicleCount);
+        problem.getVehicleList().forEach(vehicle -> vehicle.getCustomerList().clear());
+
+        NavigableMap<Long, Score<?>> bestScores = new TreeMap<>();
+        Solver<VehicleRoutingSolution> solver = SolverFactory.<VehicleRoutingSolution>create(config).buildSolver();
+        solver.addEventListener(event -> bestScores.put(event.getTimeMillisSpent(), event.getNewBestScore()));
+        solver.solve(problem);
+        return bestScores;
+    }
+
+    private static void print(String label, NavigableMap<Long, Score<?>> bestScores, List<Long> checkpoints) {
+        System.out.printf("%12s", label);
+        for (long checkpoint : checkpoints) {
+            var best = bestScores.floorEntry(checkpoint * 1000);
+            System.out.printf("  %22s", best == null ? "-" : best.getValue());
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,122 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.dto.DistanceCacheStatsDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
+import com.adcaisse.delivery_route_optimizer.service.impl.VehicleRoutingServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monolithic versus partitioned solving of one large synthetic problem with the same time budget,
+ * through VehicleRoutingServiceImpl with a Manhattan-distance stand-in for GraphHopper.
+ *
+ * Reports the score, total distance, wall time and the number of matrix cells built, which is what
+ * partitioning saves on memory and distance lookups.
+ *
+ * Arguments: [customers] [budget seconds] [partition sizes...], default 2000 30 250 500.
+ */
+public class PartitionedSolveComparison {
+
+    public static void main(String[] args) {
+        int customerCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long budgetMillis = (args.length > 1 ? Long.parseLong(args[1]) : 30) * 1000;
+        List<Integer> partitionSizes = new ArrayList<>();
+        partitionSizes.add(null);
+        for (int i = 2; i < args.length; i++) {
+            partitionSizes.add(Integer.parseInt(args[i]));
+        }
+        if (partitionSizes.size() == 1) {
+            partitionSizes.addAll(List.of(250, 500));
+        }
+
+        Random random = new Random(41);
+        Location depot = new Location(0, 36.80, 10.20);
+        List<Location> customers = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        for (int i = 1; i <= customerCount; i++) {
+            customers.add(new Location(i, 36.65 + random.nextDouble() * 0.3, 10.05 + random.nextDouble() * 0.3));
+            demands.add(1 + random.nextInt(20));
+        }
+        int vehicleCount = Math.max(1, customerCount / 50);
+        int capacity = (int) (demands.stream().mapToInt(Integer::intValue).sum() * 1.2 / vehicleCount);
+        List<Integer> capacities = new ArrayList<>();
+        for (int v = 0; v < vehicleCount; v++) {
+            capacities.add(capacity);
+        }
+
+        System.out.printf("%10s %10s %12s %22s %14s %10s %14s%n",
+                "customers", "partition", "vehicles", "score", "distance", "seconds", "matrix cells");
+        for (Integer partitionSize : partitionSizes) {
+            ManhattanDistances distances = new ManhattanDistances();
+            AdaptiveTerminationManager terminationManager = new AdaptiveTerminationManager(200, 20, 600_000, 0);
+            VehicleRoutingServiceImpl service = new VehicleRoutingServiceImpl(distances, terminationManager, "NONE", 300);
+
+            VehicleRoutingRequest request = new VehicleRoutingRequest();
+            request.setDepot(depot);
+            request.setCustomerLocations(customers);
+            request.setVehicleCapacities(capacities);
+            request.setCustomerDemands(demands);
+            request.setTermination(new TerminationPolicyDto(budgetMillis, null, null, null, null));
+            request.setPartitionSize(partitionSize);
+
+            long start = System.currentTimeMillis();
+            VehicleRoutingSolution solution = service.solveVRP(request);
+            double seconds = (System.currentTimeMillis() - start) / 1000.0;
+            terminationManager.close();
+
+            System.out.printf("%10d %10s %12d %22s %14d %10.1f %14d%n", customerCount,
+                    partitionSize == null ? "none" : partitionSize, vehicleCount, solution.getScore(),
+                    solution.getTotalDistance(), seconds, distances.matrixCells.get());
+        }
+    }
+
+    private static long distance(Location from, Location to) {
+        return Math.round((Math.abs(from.getLatitude() - to.getLatitude())
+                + Math.abs(from.getLongitude() - to.getLongitude())) * 100_000);
+    }
+
+    private static class ManhattanDistances implements DistanceCalculatorService {
+
+        private final AtomicLong matrixCells = new AtomicLong();
+
+        @Override
+        public long getDistance(Location from, Location to) {
+            return distance(from, to);
+        }
+
+        @Override
+        public DistanceMatrix computeDistanceMatrix(List<Location> locations) {
+            int n = locations.size();
+            matrixCells.addAndGet((long) n * n);
+            long[][] matrix = new long[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    matrix[i][j] = distance(locations.get(i), locations.get(j));
+                }
+            }
+            return new DistanceMatrix(locations, matrix, false);
+        }
+
+        @Override
+        public void clearCache() {
+        }
+
+        @Override
+        public int getCacheSize() {
+            return 0;
+        }
+
+        @Override
+        public DistanceCacheStatsDto getCacheStats() {
+            return null;
+        }
+    }
+}
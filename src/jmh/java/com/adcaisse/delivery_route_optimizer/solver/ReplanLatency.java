@@ -0,0 +1,154 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.dto.DistanceCacheStatsDto;
+import com.adcaisse.delivery_route_optimizer.dto.RouteChangesDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
+import com.adcaisse.delivery_route_optimizer.service.impl.VehicleRoutingServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wall time and score of replanning one change on a solved plan, through VehicleRoutingServiceImpl
+ * with a Manhattan-distance stand-in for GraphHopper, next to solving the changed problem from scratch.
+ *
+ * Arguments: [customers] [initial solve seconds] [repetitions], default 1000 20 5.
+ */
+public class ReplanLatency {
+
+    public static void main(String[] args) {
+        int customerCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long solveMillis = (args.length > 1 ? Long.parseLong(args[1]) : 20) * 1000;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Random random = new Random(43);
+        Location depot = new Location(0, 36.80, 10.20);
+        List<Location> customers = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        for (int i = 1; i <= customerCount; i++) {
+            customers.add(new Location(i, 36.65 + random.nextDouble() * 0.3, 10.05 + random.nextDouble() * 0.3));
+            demands.add(1 + random.nextInt(20));
+        }
+        int vehicleCount = Math.max(1, customerCount / 50);
+        int capacity = (int) (demands.stream().mapToInt(Integer::intValue).sum() * 1.2 / vehicleCount);
+        List<Integer> capacities = new ArrayList<>();
+        for (int v = 0; v < vehicleCount; v++) {
+            capacities.add(capacity);
+        }
+
+        ManhattanDistances distances = new ManhattanDistances();
+        AdaptiveTerminationManager terminationManager = new AdaptiveTerminationManager(200, 20, 600_000, 0);
+        VehicleRoutingServiceImpl service = new VehicleRoutingServiceImpl(distances, terminationManager, "NONE", 300);
+        VehicleRoutingRequest request = new VehicleRoutingRequest();
+        request.setDepot(depot);
+        request.setCustomerLocations(customers);
+        request.setVehicleCapacities(capacities);
+        request.setCustomerDemands(demands);
+        request.setTermination(new TerminationPolicyDto(solveMillis, null, null, null, null));
+        VehicleRoutingSolution plan = service.solveVRP(request);
+        System.out.printf("%d customers, %d vehicles, plan score %s%n", customerCount, vehicleCount, plan.getScore());
+
+        System.out.printf("%14s %10s %14s %22s%n", "change", "millis", "cells looked up", "score");
+        for (int r = 0; r < repetitions; r++) {
+            Location added = new Location(10_000 + r, 36.65 + random.nextDouble() * 0.3, 10.05 + random.nextDouble() * 0.3);
+            report("add 1 stop", service, plan, distances, new RouteChangesDto(List.of(added), List.of(10), null, null, null, null));
+            report("remove 1 stop", service, plan, distances,
+                    new RouteChangesDto(null, null, null, List.of(1L + random.nextInt(customerCount)), null, null));
+        }
+
+        // The same change solved the old way: new matrix, construction, default budget
+        List<Location> withAdded = new ArrayList<>(customers);
+        withAdded.add(new Location(20_000, 36.80, 10.10));
+        List<Integer> withAddedDemands = new ArrayList<>(demands);
+        withAddedDemands.add(10);
+        long start = System.currentTimeMillis();
+        VehicleRoutingRequest scratchRequest = new VehicleRoutingRequest();
+        scratchRequest.setDepot(depot);
+        scratchRequest.setCustomerLocations(withAdded);
+        scratchRequest.setVehicleCapacities(capacities);
+        scratchRequest.setCustomerDemands(withAddedDemands);
+        VehicleRoutingSolution scratch = service.solveVRP(scratchRequest);
+        System.out.printf("%14s %10d %14s %22s%n", "from scratch", System.currentTimeMillis() - start,
+                "", scratch.getScore());
+        terminationManager.close();
+    }
+
+    private static void report(String label, VehicleRoutingServiceImpl service, VehicleRoutingSolution plan,
+                               ManhattanDistances distances, RouteChangesDto changes) {
+        long cellsBefore = distances.cells.get();
+        long start = System.currentTimeMillis();
+        VehicleRoutingSolution replanned = service.replan(plan, changes, null, null);
+        long routed = replanned.getVehicleList().stream().mapToLong(vehicle -> vehicle.getCustomerList().size()).sum();
+        System.out.printf("%14s %10d %14d %22s %d/%d%n", label, System.currentTimeMillis() - start,
+                distances.cells.get() - cellsBefore, replanned.getScore(), routed, replanned.getCustomerList().size());
+    }
+
+    private static long distance(Location from, Location to) {
+        return Math.round((Math.abs(from.getLatitude() - to.getLatitude())
+                + Math.abs(from.getLongitude() - to.getLongitude())) * 100_000);
+    }
+
+    private static class ManhattanDistances implements DistanceCalculatorService {
+
+        private final AtomicLong cells = new AtomicLong();
+
+        @Override
+        public long getDistance(Location from, Location to) {
+            return distance(from, to);
+        }
+
+        @Override
+        public DistanceMatrix computeDistanceMatrix(List<Location> locations) {
+            int n = locations.size();
+            cells.addAndGet((long) n * n);
+            long[][] matrix = new long[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    matrix[i][j] = distance(locations.get(i), locations.get(j));
+                }
+            }
+            return new DistanceMatrix(locations, matrix, false);
+        }
+
+        @Override
+        public DistanceMatrix extendDistanceMatrix(DistanceMatrix base, List<Location> added) {
+            // Like the GraphHopper implementation: old cells are copied, only new rows and columns are looked up
+            List<Location> locations = new ArrayList<>(base.getLocations());
+            locations.addAll(added);
+            int n = locations.size();
+            long[][] matrix = new long[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i < base.size() && j < base.size()) {
+                        matrix[i][j] = base.getDistanceByIndex(i, j);
+                    } else {
+                        matrix[i][j] = distance(locations.get(i), locations.get(j));
+                        cells.incrementAndGet();
+                    }
+                }
+            }
+            return new DistanceMatrix(locations, matrix, false);
+        }
+
+        @Override
+        public void clearCache() {
+        }
+
+        @Override
+        public int getCacheSize() {
+            return 0;
+        }
+
+        @Override
+        public DistanceCacheStatsDto getCacheStats() {
+            return null;
+        }
+    }
+}
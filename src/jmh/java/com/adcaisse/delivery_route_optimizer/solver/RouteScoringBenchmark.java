@@ -0,0 +1,116 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.SyntheticProblems;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.InnerScoreDirectorFactory;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring of {@link SyntheticProblems} with 100, 1,000 and 10,000 stops on routes of 50 stops, by
+ * the constraint streams of {@link VehicleRoutingConstraintProvider} and by the incremental
+ * calculator the solver uses:
+ *
+ * - fullScore: every route from scratch, as when a working solution is set
+ * - partialRoute: reversing 10 stops of one route and scoring, as for one local search move,
+ *   then undoing it; two score calculations per invocation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class RouteScoringBenchmark {
+
+    private static final int STOPS_PER_ROUTE = 50;
+    private static final int SEGMENT = 10;
+
+    @Param({"100", "1000", "10000"})
+    public int stops;
+
+    @Param({"CONSTRAINT_STREAMS", "INCREMENTAL"})
+    public String scoring;
+
+    private VehicleRoutingSolution solution;
+    private InnerScoreDirector<VehicleRoutingSolution, HardSoftLongScore> scoreDirector;
+    private List<Vehicle> vehicles;
+    private int move;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ScoreDirectorFactoryConfig scoreConfig = "INCREMENTAL".equals(scoring)
+                ? new ScoreDirectorFactoryConfig().withIncrementalScoreCalculatorClass(VehicleRoutingIncrementalScoreCalculator.class)
+                : new ScoreDirectorFactoryConfig().withConstraintProviderClass(VehicleRoutingConstraintProvider.class);
+        SolverConfig config = SolverConfig.createFromXmlResource("solverConfig.xml")
+                .withScoreDirectorFactory(scoreConfig);
+        DefaultSolverFactory<VehicleRoutingSolution> solverFactory =
+                (DefaultSolverFactory<VehicleRoutingSolution>) SolverFactory.<VehicleRoutingSolution>create(config);
+        InnerScoreDirectorFactory<VehicleRoutingSolution, HardSoftLongScore> scoreDirectorFactory =
+                solverFactory.getScoreDirectorFactory();
+
+        solution = SyntheticProblems.create(stops, Math.max(1, stops / STOPS_PER_ROUTE));
+        vehicles = solution.getVehicleList();
+        scoreDirector = scoreDirectorFactory.buildScoreDirector(false, false);
+        scoreDirector.setWorkingSolution(solution);
+        scoreDirector.calculateScore();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scoreDirector.close();
+    }
+
+    @Benchmark
+    public HardSoftLongScore fullScore() {
+        scoreDirector.setWorkingSolution(solution);
+        return scoreDirector.calculateScore();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public HardSoftLongScore partialRoute() {
+        Vehicle vehicle = vehicles.get(move % vehicles.size());
+        int size = vehicle.getCustomerList().size();
+        int from = (move / vehicles.size() * 7) % Math.max(1, size - SEGMENT);
+        int to = Math.min(size, from + SEGMENT);
+        move++;
+        reverse(vehicle, from, to);
+        HardSoftLongScore score = scoreDirector.calculateScore();
+        reverse(vehicle, from, to);
+        scoreDirector.calculateScore();
+        return score;
+    }
+
+    private void reverse(Vehicle vehicle, int from, int to) {
+        List<Customer> route = vehicle.getCustomerList();
+        scoreDirector.beforeListVariableChanged(vehicle, "customerList", from, to);
+        Collections.reverse(route.subList(from, to));
+        scoreDirector.afterListVariableChanged(vehicle, "customerList", from, to);
+        scoreDirector.triggerVariableListeners();
+    }
+}
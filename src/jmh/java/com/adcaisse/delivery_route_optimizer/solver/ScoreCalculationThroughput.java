@@ -0,0 +1,60 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.SyntheticProblems;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves evaluated per second by the local search in solverConfig.xml, on {@link SyntheticProblems}.
+ *
+ * Construction is skipped: customers are dealt round-robin to a fixed fleet of 10 vehicles,
+ * so routes get longer with the customer count (50 stops at 500 customers, 200 at 2,000).
+ * Each score calculation in local search is one evaluated move.
+ *
+ * Arguments: [seconds per run] [customer counts...], default 20 500 2000.
+ */
+public class ScoreCalculationThroughput {
+
+    private static final int VEHICLES = 10;
+
+    public static void main(String[] args) {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 20;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sizes.add(Integer.parseInt(args[i]));
+        }
+        if (sizes.isEmpty()) {
+            sizes = List.of(500, 2000);
+        }
+
+        System.out.printf("%10s %10s %15s%n", "customers", "vehicles", "moves/sec");
+        for (int customers : sizes) {
+            long speed = run(customers, VEHICLES, seconds);
+            System.out.printf("%10d %10d %15d%n", customers, VEHICLES, speed);
+        }
+    }
+
+    private static long run(int customerCount, int vehicleCount, long seconds) {
+        SolverConfig config = SolverConfig.createFromXmlResource("solverConfig.xml");
+        LocalSearchPhaseConfig localSearch = config.getPhaseConfigList().stream()
+                .filter(LocalSearchPhaseConfig.class::isInstance)
+                .map(LocalSearchPhaseConfig.class::cast)
+                .findFirst()
+                .orElseThrow();
+        config.setPhaseConfigList(List.of(localSearch));
+        config.setTerminationConfig(new TerminationConfig().withSecondsSpentLimit(seconds));
+
+        VehicleRoutingSolution problem = SyntheticProblems.create(customerCount, vehicleCount);
+        Solver<VehicleRoutingSolution> solver = SolverFactory.<VehicleRoutingSolution>create(config).buildSolver();
+        solver.solve(problem);
+        return ((DefaultSolver<VehicleRoutingSolution>) solver).getSolverScope().getScoreCalculationSpeed();
+    }
+}
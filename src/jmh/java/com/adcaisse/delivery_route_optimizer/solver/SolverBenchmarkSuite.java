@@ -0,0 +1,166 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import org.optaplanner.benchmark.api.PlannerBenchmark;
+import org.optaplanner.benchmark.api.PlannerBenchmarkFactory;
+import org.optaplanner.benchmark.config.PlannerBenchmarkConfig;
+import org.optaplanner.benchmark.config.ProblemBenchmarksConfig;
+import org.optaplanner.benchmark.config.SolverBenchmarkConfig;
+import org.optaplanner.benchmark.config.statistic.ProblemStatisticType;
+import org.optaplanner.benchmark.impl.DefaultPlannerBenchmark;
+import org.optaplanner.benchmark.impl.result.PlannerBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SingleBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SolverBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SubSingleBenchmarkResult;
+import org.optaplanner.benchmark.impl.statistic.SubSingleStatistic;
+import org.optaplanner.benchmark.impl.statistic.bestscore.BestScoreStatisticPoint;
+import org.optaplanner.core.config.heuristic.selector.move.MoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.kopt.KOptListMoveSelectorConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.localsearch.decider.acceptor.AcceptorType;
+import org.optaplanner.core.config.localsearch.decider.acceptor.LocalSearchAcceptorConfig;
+import org.optaplanner.core.config.localsearch.decider.forager.LocalSearchForagerConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * OptaPlanner Benchmarker run of candidate local search configurations against solverConfig.xml
+ * as it is (entity tabu 7, 1,000 accepted moves per step, four nearby move selectors), on the
+ * {@link BenchmarkDatasets}, which are generated first if missing.
+ *
+ * Every run lasts the largest time budget. Besides the HTML report, the best score each run had
+ * reached at every budget goes to best-scores.csv next to it and to the console, so configurations
+ * can be compared at the time limits requests actually use.
+ *
+ * Arguments: [dataset directory] [budget seconds...], default target/benchmark-datasets 10 30 60.
+ * Expect about configurations x datasets x largest budget, plus a warm-up.
+ */
+public class SolverBenchmarkSuite {
+
+    public static void main(String[] args) throws Exception {
+        File datasetDirectory = new File(args.length > 0 ? args[0] : "target/benchmark-datasets");
+        List<Long> budgets = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            budgets.add(Long.parseLong(args[i]));
+        }
+        if (budgets.isEmpty()) {
+            budgets = List.of(10L, 30L, 60L);
+        }
+        long runSeconds = budgets.stream().mapToLong(Long::longValue).max().orElseThrow();
+        List<File> datasets = BenchmarkDatasets.generate(datasetDirectory, null);
+
+        PlannerBenchmarkConfig config = new PlannerBenchmarkConfig()
+                .withName("Local search candidates")
+                .withBenchmarkDirectory(new File("target/solver-benchmarks"))
+                .withParallelBenchmarkCount("1")
+                .withWarmUpSecondsSpentLimit(Math.min(30, runSeconds))
+                .withInheritedSolverBenchmarkConfig(new SolverBenchmarkConfig()
+                        .withProblemBenchmarksConfig(new ProblemBenchmarksConfig()
+                                .withSolutionFileIOClass(VehicleRoutingDatasetFileIO.class)
+                                .withInputSolutionFileList(datasets)
+                                .withProblemStatisticTypes(ProblemStatisticType.BEST_SCORE,
+                                        ProblemStatisticType.SCORE_CALCULATION_SPEED)))
+                .withSolverBenchmarkConfigList(candidates(runSeconds));
+
+        PlannerBenchmark benchmark = PlannerBenchmarkFactory.create(config).buildPlannerBenchmark();
+        benchmark.benchmark();
+        PlannerBenchmarkResult result = ((DefaultPlannerBenchmark) benchmark).getPlannerBenchmarkResult();
+        File reportDirectory = result.getBenchmarkReportDirectory();
+        File bestScores = new File(reportDirectory, "best-scores.csv");
+        writeBestScores(result.getSolverBenchmarkResultList(), budgets, bestScores);
+        System.out.println("Report: " + new File(reportDirectory, "index.html"));
+        System.out.println("Best scores per budget: " + bestScores);
+    }
+
+    private static List<SolverBenchmarkConfig> candidates(long runSeconds) {
+        List<SolverBenchmarkConfig> candidates = new ArrayList<>();
+        candidates.add(candidate("Tabu 7 (current)", runSeconds, localSearch -> {
+        }));
+        candidates.add(candidate("Late acceptance 400", runSeconds, localSearch -> {
+            localSearch.setAcceptorConfig(new LocalSearchAcceptorConfig().withLateAcceptanceSize(400));
+            localSearch.setForagerConfig(new LocalSearchForagerConfig().withAcceptedCountLimit(1));
+        }));
+        candidates.add(candidate("Great deluge", runSeconds, localSearch -> {
+            localSearch.setAcceptorConfig(new LocalSearchAcceptorConfig()
+                    .withAcceptorTypeList(List.of(AcceptorType.GREAT_DELUGE)));
+            localSearch.setForagerConfig(new LocalSearchForagerConfig().withAcceptedCountLimit(1));
+        }));
+        candidates.add(candidate("Tabu 7 accepting 4", runSeconds, localSearch ->
+                localSearch.setForagerConfig(new LocalSearchForagerConfig().withAcceptedCountLimit(4))));
+        candidates.add(candidate("Tabu 7 change and swap only", runSeconds, localSearch ->
+                selectors(localSearch).subList(2, 4).clear()));
+        // 2-opt only with late acceptance: entity tabu fails on intra-route 2-opt moves in OptaPlanner 10.1,
+        // whose planning entity set holds the same vehicle twice
+        candidates.add(candidate("Late acceptance 400 with 2-opt", runSeconds, localSearch -> {
+            localSearch.setAcceptorConfig(new LocalSearchAcceptorConfig().withLateAcceptanceSize(400));
+            localSearch.setForagerConfig(new LocalSearchForagerConfig().withAcceptedCountLimit(1));
+            selectors(localSearch).add(new KOptListMoveSelectorConfig().withMinimumK(2).withMaximumK(2));
+        }));
+        return candidates;
+    }
+
+    /**
+     * solverConfig.xml with its local search phase changed by the given step.
+     */
+    private static SolverBenchmarkConfig candidate(String name, long runSeconds, Consumer<LocalSearchPhaseConfig> change) {
+        SolverConfig solverConfig = SolverConfig.createFromXmlResource("solverConfig.xml")
+                .withTerminationConfig(new TerminationConfig().withSecondsSpentLimit(runSeconds));
+        solverConfig.getPhaseConfigList().stream()
+                .filter(LocalSearchPhaseConfig.class::isInstance)
+                .map(LocalSearchPhaseConfig.class::cast)
+                .forEach(change);
+        return new SolverBenchmarkConfig().withName(name).withSolverConfig(solverConfig);
+    }
+
+    /**
+     * The union of the phase's move selectors, changeable in place.
+     */
+    private static List<MoveSelectorConfig> selectors(LocalSearchPhaseConfig localSearch) {
+        UnionMoveSelectorConfig union = (UnionMoveSelectorConfig) localSearch.getMoveSelectorConfig();
+        List<MoveSelectorConfig> selectors = new ArrayList<>(union.getMoveSelectorList());
+        union.setMoveSelectorList(selectors);
+        return selectors;
+    }
+
+    private static void writeBestScores(List<SolverBenchmarkResult> solvers, List<Long> budgets, File file)
+            throws Exception {
+        try (PrintWriter csv = new PrintWriter(file)) {
+            csv.println("dataset,configuration,budget seconds,best score");
+            System.out.printf("%-22s %-32s %8s %24s%n", "dataset", "configuration", "budget", "best score");
+            for (SolverBenchmarkResult solver : solvers) {
+                for (SingleBenchmarkResult single : solver.getSingleBenchmarkResultList()) {
+                    String dataset = single.getProblemBenchmarkResult().getName().replaceFirst("\\.json$", "");
+                    List<BestScoreStatisticPoint> points = bestScorePoints(single.getSubSingleBenchmarkResultList().get(0));
+                    for (long budget : budgets) {
+                        String best = "-";
+                        for (BestScoreStatisticPoint point : points) {
+                            if (point.getTimeMillisSpent() <= budget * 1000) {
+                                best = point.getScore().toString();
+                            }
+                        }
+                        csv.printf("%s,%s,%d,%s%n", dataset, solver.getName(), budget, best);
+                        System.out.printf("%-22s %-32s %7ds %24s%n", dataset, solver.getName(), budget, best);
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<BestScoreStatisticPoint> bestScorePoints(SubSingleBenchmarkResult result) {
+        SubSingleStatistic<VehicleRoutingSolution, BestScoreStatisticPoint> statistic =
+                result.getEffectiveSubSingleStatisticMap().get(ProblemStatisticType.BEST_SCORE);
+        // Point lists are written to CSV and dropped from memory once a run's statistics are done
+        if (statistic.getPointList() == null) {
+            statistic.unhibernatePointList();
+        }
+        return statistic.getPointList();
+    }
+}
@@ -0,0 +1,141 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.optaplanner.persistence.common.api.domain.solution.SolutionFileIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes benchmark datasets: gzipped JSON holding the stops, the fleet and the full
+ * matrix of road distances (meters) and travel times (seconds), indexed depot first, then customers
+ * in order. A problem read from a file needs no GraphHopper. Solved datasets also hold their routes.
+ */
+public class VehicleRoutingDatasetFileIO implements SolutionFileIO<VehicleRoutingSolution> {
+
+    public static final String EXTENSION = "json.gz";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Dataset(String name, Location depot, List<Stop> customers, List<Integer> vehicleCapacities,
+                   long[][] distances, long[][] durations, List<List<Long>> routes) {
+    }
+
+    /** A customer; times are in minutes, as in the API. */
+    record Stop(Location location, int demand, int serviceTime, Integer readyTime, Integer dueTime) {
+    }
+
+    @Override
+    public String getInputFileExtension() {
+        return EXTENSION;
+    }
+
+    @Override
+    public VehicleRoutingSolution read(File inputSolutionFile) {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(inputSolutionFile.toPath()))) {
+            return toSolution(objectMapper.readValue(in, Dataset.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read dataset " + inputSolutionFile, e);
+        }
+    }
+
+    @Override
+    public void write(VehicleRoutingSolution solution, File outputSolutionFile) {
+        write(toDataset(solution), outputSolutionFile);
+    }
+
+    void write(Dataset dataset, File outputSolutionFile) {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(outputSolutionFile.toPath()))) {
+            objectMapper.writeValue(out, dataset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write dataset " + outputSolutionFile, e);
+        }
+    }
+
+    private static VehicleRoutingSolution toSolution(Dataset dataset) {
+        List<Location> locations = new ArrayList<>();
+        locations.add(dataset.depot());
+        List<Customer> customers = new ArrayList<>();
+        Map<Long, Customer> customersById = new HashMap<>();
+        for (Stop stop : dataset.customers()) {
+            Location location = stop.location();
+            Customer customer = new Customer(location.getId(), "Customer " + location.getId(), location, stop.demand());
+            customer.setServiceTime(stop.serviceTime());
+            customer.setReadyTime(stop.readyTime());
+            customer.setDueTime(stop.dueTime());
+            customer.setMatrixIndex(locations.size());
+            locations.add(location);
+            customers.add(customer);
+            customersById.put(customer.getId(), customer);
+        }
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int i = 0; i < dataset.vehicleCapacities().size(); i++) {
+            vehicles.add(new Vehicle((long) i + 1, "Vehicle " + (i + 1), dataset.vehicleCapacities().get(i),
+                    dataset.depot()));
+        }
+        if (dataset.routes() != null) {
+            for (int i = 0; i < dataset.routes().size(); i++) {
+                for (Long id : dataset.routes().get(i)) {
+                    vehicles.get(i).getCustomerList().add(customersById.get(id));
+                }
+            }
+        }
+
+        int n = locations.size();
+        long[][] costs = new long[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                costs[i][j] = RoadCost.of(dataset.distances()[i][j], dataset.durations()[i][j]);
+            }
+        }
+        VehicleRoutingSolution solution = new VehicleRoutingSolution(dataset.name(), customers, vehicles);
+        solution.setDistanceMatrix(DistanceMatrix.ofRoadCosts(locations, costs, true));
+        return solution;
+    }
+
+    private static Dataset toDataset(VehicleRoutingSolution solution) {
+        DistanceMatrix matrix = solution.getDistanceMatrix();
+        int n = matrix.size();
+        long[][] distances = new long[n][n];
+        long[][] durations = new long[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = matrix.getDistanceByIndex(i, j);
+                durations[i][j] = matrix.getDurationByIndex(i, j);
+            }
+        }
+        // Stops in matrix order, which is the order read() numbers them in
+        List<Stop> stops = solution.getCustomerList().stream()
+                .sorted(Comparator.comparingInt(Customer::getMatrixIndex))
+                .map(customer -> new Stop(customer.getLocation(), customer.getDemand(), customer.getServiceTime(),
+                        customer.getReadyTime(), customer.getDueTime()))
+                .toList();
+        List<List<Long>> routes = solution.getVehicleList().stream()
+                .map(vehicle -> vehicle.getCustomerList().stream().map(Customer::getId).toList())
+                .toList();
+        boolean assigned = routes.stream().anyMatch(route -> !route.isEmpty());
+        return new Dataset(solution.getName(), matrix.getLocations().get(0), stops,
+                solution.getVehicleList().stream().map(Vehicle::getCapacity).toList(),
+                distances, durations, assigned ? routes : null);
+    }
+}
@@ -0,0 +1,52 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import com.adcaisse.delivery_route_optimizer.model.Location;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Packs a routing profile and a location's coordinates, quantized to 1e-5 degrees
+ * (about 1.1 m), into a single long cache key.
+ *
+ * Keys depend only on where a location is, not on the ID a request gave it, so the same
+ * depot or customer address hits the same cache entries across requests and tenants,
+ * and two different places that happen to share an ID never share distances.
+ *
+ * Layout: 13 bits profile | 25 bits latitude | 26 bits longitude. The profile bits are a
+ * hash of the profile name rather than a registration order, so keys stay stable across
+ * restarts and processes.
+ */
+public final class LocationKey {
+
+    private static final double SCALE = 100_000.0;
+    private static final int LATITUDE_BITS = 25;
+    private static final int LONGITUDE_BITS = 26;
+    private static final int PROFILE_MASK = (1 << (Long.SIZE - LATITUDE_BITS - LONGITUDE_BITS)) - 1;
+
+    private LocationKey() {
+    }
+
+    public static long of(Location location, String profile) {
+        return of(location, profileId(profile));
+    }
+
+    /**
+     * @param profileId value of {@link #profileId(String)}, computed once by callers on hot paths
+     */
+    public static long of(Location location, int profileId) {
+        return of(location.getLatitude(), location.getLongitude(), profileId);
+    }
+
+    static long of(double latitude, double longitude, int profileId) {
+        long lat = Math.round((Math.max(-90.0, Math.min(90.0, latitude)) + 90.0) * SCALE);
+        long lon = Math.round((Math.max(-180.0, Math.min(180.0, longitude)) + 180.0) * SCALE);
+        return ((long) profileId << (LATITUDE_BITS + LONGITUDE_BITS)) | (lat << LONGITUDE_BITS) | lon;
+    }
+
+    public static int profileId(String profile) {
+        CRC32 crc = new CRC32();
+        crc.update(profile.getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue() & PROFILE_MASK;
+    }
+}
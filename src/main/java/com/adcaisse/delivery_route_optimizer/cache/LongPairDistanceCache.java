@@ -0,0 +1,242 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded distance cache keyed by a pair of longs, stored entirely in primitive arrays.
+ *
+ * Entries live in lock-striped segments, each an open-addressing table (linear probing,
+ * backward-shift deletion) of parallel long arrays, so a lookup neither allocates nor boxes.
+ * The total size is derived from a memory budget; when a segment is full, CLOCK eviction
+ * (second chance on recently read entries) picks the victim.
+ */
+public class LongPairDistanceCache {
+
+    /** Returned by {@link #get} when the pair is not cached. */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    /** Bytes per slot: two long keys, one long value and one state byte. */
+    static final int BYTES_PER_SLOT = 3 * Long.BYTES + 1;
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    private static final int MIN_SEGMENT_SLOTS = 16;
+
+    private static final byte EMPTY = 0;
+    private static final byte PRESENT = 1;
+    private static final byte REFERENCED = 2;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxMemoryBytes memory budget for the table arrays; determines the maximum entry count
+     */
+    public LongPairDistanceCache(long maxMemoryBytes) {
+        long slotsPerSegment = Math.max(MIN_SEGMENT_SLOTS, maxMemoryBytes / BYTES_PER_SLOT / SEGMENT_COUNT);
+        int tableSize = Integer.highestOneBit((int) Math.min(slotsPerSegment, 1 << 30));
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(tableSize);
+        }
+    }
+
+    /**
+     * @return the cached value, or {@link #MISSING}
+     */
+    public long get(long from, long to) {
+        long hash = hash(from, to);
+        long value = segmentFor(hash).get(from, to, hash);
+        if (value == MISSING) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Lookup that does not count towards hit/miss statistics (used to probe before batching work).
+     */
+    public boolean contains(long from, long to) {
+        long hash = hash(from, to);
+        return segmentFor(hash).get(from, to, hash) != MISSING;
+    }
+
+    public void put(long from, long to, long value) {
+        long hash = hash(from, to);
+        if (segmentFor(hash).put(from, to, value, hash)) {
+            evictions.increment();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Maximum number of entries before eviction starts.
+     */
+    public long capacity() {
+        return (long) segments[0].maxSize * SEGMENT_COUNT;
+    }
+
+    /**
+     * Memory held by the table arrays, which is fixed at construction.
+     */
+    public long memoryBytes() {
+        return (long) segments[0].fromKeys.length * BYTES_PER_SLOT * SEGMENT_COUNT;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    static long hash(long from, long to) {
+        long h = from * 0x9E3779B97F4A7C15L + to;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static final class Segment {
+        private final long[] fromKeys;
+        private final long[] toKeys;
+        private final long[] values;
+        private final byte[] states;
+        private final int mask;
+        private final int maxSize;
+        private int size;
+        private int hand;
+
+        private Segment(int tableSize) {
+            this.fromKeys = new long[tableSize];
+            this.toKeys = new long[tableSize];
+            this.values = new long[tableSize];
+            this.states = new byte[tableSize];
+            this.mask = tableSize - 1;
+            this.maxSize = tableSize - (tableSize >>> 2); // 75% load factor
+        }
+
+        synchronized long get(long from, long to, long hash) {
+            int index = (int) hash & mask;
+            while (states[index] != EMPTY) {
+                if (fromKeys[index] == from && toKeys[index] == to) {
+                    states[index] = REFERENCED;
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return MISSING;
+        }
+
+        /**
+         * @return true if an entry was evicted to make room
+         */
+        synchronized boolean put(long from, long to, long value, long hash) {
+            int index = (int) hash & mask;
+            while (states[index] != EMPTY) {
+                if (fromKeys[index] == from && toKeys[index] == to) {
+                    values[index] = value;
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+
+            boolean evicted = false;
+            if (size >= maxSize) {
+                evictOne();
+                evicted = true;
+                // Backward-shift deletion may have moved entries; find the insertion slot again
+                index = (int) hash & mask;
+                while (states[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+            }
+
+            fromKeys[index] = from;
+            toKeys[index] = to;
+            values[index] = value;
+            states[index] = PRESENT;
+            size++;
+            return evicted;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(states, EMPTY);
+            size = 0;
+            hand = 0;
+        }
+
+        /**
+         * CLOCK: sweep the hand over the table, giving referenced entries a second chance
+         * and evicting the first unreferenced one.
+         */
+        private void evictOne() {
+            while (true) {
+                byte state = states[hand];
+                if (state == REFERENCED) {
+                    states[hand] = PRESENT;
+                } else if (state == PRESENT) {
+                    removeAt(hand);
+                    return;
+                }
+                hand = (hand + 1) & mask;
+            }
+        }
+
+        private void removeAt(int slot) {
+            int hole = slot;
+            int index = slot;
+            while (true) {
+                index = (index + 1) & mask;
+                if (states[index] == EMPTY) {
+                    break;
+                }
+                int home = (int) hash(fromKeys[index], toKeys[index]) & mask;
+                boolean homeBetween = hole <= index
+                        ? hole < home && home <= index
+                        : hole < home || home <= index;
+                if (!homeBetween) {
+                    fromKeys[hole] = fromKeys[index];
+                    toKeys[hole] = toKeys[index];
+                    values[hole] = values[index];
+                    states[hole] = states[index];
+                    hole = index;
+                }
+            }
+            states[hole] = EMPTY;
+            size--;
+        }
+    }
+}
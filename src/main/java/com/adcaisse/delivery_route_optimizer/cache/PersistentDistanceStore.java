@@ -0,0 +1,775 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk distance store that survives restarts, used as the second tier behind
+ * {@link LongPairDistanceCache}.
+ *
+ * Layout of the store directory:
+ * <ul>
+ *   <li>{@code log-N.log} - the active append-only log. Each record is (from, to, value, crc32);
+ *       the crc lets recovery drop a torn tail after a crash. Entries of the active log are also
+ *       held in an in-memory index that grows with the log, up to about 50 bytes per record.</li>
+ *   <li>{@code segment-N.dat} - sealed segments. When a log reaches its record limit it is sorted
+ *       by key in the background and written as a segment (temp file, fsync, atomic rename).
+ *       A segment is its own index: lookups binary-search the memory-mapped file directly.</li>
+ * </ul>
+ * Opening the store only maps the segment files and replays the active log, so the first
+ * request can be served without reading the whole store. Newer data wins: lookups go through
+ * the active log, logs being sealed, then segments from newest to oldest. Once there are more
+ * than {@code compactionThreshold} segments, the newest ones (as many as fit in one 2 GB mapping)
+ * are merged in the background.
+ */
+public class PersistentDistanceStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentDistanceStore.class);
+
+    private static final int MAGIC = 0x47484453; // "GHDS"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 16;
+    private static final int SEGMENT_RECORD_BYTES = 3 * Long.BYTES;
+    private static final int LOG_RECORD_BYTES = SEGMENT_RECORD_BYTES + Integer.BYTES;
+    /** A single mapping is limited to 2 GB. */
+    private static final long MAX_SEGMENT_RECORDS = (Integer.MAX_VALUE - SEGMENT_HEADER_BYTES) / SEGMENT_RECORD_BYTES;
+    private static final int WRITE_BUFFER_RECORDS = 1024;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+    private static final Pattern LOG_NAME = Pattern.compile("log-(\\d+)\\.log");
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int compactionThreshold;
+    private final ScheduledExecutorService maintenance;
+
+    /** Sealed segments, newest first. */
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    /** Rolled logs waiting to be sealed, newest first. */
+    private final List<PendingLog> pendingLogs = new CopyOnWriteArrayList<>();
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_RECORDS * LOG_RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer crcScratch = ByteBuffer.allocate(SEGMENT_RECORD_BYTES);
+    private final LongAdder hits = new LongAdder();
+
+    private long activeSequence;
+    private FileChannel activeChannel;
+    private volatile LogIndex activeIndex;
+    private int activeRecords;
+    private boolean closed;
+
+    private PersistentDistanceStore(Path directory, int segmentRecords, int compactionThreshold) {
+        this.directory = directory;
+        this.segmentRecords = Math.max(1, segmentRecords);
+        this.compactionThreshold = Math.max(2, compactionThreshold);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "distance-store-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open (or create) the store in the given directory, recovering from any earlier crash.
+     *
+     * @param segmentRecords      records per log before it is sealed into a segment
+     * @param compactionThreshold number of segments that triggers a background merge
+     */
+    public static PersistentDistanceStore open(Path directory, int segmentRecords, int compactionThreshold)
+            throws IOException {
+        PersistentDistanceStore store = new PersistentDistanceStore(directory, segmentRecords, compactionThreshold);
+        store.recover();
+        store.maintenance.scheduleWithFixedDelay(store::flushQuietly, 1, 1, TimeUnit.SECONDS);
+        return store;
+    }
+
+    /**
+     * @return the stored value, or {@link LongPairDistanceCache#MISSING}
+     */
+    public long get(long from, long to) {
+        long value = activeIndex.get(from, to);
+        if (value == LongPairDistanceCache.MISSING) {
+            for (PendingLog pending : pendingLogs) {
+                value = pending.index.get(from, to);
+                if (value != LongPairDistanceCache.MISSING) {
+                    break;
+                }
+            }
+        }
+        if (value == LongPairDistanceCache.MISSING) {
+            for (Segment segment : segments) {
+                value = segment.get(from, to);
+                if (value != LongPairDistanceCache.MISSING) {
+                    break;
+                }
+            }
+        }
+        if (value != LongPairDistanceCache.MISSING) {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public synchronized void put(long from, long to, long value) {
+        if (closed) {
+            return;
+        }
+        writeBuffer.putLong(from).putLong(to).putLong(value).putInt(checksum(from, to, value));
+        activeIndex.put(from, to, value);
+        activeRecords++;
+        try {
+            if (!writeBuffer.hasRemaining()) {
+                flushBuffer();
+            }
+            if (activeRecords >= segmentRecords) {
+                roll();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to distance store", e);
+        }
+    }
+
+    /**
+     * Write buffered records to the active log. Runs every second in the background.
+     */
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Number of records on disk and in the active log (duplicates across segments counted once per segment).
+     */
+    public long size() {
+        long size = activeIndex.size();
+        for (PendingLog pending : pendingLogs) {
+            size += pending.index.size();
+        }
+        for (Segment segment : segments) {
+            size += segment.recordCount;
+        }
+        return size;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Delete all stored distances.
+     */
+    public void clear() throws IOException {
+        awaitMaintenance();
+        synchronized (this) {
+            writeBuffer.clear();
+            activeChannel.close();
+            segments.clear();
+            pendingLogs.clear();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    if (SEGMENT_NAME.matcher(file.getFileName().toString()).matches()
+                            || LOG_NAME.matcher(file.getFileName().toString()).matches()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+            openActiveLog(activeSequence + 1, newIndex());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushBuffer();
+            activeChannel.force(false);
+            activeChannel.close();
+        }
+    }
+
+    // ----- recovery -----
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> logSequences = new ArrayList<>();
+        List<Segment> recovered = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher segment = SEGMENT_NAME.matcher(name);
+                Matcher log = LOG_NAME.matcher(name);
+                if (name.endsWith(".tmp")) {
+                    // Interrupted seal or compaction; the inputs are still in place
+                    Files.delete(file);
+                } else if (segment.matches()) {
+                    Segment mapped = Segment.map(file, Long.parseLong(segment.group(1)));
+                    if (mapped != null) {
+                        recovered.add(mapped);
+                    } else {
+                        logger.warn("Ignoring corrupt distance store segment {}", file);
+                        Files.move(file, file.resolveSibling(name + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } else if (log.matches()) {
+                    logSequences.add(Long.parseLong(log.group(1)));
+                }
+            }
+        }
+
+        recovered.sort(Comparator.comparingLong((Segment s) -> s.sequence).reversed());
+        segments.addAll(recovered);
+        logSequences.sort(Comparator.reverseOrder());
+
+        long newestSequence = recovered.isEmpty() ? 0 : recovered.get(0).sequence;
+        long activeLog = -1;
+        for (long sequence : logSequences) {
+            Path log = logPath(sequence);
+            if (Files.exists(segmentPath(sequence))) {
+                // Sealed before the crash, only the log deletion was lost
+                Files.delete(log);
+            } else if (activeLog < 0) {
+                activeLog = sequence;
+            } else {
+                // A rolled log that was not sealed yet: keep it readable and seal it again
+                PendingLog pending = new PendingLog(sequence, log, replay(log));
+                pendingLogs.add(pending);
+                maintenance.execute(() -> seal(pending));
+            }
+            newestSequence = Math.max(newestSequence, sequence);
+        }
+
+        if (activeLog >= 0) {
+            LogIndex index = newIndex();
+            int records = replay(logPath(activeLog), index);
+            openActiveLog(activeLog, index);
+            activeRecords = records;
+        } else {
+            openActiveLog(newestSequence + 1, newIndex());
+        }
+
+        logger.info("Distance store opened at {}: {} segments, {} records in active log",
+                directory, segments.size(), activeRecords);
+        if (segments.size() > compactionThreshold) {
+            maintenance.execute(this::compact);
+        }
+    }
+
+    private LogIndex replay(Path log) throws IOException {
+        LogIndex index = newIndex();
+        replay(log, index);
+        return index;
+    }
+
+    /**
+     * Load valid log records into the index and truncate the log after the last valid record.
+     */
+    private int replay(Path log, LogIndex index) throws IOException {
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_RECORDS * LOG_RECORD_BYTES);
+            long validBytes = 0;
+            boolean torn = false;
+            while (!torn && channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= LOG_RECORD_BYTES) {
+                    long from = buffer.getLong();
+                    long to = buffer.getLong();
+                    long value = buffer.getLong();
+                    if (buffer.getInt() != checksum(from, to, value)) {
+                        torn = true;
+                        break;
+                    }
+                    index.put(from, to, value);
+                    validBytes += LOG_RECORD_BYTES;
+                    records++;
+                }
+                buffer.compact();
+            }
+            if (channel.size() != validBytes) {
+                logger.warn("Truncating distance store log {} after {} valid records", log, records);
+                channel.truncate(validBytes);
+            }
+        }
+        return records;
+    }
+
+    // ----- writing -----
+
+    private void openActiveLog(long sequence, LogIndex index) throws IOException {
+        activeSequence = sequence;
+        activeChannel = FileChannel.open(logPath(sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeIndex = index;
+        activeRecords = 0;
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            activeChannel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.warn("Failed to flush distance store: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Close the full log and hand it to the background sealer; writes continue in a new log.
+     */
+    private void roll() throws IOException {
+        flushBuffer();
+        activeChannel.force(false);
+        activeChannel.close();
+
+        PendingLog pending = new PendingLog(activeSequence, logPath(activeSequence), activeIndex);
+        pendingLogs.add(0, pending);
+        openActiveLog(activeSequence + 1, newIndex());
+        maintenance.execute(() -> seal(pending));
+    }
+
+    /**
+     * Sort a rolled log into a segment. Later records for the same pair win.
+     */
+    private void seal(PendingLog pending) {
+        try {
+            long[] from = new long[segmentRecords];
+            long[] to = new long[segmentRecords];
+            long[] values = new long[segmentRecords];
+            int count = 0;
+
+            try (FileChannel channel = FileChannel.open(pending.log, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_RECORDS * LOG_RECORD_BYTES);
+                while (channel.read(buffer) > 0) {
+                    buffer.flip();
+                    while (buffer.remaining() >= LOG_RECORD_BYTES) {
+                        if (count == from.length) {
+                            from = Arrays.copyOf(from, count * 2);
+                            to = Arrays.copyOf(to, count * 2);
+                            values = Arrays.copyOf(values, count * 2);
+                        }
+                        from[count] = buffer.getLong();
+                        to[count] = buffer.getLong();
+                        values[count] = buffer.getLong();
+                        buffer.getInt(); // checksum, already verified when the log was written or replayed
+                        count++;
+                    }
+                    buffer.compact();
+                }
+            }
+
+            final long[] fromKeys = from;
+            final long[] toKeys = to;
+            final long[] distances = values;
+            // Stable sort keeps log order among equal keys, so the last occurrence is the newest
+            int[] order = IntStream.range(0, count).boxed()
+                    .sorted((a, b) -> compare(fromKeys[a], toKeys[a], fromKeys[b], toKeys[b]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            writeSegment(segmentPath(pending.sequence), writer -> {
+                for (int i = 0; i < order.length; i++) {
+                    int record = order[i];
+                    boolean superseded = i + 1 < order.length
+                            && fromKeys[order[i + 1]] == fromKeys[record] && toKeys[order[i + 1]] == toKeys[record];
+                    if (!superseded) {
+                        writer.write(fromKeys[record], toKeys[record], distances[record]);
+                    }
+                }
+            });
+
+            Segment segment = Segment.map(segmentPath(pending.sequence), pending.sequence);
+            insertSegment(segment);
+            pendingLogs.remove(pending);
+            Files.deleteIfExists(pending.log);
+
+            if (segments.size() > compactionThreshold) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to seal distance store log {}: {}", pending.log, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Merge the newest segments into one, keeping the newest value for each pair. Only a
+     * contiguous run of sequences is merged, so the result can take the place of its newest
+     * input without overtaking segments it did not include.
+     */
+    private void compact() {
+        List<Segment> candidates = new ArrayList<>(segments);
+        if (candidates.size() <= compactionThreshold) {
+            return;
+        }
+        List<Segment> inputs = new ArrayList<>();
+        long total = 0;
+        for (Segment segment : candidates) {
+            if (total + segment.recordCount > MAX_SEGMENT_RECORDS) {
+                break;
+            }
+            inputs.add(segment);
+            total += segment.recordCount;
+        }
+        if (inputs.size() < 2) {
+            return;
+        }
+        // Newest first, so the first input holding a key supplies its value
+        inputs.sort(Comparator.comparingLong((Segment s) -> s.sequence).reversed());
+        long sequence = inputs.get(0).sequence;
+        long startTime = System.currentTimeMillis();
+
+        try {
+            int[] positions = new int[inputs.size()];
+            writeSegment(segmentPath(sequence), writer -> {
+                while (true) {
+                    int best = -1;
+                    for (int i = 0; i < inputs.size(); i++) {
+                        if (positions[i] < inputs.get(i).recordCount && (best < 0
+                                || compareAt(inputs.get(i), positions[i], inputs.get(best), positions[best]) < 0)) {
+                            best = i;
+                        }
+                    }
+                    if (best < 0) {
+                        return;
+                    }
+                    Segment source = inputs.get(best);
+                    long from = source.fromAt(positions[best]);
+                    long to = source.toAt(positions[best]);
+                    writer.write(from, to, source.valueAt(positions[best]));
+                    // Skip older copies of the same pair
+                    for (int i = 0; i < inputs.size(); i++) {
+                        Segment segment = inputs.get(i);
+                        if (positions[i] < segment.recordCount
+                                && segment.fromAt(positions[i]) == from && segment.toAt(positions[i]) == to) {
+                            positions[i]++;
+                        }
+                    }
+                }
+            });
+
+            Segment merged = Segment.map(segmentPath(sequence), sequence);
+            synchronized (this) {
+                insertSegment(merged);
+                segments.removeIf(segment -> segment != merged && inputs.contains(segment));
+            }
+            for (Segment input : inputs) {
+                if (input.sequence != sequence) {
+                    Files.deleteIfExists(segmentPath(input.sequence));
+                }
+            }
+            logger.info("Compacted {} distance store segments ({} records) into {} records in {}ms",
+                    inputs.size(), total, merged.recordCount, System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            logger.error("Distance store compaction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private synchronized void insertSegment(Segment segment) {
+        segments.removeIf(existing -> existing.sequence == segment.sequence);
+        int position = 0;
+        while (position < segments.size() && segments.get(position).sequence > segment.sequence) {
+            position++;
+        }
+        segments.add(position, segment);
+    }
+
+    private interface RecordSource {
+        void writeTo(SegmentWriter writer) throws IOException;
+    }
+
+    /**
+     * Write a segment to a temp file, fsync it and atomically move it into place.
+     */
+    private void writeSegment(Path target, RecordSource source) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SegmentWriter writer = new SegmentWriter(channel);
+            source.writeTo(writer);
+            writer.finish();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Waits for seals and compactions queued so far. After close() there are none left to wait for.
+     */
+    private void awaitMaintenance() {
+        try {
+            maintenance.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            logger.debug("Distance store maintenance already shut down");
+        } catch (ExecutionException e) {
+            logger.warn("Distance store maintenance failed: {}", e.getCause().getMessage());
+        }
+    }
+
+    // ----- helpers -----
+
+    private int checksum(long from, long to, long value) {
+        synchronized (crc) {
+            crcScratch.clear();
+            crcScratch.putLong(from).putLong(to).putLong(value).flip();
+            crc.reset();
+            crc.update(crcScratch);
+            return (int) crc.getValue();
+        }
+    }
+
+    private LogIndex newIndex() {
+        return new LogIndex();
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("segment-%010d.dat", sequence));
+    }
+
+    private Path logPath(long sequence) {
+        return directory.resolve(String.format("log-%010d.log", sequence));
+    }
+
+    private static int compare(long fromA, long toA, long fromB, long toB) {
+        int byFrom = Long.compare(fromA, fromB);
+        return byFrom != 0 ? byFrom : Long.compare(toA, toB);
+    }
+
+    private static int compareAt(Segment a, int i, Segment b, int j) {
+        return compare(a.fromAt(i), a.toAt(i), b.fromAt(j), b.toAt(j));
+    }
+
+    /**
+     * Index of one log's records. Unlike {@link LongPairDistanceCache} it never evicts, since a
+     * record missing from it would let an older segment answer; it starts small and doubles as the
+     * log fills, so an empty or young log costs little memory.
+     */
+    private static final class LogIndex {
+
+        private static final int INITIAL_SLOTS = 1024;
+
+        private long[] fromKeys = new long[INITIAL_SLOTS];
+        private long[] toKeys = new long[INITIAL_SLOTS];
+        private long[] values = new long[INITIAL_SLOTS];
+        private boolean[] used = new boolean[INITIAL_SLOTS];
+        private int size;
+
+        synchronized long get(long from, long to) {
+            int mask = used.length - 1;
+            for (int index = (int) LongPairDistanceCache.hash(from, to) & mask; used[index]; index = (index + 1) & mask) {
+                if (fromKeys[index] == from && toKeys[index] == to) {
+                    return values[index];
+                }
+            }
+            return LongPairDistanceCache.MISSING;
+        }
+
+        synchronized void put(long from, long to, long value) {
+            if (insert(from, to, value)) {
+                size++;
+                if (size > used.length - (used.length >>> 2)) {
+                    grow();
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /**
+         * @return true if the pair was not indexed yet
+         */
+        private boolean insert(long from, long to, long value) {
+            int mask = used.length - 1;
+            int index = (int) LongPairDistanceCache.hash(from, to) & mask;
+            while (used[index]) {
+                if (fromKeys[index] == from && toKeys[index] == to) {
+                    values[index] = value;
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            fromKeys[index] = from;
+            toKeys[index] = to;
+            values[index] = value;
+            used[index] = true;
+            return true;
+        }
+
+        private void grow() {
+            long[] oldFrom = fromKeys;
+            long[] oldTo = toKeys;
+            long[] oldValues = values;
+            boolean[] oldUsed = used;
+            fromKeys = new long[oldUsed.length * 2];
+            toKeys = new long[oldUsed.length * 2];
+            values = new long[oldUsed.length * 2];
+            used = new boolean[oldUsed.length * 2];
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i]) {
+                    insert(oldFrom[i], oldTo[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    private static final class PendingLog {
+        private final long sequence;
+        private final Path log;
+        private final LogIndex index;
+
+        private PendingLog(long sequence, Path log, LogIndex index) {
+            this.sequence = sequence;
+            this.log = log;
+            this.index = index;
+        }
+    }
+
+    private static final class SegmentWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_RECORDS * SEGMENT_RECORD_BYTES);
+        private long count;
+
+        private SegmentWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.position(SEGMENT_HEADER_BYTES);
+        }
+
+        void write(long from, long to, long value) throws IOException {
+            buffer.putLong(from).putLong(to).putLong(value);
+            count++;
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+        }
+
+        void finish() throws IOException {
+            drain();
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(count).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * A sealed, sorted segment mapped read-only into memory.
+     */
+    private static final class Segment {
+        private final long sequence;
+        private final MappedByteBuffer buffer;
+        private final int recordCount;
+
+        private Segment(long sequence, MappedByteBuffer buffer, int recordCount) {
+            this.sequence = sequence;
+            this.buffer = buffer;
+            this.recordCount = recordCount;
+        }
+
+        /**
+         * @return the mapped segment, or null if its header does not match its size
+         */
+        static Segment map(Path file, long sequence) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < SEGMENT_HEADER_BYTES || size > Integer.MAX_VALUE) {
+                    return null;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                long count = buffer.getLong(8);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || SEGMENT_HEADER_BYTES + count * SEGMENT_RECORD_BYTES != size) {
+                    return null;
+                }
+                return new Segment(sequence, buffer, (int) count);
+            }
+        }
+
+        long get(long from, long to) {
+            int low = 0;
+            int high = recordCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(fromAt(mid), toAt(mid), from, to);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return valueAt(mid);
+                }
+            }
+            return LongPairDistanceCache.MISSING;
+        }
+
+        long fromAt(int record) {
+            return buffer.getLong(SEGMENT_HEADER_BYTES + record * SEGMENT_RECORD_BYTES);
+        }
+
+        long toAt(int record) {
+            return buffer.getLong(SEGMENT_HEADER_BYTES + record * SEGMENT_RECORD_BYTES + Long.BYTES);
+        }
+
+        long valueAt(int record) {
+            return buffer.getLong(SEGMENT_HEADER_BYTES + record * SEGMENT_RECORD_BYTES + 2 * Long.BYTES);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.TimeWindowDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * SHA-256 of everything in a {@link VehicleRoutingRequest} that shapes its solution: depot, stops
+ * with their IDs, coordinates, demands and time windows, vehicle capacities and solver settings.
+ *
+ * It hashes the parsed request rather than its JSON, so whitespace, field order and number formatting
+ * do not matter, and an omitted list is the same as an empty one. List order does matter, since
+ * customers and vehicles are numbered by position. The deadline is left out: it only limits how long a
+ * client is willing to wait, which a cached answer always satisfies, and {@link SolutionCache} does not
+ * keep solutions that a deadline cut short.
+ */
+public final class ProblemFingerprint {
+
+    private static final int ABSENT = -1;
+
+    private ProblemFingerprint() {
+    }
+
+    public static String of(VehicleRoutingRequest request) {
+        Digest digest = new Digest();
+        digest.location(request.getDepot());
+        List<Location> locations = orEmpty(request.getCustomerLocations());
+        digest.count(locations.size());
+        locations.forEach(digest::location);
+        List<Integer> demands = orEmpty(request.getCustomerDemands());
+        digest.count(demands.size());
+        demands.forEach(digest::number);
+        List<TimeWindowDto> timeWindows = orEmpty(request.getCustomerTimeWindows());
+        digest.count(timeWindows.size());
+        timeWindows.forEach(digest::timeWindow);
+        List<Integer> capacities = orEmpty(request.getVehicleCapacities());
+        digest.count(capacities.size());
+        capacities.forEach(digest::number);
+
+        TerminationPolicyDto termination = request.getTermination() != null
+                ? request.getTermination() : new TerminationPolicyDto();
+        digest.number(termination.getTimeBudgetMillis());
+        digest.number(termination.getUnimprovedMillis());
+        digest.number(termination.getPlateauWindowMillis());
+        digest.number(termination.getPlateauMinImprovement());
+        digest.number(request.getPartitionSize());
+        digest.number(request.getNeighbourCount());
+        return digest.hex();
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
+    private static final class Digest {
+        private final MessageDigest sha256;
+        private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 1);
+
+        private Digest() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        void location(Location location) {
+            if (location == null) {
+                count(ABSENT);
+                return;
+            }
+            number(location.getId());
+            coordinate(location.getLatitude());
+            coordinate(location.getLongitude());
+        }
+
+        void timeWindow(TimeWindowDto timeWindow) {
+            if (timeWindow == null) {
+                count(ABSENT);
+                return;
+            }
+            number(timeWindow.getReadyTime());
+            number(timeWindow.getDueTime());
+            number(timeWindow.getServiceTime());
+        }
+
+        void count(int count) {
+            write((byte) 'n', count);
+        }
+
+        /** Tagged so that a null is never confused with a value. */
+        void number(Number number) {
+            if (number == null) {
+                write((byte) 0, 0);
+            } else {
+                write((byte) 1, number.longValue());
+            }
+        }
+
+        void coordinate(double coordinate) {
+            // -0.0 and 0.0 are the same place
+            write((byte) 'c', Double.doubleToLongBits(coordinate == 0.0 ? 0.0 : coordinate));
+        }
+
+        private void write(byte tag, long value) {
+            buffer.clear();
+            buffer.put(tag).putLong(value);
+            sha256.update(buffer.array(), 0, buffer.position());
+        }
+
+        String hex() {
+            return HexFormat.of().formatHex(sha256.digest());
+        }
+    }
+}
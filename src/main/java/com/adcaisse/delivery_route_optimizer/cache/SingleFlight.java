@@ -0,0 +1,113 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller runs the work, callers that
+ * ask for the key while it is running wait for and share its result (or its exception).
+ *
+ * Work is either synchronous ({@link #execute}) or returns a future ({@link #submit}). Nothing is kept
+ * once the work finishes, so a later call runs it again; caching results is up to the caller.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder deduplicated = new LongAdder();
+
+    /**
+     * @param work Runs on the calling thread if no call for the key is in flight
+     * @return The result of this call's work, or of the call already in flight for the key
+     */
+    public V execute(K key, Supplier<V> work) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            deduplicated.increment();
+            return await(running);
+        }
+        try {
+            V value = work.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Asynchronous variant: the first caller gets the future its work returned, so cancelling it still
+     * cancels the work. Later callers get a copy that they may cancel without affecting anyone else; if
+     * the first caller cancels, they start the work again between them.
+     *
+     * @param work Starts the work if no call for the key is in flight
+     */
+    public CompletableFuture<V> submit(K key, Supplier<CompletableFuture<V>> work) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            deduplicated.increment();
+            return running.copy().exceptionallyCompose(error -> isCancellation(error)
+                    ? submit(key, work) : CompletableFuture.failedFuture(error));
+        }
+        CompletableFuture<V> started;
+        try {
+            started = work.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((value, error) -> {
+            // Leave the map first, so callers retrying after a cancellation start a new call
+            inFlight.remove(key, call);
+            if (error != null) {
+                call.completeExceptionally(error);
+            } else {
+                call.complete(value);
+            }
+        });
+        return started;
+    }
+
+    /**
+     * Calls that waited for another call's result instead of doing the work.
+     */
+    public long deduplicated() {
+        return deduplicated.sum();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static boolean isCancellation(Throwable error) {
+        return error instanceof CancellationException
+                || error instanceof CompletionException && error.getCause() instanceof CancellationException;
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared call", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Shared call failed", e.getCause());
+        }
+    }
+}
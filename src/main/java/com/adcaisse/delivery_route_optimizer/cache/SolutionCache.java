@@ -0,0 +1,147 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import com.adcaisse.delivery_route_optimizer.dto.SolutionCacheStatsDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Responses of /optimize by {@link ProblemFingerprint}, so a retried or repeated request is answered
+ * without fetching a matrix or solving again.
+ *
+ * Entries expire after a fixed time to live, and the least recently used entry makes room once the
+ * store is full. Identical requests that arrive while the first one is still solving wait for its
+ * answer instead of starting their own solve ({@link SingleFlight}). Failed solves are not cached, and
+ * neither are solutions cut short by a deadline or the solving cap: a later request with more time
+ * would be handed a worse answer than its own solve would find.
+ */
+@Component
+public class SolutionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolutionCache.class);
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SingleFlight<String, VehicleRoutingSolutionDto> solves = new SingleFlight<>();
+    // Access order: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public SolutionCache(@Value("${solution-cache.enabled:true}") boolean enabled,
+                         @Value("${solution-cache.max-entries:256}") int maxEntries,
+                         @Value("${solution-cache.ttl-seconds:300}") long ttlSeconds) {
+        this(enabled, maxEntries, ttlSeconds * 1000, System::currentTimeMillis);
+    }
+
+    SolutionCache(boolean enabled, int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.enabled = enabled && maxEntries > 0 && ttlMillis > 0;
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        logger.info("Initializing solution cache: {}", this.enabled
+                ? maxEntries + " responses for " + ttlMillis / 1000 + "s" : "disabled");
+    }
+
+    /**
+     * @param solve Solves the request; runs only if no fresh response is cached and no identical
+     *              request is already solving
+     */
+    public VehicleRoutingSolutionDto get(VehicleRoutingRequest request, Supplier<VehicleRoutingSolutionDto> solve) {
+        if (!enabled) {
+            return solve.get();
+        }
+        String fingerprint = ProblemFingerprint.of(request);
+        VehicleRoutingSolutionDto cached = lookup(fingerprint);
+        if (cached != null) {
+            hits.increment();
+            logger.info("♻️ Answered request {} from the solution cache", fingerprint.substring(0, 12));
+            return cached;
+        }
+        misses.increment();
+        return solves.execute(fingerprint, () -> {
+            // A caller that missed just before another one finished would otherwise solve again
+            VehicleRoutingSolutionDto solvedMeanwhile = lookup(fingerprint);
+            if (solvedMeanwhile != null) {
+                return solvedMeanwhile;
+            }
+            VehicleRoutingSolutionDto solved = solve.get();
+            if (!solved.isCutShort()) {
+                store(fingerprint, solved);
+            }
+            return solved;
+        });
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized SolutionCacheStatsDto getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return new SolutionCacheStatsDto(
+                entries.size(),
+                maxEntries,
+                ttlMillis / 1000,
+                hitCount,
+                misses.sum(),
+                solves.deduplicated(),
+                expirations.sum(),
+                evictions.sum(),
+                lookups == 0 ? 0.0 : (double) hitCount / lookups
+        );
+    }
+
+    private synchronized VehicleRoutingSolutionDto lookup(String fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= clock.getAsLong()) {
+            entries.remove(fingerprint);
+            expirations.increment();
+            return null;
+        }
+        return entry.solution();
+    }
+
+    private synchronized void store(String fingerprint, VehicleRoutingSolutionDto solution) {
+        long now = clock.getAsLong();
+        entries.put(fingerprint, new Entry(solution, now + ttlMillis));
+        // Expired entries go first, then the least recently used ones
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && entries.size() > maxEntries) {
+            if (iterator.next().getValue().expiresAt() <= now) {
+                iterator.remove();
+                expirations.increment();
+            }
+        }
+        iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private record Entry(VehicleRoutingSolutionDto solution, long expiresAt) {
+    }
+}
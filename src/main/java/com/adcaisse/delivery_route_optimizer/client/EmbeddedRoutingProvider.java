@@ -0,0 +1,356 @@
+package com.adcaisse.delivery_route_optimizer.client;
+
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.model.SpatialGrid;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process {@link RoutingProvider} for load tests and CI performance runs without a GraphHopper
+ * server, selected with routing.provider=embedded.
+ *
+ * Inside routing.embedded.graph.bounds, costs are fastest paths over a {@link SyntheticRoadGraph}
+ * plus straight-line legs between each location and its nearest junction. Outside the bounds, with
+ * the graph disabled, or between locations nearest the same junction, they are straight-line
+ * distances times detour-factor, driven at speed-kmh. The profile is "embedded", so these costs
+ * never mix with GraphHopper's in the distance caches or the persistent store.
+ *
+ * Requests are transported like GraphHopperClient's: a matrix is computed in tiles of at most
+ * matrix-tile-size x matrix-tile-size cells, with at most max-concurrent-requests tiles or pairs in
+ * progress, and a failed tile makes the whole matrix fall back to one request per cell. Every request
+ * first waits latency-millis plus up to latency-jitter-millis, then fails with probability
+ * failure-rate, which reproduces a slow or flaky server at any problem size.
+ */
+@Component
+@ConditionalOnProperty(name = "routing.provider", havingValue = "embedded")
+public class EmbeddedRoutingProvider implements RoutingProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedRoutingProvider.class);
+
+    private final SyntheticRoadGraph graph;
+    private final double detourFactor;
+    private final double metersPerSecond;
+    private final boolean directed;
+    private final int matrixTileSize;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double failureRate;
+    private final ExecutorService requestExecutor;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedFailures = new LongAdder();
+
+    public EmbeddedRoutingProvider(
+            @Value("${routing.embedded.graph.enabled:true}") boolean graphEnabled,
+            @Value("${routing.embedded.graph.bounds:30.2,7.5,37.6,11.6}") double[] graphBounds,
+            @Value("${routing.embedded.graph.spacing-degrees:0.05}") double graphSpacingDegrees,
+            @Value("${routing.embedded.graph.seed:42}") long graphSeed,
+            @Value("${routing.embedded.graph.search-cache-mb:64}") long graphSearchCacheMb,
+            @Value("${routing.embedded.detour-factor:1.3}") double detourFactor,
+            @Value("${routing.embedded.speed-kmh:40}") double speedKmh,
+            @Value("${routing.embedded.directed:true}") boolean directed,
+            @Value("${routing.embedded.matrix-tile-size:100}") int matrixTileSize,
+            @Value("${routing.embedded.max-concurrent-requests:10}") int maxConcurrentRequests,
+            @Value("${routing.embedded.latency-millis:0}") long latencyMillis,
+            @Value("${routing.embedded.latency-jitter-millis:0}") long latencyJitterMillis,
+            @Value("${routing.embedded.failure-rate:0}") double failureRate) {
+        if (detourFactor < 1 || speedKmh <= 0) {
+            throw new IllegalArgumentException("routing.embedded.detour-factor must be at least 1 and speed-kmh positive");
+        }
+        if (failureRate < 0 || failureRate > 1 || latencyMillis < 0 || latencyJitterMillis < 0) {
+            throw new IllegalArgumentException("routing.embedded.failure-rate must be within [0, 1] and latencies non-negative");
+        }
+        if (graphEnabled && graphBounds.length != 4) {
+            throw new IllegalArgumentException("routing.embedded.graph.bounds must be minLatitude,minLongitude,maxLatitude,maxLongitude");
+        }
+        this.graph = graphEnabled
+                ? new SyntheticRoadGraph(graphBounds[0], graphBounds[1], graphBounds[2], graphBounds[3],
+                        graphSpacingDegrees, directed, graphSeed, graphSearchCacheMb * 1024 * 1024)
+                : null;
+        this.detourFactor = detourFactor;
+        this.metersPerSecond = speedKmh / 3.6;
+        this.directed = directed;
+        this.matrixTileSize = Math.max(1, matrixTileSize);
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.failureRate = failureRate;
+        this.requestExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentRequests), runnable -> {
+            Thread thread = new Thread(runnable, "embedded-routing");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        logger.info("Initializing embedded routing provider: {}, {} distances, tiles of {}, {} requests in flight max, "
+                        + "{}+{}ms latency, {}% injected failures",
+                graph != null ? "synthetic road graph of " + graph.nodeCount() + " junctions and " + graph.roadCount() + " roads"
+                        : "straight-line distances x " + detourFactor,
+                directed ? "directed" : "symmetric", this.matrixTileSize, Math.max(1, maxConcurrentRequests),
+                latencyMillis, latencyJitterMillis, failureRate * 100);
+    }
+
+    @PreDestroy
+    public void close() {
+        requestExecutor.shutdownNow();
+        logger.info("Embedded routing provider served {} requests, {} failed on purpose",
+                requests.sum(), injectedFailures.sum());
+    }
+
+    @Override
+    public String getProfile() {
+        return "embedded";
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public long[][] getCostMatrix(List<Location> locations) throws Exception {
+        return getCostMatrix(locations, locations);
+    }
+
+    @Override
+    public long[][] getCostMatrix(List<Location> origins, List<Location> destinations) throws Exception {
+        try {
+            return getCostMatrixTiled(origins, destinations);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.warn("Embedded matrix request failed ({}), falling back to per-pair requests", e.getMessage());
+        }
+        return getCostMatrixPairwise(origins, destinations);
+    }
+
+    private long[][] getCostMatrixTiled(List<Location> origins, List<Location> destinations) throws Exception {
+        long[][] matrix = new long[origins.size()][destinations.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int rowStart = 0; rowStart < origins.size(); rowStart += matrixTileSize) {
+            for (int colStart = 0; colStart < destinations.size(); colStart += matrixTileSize) {
+                int rowEnd = Math.min(rowStart + matrixTileSize, origins.size());
+                int colEnd = Math.min(colStart + matrixTileSize, destinations.size());
+                int fromRow = rowStart;
+                int fromCol = colStart;
+                futures.add(request(() -> {
+                    computeTile(origins.subList(fromRow, rowEnd), destinations.subList(fromCol, colEnd),
+                            matrix, fromRow, fromCol);
+                    return null;
+                }));
+            }
+        }
+        await(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), futures);
+        return matrix;
+    }
+
+    /**
+     * One request per cell, issued one origin row at a time so that huge matrices do not queue
+     * a future per cell at once.
+     */
+    private long[][] getCostMatrixPairwise(List<Location> origins, List<Location> destinations) throws Exception {
+        long[][] matrix = new long[origins.size()][destinations.size()];
+        for (int i = 0; i < origins.size(); i++) {
+            Location from = origins.get(i);
+            long[] row = matrix[i];
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int j = 0; j < destinations.size(); j++) {
+                Location to = destinations.get(j);
+                if (!sameCoordinates(from, to)) {
+                    int column = j;
+                    futures.add(request(() -> {
+                        row[column] = cost(from, to);
+                        return null;
+                    }));
+                }
+            }
+            await(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), futures);
+        }
+        return matrix;
+    }
+
+    @Override
+    public long[] getCostPair(Location from, Location to) throws Exception {
+        CompletableFuture<long[]> costs = request(() -> {
+            long forward = cost(from, to);
+            return new long[]{forward, directed ? cost(to, from) : forward};
+        });
+        return await(costs, List.of(costs));
+    }
+
+    @Override
+    public String getRoutePolyline(Location from, Location to) throws Exception {
+        CompletableFuture<String> polyline = request(() -> {
+            List<Location> points = new ArrayList<>();
+            points.add(from);
+            if (graph != null && graph.contains(from) && graph.contains(to)) {
+                for (int node : graph.path(graph.nearestNode(from), graph.nearestNode(to))) {
+                    points.add(graph.location(node));
+                }
+            }
+            points.add(to);
+            return encodePolyline(points);
+        });
+        return await(polyline, List.of(polyline));
+    }
+
+    /**
+     * Fill one tile of the target matrix from the costs of each origin's junction to all others.
+     */
+    private void computeTile(List<Location> origins, List<Location> destinations, long[][] target,
+                             int rowOffset, int colOffset) {
+        int[] destinationNodes = new int[destinations.size()];
+        long[] egress = new long[destinations.size()];
+        for (int j = 0; j < destinations.size(); j++) {
+            destinationNodes[j] = nodeOf(destinations.get(j));
+            if (destinationNodes[j] >= 0) {
+                egress[j] = straightLineCost(graph.location(destinationNodes[j]), destinations.get(j));
+            }
+        }
+
+        for (int i = 0; i < origins.size(); i++) {
+            Location from = origins.get(i);
+            int fromNode = nodeOf(from);
+            long access = fromNode >= 0 ? straightLineCost(from, graph.location(fromNode)) : 0;
+            long[] fromJunction = fromNode >= 0 ? graph.costsFrom(fromNode) : null;
+            long[] row = target[rowOffset + i];
+            for (int j = 0; j < destinations.size(); j++) {
+                Location to = destinations.get(j);
+                int toNode = destinationNodes[j];
+                row[colOffset + j] = fromNode < 0 || toNode < 0 || fromNode == toNode || sameCoordinates(from, to)
+                        ? straightLineCost(from, to)
+                        : add(access, fromJunction[toNode], egress[j]);
+            }
+        }
+    }
+
+    /**
+     * {@link RoadCost} of one pair, the same value as its cell in a matrix.
+     */
+    private long cost(Location from, Location to) {
+        int fromNode = nodeOf(from);
+        int toNode = nodeOf(to);
+        if (fromNode < 0 || toNode < 0 || fromNode == toNode || sameCoordinates(from, to)) {
+            return straightLineCost(from, to);
+        }
+        return add(straightLineCost(from, graph.location(fromNode)), graph.costsFrom(fromNode)[toNode],
+                straightLineCost(graph.location(toNode), to));
+    }
+
+    /**
+     * Nearest junction, or -1 outside the road graph.
+     */
+    private int nodeOf(Location location) {
+        return graph != null && graph.contains(location) ? graph.nearestNode(location) : -1;
+    }
+
+    private static long add(long access, long road, long egress) {
+        return RoadCost.of(RoadCost.distance(access) + RoadCost.distance(road) + RoadCost.distance(egress),
+                RoadCost.duration(access) + RoadCost.duration(road) + RoadCost.duration(egress));
+    }
+
+    private long straightLineCost(Location from, Location to) {
+        if (sameCoordinates(from, to)) {
+            return 0;
+        }
+        double meters = SpatialGrid.straightLineMeters(from, to) * detourFactor;
+        return RoadCost.of(Math.round(meters), Math.round(meters / metersPerSecond));
+    }
+
+    private static boolean sameCoordinates(Location a, Location b) {
+        return a.getLatitude() == b.getLatitude() && a.getLongitude() == b.getLongitude();
+    }
+
+    /**
+     * Run one simulated request on the request threads: wait the configured latency, fail at the
+     * configured rate, otherwise compute the answer. Requests cancelled while queued are never run.
+     */
+    private <T> CompletableFuture<T> request(Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        requestExecutor.execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            requests.increment();
+            try {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long delay = latencyMillis + (latencyJitterMillis > 0 ? random.nextLong(latencyJitterMillis + 1) : 0);
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                if (failureRate > 0 && random.nextDouble() < failureRate) {
+                    injectedFailures.increment();
+                    throw new IOException("Injected embedded routing failure");
+                }
+                result.complete(work.get());
+            } catch (InterruptedException e) {
+                result.cancel(false);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Wait for a result; if the calling thread is interrupted (the caller gave up) or a request
+     * failed, cancel the outstanding requests so they are not computed for nothing.
+     */
+    private static <T> T await(CompletableFuture<T> result, List<? extends CompletableFuture<?>> requests)
+            throws Exception {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            requests.forEach(request -> request.cancel(true));
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            requests.forEach(request -> request.cancel(true));
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (CancellationException e) {
+            // Only the provider shutting down cancels a request nobody gave up on
+            throw new IOException("Embedded routing provider is shutting down", e);
+        }
+    }
+
+    /**
+     * Google encoded polyline with 5 decimal places, as GraphHopper returns with points_encoded=true.
+     */
+    static String encodePolyline(List<Location> points) {
+        StringBuilder encoded = new StringBuilder();
+        long previousLatitude = 0;
+        long previousLongitude = 0;
+        for (Location point : points) {
+            long latitude = Math.round(point.getLatitude() * 1e5);
+            long longitude = Math.round(point.getLongitude() * 1e5);
+            encodeValue(latitude - previousLatitude, encoded);
+            encodeValue(longitude - previousLongitude, encoded);
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+        }
+        return encoded.toString();
+    }
+
+    private static void encodeValue(long value, StringBuilder encoded) {
+        long shifted = value < 0 ? ~(value << 1) : value << 1;
+        while (shifted >= 0x20) {
+            encoded.append((char) ((0x20 | (shifted & 0x1f)) + 63));
+            shifted >>= 5;
+        }
+        encoded.append((char) (shifted + 63));
+    }
+}
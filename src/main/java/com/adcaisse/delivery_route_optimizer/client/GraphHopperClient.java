@@ -1,56 +1,185 @@
 package com.adcaisse.delivery_route_optimizer.client;
 
 
+import com.adcaisse.delivery_route_optimizer.cache.SingleFlight;
 import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * {@link RoutingProvider} backed by a GraphHopper server at graphhopper.url; the default provider.
+ */
 @Component
-public class GraphHopperClient {
+@ConditionalOnProperty(name = "routing.provider", havingValue = "graphhopper", matchIfMissing = true)
+public class GraphHopperClient implements RoutingProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(GraphHopperClient.class);
+
+    /** Instruction sign GraphHopper uses for reaching an intermediate point. */
+    private static final int VIA_REACHED_SIGN = 5;
     
     private final String graphHopperUrl;
-    private final int maxConcurrentRequests;
-    private final HttpClient httpClient;
+    private final String profile;
+    private final GraphHopperRequestEngine requestEngine;
+    private final boolean matrixEnabled;
+    private final int matrixTileSize;
+    private final boolean directed;
     private final ObjectMapper objectMapper;
 
+    /**
+     * Cleared the first time the server answers /matrix with 404 (the open-source
+     * GraphHopper server does not ship the Matrix API), so later calls go straight
+     * to the per-pair path instead of paying for a failed request every time.
+     */
+    private volatile boolean matrixSupported = true;
+
+    /** Identical tiles requested by matrices computed at the same time share one /matrix request. */
+    private final SingleFlight<TileKey, MatrixTile> tileRequests = new SingleFlight<>();
+
     public GraphHopperClient(
             @Value("${graphhopper.url}") String graphHopperUrl,
-            @Value("${graphhopper.max-concurrent-requests:10}") int maxConcurrentRequests,
-            @Value("${graphhopper.request-timeout-seconds:10}") int timeoutSeconds) {
+            @Value("${graphhopper.profile:car}") String profile,
+            GraphHopperRequestEngine requestEngine,
+            @Value("${graphhopper.matrix.enabled:true}") boolean matrixEnabled,
+            @Value("${graphhopper.matrix.tile-size:100}") int matrixTileSize,
+            @Value("${graphhopper.directed:true}") boolean directed) {
         this.graphHopperUrl = graphHopperUrl;
-        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.profile = profile;
+        this.requestEngine = requestEngine;
+        this.matrixEnabled = matrixEnabled;
+        this.matrixTileSize = Math.max(1, matrixTileSize);
+        this.directed = directed;
         
-        logger.info("Initializing GraphHopperClient with URL: {}, max concurrent requests: {}, timeout: {}s",
-                   graphHopperUrl, maxConcurrentRequests, timeoutSeconds);
-        
-        // Optimized HTTP client for parallel requests
-        this.httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(timeoutSeconds))
-            .build();
+        logger.info("Initializing GraphHopperClient with URL: {}, profile: {}, matrix API: {} (tile size {}), {} distances",
+                   graphHopperUrl, profile, matrixEnabled ? "enabled" : "disabled", this.matrixTileSize,
+                   directed ? "directed" : "symmetric");
             
         this.objectMapper = new ObjectMapper();
     }
 
-    public long[][] getDistanceMatrix(List<Location> locations) throws Exception {
+    @Override
+    public String getProfile() {
+        return profile;
+    }
+
+    /**
+     * Whether A -> B and B -> A are fetched separately (one-way streets, turn restrictions).
+     * When false, one direction is fetched and mirrored, as if every road were two-way.
+     */
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Compute the full matrix of {@link RoadCost} values (distance and travel time) for the given locations.
+     * Uses the GraphHopper Matrix API (one request per tile of origins x destinations) when enabled,
+     * and falls back to one /route request per location pair otherwise. Both transports return the
+     * travel time with the distance, so durations cost no extra request.
+     */
+    @Override
+    public long[][] getCostMatrix(List<Location> locations) throws Exception {
+        if (matrixEnabled && matrixSupported && locations.size() > 1) {
+            try {
+                return getCostMatrixTiled(locations, locations);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.warn("Matrix API request failed ({}), falling back to per-pair /route requests", e.getMessage());
+            }
+        }
+        return getCostMatrixPairwise(locations);
+    }
+
+    /**
+     * Compute costs from every origin to every destination, e.g. only the rows and columns
+     * of a matrix that are not cached yet. Same transport choice and fallback as
+     * {@link #getCostMatrix(List)}; cells whose origin and destination coincide are 0.
+     */
+    @Override
+    public long[][] getCostMatrix(List<Location> origins, List<Location> destinations) throws Exception {
+        if (matrixEnabled && matrixSupported && !origins.isEmpty() && !destinations.isEmpty()) {
+            try {
+                return getCostMatrixTiled(origins, destinations);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.warn("Matrix API request failed ({}), falling back to per-pair /route requests", e.getMessage());
+            }
+        }
+        return getCostMatrixPairwise(origins, destinations);
+    }
+
+    /**
+     * Fetch the matrix in tiles of at most matrixTileSize x matrixTileSize cells,
+     * running the tile requests in parallel and parsing each response directly into the result.
+     */
+    long[][] getCostMatrixTiled(List<Location> origins, List<Location> destinations) throws Exception {
+        int rows = origins.size();
+        int cols = destinations.size();
+        long[][] distanceMatrix = new long[rows][cols];
+        int totalTiles = ((rows + matrixTileSize - 1) / matrixTileSize) * ((cols + matrixTileSize - 1) / matrixTileSize);
+
+        logger.info("Starting tiled distance matrix calculation for {}x{} locations ({} matrix requests of up to {}x{})",
+                   rows, cols, totalTiles, matrixTileSize, matrixTileSize);
+        long startTime = System.currentTimeMillis();
+
+        List<CompletableFuture<List<int[]>>> futures = new ArrayList<>();
+        for (int rowStart = 0; rowStart < rows; rowStart += matrixTileSize) {
+            for (int colStart = 0; colStart < cols; colStart += matrixTileSize) {
+                List<Location> tileOrigins = origins.subList(rowStart, Math.min(rowStart + matrixTileSize, rows));
+                List<Location> tileDestinations = destinations.subList(colStart, Math.min(colStart + matrixTileSize, cols));
+                futures.add(fetchMatrixTile(tileOrigins, tileDestinations, distanceMatrix, rowStart, colStart));
+            }
+        }
+        await(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), futures);
+
+        // Cells the Matrix API could not route (null entries) are retried individually via /route
+        List<int[]> unresolved = new ArrayList<>();
+        for (CompletableFuture<List<int[]>> future : futures) {
+            unresolved.addAll(future.join());
+        }
+        for (int[] cell : unresolved) {
+            if (!sameCoordinates(origins.get(cell[0]), destinations.get(cell[1]))) {
+                distanceMatrix[cell[0]][cell[1]] = getCost(origins.get(cell[0]), destinations.get(cell[1]));
+            }
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        logger.info("Tiled distance matrix calculation completed in {}ms ({} matrix requests, {} cells retried via /route)",
+                   duration, totalTiles, unresolved.size());
+        return distanceMatrix;
+    }
+
+    private long[][] getCostMatrixPairwise(List<Location> locations) throws Exception {
         int n = locations.size();
         long[][] distanceMatrix = new long[n][n];
         
@@ -62,114 +191,494 @@ public class GraphHopperClient {
         // Calculate total number of API calls needed
         int totalCalls = (n * (n - 1)) / 2;  // n choose 2 (upper triangle)
         
-        logger.info("Starting parallel distance matrix calculation for {} locations ({} API calls with {} max concurrent requests)", 
-                   n, totalCalls, maxConcurrentRequests);
+        // In directed mode each call is a round trip i -> j -> i, returning both directions at once
+        logger.info("Starting parallel distance matrix calculation for {} locations ({} {} API calls, {} max concurrent requests shared)",
+                   n, totalCalls, directed ? "round-trip" : "one-way", requestEngine.getMaxConcurrentRequests());
         long startTime = System.currentTimeMillis();
         
-        // Create custom executor with limited thread pool
-        ExecutorService executor = Executors.newFixedThreadPool(maxConcurrentRequests);
+        // Build list of all async requests for upper triangle; the request engine bounds concurrency
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        AtomicInteger completedCalls = new AtomicInteger(0);
         
-        try {
-            // Build list of all async tasks for upper triangle
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            AtomicInteger completedCalls = new AtomicInteger(0);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                final int fi = i;
+                final int fj = j;
+                final Location from = locations.get(i);
+                final Location to = locations.get(j);
             
-            // Create async tasks for upper triangle
-            for (int i = 0; i < n; i++) {
-                for (int j = i + 1; j < n; j++) {
-                    final int fi = i;
-                    final int fj = j;
-                    final Location from = locations.get(i);
-                    final Location to = locations.get(j);
-                    
-                    // Create async task with controlled executor
-                    CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                        try {
-                            long distance = getDistance(from, to);
-                            
-                            // Store in both positions (symmetric)
-                            distanceMatrix[fi][fj] = distance;
-                            distanceMatrix[fj][fi] = distance;
-                            
-                            int completed = completedCalls.incrementAndGet();
-                            if (completed % 50 == 0 || completed == totalCalls) {
-                                logger.debug("Distance calculation progress: {}/{} completed ({} %)", 
-                                           completed, totalCalls, (completed * 100) / totalCalls);
-                            }
-                        } catch (Exception e) {
-                            logger.error("Failed to calculate distance from location {} to {}: {}", 
-                                        from.getId(), to.getId(), e.getMessage());
-                            // Set fallback distance (Haversine)
-                            /*long fallbackDistance = calculateHaversineDistance(from, to);
-                            distanceMatrix[fi][fj] = fallbackDistance;
-                            distanceMatrix[fj][fi] = fallbackDistance;*/
-                        }
-                    }, executor);  // Use custom executor with controlled parallelism
-                    
-                    futures.add(future);
+                CompletableFuture<long[]> request = directed
+                        ? getRoundTripAsync(from, to)
+                        : getCostAsync(from, to).thenApply(cost -> new long[]{cost, cost});
+                // A failed pair fails the whole matrix, like the rectangular variant: a cell left at 0
+                // would be cached, and stored on disk, as a free road between the two stops
+                CompletableFuture<Void> future = propagateCancel(request.thenAccept(distances -> {
+                    // Outbound and return leg (equal in symmetric mode)
+                    distanceMatrix[fi][fj] = distances[0];
+                    distanceMatrix[fj][fi] = distances[1];
+
+                    int completed = completedCalls.incrementAndGet();
+                    if (completed % 50 == 0 || completed == totalCalls) {
+                        logger.debug("Distance calculation progress: {}/{} completed ({} %)",
+                                   completed, totalCalls, (completed * 100) / totalCalls);
+                    }
+                }), request);
+
+                futures.add(future);
+            }
+        }
+
+        // Wait for all async operations to complete
+        await(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), futures);
+
+        long duration = System.currentTimeMillis() - startTime;
+        logger.info("Distance matrix calculation completed in {}ms ({} calls, avg {}.{}ms per call)",
+                   duration, totalCalls, duration / Math.max(totalCalls, 1),
+                   (duration * 10 / Math.max(totalCalls, 1)) % 10);
+
+        return distanceMatrix;
+    }
+
+    /**
+     * One /route request per origin/destination pair. In directed mode, a pair whose reverse
+     * cell is also requested is fetched as a single round trip, like the square variant.
+     */
+    private long[][] getCostMatrixPairwise(List<Location> origins, List<Location> destinations) throws Exception {
+        long[][] distanceMatrix = new long[origins.size()][destinations.size()];
+        logger.info("Starting parallel distance calculation for {}x{} locations ({} max concurrent requests shared)",
+                   origins.size(), destinations.size(), requestEngine.getMaxConcurrentRequests());
+        long startTime = System.currentTimeMillis();
+
+        Map<Location, Integer> originIndex = new IdentityHashMap<>();
+        Map<Location, Integer> destinationIndex = new IdentityHashMap<>();
+        for (int i = 0; i < origins.size(); i++) {
+            originIndex.putIfAbsent(origins.get(i), i);
+        }
+        for (int j = 0; j < destinations.size(); j++) {
+            destinationIndex.putIfAbsent(destinations.get(j), j);
+        }
+
+        boolean[][] scheduled = new boolean[origins.size()][destinations.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < destinations.size(); j++) {
+                if (scheduled[i][j] || sameCoordinates(origins.get(i), destinations.get(j))) {
+                    continue;
+                }
+                scheduled[i][j] = true;
+                final long[] row = distanceMatrix[i];
+                final int column = j;
+                Integer reverseRow = directed ? originIndex.get(destinations.get(j)) : null;
+                Integer reverseColumn = directed ? destinationIndex.get(origins.get(i)) : null;
+                if (reverseRow != null && reverseColumn != null && !scheduled[reverseRow][reverseColumn]) {
+                    scheduled[reverseRow][reverseColumn] = true;
+                    final long[] reverse = distanceMatrix[reverseRow];
+                    final int reverseCol = reverseColumn;
+                    CompletableFuture<long[]> request = getRoundTripAsync(origins.get(i), destinations.get(j));
+                    futures.add(propagateCancel(request.thenAccept(distances -> {
+                        row[column] = distances[0];
+                        reverse[reverseCol] = distances[1];
+                    }), request));
+                } else {
+                    CompletableFuture<Long> request = getCostAsync(origins.get(i), destinations.get(j));
+                    futures.add(propagateCancel(request.thenAccept(cost -> row[column] = cost), request));
                 }
             }
-            
-            // Wait for all async operations to complete
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            
-            long duration = System.currentTimeMillis() - startTime;
-            logger.info("Distance matrix calculation completed in {}ms ({} calls, avg {}.{}ms per call)", 
-                       duration, totalCalls, duration / Math.max(totalCalls, 1), 
-                       (duration * 10 / Math.max(totalCalls, 1)) % 10);
-            
-            return distanceMatrix;
-            
-        } catch (Exception e) {
-            logger.error("Error during parallel distance calculation", e);
-            throw new Exception("Failed to calculate distance matrix", e);
-        } finally {
-            // Always shutdown executor to prevent thread leaks
-            executor.shutdown();
+        }
+        await(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), futures);
+
+        logger.info("Distance calculation completed in {}ms ({} calls)",
+                   System.currentTimeMillis() - startTime, futures.size());
+        return distanceMatrix;
+    }
+
+    private static boolean sameCoordinates(Location a, Location b) {
+        return a.getLatitude() == b.getLatitude() && a.getLongitude() == b.getLongitude();
+    }
+
+    /**
+     * Request one origins x destinations tile from the Matrix API and write it into the target matrix.
+     * If the same tile is already being fetched for another matrix, wait for that request instead.
+     *
+     * @return future of the cells (absolute row/column indices) the server returned as unroutable
+     */
+    private CompletableFuture<List<int[]>> fetchMatrixTile(List<Location> origins, List<Location> destinations,
+                                                           long[][] target, int rowOffset, int colOffset) {
+        CompletableFuture<MatrixTile> tile = tileRequests.submit(TileKey.of(origins, destinations),
+                () -> requestMatrixTile(origins, destinations));
+        return propagateCancel(tile.thenApply(fetched -> fetched.copyInto(target, rowOffset, colOffset)), tile);
+    }
+
+    private CompletableFuture<MatrixTile> requestMatrixTile(List<Location> origins, List<Location> destinations) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.set("from_points", toPointArray(origins));
+        body.set("to_points", toPointArray(destinations));
+        body.putArray("out_arrays").add("distances").add("times");
+        body.put("profile", profile);
+        body.put("fail_fast", false);
+
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .uri(URI.create(graphHopperUrl + "/matrix"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> response = requestEngine.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        return propagateCancel(response.thenApply(tile -> {
             try {
-                if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
+                if (tile.statusCode() == 404) {
+                    matrixSupported = false;
+                    throw new IOException("GraphHopper server does not provide the /matrix endpoint");
                 }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
+                if (tile.statusCode() != 200) {
+                    throw new IOException("GraphHopper /matrix returned HTTP " + tile.statusCode());
+                }
+                long[][] costs = new long[origins.size()][destinations.size()];
+                List<int[]> unresolved = parseMatrixCosts(new ByteArrayInputStream(tile.body()),
+                        costs, origins.size(), destinations.size());
+                return new MatrixTile(costs, unresolved);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), response);
+    }
+
+    /**
+     * Matrix API requests that waited for an identical tile already being fetched.
+     */
+    @Override
+    public long getDeduplicatedTiles() {
+        return tileRequests.deduplicated();
+    }
+
+    /**
+     * Coordinates of a tile's origins and destinations, in order.
+     */
+    private record TileKey(double[] origins, double[] destinations) {
+
+        static TileKey of(List<Location> origins, List<Location> destinations) {
+            return new TileKey(coordinates(origins), coordinates(destinations));
+        }
+
+        private static double[] coordinates(List<Location> locations) {
+            double[] coordinates = new double[locations.size() * 2];
+            for (int i = 0; i < locations.size(); i++) {
+                coordinates[2 * i] = locations.get(i).getLatitude();
+                coordinates[2 * i + 1] = locations.get(i).getLongitude();
+            }
+            return coordinates;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TileKey key
+                    && Arrays.equals(origins, key.origins) && Arrays.equals(destinations, key.destinations);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(origins) + Arrays.hashCode(destinations);
+        }
+    }
+
+    /**
+     * One parsed tile; shared by every matrix that asked for it, so it is only ever read.
+     *
+     * @param costs {@link RoadCost} values
+     * @param unresolved Cells (tile-relative row/column indices) that could not be routed
+     */
+    private record MatrixTile(long[][] costs, List<int[]> unresolved) {
+
+        /**
+         * @return the unroutable cells, as absolute indices of the target
+         */
+        List<int[]> copyInto(long[][] target, int rowOffset, int colOffset) {
+            for (int row = 0; row < costs.length; row++) {
+                System.arraycopy(costs[row], 0, target[rowOffset + row], colOffset, costs[row].length);
+            }
+            List<int[]> cells = new ArrayList<>(unresolved.size());
+            for (int[] cell : unresolved) {
+                cells.add(new int[]{rowOffset + cell[0], colOffset + cell[1]});
+            }
+            return cells;
+        }
+    }
+
+    private ArrayNode toPointArray(List<Location> locations) {
+        ArrayNode points = objectMapper.createArrayNode();
+        for (Location location : locations) {
+            // GraphHopper expects [longitude, latitude] in JSON point arrays
+            points.addArray().add(location.getLongitude()).add(location.getLatitude());
+        }
+        return points;
+    }
+
+    /**
+     * Stream-parse the "distances" (meters) and "times" (seconds) arrays of a Matrix API response,
+     * in whichever order they come, into {@link RoadCost} values of the target matrix, without
+     * building an intermediate JSON tree.
+     *
+     * @return cells (row/column indices) that came back as null in either array, i.e. could not be routed
+     */
+    List<int[]> parseMatrixCosts(InputStream in, long[][] target, int rows, int cols) throws IOException {
+        long[][] distances = null;
+        long[][] times = null;
+        List<int[]> unresolved = new ArrayList<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected GraphHopper /matrix response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_ARRAY && "distances".equals(field)) {
+                    distances = parseMatrixArray(parser, rows, cols, unresolved);
+                } else if (value == JsonToken.START_ARRAY && "times".equals(field)) {
+                    times = parseMatrixArray(parser, rows, cols, unresolved);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (distances == null || times == null) {
+            throw new IOException("GraphHopper /matrix response has no " + (distances == null ? "distances" : "times"));
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                target[row][col] = RoadCost.of(distances[row][col], times[row][col]);
             }
         }
+        return unresolved;
+    }
+
+    /**
+     * Read one rows x cols array of numbers, the parser positioned on its opening bracket.
+     * Null cells are added to unresolved unless already there from the other array.
+     */
+    private static long[][] parseMatrixArray(JsonParser parser, int rows, int cols, List<int[]> unresolved)
+            throws IOException {
+        long[][] values = new long[rows][cols];
+        boolean firstArray = unresolved.isEmpty();
+        int row = 0;
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            int col = 0;
+            JsonToken cell;
+            while ((cell = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (row < rows && col < cols) {
+                    if (cell == JsonToken.VALUE_NULL) {
+                        if (firstArray || !contains(unresolved, row, col)) {
+                            unresolved.add(new int[]{row, col});
+                        }
+                    } else {
+                        values[row][col] = Math.round(parser.getValueAsDouble());
+                    }
+                }
+                col++;
+            }
+            if (col != cols) {
+                throw new IOException("GraphHopper /matrix returned " + col + " columns, expected " + cols);
+            }
+            row++;
+        }
+        if (row != rows) {
+            throw new IOException("GraphHopper /matrix returned " + row + " rows, expected " + rows);
+        }
+        return values;
+    }
+
+    private static boolean contains(List<int[]> cells, int row, int col) {
+        for (int[] cell : cells) {
+            if (cell[0] == row && cell[1] == col) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public long getDistance(Location from, Location to) throws Exception {
-        String url = String.format("%s/route?point=%f,%f&point=%f,%f&profile=car",
+        return RoadCost.distance(getCost(from, to));
+    }
+
+    /**
+     * @return {@link RoadCost} of the road from -> to
+     */
+    public long getCost(Location from, Location to) throws Exception {
+        CompletableFuture<Long> cost = getCostAsync(from, to);
+        return await(cost, List.of(cost));
+    }
+
+    /**
+     * Queue a /route request for one pair on the shared request engine.
+     *
+     * @return future {@link RoadCost} of the road from -> to
+     */
+    public CompletableFuture<Long> getCostAsync(Location from, Location to) {
+        String url = String.format("%s/route?point=%f,%f&point=%f,%f&profile=%s",
                 graphHopperUrl,
                 from.getLatitude(), from.getLongitude(),
-                to.getLatitude(), to.getLongitude());
-        HttpRequest request = HttpRequest.newBuilder()
+                to.getLatitude(), to.getLongitude(),
+                profile);
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
-                .GET()
-                .build();
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                .GET();
 
-        JsonNode jsonNode = objectMapper.readTree(response.body());
-        JsonNode path = jsonNode.get("paths").get(0);
+        CompletableFuture<HttpResponse<String>> response = requestEngine.send(request, HttpResponse.BodyHandlers.ofString());
+        return propagateCancel(response.thenApply(route -> {
+            try {
+                checkRouteStatus(route);
+                JsonNode jsonNode = objectMapper.readTree(route.body());
+                JsonNode path = jsonNode.get("paths").get(0);
 
-        return path.get("distance").asLong();
+                // GraphHopper reports route times in milliseconds
+                return RoadCost.of(Math.round(path.get("distance").asDouble()),
+                        Math.round(path.path("time").asDouble() / 1000));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), response);
     }
 
+    /**
+     * {@link RoadCost} values from -> to and to -> from, from a single request in directed mode.
+     */
+    @Override
+    public long[] getCostPair(Location from, Location to) throws Exception {
+        CompletableFuture<long[]> costs = directed
+                ? getRoundTripAsync(from, to)
+                : getCostAsync(from, to).thenApply(cost -> new long[]{cost, cost});
+        return await(costs, List.of(costs));
+    }
+
+    /**
+     * Queue a /route request for from -> to -> from and split it into its two legs using the
+     * leg_distance and leg_time path details, so both directions cost one request instead of two.
+     *
+     * @return {@link RoadCost} values {from -> to, to -> from}
+     */
+    public CompletableFuture<long[]> getRoundTripAsync(Location from, Location to) {
+        String url = String.format("%s/route?point=%f,%f&point=%f,%f&point=%f,%f&profile=%s&details=leg_distance&details=leg_time",
+                graphHopperUrl,
+                from.getLatitude(), from.getLongitude(),
+                to.getLatitude(), to.getLongitude(),
+                from.getLatitude(), from.getLongitude(),
+                profile);
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .GET();
+
+        CompletableFuture<HttpResponse<String>> response = requestEngine.send(request, HttpResponse.BodyHandlers.ofString());
+        return propagateCancel(response.thenApply(route -> {
+            try {
+                checkRouteStatus(route);
+                JsonNode path = objectMapper.readTree(route.body()).get("paths").get(0);
+                return parseLegCosts(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), response);
+    }
+
+    private static void checkRouteStatus(HttpResponse<?> route) throws IOException {
+        if (route.statusCode() != 200) {
+            throw new IOException("GraphHopper /route returned HTTP " + route.statusCode());
+        }
+    }
+
+    /**
+     * Split a two-leg path into its legs: from the leg_distance and leg_time details when the server
+     * provides them, otherwise by summing the instructions before the "waypoint reached" instruction.
+     *
+     * @return {@link RoadCost} values of the two legs
+     */
+    long[] parseLegCosts(JsonNode path) throws IOException {
+        long[] distances = splitLegs(path, "leg_distance", "distance", 1);
+        // Times are in milliseconds throughout the /route response
+        long[] times = splitLegs(path, "leg_time", "time", 1000);
+        return new long[]{RoadCost.of(distances[0], times[0]), RoadCost.of(distances[1], times[1])};
+    }
+
+    private static long[] splitLegs(JsonNode path, String detail, String field, double unit) throws IOException {
+        double total = path.path(field).asDouble();
+        JsonNode legs = path.path("details").path(detail);
+        if (legs.isArray() && legs.size() == 2) {
+            // Each entry is [fromPointIndex, toPointIndex, value]
+            return new long[]{Math.round(legs.get(0).get(2).asDouble() / unit),
+                    Math.round(legs.get(1).get(2).asDouble() / unit)};
+        }
+        JsonNode instructions = path.get("instructions");
+        if (instructions != null && instructions.isArray()) {
+            double outbound = 0;
+            for (JsonNode instruction : instructions) {
+                if (instruction.path("sign").asInt() == VIA_REACHED_SIGN) {
+                    long first = Math.round(outbound / unit);
+                    return new long[]{first, Math.round(total / unit) - first};
+                }
+                outbound += instruction.path(field).asDouble();
+            }
+        }
+        throw new IOException("GraphHopper /route response does not allow splitting the round trip into legs");
+    }
+
+    @Override
     public String getRoutePolyline(Location from, Location to) throws Exception {
-        String url = String.format("%s/route?point=%f,%f&point=%f,%f&profile=car&points_encoded=true",
+        String url = String.format("%s/route?point=%f,%f&point=%f,%f&profile=%s&points_encoded=true",
                 graphHopperUrl,
                 from.getLatitude(), from.getLongitude(),
-                to.getLatitude(), to.getLongitude());
+                to.getLatitude(), to.getLongitude(),
+                profile);
 
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
-                .GET()
-                .build();
+                .GET();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<HttpResponse<String>> future = requestEngine.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = await(future, List.of(future));
 
         JsonNode jsonNode = objectMapper.readTree(response.body());
         JsonNode path = jsonNode.get("paths").get(0);
 
         return path.get("points").asText(); // encoded polyline
     }
+
+    /**
+     * Cancelling a dependent stage does not cancel the stage it was derived from;
+     * link them so a caller giving up also releases the underlying engine request.
+     */
+    private static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> derived, CompletableFuture<?> source) {
+        derived.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                source.cancel(true);
+            }
+        });
+        return derived;
+    }
+
+    /**
+     * Wait for a result; if the calling thread is interrupted (the caller gave up),
+     * cancel the outstanding requests so they stop occupying engine permits.
+     */
+    private static <T> T await(CompletableFuture<T> result, List<? extends CompletableFuture<?>> requests)
+            throws Exception {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            requests.forEach(request -> request.cancel(true));
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            requests.forEach(request -> request.cancel(true));
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw cause instanceof Exception exception ? exception : e;
+        }
+    }
 }
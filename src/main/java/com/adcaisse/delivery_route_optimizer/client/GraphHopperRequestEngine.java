@@ -0,0 +1,232 @@
+package com.adcaisse.delivery_route_optimizer.client;
+
+import com.adcaisse.delivery_route_optimizer.dto.RequestEngineMetricsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application-wide request engine for all GraphHopper HTTP traffic.
+ *
+ * A single global permit pool caps the number of requests in flight, no matter how many
+ * solves are fetching matrices at the same time. Requests that cannot get a permit wait in a
+ * queue without holding a thread; they are dispatched asynchronously as permits are released.
+ * Every request carries a deadline that covers both queueing and transfer, and cancelling the
+ * returned future aborts the request whether it is still queued or already in flight.
+ * Like {@link GraphHopperClient}, it only exists when routing.provider is graphhopper.
+ */
+@Component
+@ConditionalOnProperty(name = "routing.provider", havingValue = "graphhopper", matchIfMissing = true)
+public class GraphHopperRequestEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphHopperRequestEngine.class);
+
+    /** Upper bounds (inclusive, in milliseconds) of the latency histogram buckets. */
+    private static final long[] LATENCY_BUCKETS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final HttpClient httpClient;
+    private final int maxConcurrentRequests;
+    private final Duration requestTimeout;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<PendingRequest<?>> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder latencyTotalMillis = new LongAdder();
+    private final LongAdder[] latencyBuckets = new LongAdder[LATENCY_BUCKETS_MS.length + 1];
+
+    public GraphHopperRequestEngine(
+            @Value("${graphhopper.max-concurrent-requests:10}") int maxConcurrentRequests,
+            @Value("${graphhopper.request-timeout-seconds:10}") int timeoutSeconds) {
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.requestTimeout = Duration.ofSeconds(timeoutSeconds);
+        this.permits = new Semaphore(this.maxConcurrentRequests);
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+
+        logger.info("Initializing GraphHopper request engine: {} requests in flight max (shared), {}s deadline per request",
+                this.maxConcurrentRequests, timeoutSeconds);
+
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(requestTimeout)
+                .build();
+    }
+
+    /**
+     * Queue a request with the default deadline (graphhopper.request-timeout-seconds).
+     */
+    public <T> CompletableFuture<HttpResponse<T>> send(HttpRequest.Builder request,
+                                                       HttpResponse.BodyHandler<T> bodyHandler) {
+        return send(request, bodyHandler, requestTimeout);
+    }
+
+    /**
+     * Queue a request for execution once a global permit is available.
+     *
+     * @param request     request to send; its timeout is set to whatever is left of the deadline at dispatch
+     * @param bodyHandler response body handler
+     * @param deadline    time allowed for queueing plus transfer
+     * @return future completed with the response, or exceptionally with a TimeoutException once the
+     *         deadline passes. Cancelling it aborts the request.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> send(HttpRequest.Builder request,
+                                                       HttpResponse.BodyHandler<T> bodyHandler,
+                                                       Duration deadline) {
+        PendingRequest<T> pending = new PendingRequest<>(request, bodyHandler, System.nanoTime() + deadline.toNanos());
+        pending.result.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        pending.result.whenComplete((response, error) -> record(error));
+
+        queueDepth.incrementAndGet();
+        queue.add(pending);
+        drain();
+        return pending.result;
+    }
+
+    /**
+     * Dispatch queued requests while permits are available.
+     * Called after every enqueue and every permit release, so a request can never be stranded.
+     */
+    private void drain() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            PendingRequest<?> pending = queue.poll();
+            if (pending == null) {
+                permits.release();
+                return;
+            }
+            queueDepth.decrementAndGet();
+            dispatch(pending);
+        }
+    }
+
+    private <T> void dispatch(PendingRequest<T> pending) {
+        long remaining = pending.deadlineNanos - System.nanoTime();
+        if (pending.result.isDone() || remaining <= 0) {
+            // Cancelled or expired while queued: never reaches GraphHopper
+            pending.result.completeExceptionally(new TimeoutException("Deadline expired while queued"));
+            permits.release();
+            return;
+        }
+
+        inFlight.incrementAndGet();
+        long startTime = System.nanoTime();
+        CompletableFuture<HttpResponse<T>> call;
+        try {
+            HttpRequest request = pending.request.timeout(Duration.ofNanos(remaining)).build();
+            call = httpClient.sendAsync(request, pending.bodyHandler);
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            permits.release();
+            pending.result.completeExceptionally(e);
+            return;
+        }
+
+        // Caller gave up or the deadline fired: abort the exchange and free the connection
+        pending.result.whenComplete((response, error) -> {
+            if (error != null) {
+                call.cancel(true);
+            }
+        });
+
+        call.whenComplete((response, error) -> {
+            inFlight.decrementAndGet();
+            recordLatency(System.nanoTime() - startTime);
+            permits.release();
+            if (error == null) {
+                pending.result.complete(response);
+            } else {
+                pending.result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+            drain();
+        });
+    }
+
+    private void record(Throwable error) {
+        if (error == null) {
+            completed.increment();
+        } else if (error instanceof CancellationException) {
+            cancelled.increment();
+        } else if (error instanceof TimeoutException || error instanceof HttpTimeoutException) {
+            timedOut.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        latencyTotalMillis.add(millis);
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS_MS.length && millis > LATENCY_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        latencyBuckets[bucket].increment();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Snapshot of queue depth, in-flight count, outcome counters and the latency histogram.
+     */
+    public RequestEngineMetricsDto getMetrics() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        long sampled = 0;
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            long count = latencyBuckets[i].sum();
+            sampled += count;
+            histogram.put(i < LATENCY_BUCKETS_MS.length ? "le_" + LATENCY_BUCKETS_MS[i] + "ms" : "gt_"
+                    + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] + "ms", count);
+        }
+
+        return new RequestEngineMetricsDto(
+                maxConcurrentRequests,
+                queueDepth.get(),
+                inFlight.get(),
+                completed.sum(),
+                failed.sum(),
+                timedOut.sum(),
+                cancelled.sum(),
+                sampled == 0 ? 0 : latencyTotalMillis.sum() / sampled,
+                histogram
+        );
+    }
+
+    private static final class PendingRequest<T> {
+        private final HttpRequest.Builder request;
+        private final HttpResponse.BodyHandler<T> bodyHandler;
+        private final long deadlineNanos;
+        private final CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+
+        private PendingRequest(HttpRequest.Builder request, HttpResponse.BodyHandler<T> bodyHandler, long deadlineNanos) {
+            this.request = request;
+            this.bodyHandler = bodyHandler;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
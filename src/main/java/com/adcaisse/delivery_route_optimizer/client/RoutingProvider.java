@@ -0,0 +1,68 @@
+package com.adcaisse.delivery_route_optimizer.client;
+
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+
+import java.util.List;
+
+/**
+ * Source of road distances, travel times and route geometries.
+ *
+ * {@link GraphHopperClient} asks a GraphHopper server; {@link EmbeddedRoutingProvider} answers
+ * in-process, for load tests and CI runs without one. routing.provider selects which one is used.
+ */
+public interface RoutingProvider {
+
+    /**
+     * Routing profile used for every request (e.g. car, bike); part of the distance cache key.
+     */
+    String getProfile();
+
+    /**
+     * Whether A -> B and B -> A may differ (one-way streets, turn restrictions).
+     * When false, one direction is computed and mirrored, as if every road were two-way.
+     */
+    boolean isDirected();
+
+    /**
+     * Full matrix of {@link RoadCost} values (distance and travel time) for the given locations.
+     */
+    long[][] getCostMatrix(List<Location> locations) throws Exception;
+
+    /**
+     * Costs from every origin to every destination, e.g. only the rows and columns of a matrix that
+     * are not cached yet; cells whose origin and destination coincide are 0.
+     */
+    long[][] getCostMatrix(List<Location> origins, List<Location> destinations) throws Exception;
+
+    /**
+     * {@link RoadCost} values from -> to and to -> from.
+     */
+    long[] getCostPair(Location from, Location to) throws Exception;
+
+    /**
+     * Encoded polyline of the route from -> to.
+     */
+    String getRoutePolyline(Location from, Location to) throws Exception;
+
+    /**
+     * Matrix requests that waited for an identical one already in flight instead of being sent.
+     */
+    default long getDeduplicatedTiles() {
+        return 0;
+    }
+
+    /**
+     * Full distance matrix for the given locations, in meters.
+     * A view of {@link #getCostMatrix(List)} for callers that only need distances.
+     */
+    default long[][] getDistanceMatrix(List<Location> locations) throws Exception {
+        long[][] matrix = getCostMatrix(locations);
+        for (long[] row : matrix) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = RoadCost.distance(row[j]);
+            }
+        }
+        return matrix;
+    }
+}
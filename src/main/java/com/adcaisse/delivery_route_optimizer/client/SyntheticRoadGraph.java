@@ -0,0 +1,297 @@
+package com.adcaisse.delivery_route_optimizer.client;
+
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.model.SpatialGrid;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Road network generated from a seed over a bounding box, for {@link EmbeddedRoutingProvider}.
+ *
+ * Junctions sit on a lattice every spacingDegrees of latitude and longitude. Each one connects to
+ * its four lattice neighbours, and to a diagonal neighbour about one time in three. Every fifth
+ * row and column is an arterial road; the rest are local roads. Roads wind, each being up to 35%
+ * longer than the straight line, and in directed mode each direction gets its own travel time
+ * (up to 10% apart), so A -> B and B -> A differ as they would with one-way streets and hills.
+ *
+ * Paths are the fastest ones, like GraphHopper's car profile. The generated network is the same
+ * for the same bounds, spacing and seed, so its costs are reproducible across runs.
+ *
+ * A matrix asks for the same origin junction once per tile of its row, so the costs from a junction
+ * to every other one are kept, least recently used evicted once they exceed the cache budget.
+ */
+final class SyntheticRoadGraph {
+
+    private static final int ARTERIAL_EVERY = 5;
+    private static final double ARTERIAL_METERS_PER_SECOND = 90 / 3.6;
+    private static final double LOCAL_METERS_PER_SECOND = 50 / 3.6;
+    private static final double DIAGONAL_PROBABILITY = 0.35;
+    private static final double MAX_WINDING = 0.35;
+    private static final double MAX_DIRECTION_SPREAD = 0.05;
+
+    /** Heap entries pack the travel time above the node index. */
+    private static final int NODE_BITS = 24;
+    private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double spacing;
+    private final int rows;
+    private final int cols;
+
+    // Outgoing roads of node n are firstEdge[n] until firstEdge[n + 1]
+    private final int[] firstEdge;
+    private final int[] edgeTarget;
+    private final int[] edgeMeters;
+    private final int[] edgeMillis;
+
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+    private final Map<Integer, long[]> costsFromCache;
+
+    SyntheticRoadGraph(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                       double spacingDegrees, boolean directed, long seed, long cacheBytes) {
+        if (spacingDegrees <= 0 || maxLatitude <= minLatitude || maxLongitude <= minLongitude) {
+            throw new IllegalArgumentException("Road graph bounds must be a non-empty box and spacing positive");
+        }
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.spacing = spacingDegrees;
+        this.rows = (int) Math.floor((maxLatitude - minLatitude) / spacingDegrees) + 1;
+        this.cols = (int) Math.floor((maxLongitude - minLongitude) / spacingDegrees) + 1;
+        if ((long) rows * cols > NODE_MASK) {
+            throw new IllegalArgumentException("Road graph of " + rows + "x" + cols + " junctions is too large; "
+                    + "increase the spacing or shrink the bounds");
+        }
+
+        // Both directions of every road, as (from, to, meters, millis), grouped by origin below
+        int nodes = rows * cols;
+        int maxRoads = nodes * 4;
+        int[] from = new int[2 * maxRoads];
+        int[] to = new int[2 * maxRoads];
+        int[] meters = new int[2 * maxRoads];
+        int[] millis = new int[2 * maxRoads];
+        int roads = 0;
+        Random random = new Random(seed);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int[][] neighbours = {{r, c + 1}, {r + 1, c}, {r + 1, c + 1}, {r + 1, c - 1}};
+                for (int k = 0; k < neighbours.length; k++) {
+                    int nr = neighbours[k][0];
+                    int nc = neighbours[k][1];
+                    boolean diagonal = k >= 2;
+                    double chance = random.nextDouble();
+                    double winding = 1 + random.nextDouble() * MAX_WINDING;
+                    double spread = directed ? (random.nextDouble() * 2 - 1) * MAX_DIRECTION_SPREAD : 0;
+                    if (nr >= rows || nc < 0 || nc >= cols || (diagonal && chance >= DIAGONAL_PROBABILITY)) {
+                        continue;
+                    }
+                    int a = node(r, c);
+                    int b = node(nr, nc);
+                    boolean arterial = !diagonal && (k == 0 ? r % ARTERIAL_EVERY == 0 : c % ARTERIAL_EVERY == 0);
+                    double length = SpatialGrid.straightLineMeters(location(a), location(b)) * winding;
+                    double seconds = length / (arterial ? ARTERIAL_METERS_PER_SECOND : LOCAL_METERS_PER_SECOND);
+                    int roadMeters = (int) Math.round(length);
+                    from[roads] = a;
+                    to[roads] = b;
+                    meters[roads] = roadMeters;
+                    millis[roads++] = (int) Math.round(seconds * (1 + spread) * 1000);
+                    from[roads] = b;
+                    to[roads] = a;
+                    meters[roads] = roadMeters;
+                    millis[roads++] = (int) Math.round(seconds * (1 - spread) * 1000);
+                }
+            }
+        }
+
+        this.firstEdge = new int[nodes + 1];
+        for (int e = 0; e < roads; e++) {
+            firstEdge[from[e] + 1]++;
+        }
+        for (int n = 0; n < nodes; n++) {
+            firstEdge[n + 1] += firstEdge[n];
+        }
+        this.edgeTarget = new int[roads];
+        this.edgeMeters = new int[roads];
+        this.edgeMillis = new int[roads];
+        int[] next = Arrays.copyOf(firstEdge, nodes);
+        for (int e = 0; e < roads; e++) {
+            int slot = next[from[e]]++;
+            edgeTarget[slot] = to[e];
+            edgeMeters[slot] = meters[e];
+            edgeMillis[slot] = millis[e];
+        }
+
+        int maxCached = (int) Math.max(1, Math.min(Integer.MAX_VALUE, cacheBytes / ((long) nodes * Long.BYTES)));
+        this.costsFromCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, long[]> eldest) {
+                return size() > maxCached;
+            }
+        };
+    }
+
+    int nodeCount() {
+        return rows * cols;
+    }
+
+    int roadCount() {
+        return edgeTarget.length;
+    }
+
+    boolean contains(Location location) {
+        double row = (location.getLatitude() - minLatitude) / spacing;
+        double col = (location.getLongitude() - minLongitude) / spacing;
+        return row >= 0 && row <= rows - 1 && col >= 0 && col <= cols - 1;
+    }
+
+    /**
+     * Junction nearest to a location inside the bounds.
+     */
+    int nearestNode(Location location) {
+        int row = (int) Math.round((location.getLatitude() - minLatitude) / spacing);
+        int col = (int) Math.round((location.getLongitude() - minLongitude) / spacing);
+        return node(Math.max(0, Math.min(rows - 1, row)), Math.max(0, Math.min(cols - 1, col)));
+    }
+
+    Location location(int node) {
+        return new Location(node, minLatitude + (node / cols) * spacing, minLongitude + (node % cols) * spacing);
+    }
+
+    /**
+     * {@link RoadCost} of the fastest path from source to every junction, searched once while cached.
+     * The array is shared and must not be modified.
+     */
+    long[] costsFrom(int source) {
+        synchronized (costsFromCache) {
+            long[] cached = costsFromCache.get(source);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Threads missing the same source at once both search; the results are identical
+        Search search = searches.get();
+        search.run(source, null);
+        long[] costs = new long[nodeCount()];
+        for (int node = 0; node < costs.length; node++) {
+            costs[node] = RoadCost.of(search.meters[node], Math.round(search.millis[node] / 1000.0));
+        }
+        synchronized (costsFromCache) {
+            costsFromCache.put(source, costs);
+        }
+        return costs;
+    }
+
+    /**
+     * Junctions along the fastest path from source to target, both included.
+     */
+    int[] path(int source, int target) {
+        Search search = searches.get();
+        search.run(source, new int[]{target});
+        int length = 1;
+        for (int node = target; node != source; node = search.previous[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = target, i = length - 1; i >= 0; node = search.previous[node], i--) {
+            path[i] = node;
+        }
+        return path;
+    }
+
+    private int node(int row, int col) {
+        return row * cols + col;
+    }
+
+    /**
+     * Dijkstra's search state, one per thread and reused: entries of a node are only valid
+     * while its stamp is the current search's.
+     */
+    private final class Search {
+
+        private final long[] millis = new long[nodeCount()];
+        private final long[] meters = new long[nodeCount()];
+        private final int[] previous = new int[nodeCount()];
+        private final int[] reached = new int[nodeCount()];
+        private final int[] settled = new int[nodeCount()];
+        private final int[] wanted = new int[nodeCount()];
+        private long[] heap = new long[256];
+        private int heapSize;
+        private int stamp;
+
+        /**
+         * @param targets junctions after which the search may stop, or null to reach every junction
+         */
+        void run(int source, int[] targets) {
+            stamp++;
+            heapSize = 0;
+            int remaining = targets == null ? Integer.MAX_VALUE : 0;
+            for (int target : targets == null ? new int[0] : targets) {
+                if (wanted[target] != stamp) {
+                    wanted[target] = stamp;
+                    remaining++;
+                }
+            }
+            reach(source, 0, 0, source);
+            while (heapSize > 0 && remaining > 0) {
+                int node = (int) (pop() & NODE_MASK);
+                if (settled[node] == stamp) {
+                    continue;
+                }
+                settled[node] = stamp;
+                if (wanted[node] == stamp) {
+                    remaining--;
+                }
+                for (int e = firstEdge[node]; e < firstEdge[node + 1]; e++) {
+                    int next = edgeTarget[e];
+                    long time = millis[node] + edgeMillis[e];
+                    if (settled[next] != stamp && (reached[next] != stamp || time < millis[next])) {
+                        reach(next, time, meters[node] + edgeMeters[e], node);
+                    }
+                }
+            }
+        }
+
+        private void reach(int node, long time, long distance, int from) {
+            reached[node] = stamp;
+            millis[node] = time;
+            meters[node] = distance;
+            previous[node] = from;
+            push((time << NODE_BITS) | node);
+        }
+
+        private void push(long entry) {
+            if (heapSize == heap.length) {
+                heap = Arrays.copyOf(heap, heap.length * 2);
+            }
+            int i = heapSize++;
+            while (i > 0 && heap[(i - 1) / 2] > entry) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = entry;
+        }
+
+        private long pop() {
+            long top = heap[0];
+            long last = heap[--heapSize];
+            int i = 0;
+            while (2 * i + 1 < heapSize) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[child] >= last) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
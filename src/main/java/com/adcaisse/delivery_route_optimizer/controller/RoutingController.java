@@ -1,18 +1,42 @@
 package com.adcaisse.delivery_route_optimizer.controller;
 
-import com.adcaisse.delivery_route_optimizer.client.GraphHopperClient;
+import com.adcaisse.delivery_route_optimizer.cache.SolutionCache;
+import com.adcaisse.delivery_route_optimizer.client.GraphHopperRequestEngine;
+import com.adcaisse.delivery_route_optimizer.client.RoutingProvider;
+import com.adcaisse.delivery_route_optimizer.dto.BatchSummaryDto;
+import com.adcaisse.delivery_route_optimizer.dto.DistanceCacheStatsDto;
+import com.adcaisse.delivery_route_optimizer.dto.ReplanRequest;
+import com.adcaisse.delivery_route_optimizer.dto.RequestEngineMetricsDto;
+import com.adcaisse.delivery_route_optimizer.dto.RouteChangesDto;
 import com.adcaisse.delivery_route_optimizer.dto.RouteRequest;
+import com.adcaisse.delivery_route_optimizer.dto.SolutionCacheStatsDto;
+import com.adcaisse.delivery_route_optimizer.dto.SolutionUpdateDto;
+import com.adcaisse.delivery_route_optimizer.dto.SolveJobDto;
 import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
 import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
 import com.adcaisse.delivery_route_optimizer.model.Location;
 import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.service.BatchOptimizationService;
+import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
+import com.adcaisse.delivery_route_optimizer.service.SolveJobListener;
+import com.adcaisse.delivery_route_optimizer.service.SolveJobService;
 import com.adcaisse.delivery_route_optimizer.service.VehicleRoutingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Tag(name = "Route Optimization", description = "APIs for optimizing delivery routes and retrieving routing information")
@@ -20,36 +44,53 @@ import java.util.List;
 @RequestMapping("/api/routing")
 public class RoutingController {
 
-    private final GraphHopperClient graphHopperClient;
+    private final RoutingProvider routingProvider;
+    // Absent when routing.provider is not graphhopper
+    private final ObjectProvider<GraphHopperRequestEngine> graphHopperRequestEngine;
     private final VehicleRoutingService vehicleRoutingService;
+    private final DistanceCalculatorService distanceCalculatorService;
+    private final SolveJobService solveJobService;
+    private final SolutionCache solutionCache;
+    private final BatchOptimizationService batchOptimizationService;
+    // One JSON document per line: NDJSON cannot use the indented output of the other endpoints
+    private final ObjectWriter ndjsonWriter;
 
     public RoutingController(VehicleRoutingService vehicleRoutingService,
-                            GraphHopperClient graphHopperClient) {
+                            RoutingProvider routingProvider,
+                            ObjectProvider<GraphHopperRequestEngine> graphHopperRequestEngine,
+                            DistanceCalculatorService distanceCalculatorService,
+                            SolveJobService solveJobService,
+                            SolutionCache solutionCache,
+                            BatchOptimizationService batchOptimizationService,
+                            ObjectMapper objectMapper) {
         this.vehicleRoutingService = vehicleRoutingService;
-        this.graphHopperClient = graphHopperClient;
+        this.routingProvider = routingProvider;
+        this.graphHopperRequestEngine = graphHopperRequestEngine;
+        this.distanceCalculatorService = distanceCalculatorService;
+        this.solveJobService = solveJobService;
+        this.solutionCache = solutionCache;
+        this.batchOptimizationService = batchOptimizationService;
+        this.ndjsonWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
     }
 
     @PostMapping("/matrix")
     public long[][] getDistanceMatrix(@RequestBody List<Location> locations) throws Exception {
-        return graphHopperClient.getDistanceMatrix(locations);
+        return routingProvider.getDistanceMatrix(locations);
     }
 
     @Operation(summary = "Optimize delivery routes",
-               description = "Optimize delivery routes based on depot, customer locations, vehicle capacities, and customer demands.")
+               description = "Optimize delivery routes based on depot, customer locations, vehicle capacities, and customer demands. " +
+                       "Repeating an identical request within solution-cache.ttl-seconds returns the cached response, and " +
+                       "identical requests sent while one is solving share its result.")
     @PostMapping("/optimize")
     public ResponseEntity<VehicleRoutingSolutionDto> optimizeRoutes(
             @RequestBody VehicleRoutingRequest request) {
         
         try {
-            VehicleRoutingSolution solution = vehicleRoutingService.solveVRP(
-                request.getDepot(),
-                request.getCustomerLocations(),
-                request.getVehicleCapacities(),
-                request.getCustomerDemands()
-            );
-            
-            VehicleRoutingSolutionDto dto = 
-                vehicleRoutingService.getSolutionDto(solution);
+            VehicleRoutingSolutionDto dto = solutionCache.get(request, () -> {
+                VehicleRoutingSolution solution = vehicleRoutingService.solveVRP(request);
+                return vehicleRoutingService.getSolutionDto(solution);
+            });
             
             return ResponseEntity.ok(dto);
         } catch (Exception e) {
@@ -57,6 +98,124 @@ public class RoutingController {
         }
     }
 
+    @Operation(summary = "Optimize a batch of independent problems",
+               description = "Solves a list of /optimize requests, such as one per depot, and streams one NDJSON line " +
+                       "per problem as it finishes (index, solution or error, matrix and solve times), then a last " +
+                       "line with the batch throughput. Matrices of depots in the same region are fetched one after " +
+                       "another to share cached distances; solves run one per core (solver.batch.*). " +
+                       "partitionSize is not supported.")
+    @PostMapping(value = "/optimize/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void optimizeBatch(@RequestBody List<VehicleRoutingRequest> requests, HttpServletResponse response)
+            throws IOException {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("A batch needs at least one problem");
+        }
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        BatchSummaryDto summary = batchOptimizationService.optimize(requests, result -> writeLine(out, result));
+        writeLine(out, summary);
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(ndjsonWriter.writeValueAsBytes(value));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            // Client went away; the batch skips the problems it has not started
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Operation(summary = "Replan after a few changes",
+               description = "Adds or removes stops and vehicles on an existing plan, given either as a job ID or as the " +
+                       "depot and routes returned by /optimize, and solves again starting from its routes. Only " +
+                       "distances to the new stops are fetched and the solving budget is short " +
+                       "(solver.replan.time-budget-millis unless termination says otherwise).")
+    @PostMapping("/replan")
+    public ResponseEntity<VehicleRoutingSolutionDto> replan(@RequestBody ReplanRequest request) {
+        VehicleRoutingSolution solution = request.getJobId() != null
+                ? solveJobService.replan(request.getJobId(), request.getChanges(), request.getTermination())
+                : vehicleRoutingService.replan(vehicleRoutingService.createPlan(request.getDepot(), request.getRoutes()),
+                        request.getChanges(), request.getTermination(), null);
+        return ResponseEntity.ok(vehicleRoutingService.getSolutionDto(solution));
+    }
+
+    @Operation(summary = "Submit an optimization job",
+               description = "Queues the same problem as /optimize and returns immediately with a job ID. " +
+                       "Responds 429 when every solver thread is busy and the job queue is full.")
+    @PostMapping("/jobs")
+    public ResponseEntity<SolveJobDto> submitJob(@RequestBody VehicleRoutingRequest request) {
+        return ResponseEntity.accepted().body(solveJobService.submit(request));
+    }
+
+    @Operation(summary = "Get job status",
+               description = "Returns the status of an optimization job and the score of its best solution so far.")
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<SolveJobDto> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(solveJobService.getJob(jobId));
+    }
+
+    @Operation(summary = "Get best solution so far",
+               description = "Returns the best solution an optimization job has found so far, " +
+                       "or 204 if the solver has not produced one yet.")
+    @GetMapping("/jobs/{jobId}/solution")
+    public ResponseEntity<VehicleRoutingSolutionDto> getJobSolution(@PathVariable String jobId) {
+        VehicleRoutingSolutionDto dto = solveJobService.getBestSolution(jobId);
+        return dto == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(dto);
+    }
+
+    @Operation(summary = "Stream best-solution improvements",
+               description = "Server-Sent Events: a 'solution' event per improved best solution (at most a few per second, " +
+                       "carrying only the routes that changed since the previous event), then one 'finished' event " +
+                       "with the final job status.")
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJobEvents(@PathVariable String jobId) {
+        // No timeout: the stream ends with the job
+        SseEmitter emitter = new SseEmitter(0L);
+        Runnable unsubscribe = solveJobService.subscribe(jobId, new SolveJobListener() {
+            @Override
+            public void onUpdate(SolutionUpdateDto update) {
+                send(emitter, SseEmitter.event().name("solution").id(String.valueOf(update.getSequence())).data(update));
+            }
+
+            @Override
+            public void onFinished(SolveJobDto job) {
+                send(emitter, SseEmitter.event().name("finished").data(job));
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            // Client went away; the job service drops the listener
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Operation(summary = "Change a running job",
+               description = "Adds or removes stops and vehicles while a job is solving. The solver continues from its " +
+                       "current routes and the job's termination policy starts over; follow the result on /events. " +
+                       "Responds 409 when the job is not solving.")
+    @PostMapping("/jobs/{jobId}/changes")
+    public ResponseEntity<SolveJobDto> changeJob(@PathVariable String jobId, @RequestBody RouteChangesDto changes) {
+        return ResponseEntity.accepted().body(solveJobService.applyChanges(jobId, changes));
+    }
+
+    @Operation(summary = "Terminate a job early",
+               description = "Stops a queued or running optimization job. A running job keeps its best solution so far.")
+    @PostMapping("/jobs/{jobId}/terminate")
+    public ResponseEntity<SolveJobDto> terminateJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(solveJobService.terminateEarly(jobId));
+    }
+
     @Operation(
             summary = "Test with sample data",
             description = "Runs route optimization with predefined sample data (Tunisia locations). " +
@@ -83,10 +242,39 @@ public class RoutingController {
     @PostMapping("/polyline")
     public ResponseEntity<String> getRoutePolyline(@RequestBody RouteRequest request) {
         try {
-            String polyline = graphHopperClient.getRoutePolyline(request.getFrom(), request.getTo());
+            String polyline = routingProvider.getRoutePolyline(request.getFrom(), request.getTo());
             return ResponseEntity.ok(polyline);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error getting route: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Operation(
+            summary = "GraphHopper request metrics",
+            description = "Returns queue depth, in-flight requests, outcome counters and the latency histogram " +
+                    "of the shared GraphHopper request engine, or 404 when routing.provider is not graphhopper."
+    )
+    @GetMapping("/metrics/graphhopper")
+    public ResponseEntity<RequestEngineMetricsDto> getGraphHopperMetrics() {
+        GraphHopperRequestEngine engine = graphHopperRequestEngine.getIfAvailable();
+        return engine == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(engine.getMetrics());
+    }
+
+    @Operation(
+            summary = "Distance cache statistics",
+            description = "Returns size, memory budget, hit/miss and eviction counters of the distance cache."
+    )
+    @GetMapping("/cache/stats")
+    public ResponseEntity<DistanceCacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(distanceCalculatorService.getCacheStats());
+    }
+
+    @Operation(
+            summary = "Solution cache statistics",
+            description = "Returns size, hit/miss counters and shared in-flight solves of the /optimize response cache."
+    )
+    @GetMapping("/cache/solutions/stats")
+    public ResponseEntity<SolutionCacheStatsDto> getSolutionCacheStats() {
+        return ResponseEntity.ok(solutionCache.getStats());
+    }
+}
@@ -0,0 +1,27 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Result of one problem of a batch, one NDJSON line each, in the order they finish")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResultDto {
+    @Schema(description = "Position of the problem in the batch request", example = "17")
+    private int index;
+
+    @Schema(description = "Optimized solution; null if the problem failed")
+    private VehicleRoutingSolutionDto solution;
+
+    @Schema(description = "Why the problem failed; null if it was solved", example = "Customer locations and demands lists must have the same size")
+    private String error;
+
+    @Schema(description = "Time spent building the distance matrix in milliseconds", example = "850")
+    private long matrixMillis;
+
+    @Schema(description = "Time spent solving in milliseconds", example = "4200")
+    private long solveMillis;
+}
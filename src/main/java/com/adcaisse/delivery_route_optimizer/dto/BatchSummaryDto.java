@@ -0,0 +1,30 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Throughput of a batch, the last NDJSON line of the response")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSummaryDto {
+    @Schema(description = "Problems in the batch", example = "300")
+    private int problems;
+
+    @Schema(description = "Problems solved", example = "298")
+    private int solved;
+
+    @Schema(description = "Problems that failed", example = "2")
+    private int failed;
+
+    @Schema(description = "Regions whose matrices were fetched one after another to share cached distances", example = "12")
+    private int regions;
+
+    @Schema(description = "Wall time of the whole batch in milliseconds", example = "540000")
+    private long elapsedMillis;
+
+    @Schema(description = "Problems finished per minute of wall time", example = "33.3")
+    private double problemsPerMinute;
+}
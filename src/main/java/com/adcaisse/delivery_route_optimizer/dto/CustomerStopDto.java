@@ -15,4 +15,10 @@ public class CustomerStopDto {
     private String customerName;
     private Location location;
     private int demand;
+
+    @Schema(description = "Arrival in seconds after leaving the depot", example = "1830")
+    private Long arrivalTime;
+
+    @Schema(description = "The customer's time window; null if it has none")
+    private TimeWindowDto timeWindow;
 }
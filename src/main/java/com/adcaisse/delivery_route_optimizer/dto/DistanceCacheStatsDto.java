@@ -0,0 +1,59 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Size and effectiveness of the distance cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistanceCacheStatsDto {
+    @Schema(description = "Cached location pairs", example = "90000")
+    private long size;
+
+    @Schema(description = "Maximum cached location pairs before eviction", example = "2015232")
+    private long capacity;
+
+    @Schema(description = "Memory reserved by the cache in bytes", example = "67108864")
+    private long memoryBytes;
+
+    @Schema(description = "Lookups answered from the cache", example = "120000")
+    private long hits;
+
+    @Schema(description = "Lookups not found in the cache", example = "4000")
+    private long misses;
+
+    @Schema(description = "Entries evicted to stay within the memory budget", example = "0")
+    private long evictions;
+
+    @Schema(description = "hits / (hits + misses)", example = "0.97")
+    private double hitRatio;
+
+    @Schema(description = "Matrix cells requested by all requests so far", example = "250000")
+    private long matrixCellsRequested;
+
+    @Schema(description = "Matrix cells that were already cached when requested", example = "180000")
+    private long matrixCellsReused;
+
+    @Schema(description = "matrixCellsReused / matrixCellsRequested", example = "0.72")
+    private double matrixReuseRatio;
+
+    @Schema(description = "Records in the persistent distance store (0 when disabled)", example = "1200000")
+    private long storeRecords;
+
+    @Schema(description = "Sealed segment files in the persistent distance store", example = "3")
+    private int storeSegments;
+
+    @Schema(description = "In-memory cache misses answered from the persistent store", example = "3500")
+    private long storeHits;
+
+    @Schema(description = "Pair lookups that waited for the same pair already being fetched instead of calling GraphHopper",
+            example = "40")
+    private long deduplicatedPairLookups;
+
+    @Schema(description = "Matrix tiles that waited for the same tile already being fetched for another matrix",
+            example = "12")
+    private long deduplicatedMatrixTiles;
+}
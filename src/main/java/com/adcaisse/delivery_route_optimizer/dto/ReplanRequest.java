@@ -0,0 +1,31 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Schema(description = "Request payload for replanning an existing plan after a few changes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplanRequest {
+    @Schema(description = "Replan the best solution of this solve job; omit to send the plan itself in depot and routes",
+            example = "3f0b2a9e-8d7c-4e51-9a43-1c2d5e6f7a80")
+    private String jobId;
+
+    @Schema(description = "Depot of the plan, when no jobId is given")
+    private Location depot;
+
+    @Schema(description = "Routes of the plan as returned by /optimize, when no jobId is given")
+    private List<VehicleRouteDto> routes;
+
+    @Schema(description = "Stops and vehicles to add or remove")
+    private RouteChangesDto changes;
+
+    @Schema(description = "Optional termination policy; defaults to a short replanning budget")
+    private TerminationPolicyDto termination;
+}
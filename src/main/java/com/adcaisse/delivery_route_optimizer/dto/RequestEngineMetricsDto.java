@@ -0,0 +1,41 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Schema(description = "Load and latency of the shared GraphHopper request engine")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequestEngineMetricsDto {
+    @Schema(description = "Global limit of concurrent GraphHopper requests", example = "10")
+    private int maxConcurrentRequests;
+
+    @Schema(description = "Requests waiting for a permit", example = "120")
+    private int queueDepth;
+
+    @Schema(description = "Requests currently sent to GraphHopper", example = "10")
+    private int inFlight;
+
+    @Schema(description = "Requests that completed with a response", example = "45150")
+    private long completed;
+
+    @Schema(description = "Requests that failed with an I/O or protocol error", example = "3")
+    private long failed;
+
+    @Schema(description = "Requests whose deadline passed while queued or in flight", example = "0")
+    private long timedOut;
+
+    @Schema(description = "Requests cancelled by their caller", example = "0")
+    private long cancelled;
+
+    @Schema(description = "Mean request latency in milliseconds", example = "12")
+    private long meanLatencyMillis;
+
+    @Schema(description = "Request count per latency bucket (upper bound in milliseconds)")
+    private Map<String, Long> latencyHistogram;
+}
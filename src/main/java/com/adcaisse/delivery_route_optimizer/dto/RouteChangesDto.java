@@ -0,0 +1,36 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Stops and vehicles added to or removed from an existing plan. Every list is optional.
+ */
+@Schema(description = "Changes to an existing plan: added or removed stops and vehicles")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteChangesDto {
+    @Schema(description = "Locations of new stops")
+    private List<Location> addedLocations;
+
+    @Schema(description = "Demands of the new stops (parallel to addedLocations)")
+    private List<Integer> addedDemands;
+
+    @Schema(description = "Time windows of the new stops (parallel to addedLocations); null entries have no window")
+    private List<TimeWindowDto> addedTimeWindows;
+
+    @Schema(description = "Customer IDs of stops to drop from the plan")
+    private List<Long> removedCustomerIds;
+
+    @Schema(description = "Capacities of new vehicles, which start and end at the plan's depot")
+    private List<Integer> addedVehicleCapacities;
+
+    @Schema(description = "IDs of vehicles to take out of service; their stops are reassigned")
+    private List<Long> removedVehicleIds;
+}
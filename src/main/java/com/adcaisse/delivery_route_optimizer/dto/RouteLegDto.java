@@ -0,0 +1,24 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "One leg of a vehicle's route, between consecutive stops")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteLegDto {
+    @Schema(description = "Customer the leg starts at; null for the depot", example = "3")
+    private Long fromCustomerId;
+
+    @Schema(description = "Customer the leg ends at; null for the depot", example = "7")
+    private Long toCustomerId;
+
+    @Schema(description = "Road distance of the leg in meters", example = "2450")
+    private long distance;
+
+    @Schema(description = "Travel time of the leg in seconds", example = "240")
+    private long duration;
+}
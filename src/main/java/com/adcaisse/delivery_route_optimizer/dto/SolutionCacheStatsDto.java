@@ -0,0 +1,40 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Schema(description = "Size and effectiveness of the /optimize response cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolutionCacheStatsDto {
+    @Schema(description = "Cached responses", example = "12")
+    private int size;
+
+    @Schema(description = "Maximum cached responses before the least recently used is evicted", example = "256")
+    private int maxEntries;
+
+    @Schema(description = "Seconds a response stays cached", example = "300")
+    private long ttlSeconds;
+
+    @Schema(description = "Requests answered from the cache", example = "340")
+    private long hits;
+
+    @Schema(description = "Requests not found in the cache", example = "60")
+    private long misses;
+
+    @Schema(description = "Missed requests that waited for an identical request already solving instead of solving again",
+            example = "8")
+    private long sharedSolves;
+
+    @Schema(description = "Responses dropped because their time to live ran out", example = "40")
+    private long expirations;
+
+    @Schema(description = "Responses evicted to stay within maxEntries", example = "0")
+    private long evictions;
+
+    @Schema(description = "hits / (hits + misses)", example = "0.85")
+    private double hitRatio;
+}
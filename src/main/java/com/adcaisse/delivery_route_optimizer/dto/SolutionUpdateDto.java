@@ -0,0 +1,39 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+
+import java.util.List;
+
+/**
+ * One improved best solution of a solve job, relative to the previous update sent to the same client.
+ */
+@Schema(description = "Improved best solution, carrying only the routes that changed since the previous update")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolutionUpdateDto {
+    @Schema(description = "Job identifier", example = "3f0b2a9e-8d7c-4e51-9a43-1c2d5e6f7a80")
+    private String jobId;
+
+    @Schema(description = "Update number for this client, starting at 1", example = "3")
+    private long sequence;
+
+    @Schema(description = "OptaPlanner score (format: Xhard/Ysoft)", example = "0hard/-108527soft")
+    private HardSoftLongScore score;
+
+    @Schema(description = "Total distance traveled by all vehicles in meters", example = "108527")
+    private long totalDistance;
+
+    @Schema(description = "Indicates if the solution is feasible", example = "true")
+    private boolean feasible;
+
+    @Schema(description = "Routes that are new or changed since the previous update (all routes in the first update)")
+    private List<VehicleRouteDto> changedRoutes;
+
+    @Schema(description = "Vehicles whose route became empty since the previous update")
+    private List<Long> removedVehicleIds;
+}
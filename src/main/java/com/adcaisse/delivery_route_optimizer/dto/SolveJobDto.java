@@ -0,0 +1,36 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import com.adcaisse.delivery_route_optimizer.model.SolveJobStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "State of an asynchronous route optimization job")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolveJobDto {
+    @Schema(description = "Job identifier, used by the status, solution and terminate endpoints",
+            example = "3f0b2a9e-8d7c-4e51-9a43-1c2d5e6f7a80")
+    private String jobId;
+
+    @Schema(description = "Job status", example = "SOLVING")
+    private SolveJobStatus status;
+
+    @Schema(description = "Score of the best solution found so far, null before the first one",
+            example = "0hard/-108527soft")
+    private HardSoftLongScore score;
+
+    @Schema(description = "When the job was submitted")
+    private LocalDateTime submittedAt;
+
+    @Schema(description = "When the job completed, was terminated or failed; null while queued or solving")
+    private LocalDateTime finishedAt;
+
+    @Schema(description = "Failure reason when status is FAILED")
+    private String errorMessage;
+}
@@ -0,0 +1,36 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * When to stop solving one request. Every field is optional; unset fields fall back to the
+ * solver.termination.* defaults, and solving stops as soon as any limit is reached.
+ */
+@Schema(description = "Per-request termination policy; solving stops as soon as any limit is reached")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TerminationPolicyDto {
+    @Schema(description = "Solving time budget in milliseconds. Defaults to a budget that grows with the number of stops",
+            example = "3000")
+    private Long timeBudgetMillis;
+
+    @Schema(description = "Stop when the best score has not improved for this many milliseconds", example = "1000")
+    private Long unimprovedMillis;
+
+    @Schema(description = "Score plateau window in milliseconds: stop when the best score improved by less than " +
+            "plateauMinImprovement over the last window", example = "2000")
+    private Long plateauWindowMillis;
+
+    @Schema(description = "Minimum soft score improvement (meters) expected per plateau window", example = "100")
+    private Long plateauMinImprovement;
+
+    @Schema(description = "Absolute deadline for the result, including time spent queued and fetching distances",
+            example = "2025-06-01T08:30:00+01:00")
+    private OffsetDateTime deadline;
+}
@@ -0,0 +1,25 @@
+package com.adcaisse.delivery_route_optimizer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * When a customer can be served, in minutes after the vehicles leave the depot. A vehicle arriving
+ * before readyTime waits; arriving after dueTime breaks a hard constraint.
+ */
+@Schema(description = "Delivery time window of one customer, in minutes after leaving the depot")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeWindowDto {
+    @Schema(description = "Earliest start of service", example = "60")
+    private Integer readyTime;
+
+    @Schema(description = "Latest arrival", example = "120")
+    private Integer dueTime;
+
+    @Schema(description = "Time spent at the customer; defaults to 10", example = "10")
+    private Integer serviceTime;
+}
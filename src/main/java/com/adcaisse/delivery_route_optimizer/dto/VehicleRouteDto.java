@@ -18,5 +18,9 @@ public class VehicleRouteDto {
     private int capacity;
     private int totalDemand;
     private long distance;
+    // Seconds from leaving the depot to returning, including service and waiting
+    private long duration;
     private List<CustomerStopDto> stops;
+    // Depot -> first stop, ..., last stop -> depot; the distances add up to distance
+    private List<RouteLegDto> legs;
 }
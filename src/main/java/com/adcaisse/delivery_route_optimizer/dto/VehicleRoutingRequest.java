@@ -24,4 +24,20 @@ public class VehicleRoutingRequest {
 
     @Schema(description = "List of customer demands (parallel to customerLocations)")
     private List<Integer> customerDemands;
+
+    @Schema(description = "Optional termination policy; defaults scale the solving time with the number of stops")
+    private TerminationPolicyDto termination;
+
+    @Schema(description = "Optional; for very large problems, solve geographic sectors of at most this many customers " +
+            "in parallel and repair the routes along their borders. Omit for a single solve. Not supported by /jobs",
+            example = "500")
+    private Integer partitionSize;
+
+    @Schema(description = "Optional; fetch road distances only between each stop and its this many nearest neighbours " +
+            "(and the depot) and estimate the rest from straight-line distance. Omit for a full matrix",
+            example = "20")
+    private Integer neighbourCount;
+
+    @Schema(description = "Optional time windows (parallel to customerLocations); null entries have no window")
+    private List<TimeWindowDto> customerTimeWindows;
 }
@@ -1,5 +1,6 @@
 package com.adcaisse.delivery_route_optimizer.dto;
 
+import com.adcaisse.delivery_route_optimizer.model.MatrixFetchStats;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -25,6 +26,13 @@ public class VehicleRoutingSolutionDto {
     @Schema(description = "Indicates if a feasible solution was found", example = "true")
     private boolean feasible;
 
+    @Schema(description = "Whether the deadline or the server's solving cap stopped the solver before the requested " +
+            "limits did; such solutions are not cached", example = "false")
+    private boolean cutShort;
+
     @Schema(description = "List of vehicle routes in the optimized solution")
     private List<VehicleRouteDto> routes;
+
+    @Schema(description = "How much of the distance matrix was served from the distance cache")
+    private MatrixFetchStats matrixStats;
 }
@@ -0,0 +1,11 @@
+package com.adcaisse.delivery_route_optimizer.exception;
+
+/**
+ * Thrown when a solve job ID is unknown or its job has already been evicted. Mapped to 404.
+ */
+public class JobNotFoundException extends RuntimeException {
+
+    public JobNotFoundException(String jobId) {
+        super("Solve job not found: " + jobId);
+    }
+}
@@ -0,0 +1,12 @@
+package com.adcaisse.delivery_route_optimizer.exception;
+
+/**
+ * Thrown when a solve job is not in a state that allows the request, e.g. a change sent to a job
+ * that has finished. Mapped to 409.
+ */
+public class JobStateException extends RuntimeException {
+
+    public JobStateException(String message) {
+        super(message);
+    }
+}
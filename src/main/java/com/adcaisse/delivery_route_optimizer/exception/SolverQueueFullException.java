@@ -0,0 +1,12 @@
+package com.adcaisse.delivery_route_optimizer.exception;
+
+/**
+ * Thrown when a solve job is submitted while every solver thread is busy and the job queue is full.
+ * Mapped to 429 Too Many Requests so clients back off and retry.
+ */
+public class SolverQueueFullException extends RuntimeException {
+
+    public SolverQueueFullException(String message) {
+        super(message);
+    }
+}
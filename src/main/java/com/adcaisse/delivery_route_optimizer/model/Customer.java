@@ -2,7 +2,10 @@ package com.adcaisse.delivery_route_optimizer.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
 
 
 @Data
@@ -10,6 +13,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class Customer {
     
+    // Lets move threads rebase moves onto their own working solution clone
+    @PlanningId
     private Long id;
     private String name;
     private Location location;
@@ -20,6 +25,15 @@ public class Customer {
     private Integer readyTime; // Earliest delivery time in minutes from depot
     private Integer dueTime;   // Latest delivery time in minutes from depot
     
+    // Position of this customer's location in the problem's DistanceMatrix
+    private int matrixIndex;
+    
+    // The matrix matrixIndex refers to, for nearby selection, whose distance meter only sees customers.
+    // Set by VehicleRoutingSolution.setDistanceMatrix.
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private DistanceMatrix distanceMatrix;
+    
     public Customer(Long id, String name, Location location, int demand) {
         this.id = id;
         this.name = name;
@@ -31,4 +45,28 @@ public class Customer {
     public boolean hasTimeWindow() {
         return readyTime != null && dueTime != null;
     }
+    
+    /**
+     * When the vehicle leaves this customer, after waiting for the time window to open and serving.
+     * 
+     * @param arrivalTime Seconds after leaving the depot
+     * @return Seconds after leaving the depot
+     */
+    public long departureTime(long arrivalTime) {
+        return arrivalTime + waitingTime(arrivalTime) + serviceTime * 60L;
+    }
+    
+    /**
+     * @return Seconds past the due time, 0 without a time window
+     */
+    public long lateness(long arrivalTime) {
+        return hasTimeWindow() ? Math.max(0, arrivalTime - dueTime * 60L) : 0;
+    }
+    
+    /**
+     * @return Seconds before the ready time, 0 without a time window
+     */
+    public long waitingTime(long arrivalTime) {
+        return hasTimeWindow() ? Math.max(0, readyTime * 60L - arrivalTime) : 0;
+    }
 }
@@ -1,5 +1,6 @@
 package com.adcaisse.delivery_route_optimizer.model;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -7,44 +8,200 @@ import java.util.Map;
 /**
  * Pre-computed distance matrix for O(1) lookups during OptaPlanner constraint evaluation.
  * This stores GraphHopper-calculated distances indexed by location IDs.
+ * 
+ * Distances live in one flat array: row-major n x n when directed (A -> B may differ from
+ * B -> A because of one-way streets), or only the upper triangle when symmetric. The array
+ * uses the narrowest type that holds every value: 16-bit meters (up to 65 km, enough for
+ * most city problems), then int, then long.
+ * 
+ * Locations are addressed by their dense position in the list given to the constructor.
+ * The solver assigns these indices once when the problem is built ({@link Customer#getMatrixIndex()},
+ * {@link Vehicle#getDepotIndex()}) and scores with {@link #getDistanceByIndex(int, int)}, which neither
+ * allocates nor hashes. The ID-based lookups remain for callers outside the scoring loop.
+ * 
+ * Travel times in seconds are kept the same way (16-bit up to 18 hours, then int) when the matrix was
+ * built from {@link RoadCost} values; otherwise they are estimated from the distance at a city speed.
  */
 public class DistanceMatrix {
     
-    private final long[][] matrix;
+    private static final int MAX_SHORT_DISTANCE = Character.MAX_VALUE;
+    
+    /** Speed assumed for travel times of matrices built without them: 50 km/h. */
+    private static final double ESTIMATED_METERS_PER_SECOND = 50 / 3.6;
+    
+    private final char[] shortDistances;
+    private final int[] intDistances;
+    private final long[] longDistances;
+    private final char[] shortDurations;
+    private final int[] intDurations;
+    private final int n;
+    private final boolean directed;
+    private final List<Location> locations;
     private final Map<Long, Integer> locationIdToIndex;
+    private MatrixFetchStats fetchStats;
+    // Sparse matrices only: per location, the neighbours whose distances are real, sorted by index
+    private int[][] neighbours;
     
     /**
-     * Create a DistanceMatrix from a list of locations and their pre-computed distances.
+     * Create a directed DistanceMatrix from a list of locations and their pre-computed distances.
      * 
      * @param locations List of locations (order must match matrix indices)
-     * @param matrix Pre-computed distance matrix from GraphHopper
+     * @param matrix Pre-computed distance matrix from GraphHopper, matrix[from][to]
      */
     public DistanceMatrix(List<Location> locations, long[][] matrix) {
-        this.matrix = matrix;
+        this(locations, matrix, true);
+    }
+    
+    /**
+     * @param directed false if matrix[i][j] == matrix[j][i]; only the upper triangle is kept then
+     */
+    public DistanceMatrix(List<Location> locations, long[][] matrix, boolean directed) {
+        this(locations, (i, j) -> matrix[i][j], null, directed);
+    }
+    
+    /**
+     * @param costs {@link RoadCost} values, costs[from][to]: distances and travel times from the same requests
+     * @param directed false if costs[i][j] == costs[j][i]; only the upper triangle is kept then
+     */
+    public static DistanceMatrix ofRoadCosts(List<Location> locations, long[][] costs, boolean directed) {
+        return new DistanceMatrix(locations, (i, j) -> RoadCost.distance(costs[i][j]),
+                (i, j) -> RoadCost.duration(costs[i][j]), directed);
+    }
+    
+    private DistanceMatrix(List<Location> locations, CellSource distances, CellSource durations, boolean directed) {
+        this.n = locations.size();
+        this.directed = directed;
+        this.locations = List.copyOf(locations);
         this.locationIdToIndex = new HashMap<>();
         
-        for (int i = 0; i < locations.size(); i++) {
-            locationIdToIndex.put(locations.get(i).getId(), i);
+        long min = 0;
+        long max = 0;
+        long maxDuration = 0;
+        for (int i = 0; i < n; i++) {
+            // The first location with an ID wins, like the index a caller would get from indexOf()
+            locationIdToIndex.putIfAbsent(locations.get(i).getId(), i);
+            for (int j = directed ? 0 : i; j < n; j++) {
+                long distance = distances.get(i, j);
+                min = Math.min(min, distance);
+                max = Math.max(max, distance);
+                if (durations != null) {
+                    maxDuration = Math.max(maxDuration, durations.get(i, j));
+                }
+            }
+        }
+        
+        int cells = directed ? n * n : n * (n + 1) / 2;
+        boolean fitsShort = min >= 0 && max <= MAX_SHORT_DISTANCE;
+        boolean fitsInt = min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE;
+        this.shortDistances = fitsShort ? new char[cells] : null;
+        this.intDistances = !fitsShort && fitsInt ? new int[cells] : null;
+        this.longDistances = !fitsShort && !fitsInt ? new long[cells] : null;
+        boolean durationsFitShort = maxDuration <= MAX_SHORT_DISTANCE;
+        this.shortDurations = durations != null && durationsFitShort ? new char[cells] : null;
+        this.intDurations = durations != null && !durationsFitShort ? new int[cells] : null;
+        
+        for (int i = 0; i < n; i++) {
+            for (int j = directed ? 0 : i; j < n; j++) {
+                int cell = cell(i, j);
+                long distance = distances.get(i, j);
+                if (shortDistances != null) {
+                    shortDistances[cell] = (char) distance;
+                } else if (intDistances != null) {
+                    intDistances[cell] = (int) distance;
+                } else {
+                    longDistances[cell] = distance;
+                }
+                if (shortDurations != null) {
+                    shortDurations[cell] = (char) durations.get(i, j);
+                } else if (intDurations != null) {
+                    intDurations[cell] = (int) Math.min(Integer.MAX_VALUE, durations.get(i, j));
+                }
+            }
+        }
+    }
+    
+    private interface CellSource {
+        long get(int from, int to);
+    }
+    
+    private int cell(int from, int to) {
+        if (directed) {
+            return from * n + to;
         }
+        if (from > to) {
+            int swap = from;
+            from = to;
+            to = swap;
+        }
+        // Row "from" of the upper triangle starts after n + (n - 1) + ... + (n - from + 1) cells
+        return from * n - from * (from - 1) / 2 + (to - from);
+    }
+    
+    /**
+     * Get distance between two locations by their matrix indices (positions in the constructor's list).
+     * This is the lookup for the scoring loop: no boxing, no hashing.
+     * 
+     * @return Distance in meters
+     */
+    public long getDistanceByIndex(int fromIndex, int toIndex) {
+        int cell = cell(fromIndex, toIndex);
+        if (shortDistances != null) {
+            return shortDistances[cell];
+        }
+        if (intDistances != null) {
+            return intDistances[cell];
+        }
+        return longDistances[cell];
+    }
+    
+    /**
+     * Travel time between two locations by their matrix indices, like {@link #getDistanceByIndex(int, int)}.
+     * 
+     * @return Seconds
+     */
+    public long getDurationByIndex(int fromIndex, int toIndex) {
+        int cell = cell(fromIndex, toIndex);
+        if (shortDurations != null) {
+            return shortDurations[cell];
+        }
+        if (intDurations != null) {
+            return intDurations[cell];
+        }
+        return Math.round(getDistanceByIndex(fromIndex, toIndex) / ESTIMATED_METERS_PER_SECOND);
+    }
+    
+    /**
+     * Whether travel times are road travel times rather than estimates from the distances.
+     */
+    public boolean hasDurations() {
+        return shortDurations != null || intDurations != null;
+    }
+    
+    /**
+     * @return the matrix index of a location ID, or -1 if it is not in the matrix
+     */
+    public int indexOf(long locationId) {
+        Integer index = locationIdToIndex.get(locationId);
+        return index != null ? index : -1;
     }
     
     /**
      * Get distance between two locations by their IDs.
-     * O(1) lookup time.
+     * O(1) lookup time; prefer {@link #getDistanceByIndex(int, int)} in hot loops.
      * 
      * @param fromId Source location ID
      * @param toId Destination location ID
      * @return Distance in meters, or -1 if locations not found
      */
     public long getDistance(long fromId, long toId) {
-        Integer fromIndex = locationIdToIndex.get(fromId);
-        Integer toIndex = locationIdToIndex.get(toId);
+        int fromIndex = indexOf(fromId);
+        int toIndex = indexOf(toId);
         
-        if (fromIndex == null || toIndex == null) {
+        if (fromIndex < 0 || toIndex < 0) {
             return -1; // Location not in matrix
         }
         
-        return matrix[fromIndex][toIndex];
+        return getDistanceByIndex(fromIndex, toIndex);
     }
     
     /**
@@ -66,10 +223,85 @@ public class DistanceMatrix {
         return locationIdToIndex.containsKey(locationId);
     }
     
+    /**
+     * Whether distances depend on the direction of travel.
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+    
+    /**
+     * The locations in matrix index order.
+     */
+    public List<Location> getLocations() {
+        return locations;
+    }
+    
     /**
      * Get the number of locations in this matrix.
      */
     public int size() {
-        return locationIdToIndex.size();
+        return n;
+    }
+    
+    /**
+     * Bytes used by the distance and travel time values.
+     */
+    public long memoryBytes() {
+        long bytes;
+        if (shortDistances != null) {
+            bytes = (long) shortDistances.length * Character.BYTES;
+        } else if (intDistances != null) {
+            bytes = (long) intDistances.length * Integer.BYTES;
+        } else {
+            bytes = (long) longDistances.length * Long.BYTES;
+        }
+        if (shortDurations != null) {
+            bytes += (long) shortDurations.length * Character.BYTES;
+        } else if (intDurations != null) {
+            bytes += (long) intDurations.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+    
+    /**
+     * How this matrix was assembled (cache reuse vs GraphHopper fetches), if known.
+     */
+    public MatrixFetchStats getFetchStats() {
+        return fetchStats;
+    }
+    
+    public void setFetchStats(MatrixFetchStats fetchStats) {
+        this.fetchStats = fetchStats;
+    }
+    
+    /**
+     * Whether only some distances are real road distances (see {@link #isNeighbour(int, int)}) and
+     * the rest estimates.
+     */
+    public boolean isSparse() {
+        return neighbours != null;
+    }
+    
+    /**
+     * Marks the matrix sparse.
+     * 
+     * @param neighbours Per matrix index, the indices whose distances from it were fetched
+     */
+    public void setNeighbours(int[][] neighbours) {
+        int[][] sorted = new int[neighbours.length][];
+        for (int i = 0; i < neighbours.length; i++) {
+            sorted[i] = neighbours[i].clone();
+            Arrays.sort(sorted[i]);
+        }
+        this.neighbours = sorted;
+    }
+    
+    /**
+     * @return true if the distance from one index to the other is a fetched road distance; always
+     *         true for a dense matrix
+     */
+    public boolean isNeighbour(int fromIndex, int toIndex) {
+        return neighbours == null || fromIndex == toIndex || Arrays.binarySearch(neighbours[fromIndex], toIndex) >= 0;
     }
 }
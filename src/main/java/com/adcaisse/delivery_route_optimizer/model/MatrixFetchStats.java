@@ -0,0 +1,43 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How a request's distance matrix was assembled: how many cells the distance cache
+ * already knew and how many had to come from GraphHopper.
+ */
+@Schema(description = "Distance matrix assembly statistics for one request")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatrixFetchStats {
+    @Schema(description = "Number of locations in the matrix", example = "11")
+    private int locations;
+
+    @Schema(description = "Off-diagonal cells between distinct coordinates", example = "110")
+    private long requestedCells;
+
+    @Schema(description = "Cells already present in the distance cache", example = "90")
+    private long cachedCells;
+
+    @Schema(description = "Cells requested from GraphHopper", example = "110")
+    private long fetchedCells;
+
+    @Schema(description = "Time spent assembling the matrix in milliseconds", example = "420")
+    private long durationMillis;
+
+    @Schema(description = "Cells estimated from straight-line distance instead of fetched (sparse matrices only)", example = "0")
+    private long estimatedCells;
+
+    @Schema(description = "Road / straight-line distance ratio fitted to the fetched cells and used for the estimates " +
+            "(sparse matrices only)", example = "1.32")
+    private Double detourFactor;
+
+    @Schema(description = "cachedCells / requestedCells", example = "0.82")
+    public double getReuseRatio() {
+        return requestedCells == 0 ? 1.0 : (double) cachedCells / requestedCells;
+    }
+}
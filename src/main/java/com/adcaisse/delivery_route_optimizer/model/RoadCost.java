@@ -0,0 +1,36 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+/**
+ * Road distance and travel time of one origin-destination pair, packed into a single long so that
+ * both go through the distance caches, the persistent store and shared in-flight requests as one
+ * value, fetched by the same GraphHopper request.
+ *
+ * Layout: sign bit clear | 23 bits seconds | 40 bits meters. 40 bits hold a million kilometres and
+ * 23 bits about 97 days; larger values are clamped. The sign bit stays clear, so a packed value never
+ * collides with the caches' MISSING marker.
+ */
+public final class RoadCost {
+
+    private static final int DISTANCE_BITS = 40;
+    private static final long MAX_DISTANCE = (1L << DISTANCE_BITS) - 1;
+    private static final long MAX_DURATION = (1L << (Long.SIZE - 1 - DISTANCE_BITS)) - 1;
+
+    private RoadCost() {
+    }
+
+    public static long of(long distanceMeters, long durationSeconds) {
+        return (clamp(durationSeconds, MAX_DURATION) << DISTANCE_BITS) | clamp(distanceMeters, MAX_DISTANCE);
+    }
+
+    public static long distance(long cost) {
+        return cost & MAX_DISTANCE;
+    }
+
+    public static long duration(long cost) {
+        return cost >>> DISTANCE_BITS;
+    }
+
+    private static long clamp(long value, long max) {
+        return Math.max(0, Math.min(max, value));
+    }
+}
@@ -0,0 +1,17 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+/**
+ * Lifecycle of an asynchronous solve job.
+ */
+public enum SolveJobStatus {
+    /** Accepted, waiting for a free solver thread */
+    QUEUED,
+    /** Fetching the distance matrix or solving */
+    SOLVING,
+    /** Solver reached its termination condition */
+    COMPLETED,
+    /** Stopped early on request; the best solution found so far is kept */
+    TERMINATED,
+    /** Building or solving the problem failed */
+    FAILED
+}
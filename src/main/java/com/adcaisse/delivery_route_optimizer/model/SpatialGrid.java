@@ -0,0 +1,135 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over location coordinates for k-nearest-neighbour queries by straight-line distance.
+ *
+ * Coordinates are projected onto a local plane in meters (equirectangular around the mean latitude),
+ * which is accurate enough at city scale to rank neighbours. Cells are sized to hold about k
+ * locations each, so a query inspects a few rings of cells instead of every location.
+ */
+public final class SpatialGrid {
+
+    private static final double METERS_PER_DEGREE_LATITUDE = 110_574;
+    private static final double METERS_PER_DEGREE_LONGITUDE_AT_EQUATOR = 111_320;
+
+    private final double[] x;
+    private final double[] y;
+    private final double cellSize;
+    private final long minCellX;
+    private final long maxCellX;
+    private final long minCellY;
+    private final long maxCellY;
+    private final Map<Long, List<Integer>> cells = new HashMap<>();
+
+    private SpatialGrid(List<Location> locations, int locationsPerCell) {
+        int n = locations.size();
+        double meanLatitude = locations.stream().mapToDouble(Location::getLatitude).average().orElse(0);
+        double lonScale = METERS_PER_DEGREE_LONGITUDE_AT_EQUATOR * Math.cos(Math.toRadians(meanLatitude));
+        x = new double[n];
+        y = new double[n];
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            x[i] = locations.get(i).getLongitude() * lonScale;
+            y[i] = locations.get(i).getLatitude() * METERS_PER_DEGREE_LATITUDE;
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double area = Math.max(1.0, (maxX - minX) * (maxY - minY));
+        cellSize = Math.max(1.0, Math.sqrt(area * locationsPerCell / Math.max(1, n)));
+        minCellX = cellOf(minX);
+        maxCellX = cellOf(maxX);
+        minCellY = cellOf(minY);
+        maxCellY = cellOf(maxY);
+        for (int i = 0; i < n; i++) {
+            cells.computeIfAbsent(cellKey(cellOf(x[i]), cellOf(y[i])), key -> new ArrayList<>()).add(i);
+        }
+    }
+
+    /**
+     * For every location, the indices of its k nearest other locations, nearest first. Locations
+     * at the same coordinates are skipped; their distance is zero without asking anyone.
+     */
+    public static int[][] nearestNeighbours(List<Location> locations, int k) {
+        SpatialGrid grid = new SpatialGrid(locations, Math.max(1, k));
+        int[][] neighbours = new int[locations.size()][];
+        for (int i = 0; i < locations.size(); i++) {
+            neighbours[i] = grid.nearest(i, k);
+        }
+        return neighbours;
+    }
+
+    /**
+     * Straight-line distance in meters on the same local projection the grid uses.
+     */
+    public static double straightLineMeters(Location from, Location to) {
+        double lonScale = METERS_PER_DEGREE_LONGITUDE_AT_EQUATOR
+                * Math.cos(Math.toRadians((from.getLatitude() + to.getLatitude()) / 2));
+        double dx = (to.getLongitude() - from.getLongitude()) * lonScale;
+        double dy = (to.getLatitude() - from.getLatitude()) * METERS_PER_DEGREE_LATITUDE;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int[] nearest(int origin, int k) {
+        long cx = cellOf(x[origin]);
+        long cy = cellOf(y[origin]);
+        // Best candidates so far, kept sorted by squared distance
+        int[] best = new int[k];
+        double[] bestDistance = new double[k];
+        int found = 0;
+        long lastRing = Math.max(Math.max(cx - minCellX, maxCellX - cx), Math.max(cy - minCellY, maxCellY - cy));
+        for (int ring = 0; ; ring++) {
+            for (long gx = cx - ring; gx <= cx + ring; gx++) {
+                for (long gy = cy - ring; gy <= cy + ring; gy++) {
+                    if (Math.max(Math.abs(gx - cx), Math.abs(gy - cy)) != ring) {
+                        continue;
+                    }
+                    List<Integer> cell = cells.get(cellKey(gx, gy));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int candidate : cell) {
+                        double dx = x[candidate] - x[origin];
+                        double dy = y[candidate] - y[origin];
+                        double distance = dx * dx + dy * dy;
+                        if (candidate == origin || distance == 0 || (found == k && distance >= bestDistance[k - 1])) {
+                            continue;
+                        }
+                        int position = found == k ? k - 1 : found++;
+                        while (position > 0 && bestDistance[position - 1] > distance) {
+                            best[position] = best[position - 1];
+                            bestDistance[position] = bestDistance[position - 1];
+                            position--;
+                        }
+                        best[position] = candidate;
+                        bestDistance[position] = distance;
+                    }
+                }
+            }
+            // Anything beyond this ring is at least ring * cellSize away
+            double reach = ring * cellSize;
+            boolean complete = found == k && bestDistance[k - 1] <= reach * reach;
+            if (complete || ring >= lastRing) {
+                return Arrays.copyOf(best, found);
+            }
+        }
+    }
+
+    private long cellOf(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(long gx, long gy) {
+        return (gx << 32) ^ (gy & 0xFFFFFFFFL);
+    }
+}
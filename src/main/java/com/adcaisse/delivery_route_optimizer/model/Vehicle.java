@@ -1,7 +1,7 @@
 package com.adcaisse.delivery_route_optimizer.model;
 
-import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
 import org.optaplanner.core.api.domain.variable.PlanningListVariable;
 
 import java.util.ArrayList;
@@ -10,10 +10,13 @@ import java.util.List;
 @PlanningEntity
 public class Vehicle {
     
+    @PlanningId
     private Long id;
     private String name;
     private int capacity;
     private Location depot;
+    // Position of the depot in the problem's DistanceMatrix
+    private int depotIndex;
     
     @PlanningListVariable(valueRangeProviderRefs = {"customerRange"})
     private List<Customer> customerList;
@@ -62,6 +65,14 @@ public class Vehicle {
         this.depot = depot;
     }
     
+    public int getDepotIndex() {
+        return depotIndex;
+    }
+    
+    public void setDepotIndex(int depotIndex) {
+        this.depotIndex = depotIndex;
+    }
+    
     public List<Customer> getCustomerList() {
         return customerList;
     }
@@ -70,23 +81,90 @@ public class Vehicle {
         this.customerList = customerList;
     }
     
-    public long getTotalDistance(DistanceCalculatorService distanceCalculator) {
+    /**
+     * Route distance walked by matrix index: depot -> customers in order -> depot.
+     * Customers' matrix indices must refer to the given matrix.
+     */
+    public long getTotalDistance(DistanceMatrix matrix) {
         if (customerList.isEmpty()) {
             return 0;
         }
         
         long totalDistance = 0;
-        Location previousLocation = depot;
-        
-        for (Customer customer : customerList) {
-            totalDistance += distanceCalculator.getDistance(previousLocation, customer.getLocation());
-            previousLocation = customer.getLocation();
+        int previous = depotIndex;
+        for (int i = 0; i < customerList.size(); i++) {
+            int next = customerList.get(i).getMatrixIndex();
+            totalDistance += matrix.getDistanceByIndex(previous, next);
+            previous = next;
         }
         
-        totalDistance += distanceCalculator.getDistance(previousLocation, depot);
+        totalDistance += matrix.getDistanceByIndex(previous, depotIndex);
         return totalDistance;
     }
     
+    /**
+     * Distance of every leg of the route: depot -> first customer, ..., last customer -> depot.
+     * Customers' matrix indices must refer to the given matrix.
+     *
+     * @return customers + 1 legs, or none for an empty route
+     */
+    public long[] getLegDistances(DistanceMatrix matrix) {
+        if (customerList.isEmpty()) {
+            return new long[0];
+        }
+        
+        long[] legs = new long[customerList.size() + 1];
+        int previous = depotIndex;
+        for (int i = 0; i < customerList.size(); i++) {
+            int next = customerList.get(i).getMatrixIndex();
+            legs[i] = matrix.getDistanceByIndex(previous, next);
+            previous = next;
+        }
+        
+        legs[customerList.size()] = matrix.getDistanceByIndex(previous, depotIndex);
+        return legs;
+    }
+    
+    /**
+     * Travel time of every leg of the route, like {@link #getLegDistances(DistanceMatrix)}.
+     *
+     * @return Seconds per leg: customers + 1 legs, or none for an empty route
+     */
+    public long[] getLegDurations(DistanceMatrix matrix) {
+        if (customerList.isEmpty()) {
+            return new long[0];
+        }
+        
+        long[] legs = new long[customerList.size() + 1];
+        int previous = depotIndex;
+        for (int i = 0; i < customerList.size(); i++) {
+            int next = customerList.get(i).getMatrixIndex();
+            legs[i] = matrix.getDurationByIndex(previous, next);
+            previous = next;
+        }
+        
+        legs[customerList.size()] = matrix.getDurationByIndex(previous, depotIndex);
+        return legs;
+    }
+    
+    /**
+     * Arrival at every customer, waiting for time windows to open and serving each customer on the way.
+     *
+     * @param legDurations Seconds per leg, as returned by {@link #getLegDurations(DistanceMatrix)}
+     * @return Seconds after leaving the depot, one per customer, then the return to the depot
+     */
+    public long[] getArrivalTimes(long[] legDurations) {
+        long[] arrivals = new long[legDurations.length];
+        long departure = 0;
+        for (int i = 0; i < legDurations.length; i++) {
+            arrivals[i] = departure + legDurations[i];
+            if (i < customerList.size()) {
+                departure = customerList.get(i).departureTime(arrivals[i]);
+            }
+        }
+        return arrivals;
+    }
+    
     public int getTotalDemand() {
         return customerList.stream()
                 .mapToInt(Customer::getDemand)
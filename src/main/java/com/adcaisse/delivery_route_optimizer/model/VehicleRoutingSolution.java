@@ -9,7 +9,11 @@ import org.optaplanner.core.api.domain.solution.ProblemFactProperty;
 import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Planning Solution class that represents both the problem and the solution.
@@ -39,6 +43,27 @@ public class VehicleRoutingSolution {
     @ProblemFactProperty
     private DistanceMatrix distanceMatrix;
     
+    /**
+     * Leg distances per vehicle ID, for solutions whose routes were solved on separate matrices
+     * (partitioned solves) and so have no distance matrix. Null when legs come from the matrix.
+     */
+    private Map<Long, long[]> legDistances;
+    
+    /** Leg travel times per vehicle ID, recorded alongside {@link #legDistances}. */
+    private Map<Long, long[]> legDurations;
+    
+    /**
+     * Whether any customer has a time window. Arrival times are only tracked when one does, so
+     * problems without time windows pay nothing for them.
+     */
+    private boolean timeWindowed;
+    
+    /**
+     * Whether a client deadline or the global solving cap stopped the solver before the requested
+     * limits did, so another solve of the same problem may well do better.
+     */
+    private boolean cutShort;
+    
     public VehicleRoutingSolution() {
     }
     
@@ -47,6 +72,7 @@ public class VehicleRoutingSolution {
         this.name = name;
         this.customerList = customerList;
         this.vehicleList = vehicleList;
+        this.timeWindowed = anyTimeWindow(customerList);
     }
     
     // Getters and setters
@@ -64,6 +90,27 @@ public class VehicleRoutingSolution {
     
     public void setCustomerList(List<Customer> customerList) {
         this.customerList = customerList;
+        this.timeWindowed = anyTimeWindow(customerList);
+    }
+    
+    public boolean isTimeWindowed() {
+        return timeWindowed;
+    }
+    
+    public void setTimeWindowed(boolean timeWindowed) {
+        this.timeWindowed = timeWindowed;
+    }
+    
+    public boolean isCutShort() {
+        return cutShort;
+    }
+    
+    public void setCutShort(boolean cutShort) {
+        this.cutShort = cutShort;
+    }
+    
+    private static boolean anyTimeWindow(List<Customer> customers) {
+        return customers != null && customers.stream().anyMatch(Customer::hasTimeWindow);
     }
     
     public List<Vehicle> getVehicleList() {
@@ -94,18 +141,94 @@ public class VehicleRoutingSolution {
         return distanceMatrix;
     }
     
+    /**
+     * Also points every customer at the matrix, so set the customer list first.
+     */
     public void setDistanceMatrix(DistanceMatrix distanceMatrix) {
         this.distanceMatrix = distanceMatrix;
+        if (customerList != null) {
+            customerList.forEach(customer -> customer.setDistanceMatrix(distanceMatrix));
+        }
+    }
+
+    public void setLegDistances(Map<Long, long[]> legDistances) {
+        this.legDistances = legDistances;
+    }
+
+    /**
+     * Distance of every leg of a vehicle's route, from the distance matrix or, without one, from
+     * the legs recorded when the route was solved. Never asks the distance calculator.
+     *
+     * @return customers + 1 legs, or none for an empty route
+     */
+    public long[] getLegDistances(Vehicle vehicle) {
+        if (distanceMatrix != null) {
+            return vehicle.getLegDistances(distanceMatrix);
+        }
+        if (legDistances != null && legDistances.containsKey(vehicle.getId())) {
+            return legDistances.get(vehicle.getId());
+        }
+        if (vehicle.getCustomerList().isEmpty()) {
+            return new long[0];
+        }
+        throw new IllegalStateException("No distances for the route of vehicle " + vehicle.getId());
+    }
+
+    public void setLegDurations(Map<Long, long[]> legDurations) {
+        this.legDurations = legDurations;
+    }
+
+    /**
+     * Travel time of every leg of a vehicle's route, from the same source as {@link #getLegDistances(Vehicle)}.
+     *
+     * @return Seconds per leg: customers + 1 legs, or none for an empty route
+     */
+    public long[] getLegDurations(Vehicle vehicle) {
+        if (distanceMatrix != null) {
+            return vehicle.getLegDurations(distanceMatrix);
+        }
+        if (legDurations != null && legDurations.containsKey(vehicle.getId())) {
+            return legDurations.get(vehicle.getId());
+        }
+        if (vehicle.getCustomerList().isEmpty()) {
+            return new long[0];
+        }
+        throw new IllegalStateException("No travel times for the route of vehicle " + vehicle.getId());
+    }
+
+    /**
+     * Copy with its own customers, vehicles and routes, so it can be changed and solved again without
+     * touching this solution. The distance matrix and calculator are shared.
+     */
+    public VehicleRoutingSolution copy() {
+        Map<Long, Customer> customers = new LinkedHashMap<>();
+        for (Customer customer : customerList) {
+            customers.put(customer.getId(), new Customer(customer.getId(), customer.getName(), customer.getLocation(),
+                    customer.getDemand(), customer.getServiceTime(), customer.getReadyTime(), customer.getDueTime(),
+                    customer.getMatrixIndex(), customer.getDistanceMatrix()));
+        }
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (Vehicle vehicle : vehicleList) {
+            Vehicle copy = new Vehicle(vehicle.getId(), vehicle.getName(), vehicle.getCapacity(), vehicle.getDepot());
+            copy.setDepotIndex(vehicle.getDepotIndex());
+            vehicle.getCustomerList().forEach(customer -> copy.getCustomerList().add(customers.get(customer.getId())));
+            vehicles.add(copy);
+        }
+        VehicleRoutingSolution copy = new VehicleRoutingSolution(name, new ArrayList<>(customers.values()), vehicles);
+        copy.setScore(score);
+        copy.setDistanceCalculator(distanceCalculator);
+        copy.setDistanceMatrix(distanceMatrix);
+        return copy;
     }
 
     // Helper methods for analysis
     public long getTotalDistance() {
-        if (distanceCalculator == null) {
+        if (distanceMatrix == null && legDistances == null) {
             return 0;
         }
         
         return vehicleList.stream()
-                .mapToLong(vehicle -> vehicle.getTotalDistance(distanceCalculator))
+                .mapToLong(vehicle -> Arrays.stream(getLegDistances(vehicle)).sum())
                 .sum();
     }
     
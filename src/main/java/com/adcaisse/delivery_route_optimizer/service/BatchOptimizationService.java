@@ -0,0 +1,24 @@
+package com.adcaisse.delivery_route_optimizer.service;
+
+import com.adcaisse.delivery_route_optimizer.dto.BatchResultDto;
+import com.adcaisse.delivery_route_optimizer.dto.BatchSummaryDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Solves many independent routing problems, such as one per depot, as one batch.
+ */
+public interface BatchOptimizationService {
+
+    /**
+     * Solve every problem, handing each result over as soon as it is ready. Blocks until all are done.
+     *
+     * @param requests Independent problems; partitioned solving is not supported
+     * @param results Receives one result per request, in the order they finish, never concurrently.
+     *                If it throws, problems not started yet are skipped.
+     * @return Throughput of the batch
+     */
+    BatchSummaryDto optimize(List<VehicleRoutingRequest> requests, Consumer<BatchResultDto> results);
+}
@@ -1,8 +1,10 @@
 package com.adcaisse.delivery_route_optimizer.service;
 
+import com.adcaisse.delivery_route_optimizer.dto.DistanceCacheStatsDto;
 import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
 import com.adcaisse.delivery_route_optimizer.model.Location;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -17,6 +19,30 @@ public interface DistanceCalculatorService {
     }
 
     DistanceMatrix computeDistanceMatrix(List<Location> locations);
+
+    /**
+     * Matrix with road distances only between each location and its nearest neighbours, and from
+     * and to the first location (the depot). Every other cell is an estimate. Implementations
+     * without a cheaper path return the full matrix.
+     *
+     * @param neighbourCount Nearest neighbours per location, by straight-line distance
+     */
+    default DistanceMatrix computeSparseDistanceMatrix(List<Location> locations, int neighbourCount) {
+        return computeDistanceMatrix(locations);
+    }
+
+    /**
+     * The given matrix with locations appended after its own, for stops added to an existing plan.
+     * Implementations that can should only look up distances from and to the new locations; every
+     * appended location is a real-distance neighbour of every other, so a sparse base stays sparse.
+     */
+    default DistanceMatrix extendDistanceMatrix(DistanceMatrix base, List<Location> added) {
+        List<Location> locations = new ArrayList<>(base.getLocations());
+        locations.addAll(added);
+        return computeDistanceMatrix(locations);
+    }
+
     void clearCache();
     int getCacheSize();
+    DistanceCacheStatsDto getCacheStats();
 }
@@ -0,0 +1,21 @@
+package com.adcaisse.delivery_route_optimizer.service;
+
+import com.adcaisse.delivery_route_optimizer.dto.SolutionUpdateDto;
+import com.adcaisse.delivery_route_optimizer.dto.SolveJobDto;
+
+/**
+ * Receives the progress of one solve job. Both methods are called from a single event thread, in order;
+ * a listener that throws is unsubscribed.
+ */
+public interface SolveJobListener {
+
+    /**
+     * An improved best solution, throttled and reduced to the routes that changed.
+     */
+    void onUpdate(SolutionUpdateDto update);
+
+    /**
+     * The job completed, was terminated or failed. Called last, after the final update.
+     */
+    void onFinished(SolveJobDto job);
+}
@@ -0,0 +1,86 @@
+package com.adcaisse.delivery_route_optimizer.service;
+
+import com.adcaisse.delivery_route_optimizer.dto.RouteChangesDto;
+import com.adcaisse.delivery_route_optimizer.dto.SolveJobDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+
+/**
+ * Asynchronous route optimization. Jobs run on a fixed pool of solver threads instead of the
+ * HTTP worker thread that submitted them; callers poll for status and the best solution so far.
+ */
+public interface SolveJobService {
+
+    /**
+     * Queue a routing problem for solving. The distance matrix is fetched on the solver thread.
+     *
+     * @param request Depot, customers, demands and vehicle capacities
+     * @return The new job, in status QUEUED
+     * @throws com.adcaisse.delivery_route_optimizer.exception.SolverQueueFullException if all solver
+     *         threads are busy and the job queue is full
+     */
+    SolveJobDto submit(VehicleRoutingRequest request);
+
+    /**
+     * @param jobId Job identifier returned by {@link #submit}
+     * @return Current status and best score of the job
+     * @throws com.adcaisse.delivery_route_optimizer.exception.JobNotFoundException if the job is unknown
+     */
+    SolveJobDto getJob(String jobId);
+
+    /**
+     * @param jobId Job identifier returned by {@link #submit}
+     * @return Best solution found so far, or null if the solver has not produced one yet
+     * @throws com.adcaisse.delivery_route_optimizer.exception.JobNotFoundException if the job is unknown
+     */
+    VehicleRoutingSolutionDto getBestSolution(String jobId);
+
+    /**
+     * Stop a queued or running job. A running job keeps the best solution found so far. A queued job
+     * stays queued until a solver thread picks it up, then ends at once without solving.
+     *
+     * @param jobId Job identifier returned by {@link #submit}
+     * @return Status of the job after the request
+     * @throws com.adcaisse.delivery_route_optimizer.exception.JobNotFoundException if the job is unknown
+     */
+    SolveJobDto terminateEarly(String jobId);
+
+    /**
+     * Follow a job's progress. The listener first receives the current best solution, if there is one,
+     * then improvements at most once per solver.events.min-interval-ms, and finally onFinished.
+     *
+     * @param jobId Job identifier returned by {@link #submit}
+     * @param listener Receives the updates
+     * @return Cancels the subscription when run
+     * @throws com.adcaisse.delivery_route_optimizer.exception.JobNotFoundException if the job is unknown
+     */
+    Runnable subscribe(String jobId, SolveJobListener listener);
+
+    /**
+     * Add or remove stops and vehicles while a job is solving. The solver takes the change between
+     * two steps and carries on from its current routes, and the job's termination policy starts over.
+     * New best solutions reach subscribers as usual.
+     *
+     * @param jobId Job identifier returned by {@link #submit}
+     * @param changes Stops and vehicles to add or remove
+     * @return Status of the job after the request
+     * @throws com.adcaisse.delivery_route_optimizer.exception.JobNotFoundException if the job is unknown
+     * @throws com.adcaisse.delivery_route_optimizer.exception.JobStateException if the job is not solving
+     */
+    SolveJobDto applyChanges(String jobId, RouteChangesDto changes);
+
+    /**
+     * Replan a job's best solution with changes, warm-started from its routes, on the calling thread.
+     * The job itself is not affected.
+     *
+     * @param jobId Job identifier returned by {@link #submit}
+     * @param changes Stops and vehicles to add or remove
+     * @param termination When to stop solving; null for the replanning default
+     * @return Replanned solution
+     * @throws com.adcaisse.delivery_route_optimizer.exception.JobNotFoundException if the job is unknown
+     * @throws com.adcaisse.delivery_route_optimizer.exception.JobStateException if the job has no solution yet
+     */
+    VehicleRoutingSolution replan(String jobId, RouteChangesDto changes, TerminationPolicyDto termination);
+}
@@ -1,8 +1,15 @@
 package com.adcaisse.delivery_route_optimizer.service;
 
+import com.adcaisse.delivery_route_optimizer.dto.RouteChangesDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.TimeWindowDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRouteDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
 import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
 import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
 import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.solver.PlanChange;
 
 import java.util.List;
 
@@ -13,19 +20,81 @@ import java.util.List;
 public interface VehicleRoutingService {
 
     /**
-     * Solve vehicle routing problem for given locations and vehicles.
-     * All distances are computed via the configured distance calculator for accurate routing.
+     * Build the planning problem for given locations and vehicles, including its distance matrix,
+     * without solving it.
      *
      * @param depot The depot location (starting/ending point for all vehicles)
      * @param customerLocations List of customer locations to visit
      * @param vehicleCapacities List of vehicle capacities
      * @param customerDemands List of demands for each customer (parallel to customerLocations)
+     * @param customerTimeWindows Time windows in minutes (parallel to customerLocations, null entries
+     *                            for none); null when no customer has one
+     * @param neighbourCount Fetch road distances only to each stop's nearest neighbours and estimate
+     *                       the rest; null for a full matrix
+     * @return Unsolved problem, ready to hand to a solver
+     */
+    VehicleRoutingSolution createProblem(Location depot,
+                                         List<Location> customerLocations,
+                                         List<Integer> vehicleCapacities,
+                                         List<Integer> customerDemands,
+                                         List<TimeWindowDto> customerTimeWindows,
+                                         Integer neighbourCount);
+
+    /**
+     * Solve vehicle routing problem for given locations and vehicles.
+     * All distances are computed via the configured distance calculator for accurate routing.
+     *
+     * @param request Depot, customers with their demands and optional time windows, vehicle capacities,
+     *                and the optional termination policy, partition size and neighbour count; see
+     *                {@link VehicleRoutingRequest} for what each one does
      * @return Optimized routing solution
      */
-    VehicleRoutingSolution solveVRP(Location depot,
-                                    List<Location> customerLocations,
-                                    List<Integer> vehicleCapacities,
-                                    List<Integer> customerDemands);
+    VehicleRoutingSolution solveVRP(VehicleRoutingRequest request);
+
+    /**
+     * Solve a problem built by {@link #createProblem} on the calling thread alone, without move
+     * threads, for callers that run many solves side by side.
+     *
+     * @param problem Unsolved problem with its distance matrix
+     * @param termination When to stop solving; null for the defaults, which scale with the number of customers
+     * @param neighbourCount The neighbour count the problem's sparse matrix was built with; null for a full matrix
+     * @return Optimized routing solution
+     */
+    VehicleRoutingSolution solveProblem(VehicleRoutingSolution problem, TerminationPolicyDto termination,
+                                        Integer neighbourCount);
+
+    /**
+     * Rebuild a plan from routes returned by {@link #getSolutionDto}, with its distance matrix.
+     * Distances known from earlier requests come from the distance cache.
+     *
+     * @param depot The depot the routes start and end at
+     * @param routes Vehicles and their stops, in order
+     * @return Plan with every stop assigned as in the routes
+     */
+    VehicleRoutingSolution createPlan(Location depot, List<VehicleRouteDto> routes);
+
+    /**
+     * Resolve changes against a plan: IDs for the added stops and vehicles, and the plan's distance
+     * matrix extended with rows for the added stops only. The plan itself is not modified.
+     *
+     * @param plan A solved plan or a problem a solver is working on
+     * @param changes Stops and vehicles to add or remove
+     * @return Change to apply to the plan or to a running solver
+     */
+    PlanChange createPlanChange(VehicleRoutingSolution plan, RouteChangesDto changes);
+
+    /**
+     * Apply changes to a copy of a plan and solve it again, starting from the plan's routes: only
+     * added stops are inserted and the time budget is short.
+     *
+     * @param plan A solved plan, left unchanged
+     * @param changes Stops and vehicles to add or remove
+     * @param termination When to stop solving; null for the replanning default
+     * @param neighbourCount Neighbours per stop the plan's sparse matrix was built with; ignored for a full matrix
+     * @return Replanned solution
+     */
+    VehicleRoutingSolution replan(VehicleRoutingSolution plan, RouteChangesDto changes, TerminationPolicyDto termination,
+                                  Integer neighbourCount);
 
     /**
      * Solve a sample problem for testing purposes.
@@ -36,10 +105,20 @@ public interface VehicleRoutingService {
     VehicleRoutingSolution solveSampleProblem();
 
     /**
-     * Convert a VehicleRoutingSolution to a DTO for API responses.
+     * Convert a VehicleRoutingSolution to a DTO for API responses. Distances come from the solution's
+     * own distance matrix (or recorded legs), never from new distance lookups.
      *
      * @param solution The solution to convert
      * @return DTO representation of the solution
      */
     VehicleRoutingSolutionDto getSolutionDto(VehicleRoutingSolution solution);
+
+    /**
+     * Convert one vehicle's route to a DTO for API responses, with the distance of every leg.
+     *
+     * @param solution The solution the vehicle belongs to, whose distances the route uses
+     * @param vehicle The vehicle whose route to convert
+     * @return DTO representation of the route
+     */
+    VehicleRouteDto getRouteDto(VehicleRoutingSolution solution, Vehicle vehicle);
 }
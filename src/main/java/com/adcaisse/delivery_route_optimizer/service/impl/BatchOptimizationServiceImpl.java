@@ -0,0 +1,258 @@
+package com.adcaisse.delivery_route_optimizer.service.impl;
+
+import com.adcaisse.delivery_route_optimizer.dto.BatchResultDto;
+import com.adcaisse.delivery_route_optimizer.dto.BatchSummaryDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.service.BatchOptimizationService;
+import com.adcaisse.delivery_route_optimizer.service.VehicleRoutingService;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTerminationManager;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Solves a batch in two overlapping stages.
+ *
+ * Matrices are fetched region by region: problems whose depots share a grid cell of
+ * region-size-degrees are fetched one after another, so the stops and matrix tiles they have in
+ * common come from the distance cache for all but the first. Regions are fetched in parallel on
+ * matrix-fetch-threads. Each problem goes to the solver pool as soon as its matrix is ready.
+ *
+ * The solver pool is a work-stealing pool of parallel-solver-count threads (AUTO = cores), each
+ * running one single-threaded solve at a time, shared by all batches so that concurrent batches
+ * do not oversubscribe the cores. At most twice as many problems as solver threads hold a matrix
+ * while waiting for one, which bounds the memory a large batch takes.
+ */
+@Service
+public class BatchOptimizationServiceImpl implements BatchOptimizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchOptimizationServiceImpl.class);
+
+    private final VehicleRoutingService vehicleRoutingService;
+    private final AdaptiveTerminationManager terminationManager;
+    private final double regionSizeDegrees;
+    private final ForkJoinPool solverPool;
+    private final ExecutorService matrixExecutor;
+
+    public BatchOptimizationServiceImpl(VehicleRoutingService vehicleRoutingService,
+                                        AdaptiveTerminationManager terminationManager,
+                                        @Value("${solver.batch.parallel-solver-count:AUTO}") String parallelSolverCount,
+                                        @Value("${solver.batch.matrix-fetch-threads:4}") int matrixFetchThreads,
+                                        @Value("${solver.batch.region-size-degrees:0.5}") double regionSizeDegrees) {
+        if (regionSizeDegrees <= 0) {
+            throw new IllegalArgumentException("solver.batch.region-size-degrees must be positive");
+        }
+        this.vehicleRoutingService = vehicleRoutingService;
+        this.terminationManager = terminationManager;
+        this.regionSizeDegrees = regionSizeDegrees;
+        int solverThreads = "AUTO".equalsIgnoreCase(parallelSolverCount)
+                ? Runtime.getRuntime().availableProcessors()
+                : Integer.parseInt(parallelSolverCount);
+        this.solverPool = new ForkJoinPool(Math.max(1, solverThreads), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("batch-solver-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.matrixExecutor = Executors.newFixedThreadPool(Math.max(1, matrixFetchThreads), runnable -> {
+            Thread thread = new Thread(runnable, "batch-matrix");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Batch optimization: {} solver threads, {} matrix fetch threads, regions of {}°",
+                solverPool.getParallelism(), Math.max(1, matrixFetchThreads), regionSizeDegrees);
+    }
+
+    @PreDestroy
+    public void close() {
+        matrixExecutor.shutdownNow();
+        solverPool.shutdownNow();
+    }
+
+    @Override
+    public BatchSummaryDto optimize(List<VehicleRoutingRequest> requests, Consumer<BatchResultDto> results) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("A batch needs at least one problem");
+        }
+        long start = System.currentTimeMillis();
+        Map<Long, List<Integer>> regions = groupByRegion(requests);
+        logger.info("📦 Batch of {} problems in {} regions", requests.size(), regions.size());
+
+        Batch batch = new Batch(requests.size(), results, 2 * solverPool.getParallelism());
+        for (List<Integer> region : regions.values()) {
+            matrixExecutor.execute(() -> fetchRegion(requests, region, batch));
+        }
+        try {
+            batch.done.await();
+        } catch (InterruptedException e) {
+            batch.cancelled = true;
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving a batch", e);
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        double perMinute = requests.size() * 60_000.0 / Math.max(1, elapsed);
+        logger.info("📦 Batch of {} problems done in {}s: {} solved, {} failed, {} problems/minute",
+                requests.size(), elapsed / 1000.0, batch.solved, batch.failed, String.format("%.1f", perMinute));
+        return new BatchSummaryDto(requests.size(), batch.solved, batch.failed, regions.size(), elapsed, perMinute);
+    }
+
+    /**
+     * Request indices by the grid cell of their depot, in request order. Requests without a depot
+     * share one region; they fail on their own when their matrix is built.
+     */
+    private Map<Long, List<Integer>> groupByRegion(List<VehicleRoutingRequest> requests) {
+        Map<Long, List<Integer>> regions = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Location depot = requests.get(i).getDepot();
+            long key = 0;
+            if (depot != null) {
+                long cellX = (long) Math.floor(depot.getLongitude() / regionSizeDegrees);
+                long cellY = (long) Math.floor(depot.getLatitude() / regionSizeDegrees);
+                key = (cellX << 32) ^ (cellY & 0xFFFFFFFFL);
+            }
+            regions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        return regions;
+    }
+
+    private void fetchRegion(List<VehicleRoutingRequest> requests, List<Integer> region, Batch batch) {
+        for (int position = 0; position < region.size(); position++) {
+            int index = region.get(position);
+            if (batch.cancelled) {
+                batch.skip();
+                continue;
+            }
+            try {
+                batch.waitingForSolver.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.cancelled = true;
+                for (int rest = position; rest < region.size(); rest++) {
+                    batch.skip();
+                }
+                return;
+            }
+
+            VehicleRoutingRequest request = requests.get(index);
+            long matrixStart = System.currentTimeMillis();
+            VehicleRoutingSolution problem;
+            try {
+                validate(request);
+                problem = vehicleRoutingService.createProblem(request.getDepot(), request.getCustomerLocations(),
+                        request.getVehicleCapacities(), request.getCustomerDemands(), request.getCustomerTimeWindows(),
+                        request.getNeighbourCount());
+            } catch (RuntimeException e) {
+                batch.waitingForSolver.release();
+                batch.fail(index, e, System.currentTimeMillis() - matrixStart);
+                continue;
+            }
+            long matrixMillis = System.currentTimeMillis() - matrixStart;
+            solverPool.execute(() -> solve(index, request, problem, matrixMillis, batch));
+        }
+    }
+
+    private void solve(int index, VehicleRoutingRequest request, VehicleRoutingSolution problem, long matrixMillis,
+                       Batch batch) {
+        batch.waitingForSolver.release();
+        if (batch.cancelled) {
+            batch.skip();
+            return;
+        }
+        long solveStart = System.currentTimeMillis();
+        try {
+            VehicleRoutingSolution solution = vehicleRoutingService.solveProblem(problem, request.getTermination(),
+                    request.getNeighbourCount());
+            VehicleRoutingSolutionDto dto = vehicleRoutingService.getSolutionDto(solution);
+            batch.deliver(new BatchResultDto(index, dto, null, matrixMillis, System.currentTimeMillis() - solveStart), true);
+        } catch (RuntimeException e) {
+            logger.warn("Batch problem {} failed: {}", index, e.getMessage());
+            batch.deliver(new BatchResultDto(index, null, message(e), matrixMillis,
+                    System.currentTimeMillis() - solveStart), false);
+        }
+    }
+
+    private void validate(VehicleRoutingRequest request) {
+        if (request.getDepot() == null) {
+            throw new IllegalArgumentException("A depot is required");
+        }
+        if (request.getCustomerLocations() == null || request.getCustomerDemands() == null
+                || request.getCustomerLocations().size() != request.getCustomerDemands().size()) {
+            throw new IllegalArgumentException("Customer locations and demands lists must have the same size");
+        }
+        if (request.getPartitionSize() != null) {
+            throw new IllegalArgumentException("partitionSize is not supported in batches");
+        }
+        terminationManager.validate(request.getTermination());
+    }
+
+    private static String message(RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    /**
+     * Progress of one batch. Results go to the consumer one at a time; once it throws, the batch is
+     * cancelled and the remaining problems are counted off without being solved.
+     */
+    private static class Batch {
+
+        private final CountDownLatch done;
+        private final Consumer<BatchResultDto> results;
+        // Problems with a matrix that no solver thread has taken yet
+        private final Semaphore waitingForSolver;
+        private volatile boolean cancelled;
+        private int solved;
+        private int failed;
+
+        Batch(int problems, Consumer<BatchResultDto> results, int maxWaiting) {
+            this.done = new CountDownLatch(problems);
+            this.results = results;
+            this.waitingForSolver = new Semaphore(maxWaiting);
+        }
+
+        void fail(int index, RuntimeException e, long matrixMillis) {
+            logger.warn("Batch problem {} rejected: {}", index, e.getMessage());
+            deliver(new BatchResultDto(index, null, message(e), matrixMillis, 0), false);
+        }
+
+        synchronized void deliver(BatchResultDto result, boolean success) {
+            try {
+                if (cancelled) {
+                    return;
+                }
+                if (success) {
+                    solved++;
+                } else {
+                    failed++;
+                }
+                results.accept(result);
+            } catch (RuntimeException e) {
+                logger.warn("Batch cancelled: result consumer failed: {}", e.getMessage());
+                cancelled = true;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        void skip() {
+            done.countDown();
+        }
+    }
+}
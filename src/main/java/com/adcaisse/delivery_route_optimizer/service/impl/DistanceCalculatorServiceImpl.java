@@ -1,101 +1,594 @@
 package com.adcaisse.delivery_route_optimizer.service.impl;
 
-import com.adcaisse.delivery_route_optimizer.client.GraphHopperClient;
+import com.adcaisse.delivery_route_optimizer.cache.LocationKey;
+import com.adcaisse.delivery_route_optimizer.cache.LongPairDistanceCache;
+import com.adcaisse.delivery_route_optimizer.cache.PersistentDistanceStore;
+import com.adcaisse.delivery_route_optimizer.cache.SingleFlight;
+import com.adcaisse.delivery_route_optimizer.client.RoutingProvider;
+import com.adcaisse.delivery_route_optimizer.dto.DistanceCacheStatsDto;
 import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
 import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.MatrixFetchStats;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.model.SpatialGrid;
 import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Implementation of DistanceCalculatorService using GraphHopper for real-world routing.
- * All distances are calculated via GraphHopper API - no Haversine approximations.
- * Includes caching to avoid redundant API calls.
+ * Implementation of DistanceCalculatorService using a {@link RoutingProvider} (GraphHopper, or the
+ * embedded stand-in) for real-world routing. Full matrices are road costs throughout. Sparse matrices
+ * only fetch each stop's nearest neighbours; every other cell is the straight-line distance times a
+ * detour factor, with a travel pace, both fitted by least squares to the fetched cells.
+ * Includes a bounded, primitive-keyed cache to avoid redundant API calls. Cache keys are the
+ * quantized coordinates plus routing profile (see {@link LocationKey}), not request-scoped IDs,
+ * so distances are reused across requests that visit the same places.
+ * When enabled, a {@link PersistentDistanceStore} on disk backs the in-memory cache, so a
+ * restarted instance answers from earlier results instead of re-querying GraphHopper.
+ * Threads that miss the same pair at the same time share one GraphHopper call (identical matrix
+ * tiles are shared the same way inside {@link com.adcaisse.delivery_route_optimizer.client.GraphHopperClient}).
+ * Every cached value is a {@link RoadCost}: the travel time rides along with the distance it was
+ * fetched with, so time windows need no extra GraphHopper calls or cache lookups.
  */
 @Service
 public class DistanceCalculatorServiceImpl implements DistanceCalculatorService {
     
     private static final Logger logger = LoggerFactory.getLogger(DistanceCalculatorServiceImpl.class);
     
-    private final GraphHopperClient graphHopperClient;
-    private final ConcurrentHashMap<String, Long> distanceCache;
+    /** Above this many distinct row patterns, missing cells are fetched as one block. */
+    private static final int MAX_MISSING_BLOCKS = 8;
     
-    public DistanceCalculatorServiceImpl(GraphHopperClient graphHopperClient) {
-        this.graphHopperClient = graphHopperClient;
-        this.distanceCache = new ConcurrentHashMap<>();
+    /** Rows per GraphHopper request when fetching a sparse matrix; neighbouring rows share most columns. */
+    private static final int SPARSE_ROWS_PER_REQUEST = 16;
+    
+    /** Road / straight-line ratio assumed when no fetched pair is available to fit one. */
+    private static final double DEFAULT_DETOUR_FACTOR = 1.3;
+    
+    /** Seconds per road meter assumed when no fetched pair is available to fit one: 50 km/h. */
+    private static final double DEFAULT_SECONDS_PER_METER = 3.6 / 50;
+    
+    private final RoutingProvider routingProvider;
+    private final LongPairDistanceCache distanceCache;
+    private final PersistentDistanceStore distanceStore;
+    private final int profileId;
+    private final boolean directed;
+    private final LongAdder matrixCellsRequested = new LongAdder();
+    private final LongAdder matrixCellsReused = new LongAdder();
+    private final SingleFlight<PairKey, long[]> pairRequests = new SingleFlight<>();
+    
+    public DistanceCalculatorServiceImpl(RoutingProvider routingProvider,
+                                         @Value("${distance-cache.max-memory-mb:64}") long maxMemoryMb,
+                                         @Value("${distance-store.enabled:false}") boolean storeEnabled,
+                                         @Value("${distance-store.directory:data/distance-store}") String storeDirectory,
+                                         @Value("${distance-store.segment-records:1000000}") int segmentRecords,
+                                         @Value("${distance-store.compaction-threshold:8}") int compactionThreshold) {
+        this.routingProvider = routingProvider;
+        this.distanceCache = new LongPairDistanceCache(maxMemoryMb * 1024 * 1024);
+        this.directed = routingProvider.isDirected();
+        // Mirrored (symmetric) distances must never be served to a directed instance, or vice versa;
+        // nor distance-only entries of older stores to code that reads them as packed costs
+        this.profileId = LocationKey.profileId((directed
+                ? routingProvider.getProfile() : routingProvider.getProfile() + "#symmetric") + "#cost");
+        logger.info("Distance cache: {} MB budget, up to {} location pairs",
+                maxMemoryMb, distanceCache.capacity());
+        
+        if (storeEnabled) {
+            try {
+                this.distanceStore = PersistentDistanceStore.open(Path.of(storeDirectory), segmentRecords, compactionThreshold);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open distance store at " + storeDirectory, e);
+            }
+        } else {
+            this.distanceStore = null;
+        }
+    }
+    
+    @PreDestroy
+    public void close() throws IOException {
+        if (distanceStore != null) {
+            distanceStore.close();
+        }
     }
     
     @Override
     public long getDistance(Location from, Location to) {
+        return RoadCost.distance(getCost(from, to));
+    }
+    
+    @Override
+    public int getTravelTime(Location from, Location to) {
+        return (int) (RoadCost.duration(getCost(from, to)) / 60);
+    }
+    
+    /**
+     * @return {@link RoadCost} of the road from -> to
+     */
+    private long getCost(Location from, Location to) {
+        long fromKey = LocationKey.of(from, profileId);
+        long toKey = LocationKey.of(to, profileId);
+        
         // Same location
-        if (from.getId() == to.getId()) {
+        if (fromKey == toKey) {
             return 0L;
         }
         
         // Check cache first
-        String cacheKey = createCacheKey(from, to);
-        Long cachedDistance = distanceCache.get(cacheKey);
-        if (cachedDistance != null) {
-            return cachedDistance;
+        long cachedCost = distanceCache.get(fromKey, toKey);
+        if (cachedCost != LongPairDistanceCache.MISSING) {
+            return cachedCost;
+        }
+        cachedCost = loadStored(fromKey, toKey);
+        if (cachedCost != LongPairDistanceCache.MISSING) {
+            return cachedCost;
+        }
+        
+        // Both directions come from one request, so either direction joins a request in flight
+        PairKey pair = PairKey.of(fromKey, toKey);
+        long[] costs = pairRequests.execute(pair, () -> fetchPair(
+                pair.first() == fromKey ? from : to, pair.first() == fromKey ? to : from, pair));
+        return pair.first() == fromKey ? costs[0] : costs[1];
+    }
+    
+    /**
+     * @return {first -> second, second -> first}, from the cache if a request that just finished put them there
+     */
+    private long[] fetchPair(Location first, Location second, PairKey pair) {
+        if (distanceCache.contains(pair.first(), pair.second()) && distanceCache.contains(pair.second(), pair.first())) {
+            long forward = distanceCache.get(pair.first(), pair.second());
+            long backward = distanceCache.get(pair.second(), pair.first());
+            if (forward != LongPairDistanceCache.MISSING && backward != LongPairDistanceCache.MISSING) {
+                return new long[]{forward, backward};
+            }
         }
         
         try {
-            // Get distance from GraphHopper API
-            long distance = graphHopperClient.getDistance(from, to);
+            // Get both directions from the routing provider (one round-trip request in directed mode)
+            long[] costs = routingProvider.getCostPair(first, second);
             
-            // Cache the result (both directions since we use symmetric distances)
-            distanceCache.put(cacheKey, distance);
-            distanceCache.put(createCacheKey(to, from), distance);
+            // Cache the result in both directions; they differ only in directed mode
+            remember(pair.first(), pair.second(), costs[0]);
+            remember(pair.second(), pair.first(), costs[1]);
             
-            return distance;
+            return costs;
         } catch (Exception e) {
-            logger.error("GraphHopper API call failed for distance {} -> {}: {}",
-                    from.getId(), to.getId(), e.getMessage());
+            logger.error("Routing provider call failed for distance {} -> {}: {}",
+                    first.getId(), second.getId(), e.getMessage());
             throw new RuntimeException("Failed to get distance from GraphHopper", e);
         }
     }
     
-    private String createCacheKey(Location from, Location to) {
-        return from.getId() + "->" + to.getId();
+    /**
+     * Unordered pair of location keys, smaller key first.
+     */
+    private record PairKey(long first, long second) {
+        
+        static PairKey of(long a, long b) {
+            return a < b ? new PairKey(a, b) : new PairKey(b, a);
+        }
     }
     
     @Override
     public DistanceMatrix computeDistanceMatrix(List<Location> locations) {
-        logger.info("Computing distance matrix for {} locations using GraphHopper...", locations.size());
+        logger.info("Computing distance matrix for {} locations using the {} routing profile...", locations.size(),
+                routingProvider.getProfile());
+        return assemble(locations, null);
+    }
+    
+    /**
+     * Appended locations go through the same cache-then-GraphHopper path as a full matrix, but only
+     * their rows and columns: one block for the new rows, one for the known rows against the new
+     * columns. The base matrix's cells are copied, so evictions since it was built cost nothing.
+     */
+    @Override
+    public DistanceMatrix extendDistanceMatrix(DistanceMatrix base, List<Location> added) {
+        logger.info("Extending distance matrix of {} locations with {} more...", base.size(), added.size());
+        List<Location> locations = new ArrayList<>(base.getLocations());
+        locations.addAll(added);
+        DistanceMatrix extended = assemble(locations, base);
+        if (base.isSparse()) {
+            // Old rows keep their neighbours and gain the new locations; new rows were fetched in full
+            int n = locations.size();
+            int[][] neighbours = new int[n][];
+            for (int i = 0; i < n; i++) {
+                BitSet known = new BitSet(n);
+                if (i < base.size()) {
+                    for (int j = 0; j < base.size(); j++) {
+                        if (base.isNeighbour(i, j)) {
+                            known.set(j);
+                        }
+                    }
+                    known.set(base.size(), n);
+                } else {
+                    known.set(0, n);
+                }
+                neighbours[i] = known.stream().toArray();
+            }
+            extended.setNeighbours(neighbours);
+        }
+        return extended;
+    }
+    
+    /**
+     * Builds a full matrix from the caches and GraphHopper.
+     *
+     * @param base Matrix over the first locations, whose cells are copied instead of looked up; may be null
+     */
+    private DistanceMatrix assemble(List<Location> locations, DistanceMatrix base) {
         long startTime = System.currentTimeMillis();
         
+        int n = locations.size();
+        int knownPrefix = base != null ? base.size() : 0;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = LocationKey.of(locations.get(i), profileId);
+        }
+        
+        // Read every other cell from the cache (or the persistent store) and note which are missing
+        long[][] matrix = new long[n][n];
+        BitSet[] missing = new BitSet[n];
+        long requestedCells = 0;
+        long cachedCells = 0;
+        for (int i = 0; i < n; i++) {
+            missing[i] = new BitSet(n);
+            for (int j = 0; j < n; j++) {
+                if (i < knownPrefix && j < knownPrefix) {
+                    matrix[i][j] = RoadCost.of(base.getDistanceByIndex(i, j), base.getDurationByIndex(i, j));
+                    continue;
+                }
+                if (keys[i] == keys[j]) {
+                    continue;
+                }
+                requestedCells++;
+                long cost = distanceCache.get(keys[i], keys[j]);
+                if (cost == LongPairDistanceCache.MISSING) {
+                    cost = loadStored(keys[i], keys[j]);
+                }
+                if (cost != LongPairDistanceCache.MISSING) {
+                    matrix[i][j] = cost;
+                    cachedCells++;
+                } else {
+                    missing[i].set(j);
+                }
+            }
+        }
+        matrixCellsRequested.add(requestedCells);
+        matrixCellsReused.add(cachedCells);
+        
+        try {
+            long fetchedCells = 0;
+            if (cachedCells < requestedCells) {
+                for (MissingBlock block : groupMissingCells(keys, missing)) {
+                    fetchedCells += fetchBlock(locations, keys, matrix, block);
+                }
+            }
+            
+            long duration = System.currentTimeMillis() - startTime;
+            MatrixFetchStats stats = new MatrixFetchStats(n, requestedCells, cachedCells, fetchedCells, duration, 0, null);
+            logger.info("✅ Distance matrix computed in {}ms ({} locations, {}/{} cells reused from cache ({} %), {} fetched, {} cache entries)", 
+                    duration, n, cachedCells, requestedCells, Math.round(stats.getReuseRatio() * 100), fetchedCells, distanceCache.size());
+            
+            DistanceMatrix distanceMatrix = DistanceMatrix.ofRoadCosts(locations, matrix, directed);
+            distanceMatrix.setFetchStats(stats);
+            return distanceMatrix;
+            
+        } catch (Exception e) {
+            logger.error("❌ Failed to compute distance matrix: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to compute distance matrix from GraphHopper", e);
+        }
+    }
+    
+    /**
+     * Road distances are fetched only between each location and its k nearest neighbours (either
+     * way round) and between the depot and every location: O(n k) cells instead of O(n^2). The
+     * missing cells of spatially close rows are requested together, since their neighbourhoods
+     * overlap. The remaining cells are straight-line distances scaled by a detour factor, fitted by
+     * least squares to every road distance fetched or already cached; their travel times use the
+     * average pace fitted the same way.
+     */
+    @Override
+    public DistanceMatrix computeSparseDistanceMatrix(List<Location> locations, int neighbourCount) {
+        int n = locations.size();
+        if (neighbourCount + 1 >= n) {
+            return computeDistanceMatrix(locations);
+        }
+        logger.info("Computing sparse distance matrix for {} locations, {} neighbours each...", n, neighbourCount);
+        long startTime = System.currentTimeMillis();
+        
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = LocationKey.of(locations.get(i), profileId);
+        }
+        int[][] nearest = SpatialGrid.nearestNeighbours(locations, neighbourCount);
+        BitSet[] connected = new BitSet[n];
+        for (int i = 0; i < n; i++) {
+            connected[i] = new BitSet(n);
+        }
+        for (int i = 1; i < n; i++) {
+            connected[0].set(i);
+            connected[i].set(0);
+            for (int j : nearest[i]) {
+                connected[i].set(j);
+                connected[j].set(i);
+            }
+        }
+        
+        long[][] matrix = new long[n][n];
+        BitSet[] known = new BitSet[n];
+        BitSet[] missing = new BitSet[n];
+        long requestedCells = 0;
+        long cachedCells = 0;
+        for (int i = 0; i < n; i++) {
+            known[i] = new BitSet(n);
+            missing[i] = new BitSet(n);
+            for (int j = connected[i].nextSetBit(0); j >= 0; j = connected[i].nextSetBit(j + 1)) {
+                if (keys[i] == keys[j]) {
+                    known[i].set(j);
+                    continue;
+                }
+                requestedCells++;
+                long cost = distanceCache.get(keys[i], keys[j]);
+                if (cost == LongPairDistanceCache.MISSING) {
+                    cost = loadStored(keys[i], keys[j]);
+                }
+                if (cost != LongPairDistanceCache.MISSING) {
+                    matrix[i][j] = cost;
+                    known[i].set(j);
+                    cachedCells++;
+                } else {
+                    missing[i].set(j);
+                }
+            }
+        }
+        matrixCellsRequested.add(requestedCells);
+        matrixCellsReused.add(cachedCells);
+        
         try {
-            long[][] matrix = graphHopperClient.getDistanceMatrix(locations);
+            long fetchedCells = 0;
+            for (int i = 0; i < n; i++) {
+                missing[i].andNot(known[i]);
+                if (missing[i].isEmpty()) {
+                    continue;
+                }
+                // The depot row spans every location and goes alone; other rows take their nearest along
+                List<Integer> rows = new ArrayList<>();
+                rows.add(i);
+                BitSet columns = (BitSet) missing[i].clone();
+                for (int r = 0; i > 0 && r < nearest[i].length && rows.size() < SPARSE_ROWS_PER_REQUEST; r++) {
+                    int row = nearest[i][r];
+                    missing[row].andNot(known[row]);
+                    if (row > 0 && !missing[row].isEmpty()) {
+                        rows.add(row);
+                        columns.or(missing[row]);
+                    }
+                }
+                int[] rowIndices = rows.stream().mapToInt(Integer::intValue).toArray();
+                fetchedCells += fetchBlock(locations, keys, matrix, new MissingBlock(rowIndices, columns.stream().toArray()));
+                for (int row : rowIndices) {
+                    known[row].or(columns);
+                    missing[row].clear();
+                    if (!directed) {
+                        for (int column = columns.nextSetBit(0); column >= 0; column = columns.nextSetBit(column + 1)) {
+                            known[column].set(row);
+                        }
+                    }
+                }
+            }
             
-            // Also populate the local cache for getDistance() calls
-            for (int i = 0; i < locations.size(); i++) {
-                for (int j = 0; j < locations.size(); j++) {
-                    if (i != j) {
-                        String cacheKey = createCacheKey(locations.get(i), locations.get(j));
-                        distanceCache.put(cacheKey, matrix[i][j]);
+            double detourFactor = fitDetourFactor(locations, matrix, known);
+            double secondsPerMeter = fitPace(matrix, known);
+            long estimatedCells = 0;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i != j && !known[i].get(j) && keys[i] != keys[j]) {
+                        double distance = SpatialGrid.straightLineMeters(locations.get(i), locations.get(j)) * detourFactor;
+                        matrix[i][j] = RoadCost.of(Math.round(distance), Math.round(distance * secondsPerMeter));
+                        estimatedCells++;
                     }
                 }
             }
             
             long duration = System.currentTimeMillis() - startTime;
-            logger.info("✅ Distance matrix computed in {}ms ({} locations, {} cache entries)", 
-                    duration, locations.size(), distanceCache.size());
+            MatrixFetchStats stats = new MatrixFetchStats(n, requestedCells, cachedCells, fetchedCells, duration,
+                    estimatedCells, detourFactor);
+            logger.info("✅ Sparse distance matrix computed in {}ms ({} locations, {}/{} cells reused from cache, {} fetched, {} estimated with detour factor {})",
+                    duration, n, cachedCells, requestedCells, fetchedCells, estimatedCells, String.format("%.3f", detourFactor));
             
-            return new DistanceMatrix(locations, matrix);
+            int[][] neighbours = new int[n][];
+            for (int i = 0; i < n; i++) {
+                neighbours[i] = known[i].stream().toArray();
+            }
+            DistanceMatrix distanceMatrix = DistanceMatrix.ofRoadCosts(locations, matrix, directed);
+            distanceMatrix.setNeighbours(neighbours);
+            distanceMatrix.setFetchStats(stats);
+            return distanceMatrix;
             
         } catch (Exception e) {
-            logger.error("❌ Failed to compute distance matrix: {}", e.getMessage(), e);
+            logger.error("❌ Failed to compute sparse distance matrix: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to compute distance matrix from GraphHopper", e);
         }
     }
     
+    /**
+     * Least-squares ratio of road to straight-line distance over the known cells.
+     */
+    private static double fitDetourFactor(List<Location> locations, long[][] matrix, BitSet[] known) {
+        double roadTimesStraight = 0;
+        double straightSquared = 0;
+        for (int i = 0; i < known.length; i++) {
+            for (int j = known[i].nextSetBit(0); j >= 0; j = known[i].nextSetBit(j + 1)) {
+                double straight = SpatialGrid.straightLineMeters(locations.get(i), locations.get(j));
+                if (i != j && straight > 0) {
+                    roadTimesStraight += RoadCost.distance(matrix[i][j]) * straight;
+                    straightSquared += straight * straight;
+                }
+            }
+        }
+        return straightSquared > 0 ? roadTimesStraight / straightSquared : DEFAULT_DETOUR_FACTOR;
+    }
+    
+    /**
+     * Least-squares seconds per road meter over the known cells.
+     */
+    private static double fitPace(long[][] matrix, BitSet[] known) {
+        double durationTimesDistance = 0;
+        double distanceSquared = 0;
+        for (int i = 0; i < known.length; i++) {
+            for (int j = known[i].nextSetBit(0); j >= 0; j = known[i].nextSetBit(j + 1)) {
+                double distance = RoadCost.distance(matrix[i][j]);
+                durationTimesDistance += RoadCost.duration(matrix[i][j]) * distance;
+                distanceSquared += distance * distance;
+            }
+        }
+        return distanceSquared > 0 ? durationTimesDistance / distanceSquared : DEFAULT_SECONDS_PER_METER;
+    }
+    
+    /**
+     * Rows that miss the same columns, fetched together as one origins x destinations request.
+     */
+    private record MissingBlock(int[] rows, int[] columns) {
+    }
+    
+    /**
+     * Group the missing cells into rectangular blocks. Rows missing the same set of columns share
+     * a block, so adding a few stops to a known set costs two blocks: the new rows against every
+     * column, and the known rows against the new columns. A new row never misses its own column
+     * (same coordinates), so columns that every incomplete row needs are added back to the rows
+     * that skipped them; otherwise each new row would form its own block.
+     * Scattered gaps (e.g. after evictions) would produce many small blocks; past
+     * MAX_MISSING_BLOCKS they collapse into one block covering every affected row and column.
+     */
+    private static List<MissingBlock> groupMissingCells(long[] keys, BitSet[] missing) {
+        int n = keys.length;
+        BitSet[] withSameKey = new BitSet[n];
+        BitSet neededByAll = null;
+        for (int i = 0; i < n; i++) {
+            if (missing[i].isEmpty()) {
+                continue;
+            }
+            withSameKey[i] = (BitSet) missing[i].clone();
+            for (int j = 0; j < n; j++) {
+                if (keys[i] == keys[j]) {
+                    withSameKey[i].set(j);
+                }
+            }
+            if (neededByAll == null) {
+                neededByAll = (BitSet) withSameKey[i].clone();
+            } else {
+                neededByAll.and(withSameKey[i]);
+            }
+        }
+        
+        Map<BitSet, List<Integer>> rowsByColumns = new LinkedHashMap<>();
+        BitSet allRows = new BitSet(n);
+        BitSet allColumns = new BitSet(n);
+        for (int i = 0; i < n; i++) {
+            if (withSameKey[i] == null) {
+                continue;
+            }
+            BitSet columns = (BitSet) withSameKey[i].clone();
+            columns.and(neededByAll);
+            columns.or(missing[i]);
+            rowsByColumns.computeIfAbsent(columns, c -> new ArrayList<>()).add(i);
+            allRows.set(i);
+            allColumns.or(columns);
+        }
+        
+        List<MissingBlock> blocks = new ArrayList<>();
+        if (rowsByColumns.size() > MAX_MISSING_BLOCKS) {
+            blocks.add(new MissingBlock(allRows.stream().toArray(), allColumns.stream().toArray()));
+            return blocks;
+        }
+        rowsByColumns.forEach((columns, rows) -> blocks.add(new MissingBlock(
+                rows.stream().mapToInt(Integer::intValue).toArray(), columns.stream().toArray())));
+        return blocks;
+    }
+    
+    /**
+     * Fetch one block from GraphHopper and write it into the matrix and the caches.
+     *
+     * @return number of cells fetched, not counting cells between identical coordinates
+     */
+    private long fetchBlock(List<Location> locations, long[] keys, long[][] matrix, MissingBlock block) throws Exception {
+        int[] rows = block.rows();
+        int[] columns = block.columns();
+        long[][] costs;
+        if (rows.length == locations.size() && columns.length == locations.size()) {
+            // Nothing known yet: the square call can use symmetric shortcuts
+            costs = routingProvider.getCostMatrix(locations);
+        } else {
+            costs = routingProvider.getCostMatrix(select(locations, rows), select(locations, columns));
+        }
+        
+        long fetched = 0;
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < columns.length; c++) {
+                int i = rows[r];
+                int j = columns[c];
+                if (keys[i] != keys[j]) {
+                    matrix[i][j] = costs[r][c];
+                    remember(keys[i], keys[j], costs[r][c]);
+                    if (!directed) {
+                        matrix[j][i] = costs[r][c];
+                        remember(keys[j], keys[i], costs[r][c]);
+                    }
+                    fetched++;
+                }
+            }
+        }
+        return fetched;
+    }
+    
+    private static List<Location> select(List<Location> locations, int[] indices) {
+        List<Location> selected = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            selected.add(locations.get(index));
+        }
+        return selected;
+    }
+    
+    /**
+     * Look a pair up in the persistent store and promote a hit into the in-memory cache.
+     */
+    private long loadStored(long fromKey, long toKey) {
+        if (distanceStore == null) {
+            return LongPairDistanceCache.MISSING;
+        }
+        long cost = distanceStore.get(fromKey, toKey);
+        if (cost != LongPairDistanceCache.MISSING) {
+            distanceCache.put(fromKey, toKey, cost);
+        }
+        return cost;
+    }
+    
+    private void remember(long fromKey, long toKey, long cost) {
+        distanceCache.put(fromKey, toKey, cost);
+        if (distanceStore != null) {
+            distanceStore.put(fromKey, toKey, cost);
+        }
+    }
+    
     @Override
     public void clearCache() {
         distanceCache.clear();
+        if (distanceStore != null) {
+            try {
+                distanceStore.clear();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to clear distance store", e);
+            }
+        }
         logger.info("Distance cache cleared");
     }
     
@@ -103,4 +596,29 @@ public class DistanceCalculatorServiceImpl implements DistanceCalculatorService
     public int getCacheSize() {
         return distanceCache.size();
     }
+    
+    @Override
+    public DistanceCacheStatsDto getCacheStats() {
+        long hits = distanceCache.hits();
+        long misses = distanceCache.misses();
+        long requested = matrixCellsRequested.sum();
+        long reused = matrixCellsReused.sum();
+        return new DistanceCacheStatsDto(
+                distanceCache.size(),
+                distanceCache.capacity(),
+                distanceCache.memoryBytes(),
+                hits,
+                misses,
+                distanceCache.evictions(),
+                hits + misses == 0 ? 0.0 : (double) hits / (hits + misses),
+                requested,
+                reused,
+                requested == 0 ? 0.0 : (double) reused / requested,
+                distanceStore != null ? distanceStore.size() : 0,
+                distanceStore != null ? distanceStore.segmentCount() : 0,
+                distanceStore != null ? distanceStore.hits() : 0,
+                pairRequests.deduplicated(),
+                routingProvider.getDeduplicatedTiles()
+        );
+    }
 }
@@ -0,0 +1,286 @@
+package com.adcaisse.delivery_route_optimizer.service.impl;
+
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTermination;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTerminationManager;
+import com.adcaisse.delivery_route_optimizer.solver.SweepPartitioner;
+import com.adcaisse.delivery_route_optimizer.solver.SweepPartitioner.Partition;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.api.solver.SolutionManager;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Solves a large problem as independent sweep sectors ({@link SweepPartitioner}), in parallel and each
+ * with its own small distance matrix, then repairs the routes along sector borders by re-solving each
+ * pair of neighbouring sectors together, warm-started from their current routes.
+ *
+ * No matrix ever spans more than two sectors, so memory and distance lookups grow with the partition
+ * size instead of with the square of the whole problem. The price is that a route can only move
+ * customers between neighbouring sectors.
+ *
+ * The time budget covers the whole solve, from its start: 60% for the sectors, the rest for the repair
+ * waves. Sectors and pairs beyond the pool size wait for a thread, so each gets its share divided by the
+ * number of rounds the pool needs, and never more than what is left of the budget; each repair wave
+ * gets an equal part of whatever time remains. The hard limit (max-millis or the client deadline) also runs from the
+ * start of the whole solve, and the unimproved-time and plateau limits apply to every sub-solve.
+ */
+class PartitionedRoutingSolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedRoutingSolver.class);
+
+    // Must match VehicleRoutingIncrementalScoreCalculator, which scores the sub-solves
+    private static final long VEHICLE_USAGE_PENALTY = 1000000L;
+
+    private final Function<Integer, Solver<VehicleRoutingSolution>> solverBuilder;
+    private final SolutionManager<VehicleRoutingSolution, HardSoftLongScore> solutionManager;
+    private final DistanceCalculatorService distanceCalculator;
+    private final AdaptiveTerminationManager terminationManager;
+
+    /**
+     * @param solverFactory Scores warm starts
+     * @param solverBuilder Builds a solver for a full matrix (null) or a sparse one with the given neighbour count
+     */
+    PartitionedRoutingSolver(SolverFactory<VehicleRoutingSolution> solverFactory,
+                             Function<Integer, Solver<VehicleRoutingSolution>> solverBuilder,
+                             DistanceCalculatorService distanceCalculator,
+                             AdaptiveTerminationManager terminationManager) {
+        this.solverBuilder = solverBuilder;
+        this.solutionManager = SolutionManager.create(solverFactory);
+        this.distanceCalculator = distanceCalculator;
+        this.terminationManager = terminationManager;
+    }
+
+    /**
+     * @param problem Unsolved problem without a distance matrix
+     * @return Solution over the problem's own customers and vehicles. It has no distance matrix, and
+     *         customers keep the matrix index of the last sub-problem they were solved in; the leg
+     *         distances and travel times of each route are recorded from that sub-problem's matrix instead.
+     */
+    VehicleRoutingSolution solve(VehicleRoutingSolution problem, Location depot, int partitionSize,
+                                 Integer neighbourCount, TerminationPolicyDto termination) {
+        List<Partition> partitions = SweepPartitioner.partition(depot, problem.getCustomerList(),
+                problem.getVehicleList(), partitionSize);
+        List<List<int[]>> waves = repairWaves(partitions.size());
+        int largest = partitions.stream().mapToInt(partition -> partition.customers().size()).max().orElse(0);
+        int poolSize = Math.min(partitions.size(), Runtime.getRuntime().availableProcessors());
+        int rounds = (partitions.size() + poolSize - 1) / poolSize;
+
+        long startMillis = System.currentTimeMillis();
+        long hardLimitAt = terminationManager.hardLimitAt(termination, startMillis);
+        long budget = termination != null && termination.getTimeBudgetMillis() != null
+                ? termination.getTimeBudgetMillis()
+                : terminationManager.defaultTimeBudgetMillis(problem.getCustomerList().size());
+        long budgetEnd = Math.min(startMillis + budget, hardLimitAt);
+        long sectorShare = (budgetEnd - startMillis) * 3 / 5 / rounds;
+        logger.info("🧩 Partitioned {} customers into {} sectors of up to {} ({} rounds of {} ms), {} repair waves",
+                problem.getCustomerList().size(), partitions.size(), largest, rounds, sectorShare, waves.size());
+
+        // Leg distances and travel times per vehicle ID, from the matrix of the sub-problem that last solved it
+        Map<Long, long[]> routeLegs = new ConcurrentHashMap<>();
+        Map<Long, long[]> routeDurations = new ConcurrentHashMap<>();
+        AtomicBoolean cutShort = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "partition-solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> sectors = new ArrayList<>();
+            for (Partition partition : partitions) {
+                sectors.add(executor.submit(() -> solveGroup(depot, partition.customers(), partition.vehicles(),
+                        neighbourCount, withTimeBudget(termination, Math.min(sectorShare, millisUntil(budgetEnd))),
+                        hardLimitAt, routeLegs, routeDurations, cutShort)));
+            }
+            awaitAll(sectors);
+
+            for (int w = 0; w < waves.size(); w++) {
+                if (terminationManager.isPastDeadline(termination)) {
+                    logger.info("⏱️ Skipping border repair: deadline reached");
+                    cutShort.set(true);
+                    break;
+                }
+                if (millisUntil(budgetEnd) <= 0) {
+                    logger.info("⏱️ Skipping border repair: time budget spent");
+                    break;
+                }
+                int waveRounds = (waves.get(w).size() + poolSize - 1) / poolSize;
+                TerminationPolicyDto repairPolicy = withTimeBudget(termination,
+                        millisUntil(budgetEnd) / (waves.size() - w) / waveRounds);
+                List<Future<?>> pairs = new ArrayList<>();
+                for (int[] pair : waves.get(w)) {
+                    List<Vehicle> vehicles = new ArrayList<>(partitions.get(pair[0]).vehicles());
+                    vehicles.addAll(partitions.get(pair[1]).vehicles());
+                    List<Customer> customers = new ArrayList<>();
+                    vehicles.forEach(vehicle -> customers.addAll(vehicle.getCustomerList()));
+                    pairs.add(executor.submit(() -> solveGroup(depot, customers, vehicles, neighbourCount,
+                            repairPolicy, hardLimitAt, routeLegs, routeDurations, cutShort)));
+                }
+                awaitAll(pairs);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        VehicleRoutingSolution solution = new VehicleRoutingSolution(problem.getName(),
+                problem.getCustomerList(), problem.getVehicleList());
+        solution.setDistanceCalculator(problem.getDistanceCalculator());
+        solution.setLegDistances(routeLegs);
+        solution.setLegDurations(routeDurations);
+        solution.setScore(score(problem.getVehicleList(), routeLegs, routeDurations));
+        solution.setCutShort(cutShort.get());
+        return solution;
+    }
+
+    /**
+     * Solves customers and vehicles as one sub-problem. Routes the vehicles already have are the
+     * starting solution, so repairs only improve on the sector solves.
+     */
+    private void solveGroup(Location depot, List<Customer> customers, List<Vehicle> vehicles, Integer neighbourCount,
+                            TerminationPolicyDto policy, long hardLimitAt, Map<Long, long[]> routeLegs,
+                            Map<Long, long[]> routeDurations, AtomicBoolean cutShort) {
+        List<Location> locations = new ArrayList<>();
+        locations.add(depot);
+        for (Customer customer : customers) {
+            customer.setMatrixIndex(locations.size());
+            locations.add(customer.getLocation());
+        }
+        DistanceMatrix matrix = neighbourCount != null
+                ? distanceCalculator.computeSparseDistanceMatrix(locations, neighbourCount)
+                : distanceCalculator.computeDistanceMatrix(locations);
+
+        VehicleRoutingSolution problem = new VehicleRoutingSolution("Partition", customers, new ArrayList<>(vehicles));
+        problem.setDistanceCalculator(distanceCalculator);
+        problem.setDistanceMatrix(matrix);
+        boolean warmStart = vehicles.stream().anyMatch(vehicle -> !vehicle.getCustomerList().isEmpty());
+        HardSoftLongScore startScore = warmStart ? solutionManager.update(problem) : null;
+
+        Solver<VehicleRoutingSolution> solver = solverBuilder.apply(matrix.isSparse() ? neighbourCount : null);
+        VehicleRoutingSolution solved;
+        try (AdaptiveTermination adaptiveTermination =
+                     terminationManager.start(policy, customers.size(), hardLimitAt, solver::terminateEarly)) {
+            // The solver only reports improvements; a warm start must arm the time budget itself
+            if (startScore != null) {
+                adaptiveTermination.bestScoreChanged(startScore, System.currentTimeMillis());
+            }
+            solver.addEventListener(event ->
+                    adaptiveTermination.bestScoreChanged(event.getNewBestSolution().getScore(), System.currentTimeMillis()));
+            solved = solver.solve(problem);
+            if (adaptiveTermination.isHardLimitReached()) {
+                cutShort.set(true);
+            }
+        }
+
+        // The best solution is a clone; copy its routes back onto the shared vehicles
+        Map<Long, Vehicle> byId = new HashMap<>();
+        vehicles.forEach(vehicle -> byId.put(vehicle.getId(), vehicle));
+        for (Vehicle solvedVehicle : solved.getVehicleList()) {
+            byId.get(solvedVehicle.getId()).setCustomerList(new ArrayList<>(solvedVehicle.getCustomerList()));
+            routeLegs.put(solvedVehicle.getId(), solvedVehicle.getLegDistances(matrix));
+            routeDurations.put(solvedVehicle.getId(), solvedVehicle.getLegDurations(matrix));
+        }
+    }
+
+    /**
+     * Pairs of neighbouring sectors, grouped into waves in which no sector appears twice, so the
+     * pairs of a wave can be solved in parallel.
+     */
+    static List<List<int[]>> repairWaves(int sectorCount) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i + 1 < sectorCount; i++) {
+            pairs.add(new int[]{i, i + 1});
+        }
+        if (sectorCount > 2) {
+            pairs.add(new int[]{sectorCount - 1, 0});
+        }
+
+        List<List<int[]>> waves = new ArrayList<>();
+        List<Set<Integer>> used = new ArrayList<>();
+        for (int[] pair : pairs) {
+            int wave = 0;
+            while (wave < waves.size() && (used.get(wave).contains(pair[0]) || used.get(wave).contains(pair[1]))) {
+                wave++;
+            }
+            if (wave == waves.size()) {
+                waves.add(new ArrayList<>());
+                used.add(new HashSet<>());
+            }
+            waves.get(wave).add(pair);
+            used.get(wave).add(pair[0]);
+            used.get(wave).add(pair[1]);
+        }
+        return waves;
+    }
+
+    private static HardSoftLongScore score(List<Vehicle> vehicles, Map<Long, long[]> routeLegs,
+                                           Map<Long, long[]> routeDurations) {
+        long hard = 0;
+        long soft = 0;
+        for (Vehicle vehicle : vehicles) {
+            List<Customer> customers = vehicle.getCustomerList();
+            if (customers.isEmpty()) {
+                continue;
+            }
+            hard -= Math.max(0, vehicle.getTotalDemand() - vehicle.getCapacity());
+            soft -= VEHICLE_USAGE_PENALTY + Arrays.stream(routeLegs.get(vehicle.getId())).sum();
+            long[] arrivals = vehicle.getArrivalTimes(routeDurations.get(vehicle.getId()));
+            for (int i = 0; i < customers.size(); i++) {
+                hard -= customers.get(i).lateness(arrivals[i]);
+                soft -= customers.get(i).waitingTime(arrivals[i]);
+            }
+        }
+        return HardSoftLongScore.of(hard, soft);
+    }
+
+    /**
+     * @param timeBudgetMillis At least 1 ms is kept, since 0 would disable the budget
+     */
+    private static TerminationPolicyDto withTimeBudget(TerminationPolicyDto policy, long timeBudgetMillis) {
+        TerminationPolicyDto requested = policy != null ? policy : new TerminationPolicyDto();
+        return new TerminationPolicyDto(Math.max(1, timeBudgetMillis), requested.getUnimprovedMillis(),
+                requested.getPlateauWindowMillis(), requested.getPlateauMinImprovement(), requested.getDeadline());
+    }
+
+    private static long millisUntil(long epochMillis) {
+        return epochMillis - System.currentTimeMillis();
+    }
+
+    private static void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving partitions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Partition solve failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.adcaisse.delivery_route_optimizer.service.impl;
+
+import com.adcaisse.delivery_route_optimizer.dto.RouteChangesDto;
+import com.adcaisse.delivery_route_optimizer.dto.SolutionUpdateDto;
+import com.adcaisse.delivery_route_optimizer.dto.SolveJobDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRouteDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
+import com.adcaisse.delivery_route_optimizer.exception.JobNotFoundException;
+import com.adcaisse.delivery_route_optimizer.exception.JobStateException;
+import com.adcaisse.delivery_route_optimizer.exception.SolverQueueFullException;
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.SolveJobStatus;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.service.SolveJobListener;
+import com.adcaisse.delivery_route_optimizer.service.SolveJobService;
+import com.adcaisse.delivery_route_optimizer.service.VehicleRoutingService;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTermination;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTerminationManager;
+import com.adcaisse.delivery_route_optimizer.solver.PlanChange;
+import jakarta.annotation.PreDestroy;
+import org.optaplanner.core.api.solver.SolverManager;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.SolverManagerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solve jobs on top of OptaPlanner's SolverManager.
+ *
+ * The SolverManager runs at most parallel-solver-count jobs at once and queues the rest without
+ * limit, so admission is bounded here: once solver threads plus queue-capacity jobs are pending,
+ * new submissions are rejected until one finishes. Finished jobs stay readable for retention-minutes.
+ * Jobs already solve in parallel with each other, so they get their own move-thread-count, NONE by
+ * default, rather than the one of /optimize.
+ *
+ * Subscribers get best-solution improvements on one event thread. Each subscription coalesces
+ * improvements that arrive within min-interval-ms of the last update it sent and diffs routes
+ * against what it already sent, so a slow stream of small updates replaces a flood of full solutions.
+ *
+ * Stops and vehicles can be added or removed while a job solves: the change goes to the solver as a
+ * ProblemChange, and the job keeps its own copy of the problem so that consecutive changes build on
+ * each other's IDs and matrix indices before the solver has taken them.
+ */
+@Service
+public class SolveJobServiceImpl implements SolveJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolveJobServiceImpl.class);
+
+    private final VehicleRoutingService vehicleRoutingService;
+    private final AdaptiveTerminationManager terminationManager;
+    private final SolverManager<VehicleRoutingSolution, String> solverManager;
+    private final int maxPendingJobs;
+    private final Duration retention;
+    private final long eventIntervalMillis;
+    private final ScheduledExecutorService eventExecutor;
+    private final Map<String, SolveJob> jobs = new ConcurrentHashMap<>();
+    private int pendingJobs;
+
+    public SolveJobServiceImpl(VehicleRoutingService vehicleRoutingService,
+                               AdaptiveTerminationManager terminationManager,
+                               @Value("${solver.jobs.move-thread-count:NONE}") String moveThreadCount,
+                               @Value("${solver.jobs.parallel-solver-count:AUTO}") String parallelSolverCount,
+                               @Value("${solver.jobs.queue-capacity:20}") int queueCapacity,
+                               @Value("${solver.jobs.retention-minutes:60}") long retentionMinutes,
+                               @Value("${solver.events.min-interval-ms:250}") long eventIntervalMillis) {
+        this.vehicleRoutingService = vehicleRoutingService;
+        this.terminationManager = terminationManager;
+        SolverConfig solverConfig = SolverConfig.createFromXmlResource("solverConfig.xml")
+                .withMoveThreadCount(moveThreadCount);
+        SolverManagerConfig managerConfig = new SolverManagerConfig()
+                .withParallelSolverCount(parallelSolverCount);
+        int solverThreads = managerConfig.resolveParallelSolverCount();
+        this.solverManager = SolverManager.create(solverConfig, managerConfig);
+        this.maxPendingJobs = solverThreads + queueCapacity;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.eventIntervalMillis = eventIntervalMillis;
+        this.eventExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "solve-job-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Solve jobs: {} solver threads, {} move threads each, queue capacity {}", solverThreads,
+                moveThreadCount, queueCapacity);
+    }
+
+    @PreDestroy
+    public void close() {
+        solverManager.close();
+        eventExecutor.shutdownNow();
+    }
+
+    @Override
+    public SolveJobDto submit(VehicleRoutingRequest request) {
+        if (request.getCustomerLocations().size() != request.getCustomerDemands().size()) {
+            throw new IllegalArgumentException("Customer locations and demands lists must have the same size");
+        }
+        if (request.getPartitionSize() != null) {
+            throw new IllegalArgumentException("partitionSize is only supported by /optimize");
+        }
+        terminationManager.validate(request.getTermination());
+        evictExpiredJobs();
+
+        SolveJob job = new SolveJob(UUID.randomUUID().toString(), request.getTermination(), request.getNeighbourCount());
+        synchronized (this) {
+            if (pendingJobs >= maxPendingJobs) {
+                throw new SolverQueueFullException("All solver threads are busy and " + pendingJobs
+                        + " jobs are pending; retry later");
+            }
+            pendingJobs++;
+        }
+        jobs.put(job.id, job);
+
+        try {
+            solverManager.solveAndListen(job.id,
+                    jobId -> {
+                        // Terminated while queued: leave without fetching a matrix, which frees the slot
+                        if (job.terminateRequested) {
+                            finish(job, SolveJobStatus.TERMINATED, null);
+                            throw new IllegalStateException("Job " + jobId + " was terminated before it started");
+                        }
+                        job.status.compareAndSet(SolveJobStatus.QUEUED, SolveJobStatus.SOLVING);
+                        VehicleRoutingSolution problem = vehicleRoutingService.createProblem(request.getDepot(),
+                                request.getCustomerLocations(), request.getVehicleCapacities(), request.getCustomerDemands(),
+                                request.getCustomerTimeWindows(), request.getNeighbourCount());
+                        // The solver is not running yet while the matrix is fetched, so it would miss the request
+                        if (job.terminateRequested) {
+                            finish(job, SolveJobStatus.TERMINATED, null);
+                            throw new IllegalStateException("Job " + jobId + " was terminated before solving");
+                        }
+                        job.plan = problem.copy();
+                        // Stopping on the request's policy completes the job; only terminateEarly() terminates it
+                        job.termination = terminationManager.start(request.getTermination(),
+                                request.getCustomerLocations().size(), () -> solverManager.terminateEarly(jobId));
+                        return problem;
+                    },
+                    solution -> publish(job, solution),
+                    solution -> {
+                        publish(job, solution);
+                        finish(job, job.terminateRequested ? SolveJobStatus.TERMINATED : SolveJobStatus.COMPLETED, null);
+                    },
+                    (jobId, error) -> finish(job, SolveJobStatus.FAILED, error));
+        } catch (RuntimeException e) {
+            finish(job, SolveJobStatus.FAILED, e);
+            throw e;
+        }
+
+        logger.info("📥 Solve job {} queued: {} customers, {} vehicles", job.id,
+                request.getCustomerLocations().size(), request.getVehicleCapacities().size());
+        return toDto(job);
+    }
+
+    @Override
+    public SolveJobDto getJob(String jobId) {
+        return toDto(findJob(jobId));
+    }
+
+    @Override
+    public VehicleRoutingSolutionDto getBestSolution(String jobId) {
+        VehicleRoutingSolution solution = findJob(jobId).bestSolution;
+        return solution == null ? null : vehicleRoutingService.getSolutionDto(solution);
+    }
+
+    @Override
+    public SolveJobDto terminateEarly(String jobId) {
+        SolveJob job = findJob(jobId);
+        job.terminateRequested = true;
+        // Cancelling a queued job in the SolverManager would skip every callback, and with them finish()
+        // and the admission slot; its problem supplier sees the request instead once the job's turn comes
+        if (job.status.get() != SolveJobStatus.QUEUED) {
+            solverManager.terminateEarly(jobId);
+        }
+        return toDto(job);
+    }
+
+    @Override
+    public SolveJobDto applyChanges(String jobId, RouteChangesDto changes) {
+        SolveJob job = findJob(jobId);
+        synchronized (job) {
+            VehicleRoutingSolution plan = job.plan;
+            if (job.status.get() != SolveJobStatus.SOLVING || plan == null) {
+                throw new JobStateException("Solve job " + jobId + " is not solving ("
+                        + job.status.get().name().toLowerCase() + ")");
+            }
+            PlanChange change = vehicleRoutingService.createPlanChange(plan, changes);
+            change.applyTo(plan);
+            int customerCount = plan.getCustomerList().size();
+            solverManager.addProblemChange(jobId, change).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    logger.warn("Change to solve job {} was not applied: {}", jobId, error.getMessage());
+                } else {
+                    restartTermination(job, customerCount);
+                }
+            });
+        }
+        logger.info("✏️ Change queued for solve job {}", jobId);
+        return toDto(job);
+    }
+
+    /**
+     * Scores of the changed problem do not compare with the old ones, so the job's policy starts over
+     * from the first solution that contains the change.
+     */
+    private void restartTermination(SolveJob job, int customerCount) {
+        AdaptiveTermination restarted = terminationManager.start(job.terminationPolicy, customerCount,
+                () -> solverManager.terminateEarly(job.id));
+        AdaptiveTermination previous = job.termination;
+        job.termination = restarted;
+        if (previous != null) {
+            previous.close();
+        }
+        // finish() may have closed the previous termination just before the swap
+        if (job.finishedAt != null) {
+            restarted.close();
+        }
+    }
+
+    @Override
+    public VehicleRoutingSolution replan(String jobId, RouteChangesDto changes, TerminationPolicyDto termination) {
+        SolveJob job = findJob(jobId);
+        VehicleRoutingSolution best = job.bestSolution;
+        if (best == null) {
+            throw new JobStateException("Solve job " + jobId + " has no solution yet");
+        }
+        return vehicleRoutingService.replan(best, changes, termination, job.neighbourCount);
+    }
+
+    @Override
+    public Runnable subscribe(String jobId, SolveJobListener listener) {
+        SolveJob job = findJob(jobId);
+        Subscription subscription = new Subscription(job, listener);
+        job.subscriptions.add(subscription);
+        VehicleRoutingSolution best = job.bestSolution;
+        if (best != null) {
+            subscription.offer(best);
+        }
+        if (job.finishedAt != null) {
+            subscription.finish();
+        }
+        return subscription::close;
+    }
+
+    private void publish(SolveJob job, VehicleRoutingSolution solution) {
+        job.bestSolution = solution;
+        AdaptiveTermination termination = job.termination;
+        if (termination != null) {
+            termination.bestScoreChanged(solution.getScore(), System.currentTimeMillis());
+        }
+        for (Subscription subscription : job.subscriptions) {
+            subscription.offer(solution);
+        }
+    }
+
+    private SolveJob findJob(String jobId) {
+        SolveJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new JobNotFoundException(jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Moves the job to a final status exactly once and frees its admission slot. Only called once the
+     * SolverManager is done with the job: from its callbacks, or when it rejected the job.
+     *
+     * The status is published last, so whoever sees it final also sees the finish time, the error
+     * and a free slot.
+     */
+    private void finish(SolveJob job, SolveJobStatus status, Throwable error) {
+        if (!job.finished.compareAndSet(false, true)) {
+            return;
+        }
+        job.finishedAt = LocalDateTime.now();
+        job.errorMessage = error == null ? null : error.getMessage();
+        if (job.termination != null) {
+            job.termination.close();
+        }
+        synchronized (this) {
+            pendingJobs--;
+        }
+        job.status.set(status);
+        for (Subscription subscription : job.subscriptions) {
+            subscription.finish();
+        }
+        if (error != null) {
+            logger.error("❌ Solve job {} failed: {}", job.id, error.getMessage(), error);
+        } else {
+            logger.info("✅ Solve job {} {}", job.id, status.name().toLowerCase());
+        }
+    }
+
+    private void evictExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private static SolveJobDto toDto(SolveJob job) {
+        VehicleRoutingSolution best = job.bestSolution;
+        return new SolveJobDto(job.id, job.status.get(), best == null ? null : best.getScore(),
+                job.submittedAt, job.finishedAt, job.errorMessage);
+    }
+
+    private static class SolveJob {
+        private final String id;
+        private final TerminationPolicyDto terminationPolicy;
+        private final Integer neighbourCount;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final AtomicReference<SolveJobStatus> status = new AtomicReference<>(SolveJobStatus.QUEUED);
+        // Claimed by the one finish() call that gets to end the job
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile VehicleRoutingSolution bestSolution;
+        private volatile boolean terminateRequested;
+        private volatile AdaptiveTermination termination;
+        // The problem as the solver will have it once every change sent so far is applied
+        private volatile VehicleRoutingSolution plan;
+        private volatile LocalDateTime finishedAt;
+        private volatile String errorMessage;
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+        private SolveJob(String id, TerminationPolicyDto terminationPolicy, Integer neighbourCount) {
+            this.id = id;
+            this.terminationPolicy = terminationPolicy;
+            this.neighbourCount = neighbourCount;
+        }
+    }
+
+    /**
+     * One listener of one job. offer() may be called from any thread; everything that touches the
+     * listener or the sent routes runs on the event thread.
+     */
+    private class Subscription {
+        private final SolveJob job;
+        private final SolveJobListener listener;
+        // Customer IDs per vehicle as last sent, only non-empty routes (event thread only)
+        private final Map<Long, List<Long>> sentRoutes = new HashMap<>();
+        private long sequence;
+        private VehicleRoutingSolution pending;
+        private boolean flushScheduled;
+        private long lastSentMillis;
+        private volatile boolean closed;
+
+        private Subscription(SolveJob job, SolveJobListener listener) {
+            this.job = job;
+            this.listener = listener;
+        }
+
+        private synchronized void offer(VehicleRoutingSolution solution) {
+            pending = solution;
+            if (!flushScheduled) {
+                flushScheduled = true;
+                eventExecutor.schedule(() -> flush(false), untilNextSend(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private long untilNextSend() {
+            return Math.max(0, lastSentMillis + eventIntervalMillis - System.currentTimeMillis());
+        }
+
+        private void finish() {
+            eventExecutor.execute(() -> {
+                // The final solution goes out at once, regardless of the interval
+                flush(true);
+                if (!closed) {
+                    deliver(() -> listener.onFinished(toDto(job)));
+                    close();
+                }
+            });
+        }
+
+        private void flush(boolean force) {
+            VehicleRoutingSolution solution;
+            synchronized (this) {
+                long delay = untilNextSend();
+                if (!force && delay > 0) {
+                    // Offered while the previous update was still being sent
+                    eventExecutor.schedule(() -> flush(false), delay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                solution = pending;
+                pending = null;
+                flushScheduled = false;
+            }
+            if (solution == null || closed) {
+                return;
+            }
+            SolutionUpdateDto update = diff(solution);
+            deliver(() -> listener.onUpdate(update));
+            synchronized (this) {
+                lastSentMillis = System.currentTimeMillis();
+            }
+        }
+
+        private SolutionUpdateDto diff(VehicleRoutingSolution solution) {
+            List<VehicleRouteDto> changedRoutes = new ArrayList<>();
+            List<Long> removedVehicleIds = new ArrayList<>();
+            for (Vehicle vehicle : solution.getVehicleList()) {
+                List<Long> route = vehicle.getCustomerList().stream().map(Customer::getId).toList();
+                if (route.isEmpty()) {
+                    if (sentRoutes.remove(vehicle.getId()) != null) {
+                        removedVehicleIds.add(vehicle.getId());
+                    }
+                } else if (!route.equals(sentRoutes.get(vehicle.getId()))) {
+                    sentRoutes.put(vehicle.getId(), route);
+                    changedRoutes.add(vehicleRoutingService.getRouteDto(solution, vehicle));
+                }
+            }
+            return new SolutionUpdateDto(job.id, ++sequence, solution.getScore(), solution.getTotalDistance(),
+                    solution.isFeasible(), changedRoutes, removedVehicleIds);
+        }
+
+        private void deliver(Runnable delivery) {
+            try {
+                delivery.run();
+            } catch (RuntimeException e) {
+                logger.warn("Dropping listener of solve job {}: {}", job.id, e.getMessage());
+                close();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            job.subscriptions.remove(this);
+        }
+    }
+}
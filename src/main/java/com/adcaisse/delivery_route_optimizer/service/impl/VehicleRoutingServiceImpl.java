@@ -1,7 +1,12 @@
 package com.adcaisse.delivery_route_optimizer.service.impl;
 
 import com.adcaisse.delivery_route_optimizer.dto.CustomerStopDto;
+import com.adcaisse.delivery_route_optimizer.dto.RouteChangesDto;
+import com.adcaisse.delivery_route_optimizer.dto.RouteLegDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.TimeWindowDto;
 import com.adcaisse.delivery_route_optimizer.dto.VehicleRouteDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
 import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
 import com.adcaisse.delivery_route_optimizer.model.Customer;
 import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
@@ -10,15 +15,26 @@ import com.adcaisse.delivery_route_optimizer.model.Vehicle;
 import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
 import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
 import com.adcaisse.delivery_route_optimizer.service.VehicleRoutingService;
-import com.adcaisse.delivery_route_optimizer.solver.VehicleRoutingConstraintProvider;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTermination;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTerminationManager;
+import com.adcaisse.delivery_route_optimizer.solver.NearbySelections;
+import com.adcaisse.delivery_route_optimizer.solver.PlanChange;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.api.solver.SolutionManager;
 import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -31,40 +47,349 @@ public class VehicleRoutingServiceImpl implements VehicleRoutingService {
     private static final Logger logger = LoggerFactory.getLogger(VehicleRoutingServiceImpl.class);
 
     private final DistanceCalculatorService distanceCalculator;
+    private final AdaptiveTerminationManager terminationManager;
+    private final long replanBudgetMillis;
     private SolverFactory<VehicleRoutingSolution> solverFactory;
+    private SolutionManager<VehicleRoutingSolution, HardSoftLongScore> solutionManager;
+    private PartitionedRoutingSolver partitionedSolver;
+    private String moveThreadCount;
+    // Solvers for sparse matrices or another move thread count than the default solver's
+    private final Map<SolverKey, SolverFactory<VehicleRoutingSolution>> solverFactories = new ConcurrentHashMap<>();
 
-    public VehicleRoutingServiceImpl(DistanceCalculatorService distanceCalculator) {
+    public VehicleRoutingServiceImpl(DistanceCalculatorService distanceCalculator,
+                                     AdaptiveTerminationManager terminationManager,
+                                     @Value("${solver.move-thread-count:NONE}") String moveThreadCount,
+                                     @Value("${solver.replan.time-budget-millis:300}") long replanBudgetMillis) {
         this.distanceCalculator = distanceCalculator;
-        this.initializeSolver();
+        this.terminationManager = terminationManager;
+        this.replanBudgetMillis = replanBudgetMillis;
+        this.initializeSolver(moveThreadCount);
     }
 
-    private void initializeSolver() {
-        this.solverFactory = SolverFactory.createFromXmlResource("solverConfig.xml");
+    private void initializeSolver(String moveThreadCount) {
+        SolverConfig solverConfig = SolverConfig.createFromXmlResource("solverConfig.xml")
+                .withMoveThreadCount(moveThreadCount);
+        this.solverFactory = SolverFactory.create(solverConfig);
+        this.solutionManager = SolutionManager.create(solverFactory);
+        this.moveThreadCount = moveThreadCount;
+        this.partitionedSolver = new PartitionedRoutingSolver(solverFactory, this::buildSolver,
+                distanceCalculator, terminationManager);
+        logger.info("Solver configured with move thread count {}", moveThreadCount);
+    }
+
+    /**
+     * @param neighbourCount Neighbours per stop in a sparse matrix, or null for a full matrix
+     */
+    private Solver<VehicleRoutingSolution> buildSolver(Integer neighbourCount) {
+        return buildSolver(neighbourCount, moveThreadCount);
+    }
+
+    private Solver<VehicleRoutingSolution> buildSolver(Integer neighbourCount, String moveThreadCount) {
+        if (neighbourCount == null && moveThreadCount.equals(this.moveThreadCount)) {
+            return solverFactory.buildSolver();
+        }
+        return solverFactories.computeIfAbsent(new SolverKey(neighbourCount, moveThreadCount), this::createSolverFactory)
+                .buildSolver();
+    }
+
+    /**
+     * Same config as solverConfig.xml, except for the move thread count and, for a sparse matrix, that
+     * nearby moves only reach a customer's neighbours in the matrix, where distances are real rather
+     * than estimated.
+     */
+    private SolverFactory<VehicleRoutingSolution> createSolverFactory(SolverKey key) {
+        SolverConfig solverConfig = SolverConfig.createFromXmlResource("solverConfig.xml")
+                .withMoveThreadCount(key.moveThreadCount());
+        if (key.neighbourCount() != null) {
+            NearbySelections.limitSize(solverConfig, key.neighbourCount());
+            logger.info("Sparse solver configured for {} neighbours", key.neighbourCount());
+        }
+        return SolverFactory.create(solverConfig);
+    }
+
+    private record SolverKey(Integer neighbourCount, String moveThreadCount) {
+    }
+
+    @Override
+    public VehicleRoutingSolution solveVRP(VehicleRoutingRequest request) {
+        Location depot = request.getDepot();
+        List<Location> customerLocations = request.getCustomerLocations();
+        List<Integer> vehicleCapacities = request.getVehicleCapacities();
+        List<Integer> customerDemands = request.getCustomerDemands();
+        List<TimeWindowDto> customerTimeWindows = request.getCustomerTimeWindows();
+        TerminationPolicyDto termination = request.getTermination();
+        Integer partitionSize = request.getPartitionSize();
+        Integer neighbourCount = request.getNeighbourCount();
+        terminationManager.validate(termination);
+        validateNeighbourCount(neighbourCount);
+        if (partitionSize != null && partitionSize < 1) {
+            throw new IllegalArgumentException("partitionSize must be at least 1");
+        }
+        if (partitionSize != null && partitionSize < customerLocations.size()) {
+            VehicleRoutingSolution problem = buildProblem(depot, customerLocations, vehicleCapacities, customerDemands,
+                    customerTimeWindows);
+            problem.setDistanceCalculator(distanceCalculator);
+            VehicleRoutingSolution solution = partitionedSolver.solve(problem, depot, partitionSize, neighbourCount, termination);
+            logger.info("✅ Partitioned optimization complete! Score: {}", solution.getScore());
+            return solution;
+        }
+        VehicleRoutingSolution problem = createProblem(depot, customerLocations, vehicleCapacities, customerDemands,
+                customerTimeWindows, neighbourCount);
+
+        // Solve the problem
+        logger.info("Starting OptaPlanner solver...");
+        Solver<VehicleRoutingSolution> solver = buildSolver(problem.getDistanceMatrix().isSparse() ? neighbourCount : null);
+        VehicleRoutingSolution solution = solve(solver, problem, termination);
+        
+        logger.info("✅ Optimization complete! Score: {}", solution.getScore());
+        return solution;
+    }
+
+    @Override
+    public VehicleRoutingSolution solveProblem(VehicleRoutingSolution problem, TerminationPolicyDto termination,
+                                               Integer neighbourCount) {
+        terminationManager.validate(termination);
+        Solver<VehicleRoutingSolution> solver = buildSolver(problem.getDistanceMatrix().isSparse() ? neighbourCount : null,
+                SolverConfig.MOVE_THREAD_COUNT_NONE);
+        return solve(solver, problem, termination);
+    }
+
+    private VehicleRoutingSolution solve(Solver<VehicleRoutingSolution> solver, VehicleRoutingSolution problem,
+                                         TerminationPolicyDto termination) {
+        try (AdaptiveTermination adaptiveTermination =
+                     terminationManager.start(termination, problem.getCustomerList().size(), solver::terminateEarly)) {
+            solver.addEventListener(event ->
+                    adaptiveTermination.bestScoreChanged(event.getNewBestSolution().getScore(), System.currentTimeMillis()));
+            VehicleRoutingSolution solution = solver.solve(problem);
+            solution.setCutShort(adaptiveTermination.isHardLimitReached());
+            return solution;
+        }
     }
 
     @Override
-    public VehicleRoutingSolution solveVRP(Location depot, 
-                                          List<Location> customerLocations,
-                                          List<Integer> vehicleCapacities,
-                                          List<Integer> customerDemands) {
+    public VehicleRoutingSolution createProblem(Location depot,
+                                               List<Location> customerLocations,
+                                               List<Integer> vehicleCapacities,
+                                               List<Integer> customerDemands,
+                                               List<TimeWindowDto> customerTimeWindows,
+                                               Integer neighbourCount) {
+        validateNeighbourCount(neighbourCount);
+        VehicleRoutingSolution problem = buildProblem(depot, customerLocations, vehicleCapacities, customerDemands,
+                customerTimeWindows);
+
+        // Compute distance matrix using GraphHopper (pre-computation for O(1) lookups).
+        // The order here defines the matrix indices assigned by buildProblem: depot first, then customers.
+        List<Location> allLocations = new ArrayList<>();
+        allLocations.add(depot);
+        allLocations.addAll(customerLocations);
         
+        DistanceMatrix distanceMatrix = neighbourCount != null
+                ? distanceCalculator.computeSparseDistanceMatrix(allLocations, neighbourCount)
+                : distanceCalculator.computeDistanceMatrix(allLocations);
+
+        problem.setDistanceCalculator(distanceCalculator);
+        problem.setDistanceMatrix(distanceMatrix);
+        return problem;
+    }
+
+    @Override
+    public VehicleRoutingSolution createPlan(Location depot, List<VehicleRouteDto> routes) {
+        if (depot == null || routes == null || routes.isEmpty()) {
+            throw new IllegalArgumentException("A plan needs a depot and at least one route");
+        }
+        List<Location> allLocations = new ArrayList<>();
+        allLocations.add(depot);
+        List<Customer> customers = new ArrayList<>();
+        List<Vehicle> vehicles = new ArrayList<>();
+        Set<Long> customerIds = new HashSet<>();
+        Set<Long> vehicleIds = new HashSet<>();
+        for (VehicleRouteDto route : routes) {
+            if (!vehicleIds.add(route.getVehicleId())) {
+                throw new IllegalArgumentException("Vehicle " + route.getVehicleId() + " appears in more than one route");
+            }
+            Vehicle vehicle = new Vehicle(route.getVehicleId(), route.getVehicleName(), route.getCapacity(), depot);
+            for (CustomerStopDto stop : route.getStops()) {
+                if (!customerIds.add(stop.getCustomerId())) {
+                    throw new IllegalArgumentException("Customer " + stop.getCustomerId() + " appears more than once");
+                }
+                Customer customer = new Customer(stop.getCustomerId(), stop.getCustomerName(), stop.getLocation(),
+                        stop.getDemand());
+                applyTimeWindow(customer, stop.getTimeWindow());
+                customer.setMatrixIndex(allLocations.size());
+                allLocations.add(stop.getLocation());
+                customers.add(customer);
+                vehicle.getCustomerList().add(customer);
+            }
+            vehicles.add(vehicle);
+        }
+
+        VehicleRoutingSolution plan = new VehicleRoutingSolution("VRP Plan", customers, vehicles);
+        plan.setDistanceCalculator(distanceCalculator);
+        plan.setDistanceMatrix(distanceCalculator.computeDistanceMatrix(allLocations));
+        return plan;
+    }
+
+    @Override
+    public PlanChange createPlanChange(VehicleRoutingSolution plan, RouteChangesDto changes) {
+        if (changes == null) {
+            throw new IllegalArgumentException("changes are required");
+        }
+        List<Location> addedLocations = orEmpty(changes.getAddedLocations());
+        List<Integer> addedDemands = orEmpty(changes.getAddedDemands());
+        if (addedLocations.size() != addedDemands.size()) {
+            throw new IllegalArgumentException("Added locations and demands lists must have the same size");
+        }
+        List<TimeWindowDto> addedTimeWindows = changes.getAddedTimeWindows();
+        if (addedTimeWindows != null && addedTimeWindows.size() != addedLocations.size()) {
+            throw new IllegalArgumentException("Added locations and time windows lists must have the same size");
+        }
+        Set<Long> customerIds = new HashSet<>();
+        plan.getCustomerList().forEach(customer -> customerIds.add(customer.getId()));
+        Set<Long> vehicleIds = new HashSet<>();
+        plan.getVehicleList().forEach(vehicle -> vehicleIds.add(vehicle.getId()));
+        Set<Long> removedCustomerIds = new HashSet<>(orEmpty(changes.getRemovedCustomerIds()));
+        Set<Long> removedVehicleIds = new HashSet<>(orEmpty(changes.getRemovedVehicleIds()));
+        for (Long id : removedCustomerIds) {
+            if (!customerIds.contains(id)) {
+                throw new IllegalArgumentException("Unknown customer " + id);
+            }
+        }
+        for (Long id : removedVehicleIds) {
+            if (!vehicleIds.contains(id)) {
+                throw new IllegalArgumentException("Unknown vehicle " + id);
+            }
+        }
+        List<Integer> addedCapacities = orEmpty(changes.getAddedVehicleCapacities());
+        if (vehicleIds.size() - removedVehicleIds.size() + addedCapacities.size() < 1) {
+            throw new IllegalArgumentException("At least one vehicle must remain");
+        }
+
+        // New stops go after every location the plan's matrix already has
+        DistanceMatrix matrix = addedLocations.isEmpty()
+                ? plan.getDistanceMatrix()
+                : distanceCalculator.extendDistanceMatrix(plan.getDistanceMatrix(), addedLocations);
+        long nextCustomerId = customerIds.stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        List<Customer> addedCustomers = new ArrayList<>();
+        for (int i = 0; i < addedLocations.size(); i++) {
+            long id = nextCustomerId + i;
+            Customer customer = new Customer(id, "Customer " + id, addedLocations.get(i), addedDemands.get(i));
+            if (addedTimeWindows != null) {
+                applyTimeWindow(customer, addedTimeWindows.get(i));
+            }
+            customer.setMatrixIndex(plan.getDistanceMatrix().size() + i);
+            addedCustomers.add(customer);
+        }
+        Vehicle template = plan.getVehicleList().get(0);
+        long nextVehicleId = vehicleIds.stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        List<Vehicle> addedVehicles = new ArrayList<>();
+        for (int i = 0; i < addedCapacities.size(); i++) {
+            long id = nextVehicleId + i;
+            Vehicle vehicle = new Vehicle(id, "Vehicle " + id, addedCapacities.get(i), template.getDepot());
+            vehicle.setDepotIndex(template.getDepotIndex());
+            addedVehicles.add(vehicle);
+        }
+        return new PlanChange(addedCustomers, removedCustomerIds, addedVehicles, removedVehicleIds, matrix);
+    }
+
+    @Override
+    public VehicleRoutingSolution replan(VehicleRoutingSolution plan, RouteChangesDto changes,
+                                         TerminationPolicyDto termination, Integer neighbourCount) {
+        terminationManager.validate(termination);
+        validateNeighbourCount(neighbourCount);
+        long startTime = System.currentTimeMillis();
+        VehicleRoutingSolution problem = plan.copy();
+        createPlanChange(problem, changes).applyTo(problem);
+
+        TerminationPolicyDto requested = termination != null ? termination : new TerminationPolicyDto();
+        TerminationPolicyDto policy = new TerminationPolicyDto(
+                requested.getTimeBudgetMillis() != null ? requested.getTimeBudgetMillis() : replanBudgetMillis,
+                requested.getUnimprovedMillis(), requested.getPlateauWindowMillis(),
+                requested.getPlateauMinImprovement(), requested.getDeadline());
+        // Unchanged routes are already good: the solver only reports improvements on them, so the
+        // time budget is armed with the starting score
+        HardSoftLongScore startScore = solutionManager.update(problem);
+        Solver<VehicleRoutingSolution> solver = buildSolver(problem.getDistanceMatrix().isSparse() ? neighbourCount : null);
+        VehicleRoutingSolution solution;
+        try (AdaptiveTermination adaptiveTermination =
+                     terminationManager.start(policy, problem.getCustomerList().size(), solver::terminateEarly)) {
+            adaptiveTermination.bestScoreChanged(startScore, System.currentTimeMillis());
+            solver.addEventListener(event ->
+                    adaptiveTermination.bestScoreChanged(event.getNewBestSolution().getScore(), System.currentTimeMillis()));
+            solution = solver.solve(problem);
+            solution.setCutShort(adaptiveTermination.isHardLimitReached());
+        }
+        logger.info("🔁 Replanned {} customers in {} ms. Score: {}", problem.getCustomerList().size(),
+                System.currentTimeMillis() - startTime, solution.getScore());
+        return solution;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
+    private static void applyTimeWindow(Customer customer, TimeWindowDto timeWindow) {
+        if (timeWindow == null) {
+            return;
+        }
+        if (timeWindow.getReadyTime() == null || timeWindow.getDueTime() == null) {
+            throw new IllegalArgumentException("A time window needs both readyTime and dueTime");
+        }
+        if (timeWindow.getReadyTime() < 0 || timeWindow.getReadyTime() > timeWindow.getDueTime()) {
+            throw new IllegalArgumentException("Time window of customer " + customer.getId()
+                    + " must have 0 <= readyTime <= dueTime");
+        }
+        if (timeWindow.getServiceTime() != null) {
+            if (timeWindow.getServiceTime() < 0) {
+                throw new IllegalArgumentException("serviceTime must not be negative");
+            }
+            customer.setServiceTime(timeWindow.getServiceTime());
+        }
+        customer.setReadyTime(timeWindow.getReadyTime());
+        customer.setDueTime(timeWindow.getDueTime());
+    }
+
+    private static TimeWindowDto timeWindowOf(Customer customer) {
+        return customer.hasTimeWindow()
+                ? new TimeWindowDto(customer.getReadyTime(), customer.getDueTime(), customer.getServiceTime())
+                : null;
+    }
+
+    private static void validateNeighbourCount(Integer neighbourCount) {
+        if (neighbourCount != null && neighbourCount < 1) {
+            throw new IllegalArgumentException("neighbourCount must be at least 1");
+        }
+    }
+
+    private VehicleRoutingSolution buildProblem(Location depot,
+                                                List<Location> customerLocations,
+                                                List<Integer> vehicleCapacities,
+                                                List<Integer> customerDemands,
+                                                List<TimeWindowDto> customerTimeWindows) {
         // Validate input
         if (customerLocations.size() != customerDemands.size()) {
             throw new IllegalArgumentException("Customer locations and demands lists must have the same size");
         }
+        if (customerTimeWindows != null && customerTimeWindows.size() != customerLocations.size()) {
+            throw new IllegalArgumentException("Customer locations and time windows lists must have the same size");
+        }
 
         logger.info("Starting VRP optimization for {} customers with {} vehicles", 
                    customerLocations.size(), vehicleCapacities.size());
 
-        // Create customers
+        // Create customers; matrix index 0 is the depot, customer i is at i + 1
         List<Customer> customers = new ArrayList<>();
         for (int i = 0; i < customerLocations.size(); i++) {
-            customers.add(new Customer(
+            Customer customer = new Customer(
                     (long) i + 1,
                     "Customer " + (i + 1),
                     customerLocations.get(i),
                     customerDemands.get(i)
-            ));
+            );
+            if (customerTimeWindows != null) {
+                applyTimeWindow(customer, customerTimeWindows.get(i));
+            }
+            customer.setMatrixIndex(i + 1);
+            customers.add(customer);
         }
 
         // Create vehicles
@@ -78,38 +403,11 @@ public class VehicleRoutingServiceImpl implements VehicleRoutingService {
             ));
         }
 
-        // Compute distance matrix using GraphHopper (pre-computation for O(1) lookups)
-        List<Location> allLocations = new ArrayList<>();
-        allLocations.add(depot);
-        allLocations.addAll(customerLocations);
-        
-        DistanceMatrix distanceMatrix = distanceCalculator.computeDistanceMatrix(allLocations);
-
-        // Create solution with distance matrix
-        VehicleRoutingSolution problem = new VehicleRoutingSolution(
+        return new VehicleRoutingSolution(
                 "VRP Problem",
                 customers,
                 vehicles
         );
-        problem.setDistanceCalculator(distanceCalculator);
-        problem.setDistanceMatrix(distanceMatrix);
-
-        // Set the distance matrix in the constraint provider's holder (for constraint evaluation)
-        VehicleRoutingConstraintProvider.DistanceMatrixHolder.setCurrentMatrix(distanceMatrix);
-
-        try {
-            // Solve the problem
-            logger.info("Starting OptaPlanner solver...");
-            Solver<VehicleRoutingSolution> solver = solverFactory.buildSolver();
-            VehicleRoutingSolution solution = solver.solve(problem);
-            
-            logger.info("✅ Optimization complete! Score: {}", solution.getScore());
-            return solution;
-            
-        } finally {
-            // Clean up the thread-local holder
-            VehicleRoutingConstraintProvider.DistanceMatrixHolder.clear();
-        }
     }
 
     @Override
@@ -137,44 +435,76 @@ public class VehicleRoutingServiceImpl implements VehicleRoutingService {
         // Vehicle capacities - increased to handle higher total demand
         List<Integer> vehicleCapacities = List.of(500); // 2 vehicles with higher capacity
         
-        return solveVRP(depot, customerLocations, vehicleCapacities, customerDemands);
+        VehicleRoutingRequest request = new VehicleRoutingRequest();
+        request.setDepot(depot);
+        request.setCustomerLocations(customerLocations);
+        request.setVehicleCapacities(vehicleCapacities);
+        request.setCustomerDemands(customerDemands);
+        return solveVRP(request);
     }
 
     @Override
     public VehicleRoutingSolutionDto getSolutionDto(VehicleRoutingSolution solution) {
         VehicleRoutingSolutionDto dto = new VehicleRoutingSolutionDto();
         dto.setScore(solution.getScore());
-        dto.setTotalDistance(solution.getTotalDistance());
         dto.setTotalCustomers(solution.getTotalCustomers());
         dto.setFeasible(solution.isFeasible());
+        dto.setCutShort(solution.isCutShort());
+        if (solution.getDistanceMatrix() != null) {
+            dto.setMatrixStats(solution.getDistanceMatrix().getFetchStats());
+        }
         
         List<VehicleRouteDto> routes = solution.getVehicleList().stream()
                 .filter(vehicle -> !vehicle.getCustomerList().isEmpty())
-                .map(this::createVehicleRouteDto)
+                .map(vehicle -> getRouteDto(solution, vehicle))
                 .collect(Collectors.toList());
         
         dto.setRoutes(routes);
+        dto.setTotalDistance(routes.stream().mapToLong(VehicleRouteDto::getDistance).sum());
         return dto;
     }
 
-    private VehicleRouteDto createVehicleRouteDto(Vehicle vehicle) {
+    @Override
+    public VehicleRouteDto getRouteDto(VehicleRoutingSolution solution, Vehicle vehicle) {
         VehicleRouteDto routeDto = new VehicleRouteDto();
         routeDto.setVehicleId(vehicle.getId());
         routeDto.setVehicleName(vehicle.getName());
         routeDto.setCapacity(vehicle.getCapacity());
         routeDto.setTotalDemand(vehicle.getTotalDemand());
-        routeDto.setDistance(vehicle.getTotalDistance(distanceCalculator));
         
-        List<CustomerStopDto> stops = vehicle.getCustomerList().stream()
-                .map(customer -> new CustomerStopDto(
-                        customer.getId(),
-                        customer.getName(),
-                        customer.getLocation(),
-                        customer.getDemand()
-                ))
-                .collect(Collectors.toList());
+        // Arrivals at every stop, then back at the depot
+        long[] legDurations = solution.getLegDurations(vehicle);
+        long[] arrivals = vehicle.getArrivalTimes(legDurations);
+        List<Customer> customers = vehicle.getCustomerList();
+        List<CustomerStopDto> stops = new ArrayList<>(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            stops.add(new CustomerStopDto(
+                    customer.getId(),
+                    customer.getName(),
+                    customer.getLocation(),
+                    customer.getDemand(),
+                    arrivals[i],
+                    timeWindowOf(customer)
+            ));
+        }
+        
+        // One pass over the route; the legs and the total come from the same distances
+        long[] legDistances = solution.getLegDistances(vehicle);
+        List<RouteLegDto> legs = new ArrayList<>(legDistances.length);
+        long distance = 0;
+        Long previous = null;
+        for (int i = 0; i < legDistances.length; i++) {
+            Long next = i < stops.size() ? stops.get(i).getCustomerId() : null;
+            legs.add(new RouteLegDto(previous, next, legDistances[i], legDurations[i]));
+            distance += legDistances[i];
+            previous = next;
+        }
         
         routeDto.setStops(stops);
+        routeDto.setLegs(legs);
+        routeDto.setDistance(distance);
+        routeDto.setDuration(arrivals.length > 0 ? arrivals[arrivals.length - 1] : 0);
         return routeDto;
     }
 }
@@ -0,0 +1,145 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Termination state of one solve, fed with best-score changes and polled by
+ * {@link AdaptiveTerminationManager}.
+ *
+ * The hard limit (global cap or client deadline) always applies. The time budget, unimproved-time
+ * and plateau limits only apply once every customer is assigned, so construction is never cut short
+ * into an incomplete plan. A limit of 0 is disabled.
+ */
+public class AdaptiveTermination implements AutoCloseable {
+
+    private final long startMillis;
+    private final long timeBudgetMillis;
+    private final long hardLimitMillis;
+    private final long unimprovedMillis;
+    private final long plateauWindowMillis;
+    private final long plateauMinImprovement;
+
+    private HardSoftLongScore bestScore;
+    private long lastImprovementMillis;
+    // Best score history, oldest first, trimmed to what the plateau window still needs
+    private final Deque<TimedScore> history = new ArrayDeque<>();
+    private String reason;
+    private boolean hardLimitReached;
+    private Runnable cancellation = () -> { };
+
+    public AdaptiveTermination(long startMillis, long timeBudgetMillis, long hardLimitMillis,
+                               long unimprovedMillis, long plateauWindowMillis, long plateauMinImprovement) {
+        this.startMillis = startMillis;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.hardLimitMillis = hardLimitMillis;
+        this.unimprovedMillis = unimprovedMillis;
+        this.plateauWindowMillis = plateauWindowMillis;
+        this.plateauMinImprovement = plateauMinImprovement;
+        this.lastImprovementMillis = startMillis;
+    }
+
+    public synchronized void bestScoreChanged(HardSoftLongScore score, long nowMillis) {
+        if (bestScore != null && score.compareTo(bestScore) <= 0) {
+            return;
+        }
+        bestScore = score;
+        lastImprovementMillis = nowMillis;
+        if (plateauWindowMillis > 0) {
+            history.addLast(new TimedScore(nowMillis, score));
+            // Keep the newest entry at or before the window start, drop anything older
+            long windowStart = nowMillis - plateauWindowMillis;
+            while (history.size() > 1) {
+                Iterator<TimedScore> oldest = history.iterator();
+                oldest.next();
+                if (oldest.next().millis > windowStart) {
+                    break;
+                }
+                history.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * @return Why solving should stop now, or null to keep going. Once a reason is returned it sticks.
+     */
+    public synchronized String check(long nowMillis) {
+        if (reason == null) {
+            reason = evaluate(nowMillis);
+        }
+        return reason;
+    }
+
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    /**
+     * @return true if the hard limit stopped solving, so the result may be worse than the other
+     *         limits would have allowed
+     */
+    public synchronized boolean isHardLimitReached() {
+        return hardLimitReached;
+    }
+
+    synchronized void setCancellation(Runnable cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Stops polling. Called when the solve has ended, for whatever reason.
+     */
+    @Override
+    public void close() {
+        Runnable toRun;
+        synchronized (this) {
+            toRun = cancellation;
+        }
+        toRun.run();
+    }
+
+    private String evaluate(long nowMillis) {
+        long elapsed = nowMillis - startMillis;
+        if (elapsed >= hardLimitMillis) {
+            hardLimitReached = true;
+            return "hard time limit of " + hardLimitMillis + " ms reached";
+        }
+        if (bestScore == null || !bestScore.isSolutionInitialized()) {
+            return null;
+        }
+        if (timeBudgetMillis > 0 && elapsed >= timeBudgetMillis) {
+            return "time budget of " + timeBudgetMillis + " ms spent";
+        }
+        if (unimprovedMillis > 0 && nowMillis - lastImprovementMillis >= unimprovedMillis) {
+            return "no improvement for " + unimprovedMillis + " ms";
+        }
+        if (plateauWindowMillis > 0 && elapsed >= plateauWindowMillis && isOnPlateau(nowMillis)) {
+            return "improved less than " + plateauMinImprovement + " over the last " + plateauWindowMillis + " ms";
+        }
+        return null;
+    }
+
+    private boolean isOnPlateau(long nowMillis) {
+        HardSoftLongScore windowStart = null;
+        for (TimedScore entry : history) {
+            if (entry.millis > nowMillis - plateauWindowMillis) {
+                break;
+            }
+            windowStart = entry.score;
+        }
+        if (windowStart == null || !windowStart.isSolutionInitialized()) {
+            // The whole window still belongs to construction or the first improvements
+            return false;
+        }
+        if (bestScore.hardScore() > windowStart.hardScore()) {
+            return false;
+        }
+        return bestScore.softScore() - windowStart.softScore() < plateauMinImprovement;
+    }
+
+    private record TimedScore(long millis, HardSoftLongScore score) {
+    }
+}
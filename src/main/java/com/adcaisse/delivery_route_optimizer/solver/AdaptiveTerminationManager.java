@@ -0,0 +1,163 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves a request's termination policy against the solver.termination.* defaults and polls
+ * the resulting {@link AdaptiveTermination} until it says stop.
+ *
+ * OptaPlanner builds a SolverManager's solvers from one fixed config, so per-request limits cannot
+ * go into solverConfig.xml. Instead the poller asks the solver to terminate early, and keeps asking on
+ * every poll: a request made before solve() has started is reset by the solver and would be lost.
+ */
+@Component
+public class AdaptiveTerminationManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveTerminationManager.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+    // Left before a client deadline to build and send the response
+    private static final long DEADLINE_MARGIN_MILLIS = 100;
+
+    private final long baseMillis;
+    private final long millisPerStop;
+    private final long maxMillis;
+    private final long unimprovedMillis;
+    private final ScheduledExecutorService poller;
+
+    public AdaptiveTerminationManager(@Value("${solver.termination.base-millis:200}") long baseMillis,
+                                      @Value("${solver.termination.millis-per-stop:20}") long millisPerStop,
+                                      @Value("${solver.termination.max-millis:300000}") long maxMillis,
+                                      @Value("${solver.termination.unimproved-millis:2000}") long unimprovedMillis) {
+        this.baseMillis = baseMillis;
+        this.millisPerStop = millisPerStop;
+        this.maxMillis = maxMillis;
+        this.unimprovedMillis = unimprovedMillis;
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "solver-termination");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Rejects policies that can never be met, before any work is queued for them.
+     */
+    public void validate(TerminationPolicyDto policy) {
+        if (policy == null) {
+            return;
+        }
+        requireNonNegative("timeBudgetMillis", policy.getTimeBudgetMillis());
+        requireNonNegative("unimprovedMillis", policy.getUnimprovedMillis());
+        requireNonNegative("plateauWindowMillis", policy.getPlateauWindowMillis());
+        requireNonNegative("plateauMinImprovement", policy.getPlateauMinImprovement());
+        if (policy.getDeadline() != null && millisUntilDeadline(policy) <= 0) {
+            throw new IllegalArgumentException("Deadline " + policy.getDeadline() + " is already (nearly) past");
+        }
+    }
+
+    /**
+     * Time budget used when a request does not set one.
+     */
+    public long defaultTimeBudgetMillis(int stopCount) {
+        return baseMillis + millisPerStop * stopCount;
+    }
+
+    /**
+     * @return true if the policy's deadline leaves no time for another solve
+     */
+    public boolean isPastDeadline(TerminationPolicyDto policy) {
+        return policy != null && policy.getDeadline() != null && millisUntilDeadline(policy) <= 0;
+    }
+
+    /**
+     * @return Epoch millis by which a solve that started at startMillis must have stopped: max-millis
+     *         after its start, or the policy's deadline if that comes first
+     */
+    public long hardLimitAt(TerminationPolicyDto policy, long startMillis) {
+        long hardLimitAt = startMillis + maxMillis;
+        if (policy != null && policy.getDeadline() != null) {
+            hardLimitAt = Math.min(hardLimitAt, millisUntilDeadline(policy) + System.currentTimeMillis());
+        }
+        return hardLimitAt;
+    }
+
+    /**
+     * Starts watching a solve that begins now.
+     *
+     * @param policy Requested policy, may be null
+     * @param stopCount Number of customers, scales the default time budget
+     * @param terminateEarly Asks the solver to stop; called on every poll once a limit is reached
+     * @return The termination to feed with best scores and to close when solving has ended
+     */
+    public AdaptiveTermination start(TerminationPolicyDto policy, int stopCount, Runnable terminateEarly) {
+        return start(policy, stopCount, Long.MAX_VALUE, terminateEarly);
+    }
+
+    /**
+     * Starts watching one sub-solve of a larger solve, which must stop by the larger solve's hard limit
+     * ({@link #hardLimitAt}) rather than max-millis after its own start.
+     *
+     * @param notAfterMillis Epoch millis at which the hard limit is reached at the latest
+     */
+    public AdaptiveTermination start(TerminationPolicyDto policy, int stopCount, long notAfterMillis,
+                                     Runnable terminateEarly) {
+        validate(policy);
+        TerminationPolicyDto requested = policy != null ? policy : new TerminationPolicyDto();
+
+        long now = System.currentTimeMillis();
+        long hardLimit = Math.min(maxMillis, Math.max(0, notAfterMillis - now));
+        if (requested.getDeadline() != null) {
+            hardLimit = Math.min(hardLimit, millisUntilDeadline(requested));
+        }
+        long timeBudget = requested.getTimeBudgetMillis() != null
+                ? requested.getTimeBudgetMillis()
+                : defaultTimeBudgetMillis(stopCount);
+        long unimproved = requested.getUnimprovedMillis() != null ? requested.getUnimprovedMillis() : unimprovedMillis;
+        long plateauWindow = requested.getPlateauWindowMillis() != null ? requested.getPlateauWindowMillis() : 0;
+        long plateauMinImprovement = requested.getPlateauMinImprovement() != null ? requested.getPlateauMinImprovement() : 1;
+
+        AdaptiveTermination termination = new AdaptiveTermination(now,
+                Math.min(timeBudget, hardLimit), hardLimit, unimproved, plateauWindow, plateauMinImprovement);
+        logger.info("Termination for {} stops: budget {} ms, hard limit {} ms, unimproved {} ms, plateau window {} ms",
+                stopCount, Math.min(timeBudget, hardLimit), hardLimit, unimproved, plateauWindow);
+
+        ScheduledFuture<?> poll = poller.scheduleAtFixedRate(() -> {
+            boolean firstTime = termination.getReason() == null;
+            String reason = termination.check(System.currentTimeMillis());
+            if (reason != null) {
+                if (firstTime) {
+                    logger.info("⏱️ Stopping solver: {}", reason);
+                }
+                terminateEarly.run();
+            }
+        }, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        termination.setCancellation(() -> poll.cancel(false));
+        return termination;
+    }
+
+    private static long millisUntilDeadline(TerminationPolicyDto policy) {
+        return policy.getDeadline().toInstant().toEpochMilli() - System.currentTimeMillis() - DEADLINE_MARGIN_MILLIS;
+    }
+
+    private static void requireNonNegative(String name, Long value) {
+        if (value != null && value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import org.optaplanner.core.config.heuristic.selector.common.nearby.NearbySelectionConfig;
+import org.optaplanner.core.config.heuristic.selector.list.DestinationSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.list.SubListSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.MoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.ListChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.ListSwapMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.SubListChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.list.SubListSwapMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.value.ValueSelectorConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the nearby selection settings of the local search move selectors in solverConfig.xml, so
+ * callers can adjust them per problem without keeping a second copy of the XML.
+ */
+public final class NearbySelections {
+
+    private NearbySelections() {
+    }
+
+    /**
+     * @return The nearby selection configs of every local search phase, in XML order
+     */
+    public static List<NearbySelectionConfig> of(SolverConfig solverConfig) {
+        List<NearbySelectionConfig> nearbySelections = new ArrayList<>();
+        solverConfig.getPhaseConfigList().stream()
+                .filter(LocalSearchPhaseConfig.class::isInstance)
+                .map(phase -> ((LocalSearchPhaseConfig) phase).getMoveSelectorConfig())
+                .forEach(moveSelector -> collect(moveSelector, nearbySelections));
+        return nearbySelections;
+    }
+
+    /**
+     * Draws nearby destinations from at most the given number of nearest ones.
+     */
+    public static void limitSize(SolverConfig solverConfig, int sizeMaximum) {
+        for (NearbySelectionConfig nearbySelection : of(solverConfig)) {
+            nearbySelection.setParabolicDistributionSizeMaximum(min(nearbySelection.getParabolicDistributionSizeMaximum(), sizeMaximum));
+            nearbySelection.setLinearDistributionSizeMaximum(min(nearbySelection.getLinearDistributionSizeMaximum(), sizeMaximum));
+            nearbySelection.setBlockDistributionSizeMaximum(min(nearbySelection.getBlockDistributionSizeMaximum(), sizeMaximum));
+        }
+    }
+
+    private static Integer min(Integer configured, int sizeMaximum) {
+        return configured != null ? Math.min(configured, sizeMaximum) : null;
+    }
+
+    private static void collect(MoveSelectorConfig<?> moveSelector, List<NearbySelectionConfig> nearbySelections) {
+        NearbySelectionConfig nearbySelection = null;
+        if (moveSelector instanceof UnionMoveSelectorConfig union) {
+            union.getMoveSelectorList().forEach(child -> collect(child, nearbySelections));
+        } else if (moveSelector instanceof ListChangeMoveSelectorConfig change) {
+            nearbySelection = nearbySelectionOf(change.getDestinationSelectorConfig());
+        } else if (moveSelector instanceof ListSwapMoveSelectorConfig swap) {
+            ValueSelectorConfig secondary = swap.getSecondaryValueSelectorConfig();
+            nearbySelection = secondary != null ? secondary.getNearbySelectionConfig() : null;
+        } else if (moveSelector instanceof SubListChangeMoveSelectorConfig subListChange) {
+            nearbySelection = nearbySelectionOf(subListChange.getDestinationSelectorConfig());
+        } else if (moveSelector instanceof SubListSwapMoveSelectorConfig subListSwap) {
+            SubListSelectorConfig secondary = subListSwap.getSecondarySubListSelectorConfig();
+            nearbySelection = secondary != null ? secondary.getNearbySelectionConfig() : null;
+        }
+        if (nearbySelection != null) {
+            nearbySelections.add(nearbySelection);
+        }
+    }
+
+    private static NearbySelectionConfig nearbySelectionOf(DestinationSelectorConfig destinationSelector) {
+        return destinationSelector != null ? destinationSelector.getNearbySelectionConfig() : null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import org.optaplanner.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
+
+/**
+ * Nearby distance for moving a customer after a destination, which is another customer or a vehicle
+ * (the start of its route, at the depot): the leg from the destination to the moved customer.
+ *
+ * On a dense matrix this is the plain road distance. On a sparse matrix every destination outside
+ * the customer's neighbour graph ranks behind every destination inside it, so a distribution capped
+ * at the neighbour count only ever proposes moves along fetched road distances.
+ *
+ * OptaPlanner sorts each origin's destinations by this distance once per solve and caches the lists,
+ * so the meter is only called while those lists are built.
+ */
+public class NeighbourGraphDistanceMeter implements NearbyDistanceMeter<Customer, Object> {
+
+    // Larger than any road distance
+    private static final double OUTSIDE_GRAPH_OFFSET = 1.0e12;
+
+    @Override
+    public double getNearbyDistance(Customer origin, Object destination) {
+        DistanceMatrix matrix = origin.getDistanceMatrix();
+        int from = destination instanceof Vehicle vehicle
+                ? vehicle.getDepotIndex()
+                : ((Customer) destination).getMatrixIndex();
+        long distance = matrix.getDistanceByIndex(from, origin.getMatrixIndex());
+        return matrix.isNeighbour(from, origin.getMatrixIndex()) ? distance : OUTSIDE_GRAPH_OFFSET + distance;
+    }
+}
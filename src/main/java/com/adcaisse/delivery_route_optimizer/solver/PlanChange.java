@@ -0,0 +1,99 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stops and vehicles added to or removed from a plan, either applied to a running solver as a
+ * {@link ProblemChange} or applied directly to a plan before a warm-started solve.
+ *
+ * Stops of a removed vehicle and added stops are left unassigned; the construction heuristic inserts
+ * them into the existing routes and local search then improves from there, so nothing that did not
+ * change is planned again. The distance matrix covers every stop after the change, the old ones at
+ * their old indices.
+ */
+public class PlanChange implements ProblemChange<VehicleRoutingSolution> {
+
+    private final List<Customer> addedCustomers;
+    private final Set<Long> removedCustomerIds;
+    private final List<Vehicle> addedVehicles;
+    private final Set<Long> removedVehicleIds;
+    private final DistanceMatrix distanceMatrix;
+
+    public PlanChange(List<Customer> addedCustomers, Set<Long> removedCustomerIds, List<Vehicle> addedVehicles,
+                      Set<Long> removedVehicleIds, DistanceMatrix distanceMatrix) {
+        this.addedCustomers = addedCustomers;
+        this.removedCustomerIds = removedCustomerIds;
+        this.addedVehicles = addedVehicles;
+        this.removedVehicleIds = removedVehicleIds;
+        this.distanceMatrix = distanceMatrix;
+    }
+
+    /**
+     * Applies the change to a plan no solver is working on.
+     */
+    public void applyTo(VehicleRoutingSolution plan) {
+        List<Customer> customers = new ArrayList<>(plan.getCustomerList());
+        customers.removeIf(customer -> removedCustomerIds.contains(customer.getId()));
+        customers.addAll(addedCustomers);
+        List<Vehicle> vehicles = new ArrayList<>(plan.getVehicleList());
+        vehicles.removeIf(vehicle -> removedVehicleIds.contains(vehicle.getId()));
+        vehicles.forEach(vehicle -> vehicle.getCustomerList()
+                .removeIf(customer -> removedCustomerIds.contains(customer.getId())));
+        vehicles.addAll(addedVehicles);
+        plan.setCustomerList(customers);
+        plan.setVehicleList(vehicles);
+        plan.setDistanceMatrix(distanceMatrix);
+    }
+
+    /**
+     * Applies the change to the solver's working solution. Every edit goes through the director, which
+     * makes the incremental score calculator start over from the changed solution.
+     */
+    @Override
+    public void doChange(VehicleRoutingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        // Problem fact lists are shared with the best solution; only the working solution may change
+        workingSolution.setCustomerList(new ArrayList<>(workingSolution.getCustomerList()));
+
+        for (Vehicle vehicle : List.copyOf(workingSolution.getVehicleList())) {
+            if (removedVehicleIds.contains(vehicle.getId())) {
+                problemChangeDirector.changeVariable(vehicle, "customerList", removed -> removed.getCustomerList().clear());
+                problemChangeDirector.removeEntity(vehicle, workingSolution.getVehicleList()::remove);
+            }
+        }
+        for (Customer customer : List.copyOf(workingSolution.getCustomerList())) {
+            if (!removedCustomerIds.contains(customer.getId())) {
+                continue;
+            }
+            for (Vehicle vehicle : workingSolution.getVehicleList()) {
+                if (vehicle.getCustomerList().contains(customer)) {
+                    problemChangeDirector.changeVariable(vehicle, "customerList",
+                            changed -> changed.getCustomerList().remove(customer));
+                }
+            }
+            problemChangeDirector.removeProblemFact(customer, workingSolution.getCustomerList()::remove);
+        }
+        for (Customer customer : addedCustomers) {
+            problemChangeDirector.addProblemFact(customer, added -> {
+                workingSolution.getCustomerList().add(added);
+                // Read by the score calculator when it starts over after this fact is added
+                if (added.hasTimeWindow()) {
+                    workingSolution.setTimeWindowed(true);
+                }
+                // Also points the added customer at the matrix, which now covers it
+                workingSolution.setDistanceMatrix(distanceMatrix);
+            });
+        }
+        for (Vehicle vehicle : addedVehicles) {
+            problemChangeDirector.addEntity(vehicle, workingSolution.getVehicleList()::add);
+        }
+    }
+}
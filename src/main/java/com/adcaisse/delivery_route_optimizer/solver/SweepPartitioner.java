@@ -0,0 +1,108 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits a large problem into angular sectors around the depot (the classic sweep heuristic),
+ * so each sector can be solved on its own with a much smaller distance matrix.
+ *
+ * Customers are ordered by polar angle around the depot, starting just after the widest empty
+ * angle so that no sector straddles a natural gap, and cut into sectors of near-equal size. Sector
+ * i borders sectors i - 1 and i + 1 (and the last borders the first). Vehicles are then dealt to
+ * sectors by demand: every sector gets one, the largest first, and each further vehicle goes to the
+ * sector whose demand is furthest from covered.
+ */
+public final class SweepPartitioner {
+
+    private SweepPartitioner() {
+    }
+
+    /**
+     * @param customers Customers to split, at least one
+     * @param vehicles Fleet to share out; also caps the number of sectors, since each needs a vehicle
+     * @param maxPartitionSize Upper bound on customers per sector, unless the fleet is too small for it
+     * @return Sectors in sweep order
+     */
+    public static List<Partition> partition(Location depot, List<Customer> customers, List<Vehicle> vehicles,
+                                            int maxPartitionSize) {
+        if (maxPartitionSize < 1) {
+            throw new IllegalArgumentException("partitionSize must be at least 1");
+        }
+        if (vehicles.isEmpty()) {
+            throw new IllegalArgumentException("At least one vehicle is required");
+        }
+        int count = (customers.size() + maxPartitionSize - 1) / maxPartitionSize;
+        count = Math.max(1, Math.min(count, vehicles.size()));
+
+        List<Customer> swept = sweepOrder(depot, customers);
+        List<Partition> partitions = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            int from = (int) ((long) swept.size() * p / count);
+            int to = (int) ((long) swept.size() * (p + 1) / count);
+            partitions.add(new Partition(new ArrayList<>(swept.subList(from, to)), new ArrayList<>()));
+        }
+
+        List<Vehicle> byCapacity = new ArrayList<>(vehicles);
+        byCapacity.sort(Comparator.comparingInt(Vehicle::getCapacity).reversed());
+        List<Partition> byDemand = new ArrayList<>(partitions);
+        byDemand.sort(Comparator.comparingLong(Partition::getTotalDemand).reversed());
+        for (int v = 0; v < byCapacity.size(); v++) {
+            Partition target = v < count ? byDemand.get(v) : partitions.stream()
+                    .max(Comparator.comparingLong(partition -> partition.getTotalDemand() - partition.getTotalCapacity()))
+                    .orElseThrow();
+            target.vehicles().add(byCapacity.get(v));
+        }
+        return partitions;
+    }
+
+    static List<Customer> sweepOrder(Location depot, List<Customer> customers) {
+        // Longitude degrees shrink with latitude; scale them so angles match the map
+        double lonScale = Math.cos(Math.toRadians(depot.getLatitude()));
+        List<Customer> sorted = new ArrayList<>(customers);
+        sorted.sort(Comparator.comparingDouble(customer -> angle(depot, customer.getLocation(), lonScale)));
+        if (sorted.size() < 2) {
+            return sorted;
+        }
+
+        // Start after the widest gap between consecutive angles, the wrap-around gap included
+        int start = 0;
+        double widestGap = angle(depot, sorted.get(0).getLocation(), lonScale) + 2 * Math.PI
+                - angle(depot, sorted.get(sorted.size() - 1).getLocation(), lonScale);
+        for (int i = 1; i < sorted.size(); i++) {
+            double gap = angle(depot, sorted.get(i).getLocation(), lonScale)
+                    - angle(depot, sorted.get(i - 1).getLocation(), lonScale);
+            if (gap > widestGap) {
+                widestGap = gap;
+                start = i;
+            }
+        }
+        List<Customer> rotated = new ArrayList<>(sorted.subList(start, sorted.size()));
+        rotated.addAll(sorted.subList(0, start));
+        return rotated;
+    }
+
+    private static double angle(Location depot, Location location, double lonScale) {
+        return Math.atan2(location.getLatitude() - depot.getLatitude(),
+                (location.getLongitude() - depot.getLongitude()) * lonScale);
+    }
+
+    /**
+     * One sector: its customers in sweep order and the vehicles that serve them.
+     */
+    public record Partition(List<Customer> customers, List<Vehicle> vehicles) {
+
+        public long getTotalDemand() {
+            return customers.stream().mapToLong(Customer::getDemand).sum();
+        }
+
+        public long getTotalCapacity() {
+            return vehicles.stream().mapToLong(Vehicle::getCapacity).sum();
+        }
+    }
+}
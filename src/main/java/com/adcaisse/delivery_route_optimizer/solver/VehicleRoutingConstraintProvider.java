@@ -2,7 +2,6 @@ package com.adcaisse.delivery_route_optimizer.solver;
 
 import com.adcaisse.delivery_route_optimizer.model.Customer;
 import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
-import com.adcaisse.delivery_route_optimizer.model.Location;
 import com.adcaisse.delivery_route_optimizer.model.Vehicle;
 import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
 import org.optaplanner.core.api.score.stream.Constraint;
@@ -26,10 +25,12 @@ public class VehicleRoutingConstraintProvider implements ConstraintProvider {
         return new Constraint[]{
                 // Hard constraints
                 vehicleCapacityConstraint(constraintFactory),
+                arriveBeforeDueTimeConstraint(constraintFactory),
                 
                 // Soft constraints
                 minimizeTotalDistanceConstraint(constraintFactory),
-                minimizeVehicleUsageConstraint(constraintFactory)
+                minimizeVehicleUsageConstraint(constraintFactory),
+                minimizeWaitingTimeConstraint(constraintFactory)
         };
     }
 
@@ -53,15 +54,37 @@ public class VehicleRoutingConstraintProvider implements ConstraintProvider {
                 .asConstraint("Vehicle capacity constraint");
     }
 
+    /**
+     * Hard constraint: Arrive at every customer by the end of its time window.
+     * Penalized by the seconds late, with arrivals from the matrix's travel times.
+     */
+    private Constraint arriveBeforeDueTimeConstraint(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(Vehicle.class)
+                .filter(vehicle -> vehicle.getCustomerList().stream().anyMatch(Customer::hasTimeWindow))
+                .join(DistanceMatrix.class)
+                .penalizeLong(HardSoftLongScore.ONE_HARD, (vehicle, matrix) -> {
+                    long[] arrivals = vehicle.getArrivalTimes(vehicle.getLegDurations(matrix));
+                    long lateness = 0;
+                    for (int i = 0; i < vehicle.getCustomerList().size(); i++) {
+                        lateness += vehicle.getCustomerList().get(i).lateness(arrivals[i]);
+                    }
+                    return lateness;
+                })
+                .asConstraint("Arrive before the due time");
+    }
+
     /**
      * Soft constraint: Minimize total travel distance.
      * Uses pre-computed GraphHopper distances from DistanceMatrix for accurate optimization.
+     * The matrix is joined in as a problem fact, so every solver thread reads it from its own
+     * working solution.
      */
     private Constraint minimizeTotalDistanceConstraint(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Vehicle.class)
                 .filter(vehicle -> !vehicle.getCustomerList().isEmpty())
+                .join(DistanceMatrix.class)
                 .penalizeLong(HardSoftLongScore.ONE_SOFT,
-                        (vehicle) -> calculateVehicleTotalDistance(vehicle))
+                        (vehicle, matrix) -> vehicle.getTotalDistance(matrix))
                 .asConstraint("Minimize total distance");
     }
 
@@ -76,58 +99,20 @@ public class VehicleRoutingConstraintProvider implements ConstraintProvider {
     }
 
     /**
-     * Calculate total distance for a vehicle's route using pre-computed GraphHopper distances.
-     * Accesses the DistanceMatrix via a static holder (set before solving).
-     */
-    private long calculateVehicleTotalDistance(Vehicle vehicle) {
-        if (vehicle.getCustomerList().isEmpty()) {
-            return 0;
-        }
-        
-        DistanceMatrix matrix = DistanceMatrixHolder.getCurrentMatrix();
-        if (matrix == null) {
-            logger.warn("DistanceMatrix not available, returning 0 for vehicle {}", vehicle.getId());
-            return 0;
-        }
-        
-        long totalDistance = 0;
-        Location depot = vehicle.getDepot();
-        
-        // Distance from depot to first customer
-        Customer firstCustomer = vehicle.getCustomerList().get(0);
-        totalDistance += matrix.getDistance(depot, firstCustomer.getLocation());
-
-        // Distance between consecutive customers
-        for (int i = 0; i < vehicle.getCustomerList().size() - 1; i++) {
-            Location from = vehicle.getCustomerList().get(i).getLocation();
-            Location to = vehicle.getCustomerList().get(i + 1).getLocation();
-            totalDistance += matrix.getDistance(from, to);
-        }
-
-        // Distance from last customer back to depot
-        Customer lastCustomer = vehicle.getCustomerList().get(vehicle.getCustomerList().size() - 1);
-        totalDistance += matrix.getDistance(lastCustomer.getLocation(), depot);
-
-        return totalDistance;
-    }
-    
-    /**
-     * Static holder for the current DistanceMatrix.
-     * Set before solving, used during constraint evaluation.
+     * Soft constraint: Minimize the seconds spent waiting for time windows to open
      */
-    public static class DistanceMatrixHolder {
-        private static final ThreadLocal<DistanceMatrix> currentMatrix = new ThreadLocal<>();
-        
-        public static void setCurrentMatrix(DistanceMatrix matrix) {
-            currentMatrix.set(matrix);
-        }
-        
-        public static DistanceMatrix getCurrentMatrix() {
-            return currentMatrix.get();
-        }
-        
-        public static void clear() {
-            currentMatrix.remove();
-        }
+    private Constraint minimizeWaitingTimeConstraint(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEach(Vehicle.class)
+                .filter(vehicle -> vehicle.getCustomerList().stream().anyMatch(Customer::hasTimeWindow))
+                .join(DistanceMatrix.class)
+                .penalizeLong(HardSoftLongScore.ONE_SOFT, (vehicle, matrix) -> {
+                    long[] arrivals = vehicle.getArrivalTimes(vehicle.getLegDurations(matrix));
+                    long waiting = 0;
+                    for (int i = 0; i < vehicle.getCustomerList().size(); i++) {
+                        waiting += vehicle.getCustomerList().get(i).waitingTime(arrivals[i]);
+                    }
+                    return waiting;
+                })
+                .asConstraint("Minimize waiting time");
     }
 }
@@ -0,0 +1,252 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.api.score.calculator.IncrementalScoreCalculator;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental version of {@link VehicleRoutingConstraintProvider}: same constraints, same weights.
+ *
+ * For a list variable the solver reports which index range [fromIndex, toIndex) of a vehicle's
+ * route a move touches, before and after the change. Only the legs entering that range and the
+ * leg leaving it can change, so each notification retracts or inserts those legs and the range's
+ * demand. A change, swap or sub-list move therefore costs time proportional to the elements it
+ * moves, not to the route length, and the lookups are plain array reads in the DistanceMatrix.
+ *
+ * When customers have time windows, each route also keeps the arrival time at every stop, in seconds.
+ * A change re-times the route from fromIndex on and stops at the first stop past the change whose
+ * arrival comes out the same, since every later stop then keeps its arrival too. Lateness is hard and
+ * waiting for a window to open is soft, both retracted and inserted only for the stops re-timed.
+ * Without time windows none of this runs.
+ *
+ * The constraint provider stays the reference implementation: the tests solve with it as the
+ * assertion score director in FULL_ASSERT mode, which compares every incremental score against it.
+ */
+public class VehicleRoutingIncrementalScoreCalculator
+        implements IncrementalScoreCalculator<VehicleRoutingSolution, HardSoftLongScore> {
+
+    private static final long VEHICLE_USAGE_PENALTY = 1000000L;
+
+    private DistanceMatrix matrix;
+    private boolean timeWindowed;
+    private final Map<Vehicle, Route> routes = new IdentityHashMap<>();
+    private long hardScore;
+    private long softScore;
+
+    /**
+     * What a route's score depends on beyond its legs.
+     */
+    private static class Route {
+        int demand;
+        // Arrival at each stop, in seconds after leaving the depot; only with time windows
+        long[] arrivals = new long[0];
+        // toIndex of the change in progress, as reported before it
+        int changeEnd;
+    }
+
+    @Override
+    public void resetWorkingSolution(VehicleRoutingSolution solution) {
+        matrix = solution.getDistanceMatrix();
+        timeWindowed = solution.isTimeWindowed();
+        routes.clear();
+        hardScore = 0;
+        softScore = 0;
+        for (Vehicle vehicle : solution.getVehicleList()) {
+            insertVehicle(vehicle);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // Scored once its route is in place
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        if (entity instanceof Vehicle vehicle) {
+            insertVehicle(vehicle);
+        }
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        // The only planning variable is the list variable
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        // The only planning variable is the list variable
+    }
+
+    @Override
+    public void beforeListVariableChanged(Object entity, String variableName, int fromIndex, int toIndex) {
+        Vehicle vehicle = (Vehicle) entity;
+        Route route = routeOf(vehicle);
+        retractVehicleTotals(vehicle, route.demand);
+        softScore += legDistance(vehicle, fromIndex, toIndex);
+        route.demand -= rangeDemand(vehicle, fromIndex, toIndex);
+        if (timeWindowed) {
+            retractTimeWindows(vehicle, route, fromIndex, toIndex);
+            route.changeEnd = toIndex;
+        }
+    }
+
+    @Override
+    public void afterListVariableChanged(Object entity, String variableName, int fromIndex, int toIndex) {
+        Vehicle vehicle = (Vehicle) entity;
+        Route route = routeOf(vehicle);
+        route.demand += rangeDemand(vehicle, fromIndex, toIndex);
+        softScore -= legDistance(vehicle, fromIndex, toIndex);
+        insertVehicleTotals(vehicle, route.demand);
+        if (timeWindowed) {
+            updateArrivals(vehicle, route, fromIndex, toIndex);
+        }
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        if (entity instanceof Vehicle vehicle) {
+            Route route = routeOf(vehicle);
+            int size = vehicle.getCustomerList().size();
+            retractVehicleTotals(vehicle, route.demand);
+            softScore += legDistance(vehicle, 0, size);
+            if (timeWindowed) {
+                retractTimeWindows(vehicle, route, 0, size);
+            }
+            routes.remove(vehicle);
+        }
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        // Retracted before removal
+    }
+
+    @Override
+    public HardSoftLongScore calculateScore() {
+        return HardSoftLongScore.of(hardScore, softScore);
+    }
+
+    private void insertVehicle(Vehicle vehicle) {
+        int size = vehicle.getCustomerList().size();
+        Route route = new Route();
+        route.demand = rangeDemand(vehicle, 0, size);
+        routes.put(vehicle, route);
+        softScore -= legDistance(vehicle, 0, size);
+        insertVehicleTotals(vehicle, route.demand);
+        if (timeWindowed) {
+            route.changeEnd = 0;
+            updateArrivals(vehicle, route, 0, size);
+        }
+    }
+
+    private Route routeOf(Vehicle vehicle) {
+        return routes.computeIfAbsent(vehicle, v -> new Route());
+    }
+
+    /**
+     * Capacity excess and vehicle usage depend on the whole route, so they are retracted
+     * before a change and inserted again after it.
+     */
+    private void retractVehicleTotals(Vehicle vehicle, int totalDemand) {
+        hardScore += Math.max(0, totalDemand - vehicle.getCapacity());
+        if (!vehicle.getCustomerList().isEmpty()) {
+            softScore += VEHICLE_USAGE_PENALTY;
+        }
+    }
+
+    private void insertVehicleTotals(Vehicle vehicle, int totalDemand) {
+        hardScore -= Math.max(0, totalDemand - vehicle.getCapacity());
+        if (!vehicle.getCustomerList().isEmpty()) {
+            softScore -= VEHICLE_USAGE_PENALTY;
+        }
+    }
+
+    private void retractTimeWindows(Vehicle vehicle, Route route, int fromIndex, int toIndex) {
+        List<Customer> customers = vehicle.getCustomerList();
+        for (int i = fromIndex; i < toIndex; i++) {
+            hardScore += customers.get(i).lateness(route.arrivals[i]);
+            softScore += customers.get(i).waitingTime(route.arrivals[i]);
+        }
+    }
+
+    /**
+     * Re-times the route after [fromIndex, toIndex) changed, whose penalties were retracted before the
+     * change. Stops past the change keep their order, shifted by the change in route length; the walk
+     * ends at the first of them whose arrival is unchanged.
+     */
+    private void updateArrivals(Vehicle vehicle, Route route, int fromIndex, int toIndex) {
+        List<Customer> customers = vehicle.getCustomerList();
+        int size = customers.size();
+        int shift = toIndex - route.changeEnd;
+        int oldSize = size - shift;
+        if (route.arrivals.length < size) {
+            route.arrivals = Arrays.copyOf(route.arrivals, Math.max(size, 2 * route.arrivals.length));
+        }
+        long[] arrivals = route.arrivals;
+        if (shift != 0) {
+            // Move the old arrivals of the unchanged tail to its new positions
+            System.arraycopy(arrivals, route.changeEnd, arrivals, toIndex, oldSize - route.changeEnd);
+        }
+
+        int previous = vehicle.getDepotIndex();
+        long departure = 0;
+        if (fromIndex > 0) {
+            Customer before = customers.get(fromIndex - 1);
+            previous = before.getMatrixIndex();
+            departure = before.departureTime(arrivals[fromIndex - 1]);
+        }
+        for (int i = fromIndex; i < size; i++) {
+            Customer customer = customers.get(i);
+            long arrival = departure + matrix.getDurationByIndex(previous, customer.getMatrixIndex());
+            if (i >= toIndex) {
+                if (arrivals[i] == arrival) {
+                    break;
+                }
+                hardScore += customer.lateness(arrivals[i]);
+                softScore += customer.waitingTime(arrivals[i]);
+            }
+            arrivals[i] = arrival;
+            hardScore -= customer.lateness(arrival);
+            softScore -= customer.waitingTime(arrival);
+            departure = customer.departureTime(arrival);
+            previous = customer.getMatrixIndex();
+        }
+    }
+
+    private static int rangeDemand(Vehicle vehicle, int fromIndex, int toIndex) {
+        List<Customer> customers = vehicle.getCustomerList();
+        int demand = 0;
+        for (int i = fromIndex; i < toIndex; i++) {
+            demand += customers.get(i).getDemand();
+        }
+        return demand;
+    }
+
+    /**
+     * Sum of the legs arriving at positions fromIndex..toIndex, where arriving at position
+     * size means returning to the depot. These are exactly the legs a change to [fromIndex, toIndex) affects.
+     * An empty route has a single depot-to-depot leg of length 0.
+     */
+    private long legDistance(Vehicle vehicle, int fromIndex, int toIndex) {
+        List<Customer> customers = vehicle.getCustomerList();
+        int depot = vehicle.getDepotIndex();
+        int size = customers.size();
+        int previous = fromIndex == 0 ? depot : customers.get(fromIndex - 1).getMatrixIndex();
+        long distance = 0;
+        for (int i = fromIndex; i <= toIndex; i++) {
+            int next = i < size ? customers.get(i).getMatrixIndex() : depot;
+            distance += matrix.getDistanceByIndex(previous, next);
+            previous = next;
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,56 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongPairDistanceCacheTest {
+
+    @Test
+    void storesDirectedPairs() {
+        LongPairDistanceCache cache = new LongPairDistanceCache(1024 * 1024);
+
+        cache.put(1, 2, 1500);
+        cache.put(2, 1, 1700);
+        cache.put(1, 2, 1600);
+
+        assertThat(cache.get(1, 2)).isEqualTo(1600);
+        assertThat(cache.get(2, 1)).isEqualTo(1700);
+        assertThat(cache.get(1, 3)).isEqualTo(LongPairDistanceCache.MISSING);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.hits()).isEqualTo(2);
+        assertThat(cache.misses()).isEqualTo(1);
+
+        cache.clear();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.contains(1, 2)).isFalse();
+    }
+
+    @Test
+    void staysWithinBudgetAndKeepsReferencedEntries() {
+        LongPairDistanceCache cache = new LongPairDistanceCache(64 * 1024);
+        long capacity = cache.capacity();
+        assertThat(cache.memoryBytes()).isLessThanOrEqualTo(64 * 1024);
+
+        // A hot pair that is read between every insert must survive CLOCK eviction
+        cache.put(-1, -1, 42);
+        for (long i = 0; i < capacity * 10; i++) {
+            cache.put(i, i + 1, i);
+            assertThat(cache.get(-1, -1)).isEqualTo(42);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo((int) capacity);
+        assertThat(cache.evictions()).isGreaterThanOrEqualTo(capacity * 9);
+
+        // Whatever survived is still reachable after all the backward-shift deletions
+        int found = 0;
+        for (long i = 0; i < capacity * 10; i++) {
+            long value = cache.get(i, i + 1);
+            if (value != LongPairDistanceCache.MISSING) {
+                assertThat(value).isEqualTo(i);
+                found++;
+            }
+        }
+        assertThat(found).isEqualTo(cache.size() - 1);
+    }
+}
@@ -0,0 +1,90 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentDistanceStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void distancesSurviveARestart() throws Exception {
+        try (PersistentDistanceStore store = PersistentDistanceStore.open(directory, 1000, 8)) {
+            store.put(1, 2, 1500);
+            store.put(2, 1, 1600);
+        }
+
+        try (PersistentDistanceStore store = PersistentDistanceStore.open(directory, 1000, 8)) {
+            assertThat(store.get(1, 2)).isEqualTo(1500);
+            assertThat(store.get(2, 1)).isEqualTo(1600);
+            assertThat(store.get(1, 3)).isEqualTo(LongPairDistanceCache.MISSING);
+        }
+    }
+
+    @Test
+    void tornTailIsDroppedOnRecovery() throws Exception {
+        try (PersistentDistanceStore store = PersistentDistanceStore.open(directory, 1000, 8)) {
+            store.put(1, 2, 1500);
+            store.put(3, 4, 2500);
+        }
+        // Simulate a crash in the middle of appending a third record
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+        }
+
+        try (PersistentDistanceStore store = PersistentDistanceStore.open(directory, 1000, 8)) {
+            assertThat(store.get(1, 2)).isEqualTo(1500);
+            assertThat(store.get(3, 4)).isEqualTo(2500);
+            store.put(5, 6, 3500);
+        }
+        try (PersistentDistanceStore store = PersistentDistanceStore.open(directory, 1000, 8)) {
+            assertThat(store.get(5, 6)).isEqualTo(3500);
+        }
+    }
+
+    @Test
+    void fullLogsAreSealedAndCompactedKeepingNewestValues() throws Exception {
+        try (PersistentDistanceStore store = PersistentDistanceStore.open(directory, 10, 2)) {
+            for (int round = 0; round < 4; round++) {
+                for (int i = 0; i < 10; i++) {
+                    store.put(i, i + 1, round * 100L + i);
+                }
+            }
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(file -> file.toString().endsWith(".tmp"))).isEmpty();
+        }
+        try (PersistentDistanceStore store = PersistentDistanceStore.open(directory, 10, 2)) {
+            assertThat(store.segmentCount()).isLessThanOrEqualTo(2);
+            for (int i = 0; i < 10; i++) {
+                assertThat(store.get(i, i + 1)).isEqualTo(300L + i);
+            }
+        }
+    }
+
+    @Test
+    void clearAfterCloseLeavesTheCallerUninterrupted() throws Exception {
+        PersistentDistanceStore store = PersistentDistanceStore.open(directory, 1000, 8);
+        store.put(1, 2, 1500);
+        store.close();
+
+        // Maintenance is shut down by now, so there is nothing left to wait for
+        store.clear();
+        assertThat(Thread.interrupted()).isFalse();
+    }
+}
@@ -0,0 +1,107 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> first = executor.submit(() -> singleFlight.execute("key", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return 42;
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("key", executions::incrementAndGet)));
+            }
+            while (singleFlight.deduplicated() < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+            for (Future<Integer> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+            }
+            assertThat(executions).hasValue(1);
+            assertThat(singleFlight.inFlight()).isZero();
+
+            // Nothing is remembered once the call is over
+            assertThat(singleFlight.execute("key", () -> 7)).isEqualTo(7);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failuresReachEveryCallerAndAreNotKept() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+            throw new IllegalArgumentException("bad request");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(singleFlight.execute("key", () -> 1)).isEqualTo(1);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void asyncFollowersCancelOnlyTheirOwnCopy() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+        AtomicInteger executions = new AtomicInteger();
+        Supplier<CompletableFuture<Integer>> work = () -> {
+            executions.incrementAndGet();
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            started.add(call);
+            return call;
+        };
+
+        CompletableFuture<Integer> owner = singleFlight.submit("key", work);
+        CompletableFuture<Integer> follower = singleFlight.submit("key", work);
+        CompletableFuture<Integer> impatient = singleFlight.submit("key", work);
+        impatient.cancel(true);
+        assertThat(owner).isNotCancelled();
+        assertThat(executions).hasValue(1);
+
+        // The owner giving up hands the work to the follower
+        owner.cancel(true);
+        assertThat(executions).hasValue(2);
+        started.get(1).complete(5);
+        assertThat(follower.join()).isEqualTo(5);
+        assertThat(singleFlight.deduplicated()).isEqualTo(2);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
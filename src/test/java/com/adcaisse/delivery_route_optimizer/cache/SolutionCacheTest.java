@@ -0,0 +1,108 @@
+package com.adcaisse.delivery_route_optimizer.cache;
+
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SolutionCacheTest {
+
+    @Test
+    void fingerprintIgnoresTheDeadlineButNotTheProblem() {
+        VehicleRoutingRequest request = request(10);
+        String fingerprint = ProblemFingerprint.of(request);
+
+        VehicleRoutingRequest withDeadline = request(10);
+        withDeadline.setTermination(new TerminationPolicyDto(null, null, null, null, OffsetDateTime.now()));
+        assertThat(ProblemFingerprint.of(withDeadline)).isEqualTo(fingerprint);
+
+        VehicleRoutingRequest otherDemand = request(11);
+        assertThat(ProblemFingerprint.of(otherDemand)).isNotEqualTo(fingerprint);
+
+        VehicleRoutingRequest otherBudget = request(10);
+        otherBudget.setTermination(new TerminationPolicyDto(1000L, null, null, null, null));
+        assertThat(ProblemFingerprint.of(otherBudget)).isNotEqualTo(fingerprint);
+
+        VehicleRoutingRequest sparse = request(10);
+        sparse.setNeighbourCount(20);
+        assertThat(ProblemFingerprint.of(sparse)).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    void servesRepeatedRequestsUntilTheyExpire() {
+        AtomicLong now = new AtomicLong();
+        SolutionCache cache = new SolutionCache(true, 2, 1000, now::get);
+        AtomicInteger solves = new AtomicInteger();
+
+        VehicleRoutingSolutionDto first = cache.get(request(10), () -> solution(solves));
+        assertThat(cache.get(request(10), () -> solution(solves))).isSameAs(first);
+        assertThat(solves).hasValue(1);
+
+        now.set(1000);
+        assertThat(cache.get(request(10), () -> solution(solves))).isNotSameAs(first);
+        assertThat(solves).hasValue(2);
+        assertThat(cache.getStats().getHits()).isEqualTo(1);
+        assertThat(cache.getStats().getMisses()).isEqualTo(2);
+        assertThat(cache.getStats().getExpirations()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedResponse() {
+        SolutionCache cache = new SolutionCache(true, 2, 60_000, () -> 0L);
+        AtomicInteger solves = new AtomicInteger();
+
+        cache.get(request(1), () -> solution(solves));
+        cache.get(request(2), () -> solution(solves));
+        cache.get(request(1), () -> solution(solves));
+        cache.get(request(3), () -> solution(solves));
+        assertThat(solves).hasValue(3);
+
+        // 2 was least recently used when 3 arrived
+        cache.get(request(1), () -> solution(solves));
+        assertThat(solves).hasValue(3);
+        cache.get(request(2), () -> solution(solves));
+        assertThat(solves).hasValue(4);
+        assertThat(cache.getStats().getSize()).isEqualTo(2);
+        assertThat(cache.getStats().getEvictions()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotKeepSolutionsCutShort() {
+        SolutionCache cache = new SolutionCache(true, 2, 60_000, () -> 0L);
+        AtomicInteger solves = new AtomicInteger();
+
+        VehicleRoutingSolutionDto hurried = cache.get(request(10), () -> {
+            VehicleRoutingSolutionDto solution = solution(solves);
+            solution.setCutShort(true);
+            return solution;
+        });
+        assertThat(cache.get(request(10), () -> solution(solves))).isNotSameAs(hurried);
+        assertThat(solves).hasValue(2);
+        assertThat(cache.getStats().getSize()).isEqualTo(1);
+    }
+
+    private static VehicleRoutingRequest request(int demand) {
+        return new VehicleRoutingRequest(
+                new Location(0, 36.80, 10.20),
+                List.of(new Location(1, 36.81, 10.21), new Location(2, 36.79, 10.18)),
+                List.of(100),
+                List.of(demand, 5),
+                null,
+                null,
+                null,
+                null);
+    }
+
+    private static VehicleRoutingSolutionDto solution(AtomicInteger solves) {
+        solves.incrementAndGet();
+        return new VehicleRoutingSolutionDto();
+    }
+}
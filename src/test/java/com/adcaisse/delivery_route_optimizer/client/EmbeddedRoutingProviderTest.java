@@ -0,0 +1,98 @@
+package com.adcaisse.delivery_route_optimizer.client;
+
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.model.SpatialGrid;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddedRoutingProviderTest {
+
+    private final List<EmbeddedRoutingProvider> providers = new ArrayList<>();
+
+    @AfterEach
+    void closeProviders() {
+        providers.forEach(EmbeddedRoutingProvider::close);
+    }
+
+    @Test
+    void tiledMatrixMatchesPairRequestsOverTheRoadGraph() throws Exception {
+        EmbeddedRoutingProvider provider = provider(true, 7, 0, 0);
+        List<Location> locations = locations(20, 36.70, 10.05);
+
+        long[][] matrix = provider.getCostMatrix(locations);
+
+        for (int i = 0; i < locations.size(); i++) {
+            assertThat(matrix[i][i]).isZero();
+            for (int j = i + 1; j < locations.size(); j++) {
+                long[] pair = provider.getCostPair(locations.get(i), locations.get(j));
+                assertThat(matrix[i][j]).isEqualTo(pair[0]);
+                assertThat(matrix[j][i]).isEqualTo(pair[1]);
+                assertThat(RoadCost.distance(matrix[i][j]))
+                        .isGreaterThanOrEqualTo(Math.round(SpatialGrid.straightLineMeters(locations.get(i), locations.get(j))));
+                assertThat(RoadCost.duration(matrix[i][j])).isPositive();
+            }
+        }
+        assertThat(matrix[2][11]).isNotEqualTo(matrix[11][2]);
+    }
+
+    @Test
+    void locationsOutsideTheGraphUseStraightLineCosts() throws Exception {
+        EmbeddedRoutingProvider provider = provider(true, 100, 0, 0);
+        Location tunis = new Location(1, 36.80, 10.18);
+        Location paris = new Location(2, 48.86, 2.35);
+
+        long[] costs = provider.getCostPair(tunis, paris);
+
+        double meters = SpatialGrid.straightLineMeters(tunis, paris) * 1.3;
+        assertThat(RoadCost.distance(costs[0])).isEqualTo(Math.round(meters));
+        assertThat(RoadCost.duration(costs[0])).isEqualTo(Math.round(meters / (40 / 3.6)));
+        assertThat(costs[1]).isEqualTo(costs[0]);
+    }
+
+    @Test
+    void injectedFailuresReachTheCaller() {
+        EmbeddedRoutingProvider provider = provider(false, 5, 0, 1.0);
+        List<Location> locations = locations(8, 36.70, 10.05);
+
+        assertThatThrownBy(() -> provider.getCostMatrix(locations))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Injected");
+    }
+
+    @Test
+    void everyTileWaitsForTheConfiguredLatency() throws Exception {
+        // One request at a time: 3 x 3 tiles of 20ms each
+        EmbeddedRoutingProvider provider = provider(false, 4, 20, 0);
+        List<Location> locations = locations(12, 36.70, 10.05);
+
+        long start = System.nanoTime();
+        provider.getCostMatrix(locations);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(9 * 20);
+    }
+
+    private EmbeddedRoutingProvider provider(boolean graph, int tileSize, long latencyMillis, double failureRate) {
+        EmbeddedRoutingProvider provider = new EmbeddedRoutingProvider(graph, new double[]{36.5, 9.8, 37.0, 10.4},
+                0.02, 42, 16, 1.3, 40, true, tileSize, 1, latencyMillis, 0, failureRate);
+        providers.add(provider);
+        return provider;
+    }
+
+    private static List<Location> locations(int count, double latitude, double longitude) {
+        Random random = new Random(count);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            locations.add(new Location(i, latitude + random.nextDouble() * 0.2, longitude + random.nextDouble() * 0.2));
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,252 @@
+package com.adcaisse.delivery_route_optimizer.client;
+
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs GraphHopperClient against a local stub server that answers /route and /matrix
+ * with a deterministic distance derived from the coordinates. Northbound trips include
+ * a detour, so the distances are asymmetric like a city with one-way streets. Travel times
+ * are the distance at 10 m/s.
+ */
+class GraphHopperClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger routeRequests = new AtomicInteger();
+    private final AtomicInteger matrixRequests = new AtomicInteger();
+    private HttpServer server;
+    private boolean matrixAvailable = true;
+    private volatile Location failingRouteOrigin;
+    private volatile CountDownLatch matrixGate;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/route", this::handleRoute);
+        server.createContext("/matrix", this::handleMatrix);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void matrixModeFetchesTilesInsteadOfPairs() throws Exception {
+        List<Location> locations = locations(25);
+
+        long[][] pairwise = client(false, 10).getDistanceMatrix(locations);
+        assertThat(routeRequests.get()).isEqualTo(25 * 24 / 2);
+        assertThat(matrixRequests.get()).isZero();
+
+        routeRequests.set(0);
+        long[][] tiled = client(true, 10).getDistanceMatrix(locations);
+        assertThat(matrixRequests.get()).isEqualTo(9); // 3 x 3 tiles of up to 10 x 10
+        assertThat(routeRequests.get()).isZero();
+
+        assertThat(tiled).isDeepEqualTo(pairwise);
+    }
+
+    @Test
+    void directedPairwiseUsesOneRoundTripPerPair() throws Exception {
+        List<Location> locations = locations(8);
+
+        long[][] matrix = client(false, 10).getDistanceMatrix(locations);
+
+        assertThat(routeRequests.get()).isEqualTo(8 * 7 / 2);
+        assertThat(matrix[0][1]).isEqualTo(distance(locations.get(0), locations.get(1)));
+        assertThat(matrix[1][0]).isEqualTo(distance(locations.get(1), locations.get(0)));
+        assertThat(matrix[0][1]).isNotEqualTo(matrix[1][0]);
+    }
+
+    @Test
+    void fallsBackToRouteRequestsWhenMatrixIsUnavailable() throws Exception {
+        matrixAvailable = false;
+        List<Location> locations = locations(6);
+        GraphHopperClient client = client(true, 10);
+
+        long[][] matrix = client.getDistanceMatrix(locations);
+        assertThat(matrixRequests.get()).isEqualTo(1);
+        assertThat(routeRequests.get()).isEqualTo(6 * 5 / 2);
+        assertThat(matrix[1][4]).isEqualTo(distance(locations.get(1), locations.get(4)));
+
+        // The missing endpoint is remembered, so the next call goes straight to /route
+        client.getDistanceMatrix(locations);
+        assertThat(matrixRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failedPairFailsTheMatrixInsteadOfLeavingAZeroCell() {
+        matrixAvailable = false;
+        List<Location> locations = locations(6);
+        failingRouteOrigin = locations.get(2);
+
+        assertThatThrownBy(() -> client(true, 10).getCostMatrix(locations))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("503");
+    }
+
+    @Test
+    void identicalTilesRequestedAtTheSameTimeAreFetchedOnce() throws Exception {
+        List<Location> locations = locations(25);
+        GraphHopperClient client = client(true, 10);
+        matrixGate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<long[][]> first = executor.submit(() -> client.getDistanceMatrix(locations));
+            Future<long[][]> second = executor.submit(() -> client.getDistanceMatrix(locations(25)));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (client.getDeduplicatedTiles() < 9 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            matrixGate.countDown();
+
+            assertThat(second.get(10, TimeUnit.SECONDS)).isDeepEqualTo(first.get(10, TimeUnit.SECONDS));
+            assertThat(client.getDeduplicatedTiles()).isEqualTo(9);
+            assertThat(matrixRequests.get()).isEqualTo(9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void costMatricesCarryTravelTimesFromEitherTransport() throws Exception {
+        List<Location> locations = locations(12);
+
+        long[][] pairwise = client(false, 10).getCostMatrix(locations);
+        long[][] tiled = client(true, 5).getCostMatrix(locations);
+
+        assertThat(tiled).isDeepEqualTo(pairwise);
+        long expected = distance(locations.get(3), locations.get(7));
+        assertThat(RoadCost.distance(tiled[3][7])).isEqualTo(expected);
+        assertThat(RoadCost.duration(tiled[3][7])).isEqualTo(seconds(expected));
+        assertThat(RoadCost.duration(pairwise[7][3])).isEqualTo(seconds(distance(locations.get(7), locations.get(3))));
+    }
+
+    private GraphHopperClient client(boolean matrixEnabled, int tileSize) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new GraphHopperClient(url, "car", new GraphHopperRequestEngine(4, 5), matrixEnabled, tileSize, true);
+    }
+
+    private static List<Location> locations(int count) {
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            locations.add(new Location(i, 36.70 + (i % 5) * 0.013, 10.10 + (i / 5) * 0.021));
+        }
+        return locations;
+    }
+
+    private static long distance(double fromLat, double fromLon, double toLat, double toLon) {
+        return Math.round((Math.abs(fromLat - toLat) + Math.abs(fromLon - toLon)) * 100_000)
+                + (fromLat < toLat ? 250 : 0);
+    }
+
+    private static long distance(Location from, Location to) {
+        return distance(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+    }
+
+    private static long seconds(long distance) {
+        return Math.round(distance / 10.0);
+    }
+
+    private void handleRoute(HttpExchange exchange) throws IOException {
+        routeRequests.incrementAndGet();
+        List<double[]> points = new ArrayList<>();
+        for (String param : exchange.getRequestURI().getRawQuery().split("&")) {
+            if (param.startsWith("point=")) {
+                String[] latLon = URLDecoder.decode(param.substring(6), StandardCharsets.UTF_8).split(",");
+                points.add(new double[]{Double.parseDouble(latLon[0]), Double.parseDouble(latLon[1])});
+            }
+        }
+        // Coordinates arrive with 6 decimals
+        if (failingRouteOrigin != null && Math.abs(points.get(0)[0] - failingRouteOrigin.getLatitude()) < 1e-6
+                && Math.abs(points.get(0)[1] - failingRouteOrigin.getLongitude()) < 1e-6) {
+            respond(exchange, 503, "{\"message\":\"Service unavailable\"}");
+            return;
+        }
+        StringBuilder legs = new StringBuilder();
+        StringBuilder legTimes = new StringBuilder();
+        long total = 0;
+        long totalMillis = 0;
+        for (int i = 1; i < points.size(); i++) {
+            long leg = distance(points.get(i - 1)[0], points.get(i - 1)[1], points.get(i)[0], points.get(i)[1]);
+            long millis = seconds(leg) * 1000;
+            legs.append(i == 1 ? "" : ",").append('[').append(i - 1).append(',').append(i).append(',').append(leg).append(']');
+            legTimes.append(i == 1 ? "" : ",").append('[').append(i - 1).append(',').append(i).append(',').append(millis).append(']');
+            total += leg;
+            totalMillis += millis;
+        }
+        respond(exchange, 200, "{\"paths\":[{\"distance\":" + total + ".0,\"time\":" + totalMillis + ","
+                + "\"details\":{\"leg_distance\":[" + legs + "],\"leg_time\":[" + legTimes + "]}}]}");
+    }
+
+    private void handleMatrix(HttpExchange exchange) throws IOException {
+        matrixRequests.incrementAndGet();
+        if (matrixGate != null) {
+            try {
+                matrixGate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!matrixAvailable) {
+            respond(exchange, 404, "{\"message\":\"Not found\"}");
+            return;
+        }
+        JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+        StringBuilder distances = new StringBuilder();
+        StringBuilder times = new StringBuilder();
+        for (int i = 0; i < body.get("from_points").size(); i++) {
+            JsonNode from = body.get("from_points").get(i);
+            distances.append(i == 0 ? "[" : ",[");
+            times.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < body.get("to_points").size(); j++) {
+                JsonNode to = body.get("to_points").get(j);
+                // Points are [longitude, latitude]
+                long distance = distance(
+                        from.get(1).asDouble(), from.get(0).asDouble(), to.get(1).asDouble(), to.get(0).asDouble());
+                distances.append(j == 0 ? "" : ",").append(distance);
+                times.append(j == 0 ? "" : ",").append(seconds(distance));
+            }
+            distances.append(']');
+            times.append(']');
+        }
+        // Times first: the client must not depend on the order of the arrays
+        respond(exchange, 200, "{\"info\":{\"copyrights\":[\"stub\"]},\"times\":[" + times
+                + "],\"distances\":[" + distances + "]}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.adcaisse.delivery_route_optimizer.client;
+
+import com.adcaisse.delivery_route_optimizer.dto.RequestEngineMetricsDto;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GraphHopperRequestEngineTest {
+
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private final AtomicInteger served = new AtomicInteger();
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private volatile long responseDelayMillis = 30;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/route", exchange -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrent.decrementAndGet();
+            served.incrementAndGet();
+            byte[] body = "{}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareTheGlobalLimit() throws Exception {
+        GraphHopperRequestEngine engine = new GraphHopperRequestEngine(3, 10);
+
+        // Two independent "solves" submitting at once still see at most 3 requests on the server
+        List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(engine.send(route(), HttpResponse.BodyHandlers.ofString()));
+        }
+        assertThat(engine.getMetrics().getQueueDepth()).isGreaterThan(0);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+        assertThat(maxConcurrent.get()).isLessThanOrEqualTo(3);
+        RequestEngineMetricsDto metrics = awaitSettled(engine, 40);
+        assertThat(metrics.getCompleted()).isEqualTo(40);
+        assertThat(metrics.getQueueDepth()).isZero();
+        assertThat(metrics.getInFlight()).isZero();
+        assertThat(metrics.getLatencyHistogram().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(40);
+    }
+
+    @Test
+    void expiredAndCancelledRequestsNeverReachTheServer() throws Exception {
+        responseDelayMillis = 300;
+        GraphHopperRequestEngine engine = new GraphHopperRequestEngine(1, 10);
+
+        CompletableFuture<HttpResponse<String>> first = engine.send(route(), HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<HttpResponse<String>> expiring =
+                engine.send(route(), HttpResponse.BodyHandlers.ofString(), Duration.ofMillis(50));
+        CompletableFuture<HttpResponse<String>> cancelled = engine.send(route(), HttpResponse.BodyHandlers.ofString());
+        cancelled.cancel(true);
+
+        assertThatThrownBy(expiring::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        first.get();
+        RequestEngineMetricsDto metrics = awaitSettled(engine, 3);
+
+        assertThat(served.get()).isEqualTo(1);
+        assertThat(metrics.getTimedOut()).isEqualTo(1);
+        assertThat(metrics.getCancelled()).isEqualTo(1);
+        assertThat(metrics.getQueueDepth()).isZero();
+    }
+
+    /**
+     * Counters and the queue are updated by completion callbacks, which may run just after the caller wakes up.
+     */
+    private static RequestEngineMetricsDto awaitSettled(GraphHopperRequestEngine engine, long requests)
+            throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            RequestEngineMetricsDto metrics = engine.getMetrics();
+            long settled = metrics.getCompleted() + metrics.getFailed() + metrics.getTimedOut() + metrics.getCancelled();
+            if (settled >= requests && metrics.getQueueDepth() == 0 && metrics.getInFlight() == 0) {
+                return metrics;
+            }
+            Thread.sleep(20);
+        }
+        return engine.getMetrics();
+    }
+
+    private HttpRequest.Builder route() {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/route"))
+                .GET();
+    }
+}
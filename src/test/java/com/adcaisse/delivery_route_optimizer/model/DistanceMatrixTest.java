@@ -0,0 +1,61 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DistanceMatrixTest {
+
+    @Test
+    void indexAndIdLookupsAgreeForEveryStorageWidth() {
+        for (long scale : new long[]{1, 10_000, 10_000_000_000L}) {
+            List<Location> locations = locations(7);
+            long[][] directed = matrix(7, scale, true);
+            long[][] symmetric = matrix(7, scale, false);
+
+            DistanceMatrix directedMatrix = new DistanceMatrix(locations, directed, true);
+            DistanceMatrix symmetricMatrix = new DistanceMatrix(locations, symmetric, false);
+
+            for (int i = 0; i < 7; i++) {
+                for (int j = 0; j < 7; j++) {
+                    assertThat(directedMatrix.getDistanceByIndex(i, j)).isEqualTo(directed[i][j]);
+                    assertThat(symmetricMatrix.getDistanceByIndex(i, j)).isEqualTo(symmetric[i][j]);
+                    assertThat(directedMatrix.getDistance(100L + i, 100L + j)).isEqualTo(directed[i][j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void storesCityDistancesInTwoBytesAndHalvesSymmetricMatrices() {
+        List<Location> locations = locations(10);
+
+        assertThat(new DistanceMatrix(locations, matrix(10, 1, true), true).memoryBytes()).isEqualTo(10 * 10 * 2);
+        assertThat(new DistanceMatrix(locations, matrix(10, 1, false), false).memoryBytes()).isEqualTo(10 * 11 / 2 * 2);
+        assertThat(new DistanceMatrix(locations, matrix(10, 10_000, true), true).memoryBytes()).isEqualTo(10 * 10 * 4);
+    }
+
+    private static List<Location> locations(int count) {
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            locations.add(new Location(100L + i, 36.7 + i * 0.01, 10.2));
+        }
+        return locations;
+    }
+
+    private static long[][] matrix(int n, long scale, boolean directed) {
+        long[][] matrix = new long[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) {
+                    long base = (Math.min(i, j) * 31L + Math.max(i, j) * 7L) * scale;
+                    matrix[i][j] = directed && i > j ? base + 3 : base;
+                }
+            }
+        }
+        return matrix;
+    }
+}
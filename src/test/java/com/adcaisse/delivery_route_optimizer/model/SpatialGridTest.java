@@ -0,0 +1,42 @@
+package com.adcaisse.delivery_route_optimizer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpatialGridTest {
+
+    @Test
+    void findsTheSameNeighboursAsABruteForceScan() {
+        Random random = new Random(17);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // A dense centre and a sparse outskirt, so cells hold very different counts
+            double spread = i % 5 == 0 ? 0.4 : 0.05;
+            locations.add(new Location(i, 36.8 + (random.nextDouble() - 0.5) * spread,
+                    10.2 + (random.nextDouble() - 0.5) * spread));
+        }
+        // Same coordinates as location 0: never its own neighbour
+        locations.add(new Location(500, locations.get(0).getLatitude(), locations.get(0).getLongitude()));
+
+        int[][] neighbours = SpatialGrid.nearestNeighbours(locations, 10);
+
+        for (int i = 0; i < locations.size(); i++) {
+            Location origin = locations.get(i);
+            int[] expected = IntStream.range(0, locations.size())
+                    .filter(j -> SpatialGrid.straightLineMeters(origin, locations.get(j)) > 0)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(j -> SpatialGrid.straightLineMeters(origin, locations.get(j))))
+                    .limit(10)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertThat(neighbours[i]).as("neighbours of %d", i).containsExactlyInAnyOrder(expected);
+        }
+    }
+}
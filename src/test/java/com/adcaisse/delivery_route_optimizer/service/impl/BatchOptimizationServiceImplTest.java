@@ -0,0 +1,126 @@
+package com.adcaisse.delivery_route_optimizer.service.impl;
+
+import com.adcaisse.delivery_route_optimizer.dto.BatchResultDto;
+import com.adcaisse.delivery_route_optimizer.dto.BatchSummaryDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTerminationManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchOptimizationServiceImplTest {
+
+    private AdaptiveTerminationManager terminationManager;
+    private BatchOptimizationServiceImpl batchService;
+
+    @BeforeEach
+    void setUp() {
+        DistanceCalculatorService distanceCalculator = mock(DistanceCalculatorService.class);
+        when(distanceCalculator.computeDistanceMatrix(anyList())).thenAnswer(invocation -> {
+            List<Location> locations = invocation.getArgument(0);
+            long[][] matrix = new long[locations.size()][locations.size()];
+            for (int i = 0; i < locations.size(); i++) {
+                for (int j = 0; j < locations.size(); j++) {
+                    Location from = locations.get(i);
+                    Location to = locations.get(j);
+                    matrix[i][j] = Math.round((Math.abs(from.getLatitude() - to.getLatitude())
+                            + Math.abs(from.getLongitude() - to.getLongitude())) * 100_000);
+                }
+            }
+            return new DistanceMatrix(locations, matrix, true);
+        });
+        terminationManager = new AdaptiveTerminationManager(200, 20, 300000, 2000);
+        VehicleRoutingServiceImpl routingService = new VehicleRoutingServiceImpl(distanceCalculator, terminationManager,
+                "NONE", 300);
+        batchService = new BatchOptimizationServiceImpl(routingService, terminationManager, "2", 2, 0.5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchService.close();
+        terminationManager.close();
+    }
+
+    @Test
+    void everyProblemGetsOneResultAndInvalidOnesFailAlone() {
+        List<VehicleRoutingRequest> requests = new ArrayList<>();
+        // Two depots near Tunis share a region, one in Sfax has its own
+        requests.add(request(new Location(0, 36.80, 10.20), 12, 1));
+        requests.add(request(new Location(0, 36.85, 10.15), 10, 2));
+        requests.add(request(new Location(0, 34.74, 10.76), 8, 3));
+        VehicleRoutingRequest mismatched = request(new Location(0, 36.82, 10.18), 6, 4);
+        mismatched.setCustomerDemands(List.of(1, 2));
+        requests.add(mismatched);
+        VehicleRoutingRequest partitioned = request(new Location(0, 34.70, 10.70), 6, 5);
+        partitioned.setPartitionSize(3);
+        requests.add(partitioned);
+
+        List<BatchResultDto> results = new ArrayList<>();
+        BatchSummaryDto summary = batchService.optimize(requests, results::add);
+
+        assertThat(results).extracting(BatchResultDto::getIndex).containsExactlyInAnyOrder(0, 1, 2, 3, 4);
+        for (BatchResultDto result : results) {
+            if (result.getIndex() < 3) {
+                assertThat(result.getError()).isNull();
+                assertThat(result.getSolution().getTotalCustomers())
+                        .isEqualTo(requests.get(result.getIndex()).getCustomerLocations().size());
+            } else {
+                assertThat(result.getSolution()).isNull();
+                assertThat(result.getError()).isNotBlank();
+            }
+        }
+        assertThat(summary.getProblems()).isEqualTo(5);
+        assertThat(summary.getSolved()).isEqualTo(3);
+        assertThat(summary.getFailed()).isEqualTo(2);
+        assertThat(summary.getRegions()).isEqualTo(2);
+        assertThat(summary.getProblemsPerMinute()).isPositive();
+    }
+
+    @Test
+    void failingConsumerCancelsTheRestOfTheBatch() {
+        List<VehicleRoutingRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(request(new Location(0, 36.80, 10.20), 8, 10 + i));
+        }
+        List<BatchResultDto> results = new ArrayList<>();
+
+        BatchSummaryDto summary = batchService.optimize(requests, result -> {
+            results.add(result);
+            throw new IllegalStateException("client went away");
+        });
+
+        assertThat(results).hasSize(1);
+        assertThat(summary.getSolved() + summary.getFailed()).isEqualTo(1);
+    }
+
+    private static VehicleRoutingRequest request(Location depot, int customers, long seed) {
+        Random random = new Random(seed);
+        List<Location> locations = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        for (int i = 1; i <= customers; i++) {
+            locations.add(new Location(i, depot.getLatitude() - 0.05 + random.nextDouble() * 0.1,
+                    depot.getLongitude() - 0.05 + random.nextDouble() * 0.1));
+            demands.add(1 + random.nextInt(5));
+        }
+        VehicleRoutingRequest request = new VehicleRoutingRequest();
+        request.setDepot(depot);
+        request.setCustomerLocations(locations);
+        request.setCustomerDemands(demands);
+        request.setVehicleCapacities(List.of(30, 30));
+        request.setTermination(new TerminationPolicyDto(300L, null, null, null, null));
+        return request;
+    }
+}
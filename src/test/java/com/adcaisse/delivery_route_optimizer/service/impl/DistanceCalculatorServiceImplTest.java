@@ -0,0 +1,236 @@
+package com.adcaisse.delivery_route_optimizer.service.impl;
+
+import com.adcaisse.delivery_route_optimizer.client.GraphHopperClient;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.model.SpatialGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DistanceCalculatorServiceImplTest {
+
+    private GraphHopperClient graphHopperClient;
+    private DistanceCalculatorServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        graphHopperClient = mock(GraphHopperClient.class);
+        when(graphHopperClient.getProfile()).thenReturn("car");
+        when(graphHopperClient.isDirected()).thenReturn(true);
+        when(graphHopperClient.getCostMatrix(anyList())).thenAnswer(invocation -> {
+            List<Location> locations = invocation.getArgument(0);
+            long[][] matrix = new long[locations.size()][locations.size()];
+            for (int i = 0; i < locations.size(); i++) {
+                for (int j = 0; j < locations.size(); j++) {
+                    matrix[i][j] = cost(locations.get(i), locations.get(j));
+                }
+            }
+            return matrix;
+        });
+        when(graphHopperClient.getCostMatrix(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Location> origins = invocation.getArgument(0);
+            List<Location> destinations = invocation.getArgument(1);
+            long[][] matrix = new long[origins.size()][destinations.size()];
+            for (int i = 0; i < origins.size(); i++) {
+                for (int j = 0; j < destinations.size(); j++) {
+                    matrix[i][j] = cost(origins.get(i), destinations.get(j));
+                }
+            }
+            return matrix;
+        });
+        when(graphHopperClient.getCostPair(any(Location.class), any(Location.class))).thenAnswer(invocation ->
+                new long[]{cost(invocation.getArgument(0), invocation.getArgument(1)),
+                        cost(invocation.getArgument(1), invocation.getArgument(0))});
+        service = new DistanceCalculatorServiceImpl(graphHopperClient, 1, false, null, 0, 0);
+    }
+
+    @Test
+    void sameAddressesWithNewIdsAreServedFromCache() throws Exception {
+        DistanceMatrix first = service.computeDistanceMatrix(List.of(
+                new Location(0, 36.7682, 10.2753), new Location(1, 36.8196, 10.3035), new Location(2, 36.8064, 10.1817)));
+        assertThat(first.getFetchStats().getReuseRatio()).isZero();
+
+        // Another request numbers the same places differently
+        DistanceMatrix second = service.computeDistanceMatrix(List.of(
+                new Location(7, 36.8064, 10.1817), new Location(8, 36.7682, 10.2753), new Location(9, 36.8196, 10.3035)));
+
+        verify(graphHopperClient, times(1)).getCostMatrix(anyList());
+        assertThat(second.getFetchStats().getCachedCells()).isEqualTo(6);
+        assertThat(second.getFetchStats().getFetchedCells()).isZero();
+        assertThat(second.getDistance(7, 8)).isEqualTo(first.getDistance(2, 0));
+        assertThat(service.getCacheStats().getMatrixReuseRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void concurrentMissesOnOnePairShareOneRequest() throws Exception {
+        Location a = new Location(1, 36.8196, 10.3035);
+        Location b = new Location(2, 36.8064, 10.1817);
+        CountDownLatch release = new CountDownLatch(1);
+        when(graphHopperClient.getCostPair(any(Location.class), any(Location.class))).thenAnswer(invocation -> {
+            release.await();
+            return new long[]{cost(invocation.getArgument(0), invocation.getArgument(1)),
+                    cost(invocation.getArgument(1), invocation.getArgument(0))};
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> forward = new ArrayList<>();
+            List<Future<Long>> backward = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                forward.add(executor.submit(() -> service.getDistance(a, b)));
+                backward.add(executor.submit(() -> service.getDistance(b, a)));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (service.getCacheStats().getDeduplicatedPairLookups() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<Long> distance : forward) {
+                assertThat(distance.get(5, TimeUnit.SECONDS)).isEqualTo(distance(a, b));
+            }
+            for (Future<Long> distance : backward) {
+                assertThat(distance.get(5, TimeUnit.SECONDS)).isEqualTo(distance(b, a));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(graphHopperClient, times(1)).getCostPair(any(Location.class), any(Location.class));
+        assertThat(service.getCacheStats().getDeduplicatedPairLookups()).isEqualTo(3);
+    }
+
+    @Test
+    void addingStopsFetchesOnlyTheirRowsAndColumns() throws Exception {
+        List<Location> known = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            known.add(new Location(i, 36.70 + i * 0.01, 10.10 + (i % 4) * 0.02));
+        }
+        service.computeDistanceMatrix(known);
+
+        List<Location> withNewStops = new ArrayList<>(known);
+        for (int i = 0; i < 5; i++) {
+            withNewStops.add(new Location(20 + i, 36.60 - i * 0.01, 10.30));
+        }
+        DistanceMatrix matrix = service.computeDistanceMatrix(withNewStops);
+
+        // 5 new rows x 24 other columns + 20 known rows x 5 new columns, instead of 25 x 24
+        assertThat(matrix.getFetchStats().getFetchedCells()).isEqualTo(5 * 24 + 20 * 5);
+        assertThat(matrix.getFetchStats().getCachedCells()).isEqualTo(20 * 19);
+        verify(graphHopperClient, times(2)).getCostMatrix(anyList(), anyList());
+        assertThat(matrix.getDistance(3, 22)).isEqualTo(distance(withNewStops.get(3), withNewStops.get(22)));
+        assertThat(matrix.getDistance(21, 7)).isEqualTo(distance(withNewStops.get(21), withNewStops.get(7)));
+    }
+
+    @Test
+    void extendingAMatrixCopiesItsCellsInsteadOfLookingThemUp() throws Exception {
+        List<Location> known = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            known.add(new Location(i, 36.70 + i * 0.01, 10.10 + (i % 4) * 0.02));
+        }
+        DistanceMatrix base = service.computeDistanceMatrix(known);
+        service.clearCache();
+
+        List<Location> added = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            added.add(new Location(20 + i, 36.60 - i * 0.01, 10.30));
+        }
+        DistanceMatrix matrix = service.extendDistanceMatrix(base, added);
+
+        // The cleared cache does not matter: only the new rows and columns are requested
+        assertThat(matrix.size()).isEqualTo(25);
+        assertThat(matrix.getFetchStats().getRequestedCells()).isEqualTo(5 * 24 + 20 * 5);
+        assertThat(matrix.getFetchStats().getFetchedCells()).isEqualTo(5 * 24 + 20 * 5);
+        verify(graphHopperClient, times(2)).getCostMatrix(anyList(), anyList());
+        assertThat(matrix.getDistanceByIndex(3, 7)).isEqualTo(base.getDistanceByIndex(3, 7));
+        assertThat(matrix.getDistanceByIndex(22, 3)).isEqualTo(distance(added.get(2), known.get(3)));
+        // Travel times come with the distances, for copied and fetched cells alike
+        assertThat(matrix.hasDurations()).isTrue();
+        assertThat(matrix.getDurationByIndex(3, 7)).isEqualTo(distance(known.get(3), known.get(7)) / 10);
+        assertThat(matrix.getDurationByIndex(22, 3)).isEqualTo(distance(added.get(2), known.get(3)) / 10);
+    }
+
+    @Test
+    void differentPlacesSharingAnIdDoNotShareDistances() throws Exception {
+        Location depot = new Location(0, 36.7682, 10.2753);
+        long toFirst = service.getDistance(depot, new Location(1, 36.8196, 10.3035));
+        long toSecond = service.getDistance(depot, new Location(1, 36.6800, 10.1600));
+
+        assertThat(toSecond).isNotEqualTo(toFirst);
+        verify(graphHopperClient, never()).getCostMatrix(anyList());
+    }
+
+    @Test
+    void directedDistancesKeepTheirDirection() throws Exception {
+        Location north = new Location(0, 36.8196, 10.3035);
+        Location south = new Location(1, 36.7682, 10.2753);
+
+        assertThat(service.getDistance(south, north)).isEqualTo(distance(south, north));
+        assertThat(service.getDistance(north, south)).isEqualTo(distance(north, south));
+        verify(graphHopperClient, times(1)).getCostPair(any(Location.class), any(Location.class));
+
+        DistanceMatrix matrix = service.computeDistanceMatrix(List.of(north, south));
+        assertThat(matrix.isDirected()).isTrue();
+        assertThat(matrix.getDistance(1, 0)).isEqualTo(matrix.getDistance(0, 1) + ONE_WAY_DETOUR);
+    }
+
+    @Test
+    void sparseMatrixFetchesNeighboursAndDepotAndEstimatesTheRest() {
+        Random random = new Random(3);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            locations.add(new Location(i, 36.7 + random.nextDouble() * 0.2, 10.1 + random.nextDouble() * 0.2));
+        }
+
+        DistanceMatrix matrix = service.computeSparseDistanceMatrix(locations, 8);
+
+        int n = locations.size();
+        assertThat(matrix.isSparse()).isTrue();
+        assertThat(matrix.getFetchStats().getFetchedCells()).isLessThan((long) n * (n - 1) / 5);
+        assertThat(matrix.getFetchStats().getEstimatedCells() + matrix.getFetchStats().getFetchedCells())
+                .isEqualTo((long) n * (n - 1));
+        int[][] nearest = SpatialGrid.nearestNeighbours(locations, 8);
+        for (int i = 0; i < n; i++) {
+            assertThat(matrix.getDistanceByIndex(0, i)).isEqualTo(distance(locations.get(0), locations.get(i)));
+            assertThat(matrix.getDistanceByIndex(i, 0)).isEqualTo(distance(locations.get(i), locations.get(0)));
+            for (int j : nearest[i]) {
+                assertThat(matrix.isNeighbour(i, j)).isTrue();
+                assertThat(matrix.getDistanceByIndex(i, j)).isEqualTo(distance(locations.get(i), locations.get(j)));
+            }
+        }
+        // Estimates for far pairs land near the real distance, given one detour factor for the whole city
+        long far = matrix.getDistanceByIndex(nearest[1].length, n - 1);
+        assertThat(far).isBetween(distance(locations.get(nearest[1].length), locations.get(n - 1)) / 2,
+                distance(locations.get(nearest[1].length), locations.get(n - 1)) * 2);
+    }
+
+    /** Going north costs a detour, as if the direct street were one-way southbound. */
+    private static final long ONE_WAY_DETOUR = 250;
+
+    private static long distance(Location from, Location to) {
+        return Math.round((Math.abs(from.getLatitude() - to.getLatitude())
+                + Math.abs(from.getLongitude() - to.getLongitude())) * 100_000)
+                + (from.getLatitude() < to.getLatitude() ? ONE_WAY_DETOUR : 0);
+    }
+
+    private static long cost(Location from, Location to) {
+        return RoadCost.of(distance(from, to), distance(from, to) / 10);
+    }
+}
@@ -0,0 +1,262 @@
+package com.adcaisse.delivery_route_optimizer.service.impl;
+
+import com.adcaisse.delivery_route_optimizer.dto.CustomerStopDto;
+import com.adcaisse.delivery_route_optimizer.dto.RouteChangesDto;
+import com.adcaisse.delivery_route_optimizer.dto.SolutionUpdateDto;
+import com.adcaisse.delivery_route_optimizer.dto.SolveJobDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRouteDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
+import com.adcaisse.delivery_route_optimizer.exception.JobNotFoundException;
+import com.adcaisse.delivery_route_optimizer.exception.JobStateException;
+import com.adcaisse.delivery_route_optimizer.exception.SolverQueueFullException;
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.SolveJobStatus;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.service.SolveJobListener;
+import com.adcaisse.delivery_route_optimizer.service.VehicleRoutingService;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTerminationManager;
+import com.adcaisse.delivery_route_optimizer.solver.PlanChange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SolveJobServiceImplTest {
+
+    private AdaptiveTerminationManager terminationManager;
+    private SolveJobServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        VehicleRoutingService vehicleRoutingService = mock(VehicleRoutingService.class);
+        when(vehicleRoutingService.createProblem(any(), anyList(), anyList(), anyList(), any(), any()))
+                .thenAnswer(invocation -> createProblem(invocation.getArgument(0), invocation.getArgument(1)));
+        // Every change adds one stop next to the depot
+        when(vehicleRoutingService.createPlanChange(any(), any())).thenAnswer(invocation -> {
+            VehicleRoutingSolution plan = invocation.getArgument(0);
+            List<Location> locations = new ArrayList<>(plan.getDistanceMatrix().getLocations());
+            long id = plan.getCustomerList().size() + 1L;
+            Customer customer = new Customer(id, "Customer " + id, new Location(id, 36.81, 10.21), 1);
+            customer.setMatrixIndex(locations.size());
+            locations.add(customer.getLocation());
+            return new PlanChange(List.of(customer), Set.of(), List.of(), Set.of(), matrix(locations));
+        });
+        when(vehicleRoutingService.getSolutionDto(any())).thenAnswer(invocation -> {
+            VehicleRoutingSolution solution = invocation.getArgument(0);
+            VehicleRoutingSolutionDto dto = new VehicleRoutingSolutionDto();
+            dto.setScore(solution.getScore());
+            dto.setTotalCustomers(solution.getTotalCustomers());
+            return dto;
+        });
+        when(vehicleRoutingService.getRouteDto(any(), any())).thenAnswer(invocation -> {
+            Vehicle vehicle = invocation.getArgument(1);
+            VehicleRouteDto dto = new VehicleRouteDto();
+            dto.setVehicleId(vehicle.getId());
+            dto.setStops(vehicle.getCustomerList().stream()
+                    .map(customer -> new CustomerStopDto(customer.getId(), customer.getName(),
+                            customer.getLocation(), customer.getDemand(), null, null))
+                    .toList());
+            return dto;
+        });
+        // Jobs without a policy run for a minute unless terminated
+        terminationManager = new AdaptiveTerminationManager(60_000, 0, 300_000, 0);
+        // One solver thread, room for one queued job, at most 5 updates per second per subscriber
+        service = new SolveJobServiceImpl(vehicleRoutingService, terminationManager, "NONE", "1", 1, 60, 200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        terminationManager.close();
+    }
+
+    @Test
+    void rejectsJobsBeyondSolverThreadsPlusQueueAndTerminatesEarly() {
+        SolveJobDto running = service.submit(request(12));
+        SolveJobDto queued = service.submit(request(8));
+        assertThat(queued.getStatus()).isEqualTo(SolveJobStatus.QUEUED);
+
+        assertThatThrownBy(() -> service.submit(request(5))).isInstanceOf(SolverQueueFullException.class);
+
+        // The queued job keeps its slot until the SolverManager has let go of it
+        assertThat(service.terminateEarly(queued.getJobId()).getStatus()).isEqualTo(SolveJobStatus.QUEUED);
+        assertThatThrownBy(() -> service.submit(request(5))).isInstanceOf(SolverQueueFullException.class);
+
+        waitFor(() -> service.getBestSolution(running.getJobId()) != null);
+        service.terminateEarly(running.getJobId());
+        waitFor(() -> service.getJob(running.getJobId()).getStatus() == SolveJobStatus.TERMINATED);
+
+        SolveJobDto terminated = service.getJob(running.getJobId());
+        assertThat(terminated.getScore()).isNotNull();
+        assertThat(terminated.getFinishedAt()).isNotNull();
+        assertThat(service.getBestSolution(running.getJobId()).getTotalCustomers()).isEqualTo(12);
+
+        // Once the solver thread picks the queued job up, it ends without solving and frees its slot
+        waitFor(() -> service.getJob(queued.getJobId()).getStatus() == SolveJobStatus.TERMINATED);
+        assertThat(service.getBestSolution(queued.getJobId())).isNull();
+        SolveJobDto next = service.submit(request(5));
+        waitFor(() -> service.getJob(next.getJobId()).getStatus() != SolveJobStatus.QUEUED);
+        service.terminateEarly(next.getJobId());
+    }
+
+    @Test
+    void streamsThrottledRouteDiffsUntilTheJobFinishes() throws Exception {
+        SolveJobDto job = service.submit(request(20));
+        List<SolutionUpdateDto> updates = new CopyOnWriteArrayList<>();
+        List<Long> receivedAt = new CopyOnWriteArrayList<>();
+        AtomicReference<SolveJobDto> finished = new AtomicReference<>();
+
+        service.subscribe(job.getJobId(), new SolveJobListener() {
+            @Override
+            public void onUpdate(SolutionUpdateDto update) {
+                updates.add(update);
+                receivedAt.add(System.currentTimeMillis());
+            }
+
+            @Override
+            public void onFinished(SolveJobDto finishedJob) {
+                finished.set(finishedJob);
+            }
+        });
+
+        waitFor(() -> !updates.isEmpty());
+        Thread.sleep(1000);
+        service.terminateEarly(job.getJobId());
+        waitFor(() -> finished.get() != null);
+
+        assertThat(finished.get().getStatus()).isEqualTo(SolveJobStatus.TERMINATED);
+        // Every update but the final one, which is flushed when the job ends, respects the interval
+        for (int i = 1; i < receivedAt.size() - 1; i++) {
+            assertThat(receivedAt.get(i) - receivedAt.get(i - 1)).isGreaterThanOrEqualTo(190);
+        }
+
+        // Replaying the diffs yields the final best solution
+        Map<Long, List<Long>> routes = new HashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            SolutionUpdateDto update = updates.get(i);
+            assertThat(update.getSequence()).isEqualTo(i + 1);
+            update.getRemovedVehicleIds().forEach(routes::remove);
+            for (VehicleRouteDto route : update.getChangedRoutes()) {
+                routes.put(route.getVehicleId(), route.getStops().stream().map(CustomerStopDto::getCustomerId).toList());
+            }
+        }
+        assertThat(routes.values().stream().mapToInt(List::size).sum()).isEqualTo(20);
+        assertThat(updates.get(updates.size() - 1).getScore()).isEqualTo(finished.get().getScore());
+    }
+
+    @Test
+    void requestPolicyCompletesTheJob() {
+        VehicleRoutingRequest request = request(10);
+        request.setTermination(new TerminationPolicyDto(300L, null, null, null, null));
+        long submitted = System.currentTimeMillis();
+        SolveJobDto job = service.submit(request);
+
+        waitFor(() -> service.getJob(job.getJobId()).getStatus() == SolveJobStatus.COMPLETED);
+        assertThat(System.currentTimeMillis() - submitted).isLessThan(5_000);
+        assertThat(service.getJob(job.getJobId()).getScore().isSolutionInitialized()).isTrue();
+    }
+
+    @Test
+    void changesReachTheRunningSolver() {
+        SolveJobDto job = service.submit(request(10));
+        waitFor(() -> service.getBestSolution(job.getJobId()) != null);
+
+        service.applyChanges(job.getJobId(), new RouteChangesDto());
+        service.applyChanges(job.getJobId(), new RouteChangesDto());
+
+        // Both changes are planned, the second on top of the first
+        waitFor(() -> service.getBestSolution(job.getJobId()).getTotalCustomers() == 12
+                && service.getJob(job.getJobId()).getScore().isSolutionInitialized());
+        service.terminateEarly(job.getJobId());
+        waitFor(() -> service.getJob(job.getJobId()).getStatus() == SolveJobStatus.TERMINATED);
+
+        assertThatThrownBy(() -> service.applyChanges(job.getJobId(), new RouteChangesDto()))
+                .isInstanceOf(JobStateException.class);
+    }
+
+    @Test
+    void rejectsDeadlinesInThePast() {
+        VehicleRoutingRequest request = request(10);
+        request.setTermination(new TerminationPolicyDto(null, null, null, null, OffsetDateTime.now().minusSeconds(1)));
+
+        assertThatThrownBy(() -> service.submit(request)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void unknownJobIsNotFound() {
+        assertThatThrownBy(() -> service.getJob("missing")).isInstanceOf(JobNotFoundException.class);
+    }
+
+    private static void waitFor(Supplier<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.get()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static VehicleRoutingRequest request(int customerCount) {
+        List<Location> customers = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        for (int i = 1; i <= customerCount; i++) {
+            customers.add(new Location(i, 36.7 + i * 0.01, 10.1 + (i % 3) * 0.02));
+            demands.add(1 + i % 4);
+        }
+        return new VehicleRoutingRequest(new Location(0L, 36.8, 10.2), customers, List.of(100, 100), demands, null, null, null, null);
+    }
+
+    private static VehicleRoutingSolution createProblem(Location depot, List<Location> customerLocations) {
+        List<Location> locations = new ArrayList<>();
+        locations.add(depot);
+        locations.addAll(customerLocations);
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < customerLocations.size(); i++) {
+            Customer customer = new Customer((long) i + 1, "Customer " + (i + 1), customerLocations.get(i), 1);
+            customer.setMatrixIndex(i + 1);
+            customers.add(customer);
+        }
+        List<Vehicle> vehicles = List.of(new Vehicle(1L, "Vehicle 1", 100, depot), new Vehicle(2L, "Vehicle 2", 100, depot));
+
+        VehicleRoutingSolution problem = new VehicleRoutingSolution("Job", customers, new ArrayList<>(vehicles));
+        problem.setDistanceMatrix(matrix(locations));
+        return problem;
+    }
+
+    private static DistanceMatrix matrix(List<Location> locations) {
+        long[][] matrix = new long[locations.size()][locations.size()];
+        for (int i = 0; i < locations.size(); i++) {
+            for (int j = 0; j < locations.size(); j++) {
+                matrix[i][j] = Math.round((Math.abs(locations.get(i).getLatitude() - locations.get(j).getLatitude())
+                        + Math.abs(locations.get(i).getLongitude() - locations.get(j).getLongitude())) * 100_000);
+            }
+        }
+        return new DistanceMatrix(locations, matrix, true);
+    }
+}
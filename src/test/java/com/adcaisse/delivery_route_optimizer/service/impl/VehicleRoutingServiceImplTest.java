@@ -0,0 +1,293 @@
+package com.adcaisse.delivery_route_optimizer.service.impl;
+
+import com.adcaisse.delivery_route_optimizer.dto.CustomerStopDto;
+import com.adcaisse.delivery_route_optimizer.dto.RouteChangesDto;
+import com.adcaisse.delivery_route_optimizer.dto.RouteLegDto;
+import com.adcaisse.delivery_route_optimizer.dto.TerminationPolicyDto;
+import com.adcaisse.delivery_route_optimizer.dto.TimeWindowDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRouteDto;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingRequest;
+import com.adcaisse.delivery_route_optimizer.dto.VehicleRoutingSolutionDto;
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.SpatialGrid;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import com.adcaisse.delivery_route_optimizer.service.DistanceCalculatorService;
+import com.adcaisse.delivery_route_optimizer.solver.AdaptiveTerminationManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VehicleRoutingServiceImplTest {
+
+    // "2" forces real move threads even on machines where AUTO falls back to NONE
+    @ParameterizedTest
+    @ValueSource(strings = {"AUTO", "2"})
+    void moveThreadsScoreRoutesWithTheSolutionsDistanceMatrix(String moveThreadCount) {
+        Random random = new Random(11);
+        Location depot = new Location(0L, 36.80, 10.20);
+        List<Location> customerLocations = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            customerLocations.add(new Location(i, 36.7 + random.nextDouble() * 0.2, 10.1 + random.nextDouble() * 0.2));
+            demands.add(1 + random.nextInt(10));
+        }
+
+        DistanceCalculatorService distanceCalculator = manhattanCalculator();
+
+        AdaptiveTerminationManager terminationManager = new AdaptiveTerminationManager(200, 20, 300000, 2000);
+        VehicleRoutingServiceImpl service = new VehicleRoutingServiceImpl(distanceCalculator, terminationManager, moveThreadCount, 300);
+        VehicleRoutingSolution solution = service.solveVRP(request(depot, customerLocations, List.of(60, 60, 60, 60), demands));
+        terminationManager.close();
+
+        assertThat(solution.getTotalCustomers()).isEqualTo(30);
+        assertThat(solution.getScore()).isEqualTo(expectedScore(solution));
+        assertThat(solution.getScore().softScore()).isLessThan(-1000000L * usedVehicles(solution));
+    }
+
+    @Test
+    void partitionedSolveCoversEveryCustomerAndScoresRoadDistances() {
+        Random random = new Random(23);
+        Location depot = new Location(0L, 36.80, 10.20);
+        List<Location> customerLocations = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        for (int i = 1; i <= 60; i++) {
+            customerLocations.add(new Location(i, 36.7 + random.nextDouble() * 0.2, 10.1 + random.nextDouble() * 0.2));
+            demands.add(1 + random.nextInt(10));
+        }
+
+        DistanceCalculatorService distanceCalculator = manhattanCalculator();
+        AdaptiveTerminationManager terminationManager = new AdaptiveTerminationManager(200, 20, 300000, 2000);
+        VehicleRoutingServiceImpl service = new VehicleRoutingServiceImpl(distanceCalculator, terminationManager, "NONE", 300);
+        VehicleRoutingRequest request = request(depot, customerLocations, List.of(80, 80, 80, 80, 80, 80), demands);
+        request.setTermination(new TerminationPolicyDto(1500L, null, null, null, null));
+        request.setPartitionSize(20);
+        VehicleRoutingSolution solution = service.solveVRP(request);
+        terminationManager.close();
+
+        assertThat(solution.getTotalCustomers()).isEqualTo(60);
+        assertThat(solution.getVehicleList().stream().flatMap(vehicle -> vehicle.getCustomerList().stream()).distinct())
+                .hasSize(60);
+        assertThat(solution.getDistanceMatrix()).isNull();
+        // Without a full matrix the score is summed per route, which must match the road distances
+        assertThat(solution.getScore().softScore())
+                .isEqualTo(-1000000L * usedVehicles(solution) - roadDistance(solution, depot));
+        assertThat(solution.isFeasible()).isTrue();
+
+        // The response reuses the legs recorded by the sub-solves instead of looking distances up again
+        VehicleRoutingSolutionDto dto = service.getSolutionDto(solution);
+        verify(distanceCalculator, never()).getDistance(any(), any());
+        assertThat(dto.getTotalDistance()).isEqualTo(roadDistance(solution, depot));
+        for (VehicleRouteDto route : dto.getRoutes()) {
+            assertThat(route.getLegs()).hasSize(route.getStops().size() + 1);
+            assertThat(route.getLegs().get(0).getFromCustomerId()).isNull();
+            assertThat(route.getLegs().get(0).getToCustomerId()).isEqualTo(route.getStops().get(0).getCustomerId());
+            assertThat(route.getLegs().get(route.getStops().size()).getToCustomerId()).isNull();
+            assertThat(route.getLegs().stream().mapToLong(RouteLegDto::getDistance).sum()).isEqualTo(route.getDistance());
+            // Without travel times from the distance calculator, legs are timed at the 50 km/h estimate
+            assertThat(route.getDuration()).isGreaterThan(route.getLegs().stream().mapToLong(RouteLegDto::getDuration).sum());
+        }
+    }
+
+    @Test
+    void partitionedSolveKeepsToTheTimeBudgetWithMoreSectorsThanThreads() {
+        // More sectors than solver threads, so sectors queue for a thread
+        int sectorCount = 2 * Runtime.getRuntime().availableProcessors() + 1;
+        Random random = new Random(37);
+        Location depot = new Location(0L, 36.80, 10.20);
+        List<Location> customerLocations = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        List<Integer> capacities = new ArrayList<>();
+        for (int i = 1; i <= sectorCount * 10; i++) {
+            customerLocations.add(new Location(i, 36.7 + random.nextDouble() * 0.2, 10.1 + random.nextDouble() * 0.2));
+            demands.add(1 + random.nextInt(10));
+        }
+        for (int v = 0; v < sectorCount; v++) {
+            capacities.add(100);
+        }
+
+        AdaptiveTerminationManager terminationManager = new AdaptiveTerminationManager(200, 20, 300000, 2000);
+        VehicleRoutingServiceImpl service = new VehicleRoutingServiceImpl(manhattanCalculator(), terminationManager, "NONE", 300);
+        VehicleRoutingRequest request = request(depot, customerLocations, capacities, demands);
+        request.setTermination(new TerminationPolicyDto(1500L, null, null, null, null));
+        request.setPartitionSize(10);
+        long start = System.currentTimeMillis();
+        VehicleRoutingSolution solution = service.solveVRP(request);
+        long elapsed = System.currentTimeMillis() - start;
+        terminationManager.close();
+
+        assertThat(solution.getTotalCustomers()).isEqualTo(sectorCount * 10);
+        // Polling and solver start-up may run a little past the budget, but not a round of sectors more
+        assertThat(elapsed).isLessThan(1500 + 750);
+    }
+
+    @Test
+    void sparseSolveUsesNearbySelectionOverTheNeighbourGraph() {
+        Random random = new Random(29);
+        Location depot = new Location(0L, 36.80, 10.20);
+        List<Location> customerLocations = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            customerLocations.add(new Location(i, 36.7 + random.nextDouble() * 0.2, 10.1 + random.nextDouble() * 0.2));
+            demands.add(1 + random.nextInt(10));
+        }
+
+        DistanceCalculatorService distanceCalculator = manhattanCalculator();
+        when(distanceCalculator.computeSparseDistanceMatrix(anyList(), anyInt())).thenAnswer(invocation -> {
+            List<Location> locations = invocation.getArgument(0);
+            DistanceMatrix matrix = distanceCalculator.computeDistanceMatrix(locations);
+            matrix.setNeighbours(SpatialGrid.nearestNeighbours(locations, invocation.getArgument(1)));
+            return matrix;
+        });
+        AdaptiveTerminationManager terminationManager = new AdaptiveTerminationManager(200, 20, 300000, 2000);
+        VehicleRoutingServiceImpl service = new VehicleRoutingServiceImpl(distanceCalculator, terminationManager, "NONE", 300);
+        VehicleRoutingRequest request = request(depot, customerLocations, List.of(80, 80, 80, 80), demands);
+        request.setTermination(new TerminationPolicyDto(1000L, null, null, null, null));
+        request.setNeighbourCount(6);
+        VehicleRoutingSolution solution = service.solveVRP(request);
+        terminationManager.close();
+
+        assertThat(solution.getDistanceMatrix().isSparse()).isTrue();
+        assertThat(solution.getTotalCustomers()).isEqualTo(40);
+        assertThat(solution.getScore()).isEqualTo(expectedScore(solution));
+    }
+
+    @Test
+    void replanDropsAndAddsStopsOnACopyOfThePlan() {
+        Random random = new Random(31);
+        Location depot = new Location(0L, 36.80, 10.20);
+        List<Location> customerLocations = new ArrayList<>();
+        List<Integer> demands = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            customerLocations.add(new Location(i, 36.7 + random.nextDouble() * 0.2, 10.1 + random.nextDouble() * 0.2));
+            demands.add(1 + random.nextInt(10));
+        }
+
+        DistanceCalculatorService distanceCalculator = manhattanCalculator();
+        AdaptiveTerminationManager terminationManager = new AdaptiveTerminationManager(200, 20, 300000, 2000);
+        VehicleRoutingServiceImpl service = new VehicleRoutingServiceImpl(distanceCalculator, terminationManager, "NONE", 300);
+        VehicleRoutingRequest request = request(depot, customerLocations, List.of(60, 60, 60, 60), demands);
+        request.setTermination(new TerminationPolicyDto(1000L, null, null, null, null));
+        VehicleRoutingSolution plan = service.solveVRP(request);
+        // A window wide enough that it never costs anything, so the score stays distance only
+        RouteChangesDto changes = new RouteChangesDto(List.of(new Location(100L, 36.75, 10.15)), List.of(5),
+                List.of(new TimeWindowDto(0, 10_000, 5)), List.of(1L, 2L), null, null);
+
+        VehicleRoutingSolution replanned = service.replan(plan, changes, null, null);
+        // The same plan sent back as routes, as a client without a job would
+        VehicleRoutingSolution fromRoutes = service.replan(
+                service.createPlan(depot, service.getSolutionDto(plan).getRoutes()), changes, null, null);
+        terminationManager.close();
+
+        for (VehicleRoutingSolution solution : List.of(replanned, fromRoutes)) {
+            List<Long> planned = solution.getVehicleList().stream()
+                    .flatMap(vehicle -> vehicle.getCustomerList().stream())
+                    .map(Customer::getId)
+                    .toList();
+            assertThat(planned).hasSize(29).contains(31L).doesNotContain(1L, 2L);
+            assertThat(solution.getScore()).isEqualTo(expectedScore(solution));
+        }
+        assertThat(plan.getTotalCustomers()).isEqualTo(30);
+        assertThat(plan.getDistanceMatrix().size()).isEqualTo(31);
+
+        // The added stop's window survives a round trip through the routes
+        List<VehicleRouteDto> routes = service.getSolutionDto(replanned).getRoutes();
+        CustomerStopDto added = routes.stream().flatMap(route -> route.getStops().stream())
+                .filter(stop -> stop.getCustomerId() == 31L)
+                .findFirst().orElseThrow();
+        assertThat(added.getTimeWindow()).isEqualTo(new TimeWindowDto(0, 10_000, 5));
+        assertThat(added.getArrivalTime()).isPositive();
+        Customer restored = service.createPlan(depot, routes).getCustomerList().stream()
+                .filter(customer -> customer.getId() == 31L)
+                .findFirst().orElseThrow();
+        assertThat(restored.getServiceTime()).isEqualTo(5);
+        assertThat(restored.getDueTime()).isEqualTo(10_000);
+    }
+
+    private static VehicleRoutingRequest request(Location depot, List<Location> customerLocations,
+                                                 List<Integer> vehicleCapacities, List<Integer> demands) {
+        VehicleRoutingRequest request = new VehicleRoutingRequest();
+        request.setDepot(depot);
+        request.setCustomerLocations(customerLocations);
+        request.setVehicleCapacities(vehicleCapacities);
+        request.setCustomerDemands(demands);
+        return request;
+    }
+
+    private static DistanceCalculatorService manhattanCalculator() {
+        DistanceCalculatorService distanceCalculator = mock(DistanceCalculatorService.class);
+        when(distanceCalculator.getDistance(any(), any()))
+                .thenAnswer(invocation -> distance(invocation.getArgument(0), invocation.getArgument(1)));
+        when(distanceCalculator.computeDistanceMatrix(anyList())).thenAnswer(invocation -> {
+            List<Location> locations = invocation.getArgument(0);
+            long[][] matrix = new long[locations.size()][locations.size()];
+            for (int i = 0; i < locations.size(); i++) {
+                for (int j = 0; j < locations.size(); j++) {
+                    matrix[i][j] = distance(locations.get(i), locations.get(j));
+                }
+            }
+            return new DistanceMatrix(locations, matrix, true);
+        });
+        when(distanceCalculator.extendDistanceMatrix(any(), anyList())).thenCallRealMethod();
+        return distanceCalculator;
+    }
+
+    private static HardSoftLongScore expectedScore(VehicleRoutingSolution solution) {
+        DistanceMatrix matrix = solution.getDistanceMatrix();
+        long hard = 0;
+        long soft = 0;
+        for (Vehicle vehicle : solution.getVehicleList()) {
+            if (vehicle.getCustomerList().isEmpty()) {
+                continue;
+            }
+            hard -= Math.max(0, vehicle.getTotalDemand() - vehicle.getCapacity());
+            soft -= 1000000L;
+            int previous = vehicle.getDepotIndex();
+            for (Customer customer : vehicle.getCustomerList()) {
+                soft -= matrix.getDistanceByIndex(previous, customer.getMatrixIndex());
+                previous = customer.getMatrixIndex();
+            }
+            soft -= matrix.getDistanceByIndex(previous, vehicle.getDepotIndex());
+        }
+        return HardSoftLongScore.of(hard, soft);
+    }
+
+    private static long roadDistance(VehicleRoutingSolution solution, Location depot) {
+        long total = 0;
+        for (Vehicle vehicle : solution.getVehicleList()) {
+            Location previous = depot;
+            for (Customer customer : vehicle.getCustomerList()) {
+                total += distance(previous, customer.getLocation());
+                previous = customer.getLocation();
+            }
+            total += vehicle.getCustomerList().isEmpty() ? 0 : distance(previous, depot);
+        }
+        return total;
+    }
+
+    private static long usedVehicles(VehicleRoutingSolution solution) {
+        return solution.getVehicleList().stream().filter(vehicle -> !vehicle.getCustomerList().isEmpty()).count();
+    }
+
+    private static long distance(Location from, Location to) {
+        double dLat = to.getLatitude() - from.getLatitude();
+        double dLon = to.getLongitude() - from.getLongitude();
+        return Math.round((Math.abs(dLat) + Math.abs(dLon)) * 100_000) + (dLat > 0 ? 250 : 0);
+    }
+}
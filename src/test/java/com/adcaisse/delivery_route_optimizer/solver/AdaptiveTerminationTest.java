@@ -0,0 +1,49 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveTerminationTest {
+
+    @Test
+    void softLimitsWaitForConstructionButTheHardLimitDoesNot() {
+        AdaptiveTermination termination = new AdaptiveTermination(0, 100, 1_000, 50, 0, 0);
+        termination.bestScoreChanged(HardSoftLongScore.ofUninitialized(-3, 0, -500), 10);
+
+        assertThat(termination.check(500)).isNull();
+        assertThat(termination.check(1_000)).contains("hard time limit");
+        assertThat(termination.isHardLimitReached()).isTrue();
+    }
+
+    @Test
+    void stopsAfterTheBudgetOrWhenImprovementsStall() {
+        AdaptiveTermination budget = new AdaptiveTermination(0, 300, 10_000, 0, 0, 0);
+        budget.bestScoreChanged(HardSoftLongScore.of(0, -1_000), 10);
+        assertThat(budget.check(299)).isNull();
+        assertThat(budget.check(300)).contains("time budget");
+        assertThat(budget.isHardLimitReached()).isFalse();
+
+        AdaptiveTermination unimproved = new AdaptiveTermination(0, 0, 10_000, 200, 0, 0);
+        unimproved.bestScoreChanged(HardSoftLongScore.of(0, -1_000), 10);
+        unimproved.bestScoreChanged(HardSoftLongScore.of(0, -900), 150);
+        assertThat(unimproved.check(349)).isNull();
+        assertThat(unimproved.check(350)).contains("no improvement");
+    }
+
+    @Test
+    void detectsAPlateauOfSmallImprovements() {
+        AdaptiveTermination termination = new AdaptiveTermination(0, 0, 10_000, 0, 1_000, 100);
+        termination.bestScoreChanged(HardSoftLongScore.of(0, -5_000), 10);
+        // Large gains: no plateau
+        termination.bestScoreChanged(HardSoftLongScore.of(0, -3_000), 800);
+        termination.bestScoreChanged(HardSoftLongScore.of(0, -2_000), 1_500);
+        assertThat(termination.check(1_600)).isNull();
+
+        // Only 60 gained between 1,500 (-2,000) and 2,500
+        termination.bestScoreChanged(HardSoftLongScore.of(0, -1_980), 1_900);
+        termination.bestScoreChanged(HardSoftLongScore.of(0, -1_940), 2_400);
+        assertThat(termination.check(2_500)).contains("improved less than 100");
+    }
+}
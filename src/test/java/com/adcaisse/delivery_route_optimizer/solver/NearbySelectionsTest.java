@@ -0,0 +1,25 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.config.heuristic.selector.common.nearby.NearbySelectionConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearbySelectionsTest {
+
+    @Test
+    void capsEveryLocalSearchSelectorOfTheSolverConfig() {
+        SolverConfig solverConfig = SolverConfig.createFromXmlResource("solverConfig.xml");
+
+        assertThat(NearbySelections.of(solverConfig)).hasSize(4)
+                .allSatisfy(nearbySelection -> assertThat(nearbySelection.getNearbyDistanceMeterClass())
+                        .isEqualTo(NeighbourGraphDistanceMeter.class));
+
+        NearbySelections.limitSize(solverConfig, 10);
+
+        assertThat(NearbySelections.of(solverConfig))
+                .extracting(NearbySelectionConfig::getParabolicDistributionSizeMaximum)
+                .containsOnly(10);
+    }
+}
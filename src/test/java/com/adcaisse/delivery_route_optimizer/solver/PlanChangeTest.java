@@ -0,0 +1,107 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlanChangeTest {
+
+    private static final Location DEPOT = new Location(0, 36.80, 10.20);
+
+    @Test
+    void runningSolverTakesAddedAndRemovedStopsAndVehicles() throws Exception {
+        // FULL_ASSERT checks the incremental score against the constraint provider after the change too
+        SolverConfig config = SolverConfig.createFromXmlResource("solverConfig.xml")
+                .withEnvironmentMode(EnvironmentMode.FULL_ASSERT)
+                .withTerminationConfig(new TerminationConfig().withSecondsSpentLimit(3L));
+        config.getScoreDirectorFactoryConfig().setAssertionScoreDirectorFactory(
+                new ScoreDirectorFactoryConfig().withConstraintProviderClass(VehicleRoutingConstraintProvider.class));
+        Solver<VehicleRoutingSolution> solver = SolverFactory.<VehicleRoutingSolution>create(config).buildSolver();
+
+        List<Location> locations = new ArrayList<>(List.of(DEPOT));
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            customers.add(customer(i, locations));
+        }
+        List<Vehicle> vehicles = new ArrayList<>(List.of(
+                new Vehicle(1L, "Vehicle 1", 100, DEPOT), new Vehicle(2L, "Vehicle 2", 100, DEPOT)));
+        VehicleRoutingSolution problem = new VehicleRoutingSolution("Plan change", customers, vehicles);
+        problem.setDistanceMatrix(manhattan(locations));
+
+        CompletableFuture<VehicleRoutingSolution> solved = CompletableFuture.supplyAsync(() -> solver.solve(problem));
+        while (!solver.isSolving()) {
+            Thread.sleep(10);
+        }
+        List<Location> extended = new ArrayList<>(locations);
+        Customer added = customer(13, extended);
+        solver.addProblemChange(new PlanChange(List.of(added), Set.of(3L),
+                List.of(new Vehicle(3L, "Vehicle 3", 100, DEPOT)), Set.of(1L), manhattan(extended)));
+        VehicleRoutingSolution solution = solved.get(30, TimeUnit.SECONDS);
+
+        assertThat(solution.getVehicleList()).extracting(Vehicle::getId).containsExactlyInAnyOrder(2L, 3L);
+        List<Long> planned = solution.getVehicleList().stream()
+                .flatMap(vehicle -> vehicle.getCustomerList().stream())
+                .map(Customer::getId)
+                .toList();
+        assertThat(planned).hasSize(12).contains(13L).doesNotContain(3L);
+        assertThat(solution.getScore().isSolutionInitialized()).isTrue();
+    }
+
+    @Test
+    void applyToLeavesStopsOfRemovedVehiclesUnassigned() {
+        List<Location> locations = new ArrayList<>(List.of(DEPOT));
+        Customer first = customer(1, locations);
+        Customer second = customer(2, locations);
+        Vehicle kept = new Vehicle(1L, "Vehicle 1", 100, DEPOT);
+        Vehicle removed = new Vehicle(2L, "Vehicle 2", 100, DEPOT);
+        kept.getCustomerList().add(first);
+        removed.getCustomerList().add(second);
+        VehicleRoutingSolution plan = new VehicleRoutingSolution("Plan", List.of(first, second), List.of(kept, removed));
+        Customer added = customer(3, locations);
+        DistanceMatrix matrix = manhattan(locations);
+
+        new PlanChange(List.of(added), Set.of(1L), List.of(), Set.of(2L), matrix).applyTo(plan);
+
+        assertThat(plan.getVehicleList()).containsExactly(kept);
+        assertThat(kept.getCustomerList()).isEmpty();
+        assertThat(plan.getCustomerList()).containsExactly(second, added);
+        assertThat(added.getDistanceMatrix()).isSameAs(matrix);
+    }
+
+    private static Customer customer(long id, List<Location> locations) {
+        Location location = new Location(id, 36.70 + id * 0.013 % 0.2, 10.10 + id * 0.029 % 0.2);
+        Customer customer = new Customer(id, "Customer " + id, location, 10);
+        customer.setMatrixIndex(locations.size());
+        locations.add(location);
+        return customer;
+    }
+
+    private static DistanceMatrix manhattan(List<Location> locations) {
+        int n = locations.size();
+        long[][] matrix = new long[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                matrix[i][j] = Math.round((Math.abs(locations.get(i).getLatitude() - locations.get(j).getLatitude())
+                        + Math.abs(locations.get(i).getLongitude() - locations.get(j).getLongitude())) * 100_000);
+            }
+        }
+        return new DistanceMatrix(locations, matrix, false);
+    }
+}
@@ -0,0 +1,65 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.solver.SweepPartitioner.Partition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SweepPartitionerTest {
+
+    private static final Location DEPOT = new Location(0L, 36.80, 10.20);
+
+    @Test
+    void splitsCustomersIntoBoundedSectorsWithEnoughCapacity() {
+        Random random = new Random(5);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 1; i <= 95; i++) {
+            Location location = new Location(i, 36.7 + random.nextDouble() * 0.2, 10.1 + random.nextDouble() * 0.2);
+            customers.add(new Customer((long) i, "Customer " + i, location, 1 + random.nextInt(10)));
+        }
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int v = 1; v <= 12; v++) {
+            vehicles.add(new Vehicle((long) v, "Vehicle " + v, v % 2 == 0 ? 80 : 40, DEPOT));
+        }
+
+        List<Partition> partitions = SweepPartitioner.partition(DEPOT, customers, vehicles, 20);
+
+        assertThat(partitions).hasSize(5);
+        assertThat(partitions.stream().flatMap(partition -> partition.customers().stream()))
+                .containsExactlyInAnyOrderElementsOf(customers);
+        assertThat(partitions.stream().flatMap(partition -> partition.vehicles().stream()))
+                .containsExactlyInAnyOrderElementsOf(vehicles);
+        for (Partition partition : partitions) {
+            assertThat(partition.customers()).hasSizeLessThanOrEqualTo(20);
+            assertThat(partition.getTotalCapacity()).isGreaterThanOrEqualTo(partition.getTotalDemand());
+        }
+    }
+
+    @Test
+    void sweepStartsAfterTheWidestEmptyAngle() {
+        // East, north-east and north of the depot; the widest gap runs from north round to east
+        Customer north = customer(1, 36.90, 10.20);
+        Customer east = customer(2, 36.83, 10.30);
+        Customer northEast = customer(3, 36.87, 10.27);
+
+        assertThat(SweepPartitioner.sweepOrder(DEPOT, List.of(north, east, northEast)))
+                .containsExactly(east, northEast, north);
+
+        // Two customers west of the depot straddle the -pi / pi seam of atan2 and must stay together
+        Customer northWest = customer(4, 36.81, 10.10);
+        Customer southWest = customer(5, 36.79, 10.10);
+        assertThat(SweepPartitioner.sweepOrder(DEPOT, List.of(southWest, east, northWest)))
+                .containsExactly(east, northWest, southWest);
+    }
+
+    private static Customer customer(long id, double latitude, double longitude) {
+        return new Customer(id, "Customer " + id, new Location(id, latitude, longitude), 1);
+    }
+}
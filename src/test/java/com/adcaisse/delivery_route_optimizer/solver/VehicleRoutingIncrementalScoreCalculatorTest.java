@@ -0,0 +1,102 @@
+package com.adcaisse.delivery_route_optimizer.solver;
+
+import com.adcaisse.delivery_route_optimizer.model.Customer;
+import com.adcaisse.delivery_route_optimizer.model.DistanceMatrix;
+import com.adcaisse.delivery_route_optimizer.model.Location;
+import com.adcaisse.delivery_route_optimizer.model.RoadCost;
+import com.adcaisse.delivery_route_optimizer.model.Vehicle;
+import com.adcaisse.delivery_route_optimizer.model.VehicleRoutingSolution;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VehicleRoutingIncrementalScoreCalculatorTest {
+
+    @Test
+    void incrementalScoreMatchesConstraintProviderOnEveryMove() {
+        VehicleRoutingSolution solution = solveFullAssert(createProblem(25, 4, false));
+
+        assertThat(solution.getScore()).isNotNull();
+        assertThat(solution.getVehicleList().stream().mapToInt(v -> v.getCustomerList().size()).sum()).isEqualTo(25);
+    }
+
+    @Test
+    void timeWindowScoresMatchConstraintProviderOnEveryMove() {
+        VehicleRoutingSolution problem = createProblem(25, 4, true);
+        assertThat(problem.isTimeWindowed()).isTrue();
+
+        VehicleRoutingSolution solution = solveFullAssert(problem);
+
+        assertThat(solution.getScore()).isNotNull();
+        assertThat(solution.getVehicleList().stream().mapToInt(v -> v.getCustomerList().size()).sum()).isEqualTo(25);
+    }
+
+    private static VehicleRoutingSolution solveFullAssert(VehicleRoutingSolution problem) {
+        // FULL_ASSERT recomputes every step with the constraint provider and fails on any drift
+        SolverConfig config = SolverConfig.createFromXmlResource("solverConfig.xml")
+                .withEnvironmentMode(EnvironmentMode.FULL_ASSERT)
+                .withTerminationConfig(new TerminationConfig().withSecondsSpentLimit(3L));
+        config.getScoreDirectorFactoryConfig().setAssertionScoreDirectorFactory(
+                new ScoreDirectorFactoryConfig().withConstraintProviderClass(VehicleRoutingConstraintProvider.class));
+
+        return SolverFactory.<VehicleRoutingSolution>create(config)
+                .buildSolver()
+                .solve(problem);
+    }
+
+    /**
+     * @param timeWindows Give every other customer a window tight enough to be missed and waited for
+     */
+    private static VehicleRoutingSolution createProblem(int customerCount, int vehicleCount, boolean timeWindows) {
+        Random random = new Random(7);
+        Location depot = new Location(0, 36.80, 10.20);
+        List<Location> locations = new ArrayList<>();
+        locations.add(depot);
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 1; i <= customerCount; i++) {
+            Location location = new Location(i, 36.7 + random.nextDouble() * 0.2, 10.1 + random.nextDouble() * 0.2);
+            locations.add(location);
+            Customer customer = new Customer((long) i, "Customer " + i, location, 1 + random.nextInt(10));
+            customer.setMatrixIndex(i);
+            if (timeWindows && i % 2 == 0) {
+                customer.setReadyTime(random.nextInt(90));
+                customer.setDueTime(customer.getReadyTime() + 15 + random.nextInt(30));
+            }
+            customers.add(customer);
+        }
+
+        // Tight capacity so the capacity constraint is exercised too
+        int capacity = customers.stream().mapToInt(Customer::getDemand).sum() / vehicleCount;
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int v = 0; v < vehicleCount; v++) {
+            vehicles.add(new Vehicle((long) v + 1, "Vehicle " + (v + 1), capacity, depot));
+        }
+
+        // Directed distances: going north costs more than coming back
+        int n = locations.size();
+        long[][] matrix = new long[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double dLat = locations.get(j).getLatitude() - locations.get(i).getLatitude();
+                double dLon = locations.get(j).getLongitude() - locations.get(i).getLongitude();
+                long distance = Math.round((Math.abs(dLat) + Math.abs(dLon)) * 100_000) + (dLat > 0 ? 250 : 0);
+                // About 30 km/h, so travel times are not a multiple of the distances
+                matrix[i][j] = RoadCost.of(distance, distance * 12 / 100);
+            }
+        }
+
+        VehicleRoutingSolution problem = new VehicleRoutingSolution("Incremental score", customers, vehicles);
+        problem.setDistanceMatrix(DistanceMatrix.ofRoadCosts(locations, matrix, true));
+        return problem;
+    }
+}